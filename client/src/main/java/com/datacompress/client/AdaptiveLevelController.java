@@ -0,0 +1,68 @@
+package com.datacompress.client;
+
+import com.datacompress.algorithm.CompressionAlgorithm;
+
+import java.util.Arrays;
+
+/**
+ * 流式传输的压缩级别自适应控制（参照zstd --adapt）
+ * 每个分片发送前根据连接的出站状态决定下一个分片的级别：
+ * 连接不可写说明网络跟不上压缩，提高级别以减少待发字节；
+ * 压缩完成时出站缓冲区已排空说明网络在等待压缩，降低级别以加快压缩。
+ * 每个分片最多调整一级，结果限制在算法支持的级别范围内。
+ */
+class AdaptiveLevelController {
+
+    private final boolean adaptive;
+    private final int minLevel;
+    private final int maxLevel;
+    private int level;
+    private int[] trajectory = new int[16];
+    private int count;
+
+    /**
+     * @param algorithm 压缩算法，不支持自定义级别时级别保持不变
+     * @param initialLevel 初始级别
+     * @param adaptive 是否启用自适应
+     */
+    AdaptiveLevelController(CompressionAlgorithm algorithm, int initialLevel, boolean adaptive) {
+        this.adaptive = adaptive && algorithm.supportsCustomLevel();
+        this.minLevel = algorithm.getMinLevel();
+        this.maxLevel = algorithm.getMaxLevel();
+        this.level = initialLevel;
+    }
+
+    /**
+     * 下一个分片使用的级别，调用即记入轨迹
+     */
+    int nextLevel() {
+        if (count == trajectory.length) {
+            trajectory = Arrays.copyOf(trajectory, count * 2);
+        }
+        trajectory[count++] = level;
+        return level;
+    }
+
+    /**
+     * 报告一个分片压缩完成、发送之前的出站状态
+     * @param linkBlocked 连接不可写，需要等待出站缓冲区回落
+     * @param outboundDrained 出站缓冲区中已没有待发数据
+     */
+    void onChunkCompressed(boolean linkBlocked, boolean outboundDrained) {
+        if (!adaptive) {
+            return;
+        }
+        if (linkBlocked) {
+            level = Math.min(maxLevel, level + 1);
+        } else if (outboundDrained) {
+            level = Math.max(minLevel, level - 1);
+        }
+    }
+
+    /**
+     * 各分片依次使用的级别
+     */
+    int[] getTrajectory() {
+        return Arrays.copyOf(trajectory, count);
+    }
+}
@@ -2,42 +2,193 @@ package com.datacompress.client;
 
 import com.datacompress.algorithm.CompressionAlgorithm;
 import com.datacompress.algorithm.CompressionFactory;
+import com.datacompress.algorithm.archive.ParallelZipArchiver;
+import com.datacompress.crypto.PayloadCipher;
+import com.datacompress.dedup.Chunk;
+import com.datacompress.dedup.ChunkSource;
+import com.datacompress.dedup.DedupPayload;
+import com.datacompress.dedup.GearChunker;
+import com.datacompress.context.StreamingCompressor;
+import com.datacompress.context.StreamingContexts;
+import com.datacompress.delta.ZstdDeltaCodec;
+import com.datacompress.integrity.IntegrityInfo;
 import com.datacompress.model.PerformanceMetrics;
+import com.datacompress.netem.NetworkEmulationHandler;
+import com.datacompress.netem.NetworkProfile;
+import com.datacompress.protocol.ChunkQueryMessage;
+import com.datacompress.protocol.ChunkQueryMessageEncoder;
+import com.datacompress.protocol.ChunkQueryResponse;
+import com.datacompress.protocol.HelloMessage;
+import com.datacompress.protocol.HelloMessageEncoder;
+import com.datacompress.protocol.ProtocolFeatures;
+import com.datacompress.protocol.PriorityWriteScheduler;
+import com.datacompress.protocol.ProtocolSession;
+import com.datacompress.protocol.ReceiptMessage;
 import com.datacompress.protocol.ResponseMessage;
 import com.datacompress.protocol.ResponseMessageDecoder;
+import com.datacompress.protocol.ResumeQueryMessage;
+import com.datacompress.protocol.ResumeQueryMessageEncoder;
+import com.datacompress.protocol.ResumeQueryResponse;
 import com.datacompress.protocol.TransferMessage;
 import com.datacompress.protocol.TransferMessageEncoder;
+import com.datacompress.protocol.TransferMode;
+import com.datacompress.protocol.UnifiedMessageDecoder;
 import com.datacompress.protocol.HeartbeatMessage;
 import com.datacompress.protocol.HeartbeatMessageEncoder;
 import com.datacompress.protocol.HeartbeatMessageDecoder;
+import com.datacompress.shm.SharedMemoryAddress;
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.AttributeKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * 客户端通信类
  * 负责与服务端连接、发送压缩数据并接收响应
+ * 连接池模式下保持多个连接：独立的传输分散到未完成请求最少的连接上，
+ * 较大的传输切分为分片经各连接并行发送，由服务端按偏移重组
+ * 与服务端在同一主机上时可改用Unix域套接字或共享内存连接，绕过TCP回环协议栈；
+ * 与服务端在同一进程中时可经LocalChannel连接，只经过两端的处理器链
  */
 public class CompressionClient {
     
     private static final Logger logger = LoggerFactory.getLogger(CompressionClient.class);
     
-    private String host;
-    private int port;
+    // 服务端地址，TCP为未解析的主机与端口，域套接字为套接字文件路径，进程内连接为LocalAddress，
+    // 共享内存连接为SharedMemoryAddress
+    private final SocketAddress remoteAddress;
+    private SharedMemoryRelay sharedMemoryRelay;  // 共享内存连接的中转，其他连接方式为null
     private EventLoopGroup group;
-    private Channel channel;
+    private Bootstrap bootstrap;  // 建立连接所用的配置，断线后重新建立连接时复用
+    private Channel channel;  // 主连接，心跳与上下文模式固定使用
+    private final List<Channel> channels = new CopyOnWriteArrayList<>();  // 连接池中的全部连接（含主连接）
     private boolean connected = false;
+    // 压缩等CPU密集的准备工作在固定线程池中执行，等待响应不占用线程
+    private ExecutorService compressionExecutor;
+    private final ParallelZipArchiver zipArchiver = new ParallelZipArchiver();
+    private final GearChunker chunker = new GearChunker();
+    // 当前连接上按算法ID保存的流式压缩上下文，连接变化时清空
+    private final Map<Byte, StreamingCompressor> compressionContexts = new ConcurrentHashMap<>();
+    // 是否为原始数据附带块校验和与文件哈希
+    private volatile boolean integrityCheckEnabled = true;
+    // 是否要求服务端返回计算的文件哈希（开启时总是附带校验信息）
+    private volatile boolean returnHashRequested = false;
+    // 连接时申请的最高协议版本，设为v1时跳过握手以兼容旧服务端
+    private volatile int protocolVersion = ProtocolSession.CURRENT;
+    // 连接池中的连接数，默认只使用一个连接
+    private volatile int poolSize = 1;
+    // 条带传输的分片大小，压缩数据超过该大小且有多个连接时切分发送
+    private volatile int stripeChunkSize = DEFAULT_STRIPE_CHUNK_SIZE;
+    // 流式传输每个分片的原始数据大小
+    private volatile int streamChunkSize = DEFAULT_STREAM_CHUNK_SIZE;
+    // 流式传输是否按网络与压缩的快慢自动调整压缩级别
+    private volatile boolean adaptiveLevelEnabled = true;
+    // 之后发起的传输与同一连接上其他大传输交错发送时的权重
+    private volatile int transferWeight = PriorityWriteScheduler.DEFAULT_WEIGHT;
+    // 压缩后以预共享密钥加密，为null时不加密
+    private volatile PayloadCipher payloadCipher;
+    // 模拟的链路条件，为null时不模拟
+    private volatile NetworkProfile networkProfile;
+    
+    private static final long HANDSHAKE_TIMEOUT_MS = 3000;
+    private static final AttributeKey<ResponseDispatcher> DISPATCHER = AttributeKey.valueOf("responseDispatcher");
+    private static final int DEFAULT_STRIPE_CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int DEFAULT_STREAM_CHUNK_SIZE = 1024 * 1024;
+    // 流式传输中读取线程最多领先压缩发送线程的分片数
+    private static final int STREAM_READ_AHEAD = 2;
+    // 流式传输中已发送、尚未被服务端确认的最大分片数
+    private static final int STREAM_WINDOW = 4;
+    // 出站缓冲区的高低水位：超过高水位时连接不可写，回落到低水位以下时恢复
+    private static final int WRITE_BUFFER_LOW_WATER_MARK = 256 * 1024;
+    private static final int WRITE_BUFFER_HIGH_WATER_MARK = 1024 * 1024;
+    // 断线后续传的最大尝试次数，第n次尝试前等待n倍的间隔
+    private static final int STREAM_RESUME_ATTEMPTS = 5;
+    private static final long STREAM_RESUME_BACKOFF_MS = 500;
+    // 读取失败时放入队列的标记，按引用比较
+    private static final byte[] READ_FAILED = new byte[0];
     
     public CompressionClient(String host, int port) {
-        this.host = host;
-        this.port = port;
+        this.remoteAddress = InetSocketAddress.createUnresolved(host, port);
+    }
+    
+    /**
+     * 创建经Unix域套接字连接同一主机上服务端的客户端
+     * 需要Linux原生epoll传输，服务端需在server.properties中配置相同的server.unix.socket.path
+     * @param socketPath 服务端监听的套接字文件路径
+     */
+    public CompressionClient(Path socketPath) {
+        this.remoteAddress = new DomainSocketAddress(socketPath.toFile());
+    }
+    
+    /**
+     * 创建经LocalChannel连接同一进程中服务端的客户端
+     * 数据不经过套接字，以ByteBuf直接交给服务端的处理器链，用于测量编解码本身的开销
+     * @param localAddress 服务端LocalServerChannel绑定的地址
+     */
+    public CompressionClient(LocalAddress localAddress) {
+        this.remoteAddress = localAddress;
+    }
+    
+    /**
+     * 创建经共享内存连接同一主机上服务端的客户端
+     * 每个连接是共享目录中的一个内存映射文件，两个方向的数据经文件中的环形缓冲区传递，
+     * 服务端需在server.properties中配置相同的server.shm.directory
+     * @param address 共享目录、等待方式与环形缓冲区容量
+     */
+    public CompressionClient(SharedMemoryAddress address) {
+        this.remoteAddress = address;
+    }
+    
+    /**
+     * 是否经Unix域套接字连接
+     */
+    public boolean isDomainSocket() {
+        return remoteAddress instanceof DomainSocketAddress;
     }
     
     /**
@@ -47,37 +198,90 @@ public class CompressionClient {
     public CompletableFuture<Boolean> connect() {
         CompletableFuture<Boolean> future = new CompletableFuture<>();
         
-        group = new NioEventLoopGroup();
+        Class<? extends Channel> channelClass;
+        if (remoteAddress instanceof LocalAddress) {
+            group = new DefaultEventLoopGroup();
+            channelClass = LocalChannel.class;
+        } else if (remoteAddress instanceof SharedMemoryAddress) {
+            // 客户端处理器链经LocalChannel连到中转，中转与共享内存对接；
+            // 两端在同一线程上时LocalChannel直接把数据交给对端，不再切换线程
+            group = new DefaultEventLoopGroup(1);
+            channelClass = LocalChannel.class;
+            sharedMemoryRelay = new SharedMemoryRelay((SharedMemoryAddress) remoteAddress, group);
+        } else if (isDomainSocket()) {
+            if (!Epoll.isAvailable()) {
+                logger.error("当前平台不支持epoll，无法使用Unix域套接字连接", Epoll.unavailabilityCause());
+                future.complete(false);
+                return future;
+            }
+            group = new EpollEventLoopGroup();
+            channelClass = EpollDomainSocketChannel.class;
+        } else {
+            group = new NioEventLoopGroup();
+            channelClass = NioSocketChannel.class;
+        }
+        if (compressionExecutor == null || compressionExecutor.isShutdown()) {
+            compressionExecutor = newCompressionExecutor();
+        }
+        channels.clear();
         
         try {
             Bootstrap bootstrap = new Bootstrap();
             bootstrap.group(group)
-                    .channel(NioSocketChannel.class)
-                    .handler(new ChannelInitializer<SocketChannel>() {
+                    .channel(channelClass)
+                    .option(ChannelOption.WRITE_BUFFER_WATER_MARK,
+                            new WriteBufferWaterMark(WRITE_BUFFER_LOW_WATER_MARK, WRITE_BUFFER_HIGH_WATER_MARK))
+                    .handler(new ChannelInitializer<Channel>() {
                         @Override
-                        protected void initChannel(SocketChannel ch) throws Exception {
+                        protected void initChannel(Channel ch) throws Exception {
                             ChannelPipeline pipeline = ch.pipeline();
                             
                             // 使用统一消息解码器
                             pipeline.addLast("unifiedDecoder", new com.datacompress.protocol.UnifiedMessageDecoder());
                             
+                            // 大帧分段写出，心跳与小消息插在段之间，多个大传输按权重轮流发送（最靠近网络一侧）
+                            pipeline.addLast("frameScheduler", new PriorityWriteScheduler());
+                            
+                            // 分块写出传输消息的压缩数据（位于编码器之后，靠近网络一侧）
+                            pipeline.addLast("chunkedWriter", new ChunkedWriteHandler());
+                            
                             // 添加编码器
+                            pipeline.addLast("helloEncoder", new HelloMessageEncoder());
                             pipeline.addLast("heartbeatEncoder", new HeartbeatMessageEncoder());
                             pipeline.addLast("transferMessageEncoder", new TransferMessageEncoder());
+                            pipeline.addLast("chunkQueryEncoder", new ChunkQueryMessageEncoder());
+                            pipeline.addLast("resumeQueryEncoder", new ResumeQueryMessageEncoder());
+                            
+                            // 每个连接一个常驻的响应分发器，按请求ID对应响应
+                            ResponseDispatcher dispatcher = new ResponseDispatcher();
+                            pipeline.addLast("responseDispatcher", dispatcher);
+                            ch.attr(DISPATCHER).set(dispatcher);
+                            
+                            // 链路模拟位于最靠近网络的一侧
+                            NetworkProfile profile = networkProfile;
+                            if (profile != null) {
+                                NetworkEmulationHandler.install(pipeline, profile, false);
+                            }
                         }
                     });
             
-            logger.info("正在连接到服务器 {}:{}", host, port);
+            this.bootstrap = bootstrap;
+            logger.info("正在连接到服务器 {}，连接数: {}", remoteAddress, poolSize);
             
-            ChannelFuture channelFuture = bootstrap.connect(host, port);
-            channelFuture.addListener((ChannelFutureListener) channelFuture1 -> {
-                if (channelFuture1.isSuccess()) {
-                    channel = channelFuture1.channel();
+            List<CompletableFuture<Boolean>> opened = new ArrayList<>();
+            for (int i = 0; i < poolSize; i++) {
+                opened.add(openChannel(bootstrap));
+            }
+            CompletableFuture.allOf(opened.toArray(new CompletableFuture[0])).thenRun(() -> {
+                if (opened.stream().allMatch(CompletableFuture::join)) {
+                    channel = channels.get(0);
                     connected = true;
-                    logger.info("成功连接到服务器");
+                    closeCompressionContexts();
+                    logger.info("成功连接到服务器，连接数: {}", channels.size());
                     future.complete(true);
                 } else {
-                    logger.error("连接服务器失败", channelFuture1.cause());
+                    channels.forEach(Channel::close);
+                    channels.clear();
                     future.complete(false);
                 }
             });
@@ -90,6 +294,178 @@ public class CompressionClient {
         return future;
     }
     
+    /**
+     * 建立连接池中的一个连接并完成握手
+     */
+    private CompletableFuture<Boolean> openChannel(Bootstrap bootstrap) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        connectChannel(bootstrap).thenCompose(ch -> handshake(bootstrap, ch)).whenComplete((ch, error) -> {
+            if (error == null) {
+                channels.add(ch);
+                future.complete(true);
+            } else {
+                logger.error("连接服务器失败", error);
+                future.complete(false);
+            }
+        });
+        return future;
+    }
+    
+    /**
+     * 建立一个连接，共享内存连接经中转建立
+     */
+    private CompletableFuture<Channel> connectChannel(Bootstrap bootstrap) {
+        SharedMemoryRelay relay = sharedMemoryRelay;
+        if (relay != null) {
+            return relay.connect(bootstrap, compressionExecutor);
+        }
+        CompletableFuture<Channel> future = new CompletableFuture<>();
+        bootstrap.connect(remoteAddress).addListener((ChannelFutureListener) channelFuture -> {
+            if (channelFuture.isSuccess()) {
+                future.complete(channelFuture.channel());
+            } else {
+                future.completeExceptionally(channelFuture.cause());
+            }
+        });
+        return future;
+    }
+    
+    /**
+     * 用新连接替换连接池中已断开的连接，用于断线后续传
+     * @param lost 已断开的连接
+     * @return 完成握手的新连接，连接或握手失败时异常完成
+     */
+    private CompletableFuture<Channel> reopenChannel(Channel lost) {
+        CompletableFuture<Channel> future = new CompletableFuture<>();
+        Bootstrap current = bootstrap;
+        if (!connected || current == null) {
+            future.completeExceptionally(new IllegalStateException("未连接到服务器"));
+            return future;
+        }
+        connectChannel(current).thenCompose(ch -> handshake(current, ch)).whenComplete((ch, error) -> {
+            if (error != null) {
+                future.completeExceptionally(error);
+                return;
+            }
+            channels.remove(lost);
+            channels.add(ch);
+            if (channel == lost) {
+                // 主连接上的压缩上下文随旧连接失效
+                channel = ch;
+                closeCompressionContexts();
+            }
+            logger.info("已重新建立连接，连接数: {}", channels.size());
+            future.complete(ch);
+        });
+        return future;
+    }
+    
+    /**
+     * 连接建立后进行协议握手，协商结果保存在Channel属性中
+     * 服务端未在超时内回复时说明对端只懂基线格式：基线解码器把握手消息的字节当作未知类型跳过后，
+     * 会把版本号字节误读为传输消息的类型，其后的数据全部错位，因此关闭该连接，
+     * 此后的连接（包括本次替换的连接）按v1协议建立，不再发送握手消息
+     * @return 可用的连接，可能是按v1重新建立的新连接；握手消息发送失败时异常完成
+     */
+    private CompletableFuture<Channel> handshake(Bootstrap bootstrap, Channel ch) {
+        CompletableFuture<Channel> future = new CompletableFuture<>();
+        if (protocolVersion < ProtocolSession.V2) {
+            future.complete(ch);
+            return future;
+        }
+        
+        int features = payloadCipher != null ? ProtocolFeatures.ALL | ProtocolFeatures.ENCRYPTION : ProtocolFeatures.ALL;
+        HelloMessage clientHello = new HelloMessage(protocolVersion, CompressionFactory.getAllAlgorithmIds(),
+                UnifiedMessageDecoder.DEFAULT_MAX_FRAME_SIZE, features);
+        
+        dispatcherOf(ch).getHello().whenComplete((serverHello, error) -> {
+            if (error == null && !future.isDone()) {
+                ProtocolSession session = ProtocolSession.negotiate(clientHello, serverHello);
+                ch.attr(ProtocolSession.KEY).set(session);
+                logger.info("协议握手完成: {}", session);
+                future.complete(ch);
+            }
+        });
+        
+        ch.eventLoop().schedule(() -> {
+            if (!future.isDone()) {
+                logger.warn("服务端未响应协议握手，关闭连接并按v1协议重新连接");
+                protocolVersion = ProtocolSession.V1;
+                ch.close();
+                connectChannel(bootstrap).whenComplete((reconnected, error) -> {
+                    if (error == null) {
+                        future.complete(reconnected);
+                    } else {
+                        future.completeExceptionally(error);
+                    }
+                });
+            }
+        }, HANDSHAKE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        
+        ch.writeAndFlush(clientHello).addListener((ChannelFutureListener) writeFuture -> {
+            if (!writeFuture.isSuccess()) {
+                logger.error("发送握手消息失败", writeFuture.cause());
+                ch.close();
+                future.completeExceptionally(writeFuture.cause());
+            }
+        });
+        return future;
+    }
+    
+    /**
+     * 连接的响应分发器
+     * 从Channel属性获取而不是从管道查找：连接关闭注销后管道中的处理器会被移除，
+     * 此时发送的请求应经写出失败正常结束，而不是找不到分发器
+     */
+    private static ResponseDispatcher dispatcherOf(Channel ch) {
+        return ch.attr(DISPATCHER).get();
+    }
+    
+    /**
+     * 发送前检查协商结果，避免服务端不支持的算法、模式或超出其单帧上限的数据白白传输
+     */
+    private void checkNegotiated(Channel ch, TransferMessage transferMsg) throws IOException {
+        int maxFrameSize = maxFrameSizeOf(ch);
+        if (transferMsg.getDataLength() > maxFrameSize) {
+            throw new IOException(String.format("压缩数据 %d bytes 超过服务端单帧上限 %d bytes",
+                    transferMsg.getDataLength(), maxFrameSize));
+        }
+        ProtocolSession session = ProtocolSession.get(ch);
+        if (session == null) {
+            // 未握手时按v1的基线格式通信，只能进行普通传输
+            if (transferMsg.getTransferMode() != TransferMode.NORMAL) {
+                throw new IOException("服务端未协商v2协议，不支持传输模式: " + transferMsg.getTransferMode());
+            }
+            if (transferMsg.isHashRequested()) {
+                throw new IOException("服务端未协商v2协议，无法返回文件哈希");
+            }
+            // 基线格式不携带块校验信息，服务端不做完整性校验
+            transferMsg.setIntegrity(null);
+            return;
+        }
+        if (!session.supportsAlgorithm(transferMsg.getAlgorithmId())) {
+            throw new IOException("服务端不支持算法ID: " + transferMsg.getAlgorithmId());
+        }
+        int feature = ProtocolFeatures.forTransferMode(transferMsg.getTransferMode());
+        if (transferMsg.getIntegrity() != null) {
+            feature |= ProtocolFeatures.INTEGRITY;
+        }
+        if (transferMsg.isEncrypted()) {
+            feature |= ProtocolFeatures.ENCRYPTION;
+        }
+        if (!session.supportsFeature(feature)) {
+            throw new IOException(String.format("服务端不支持所需特性: 0x%x", feature & ~session.getFeatures()));
+        }
+    }
+    
+    /**
+     * 服务端的单帧上限：v2取握手时服务端声明的值，v1为基线解码器的默认上限
+     */
+    private static int maxFrameSizeOf(Channel ch) {
+        ProtocolSession session = ProtocolSession.get(ch);
+        return session != null ? session.getMaxFrameSize() : UnifiedMessageDecoder.DEFAULT_MAX_FRAME_SIZE;
+    }
+    
     /**
      * 发送文件数据
      * @param fileData 文件数据
@@ -110,8 +486,8 @@ public class CompressionClient {
             return future;
         }
         
-        // 在新线程中执行压缩和发送操作
-        new Thread(() -> {
+        // 在压缩线程池中执行压缩，发送后不阻塞等待响应
+        compressionExecutor.execute(() -> {
             try {
                 PerformanceMetrics metrics = new PerformanceMetrics();
                 metrics.setOriginalSize(fileData.length);
@@ -167,121 +543,250 @@ public class CompressionClient {
                         compressedData
                 );
                 
-                // 发送消息并等待响应
-                CompletableFuture<ResponseMessage> responseFuture = new CompletableFuture<>();
+                attachIntegrity(transferMsg, fileData);
                 
-                channel.pipeline().addLast(new SimpleChannelInboundHandler<ResponseMessage>() {
-                    @Override
-                    protected void channelRead0(ChannelHandlerContext ctx, ResponseMessage msg) throws Exception {
-                        responseFuture.complete(msg);
-                        ctx.pipeline().remove(this);
-                    }
-                    
-                    @Override
-                    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
-                        responseFuture.completeExceptionally(cause);
-                        ctx.pipeline().remove(this);
-                    }
-                });
+                transfer(transferMsg, metrics, progressCallback)
+                        .whenComplete(completeWith(future, "发送文件时发生错误"));
                 
-                channel.writeAndFlush(transferMsg).addListener((ChannelFutureListener) channelFuture -> {
-                    if (channelFuture.isSuccess()) {
-                        logger.info("数据发送完成，耗时: {} ms", sendEndTime - sendStartTime);
-                        
-                        if (progressCallback != null) {
-                            progressCallback.onProgress(0.8, "等待服务器响应...");
-                        }
-                    } else {
-                        responseFuture.completeExceptionally(channelFuture.cause());
-                    }
-                });
+            } catch (Exception e) {
+                logger.error("发送文件时发生错误", e);
+                future.completeExceptionally(e);
+            }
+        });
+        
+        return future;
+    }
+    
+    /**
+     * 发送目录（打包为多条目ZIP归档，各条目并行压缩）
+     * @param directory 目录
+     * @param compressionLevel 压缩级别
+     * @param progressCallback 进度回调
+     * @return 性能指标
+     */
+    public CompletableFuture<PerformanceMetrics> sendDirectory(File directory, int compressionLevel,
+                                                               ProgressCallback progressCallback) {
+        CompletableFuture<PerformanceMetrics> future = new CompletableFuture<>();
+        
+        if (!connected || channel == null || !channel.isActive()) {
+            future.completeExceptionally(new IllegalStateException("未连接到服务器"));
+            return future;
+        }
+        
+        compressionExecutor.execute(() -> {
+            try {
+                // 目录归档固定使用ZIP
+                CompressionAlgorithm algorithm = CompressionFactory.getAlgorithm("ZIP");
+                
+                PerformanceMetrics metrics = new PerformanceMetrics();
+                metrics.setAlgorithmName(algorithm.getName());
+                metrics.setAlgorithmId(algorithm.getAlgorithmId());
+                
+                if (progressCallback != null) {
+                    progressCallback.onProgress(0.1, "正在并行打包目录...");
+                }
+                
+                long compressStartTime = System.currentTimeMillis();
+                metrics.setCompressStartTime(compressStartTime);
                 
-                // 等待响应
-                ResponseMessage response = responseFuture.get();
+                int level = Math.max(algorithm.getMinLevel(), Math.min(compressionLevel, algorithm.getMaxLevel()));
+                ParallelZipArchiver.ArchiveResult archive = zipArchiver.archive(directory.toPath(), level);
                 
-                long responseReceivedTime = System.currentTimeMillis();
-                metrics.setResponseReceivedTime(responseReceivedTime);
+                long compressEndTime = System.currentTimeMillis();
+                metrics.setCompressEndTime(compressEndTime);
+                metrics.setOriginalSize(archive.getTotalSize());
+                metrics.setCompressedSize(archive.getData().length);
                 
-                // 设置服务端时间戳
-                metrics.setReceiveStartTime(response.getReceiveStartTime());
-                metrics.setReceiveEndTime(response.getReceiveEndTime());
-                metrics.setDecompressStartTime(response.getDecompressStartTime());
-                metrics.setDecompressEndTime(response.getDecompressEndTime());
+                logger.info("目录打包完成 - 文件数: {}, 原始大小: {} bytes, 归档大小: {} bytes, 耗时: {} ms",
+                        archive.getFileCount(), archive.getTotalSize(), archive.getData().length,
+                        metrics.getCompressionTime());
                 
                 if (progressCallback != null) {
-                    progressCallback.onProgress(1.0, "完成");
+                    progressCallback.onProgress(0.5, "正在发送数据...");
                 }
                 
-                logger.info("收到服务器响应 - {}", response.getMessage());
-                logger.info("性能指标: {}", metrics);
+                long sendStartTime = System.currentTimeMillis();
+                metrics.setSendStartTime(sendStartTime);
                 
-                if (response.isSuccess()) {
-                    future.complete(metrics);
-                } else {
-                    future.completeExceptionally(new IOException("服务器处理失败: " + response.getMessage()));
-                }
+                long sendEndTime = System.currentTimeMillis();
+                metrics.setSendEndTime(sendEndTime);
+                
+                TransferMessage transferMsg = new TransferMessage(
+                        algorithm.getAlgorithmId(),
+                        archive.getTotalSize(),
+                        archive.getData().length,
+                        compressStartTime,
+                        compressEndTime,
+                        sendStartTime,
+                        sendEndTime,
+                        directory.getName(),
+                        archive.getData()
+                );
+                transferMsg.setTransferMode(TransferMode.ARCHIVE);
+                
+                transfer(transferMsg, metrics, progressCallback)
+                        .whenComplete(completeWith(future, "发送目录时发生错误"));
                 
             } catch (Exception e) {
-                logger.error("发送文件时发生错误", e);
+                logger.error("发送目录时发生错误", e);
                 future.completeExceptionally(e);
             }
-        }).start();
+        });
         
         return future;
     }
     
     /**
-     * 发送心跳并测量网络延迟
-     * @return 往返时间（毫秒），如果失败返回-1
+     * 去重发送文件数据
+     * 先按内容定义分块并查询服务端缺失的分块，只压缩发送缺失分块和分块清单
+     * @param fileData 文件数据
+     * @param fileName 文件名（含扩展名）
+     * @param algorithmName 压缩算法名称
+     * @param compressionLevel 压缩级别
+     * @param progressCallback 进度回调
+     * @return 性能指标（压缩后大小为实际发送的字节数）
      */
-    public CompletableFuture<Long> sendHeartbeat() {
-        CompletableFuture<Long> future = new CompletableFuture<>();
+    public CompletableFuture<PerformanceMetrics> sendFileDedup(byte[] fileData, String fileName,
+                                                               String algorithmName,
+                                                               int compressionLevel,
+                                                               ProgressCallback progressCallback) {
+        return sendDedup(() -> ChunkSource.of(fileData), fileName, algorithmName, compressionLevel, progressCallback);
+    }
+    
+    /**
+     * 去重发送文件
+     * 文件顺序读取分块，只按偏移读回需要发送的缺失分块，不整体载入内存，可用于超过2GB的文件
+     * @param file 文件
+     * @param algorithmName 压缩算法名称
+     * @param compressionLevel 压缩级别
+     * @param progressCallback 进度回调
+     * @return 性能指标（压缩后大小为实际发送的字节数）
+     */
+    public CompletableFuture<PerformanceMetrics> sendFileDedup(File file, String algorithmName,
+                                                               int compressionLevel,
+                                                               ProgressCallback progressCallback) {
+        return sendDedup(() -> ChunkSource.open(file.toPath()), file.getName(), algorithmName, compressionLevel,
+                progressCallback);
+    }
+    
+    /**
+     * 数据来源在压缩线程上打开，传输结束后关闭
+     */
+    private interface ChunkSourceOpener {
+        ChunkSource open() throws IOException;
+    }
+    
+    private CompletableFuture<PerformanceMetrics> sendDedup(ChunkSourceOpener opener, String fileName,
+                                                            String algorithmName,
+                                                            int compressionLevel,
+                                                            ProgressCallback progressCallback) {
+        CompletableFuture<PerformanceMetrics> future = new CompletableFuture<>();
         
         if (!connected || channel == null || !channel.isActive()) {
-            future.complete(-1L);
+            future.completeExceptionally(new IllegalStateException("未连接到服务器"));
+            return future;
+        }
+        // 分块查询与去重模式都只在v2帧中携带，避免向只懂基线格式的服务端发送查询后无从应答
+        if (ProtocolSession.get(channel) == null) {
+            future.completeExceptionally(new IOException("服务端未协商v2协议，不支持去重传输"));
             return future;
         }
         
-        long sendTime = System.currentTimeMillis();
-        HeartbeatMessage heartbeat = new HeartbeatMessage(sendTime);
-        
-        // 添加临时处理器来接收心跳响应
-        CompletableFuture<HeartbeatMessage> responseFuture = new CompletableFuture<>();
-        
-        // 使用时间戳生成唯一的处理器名称，避免冲突
-        String handlerName = "heartbeatResponseHandler-" + sendTime;
-        
-        channel.pipeline().addLast(handlerName, new SimpleChannelInboundHandler<HeartbeatMessage>() {
-            @Override
-            protected void channelRead0(ChannelHandlerContext ctx, HeartbeatMessage msg) throws Exception {
-                responseFuture.complete(msg);
-                ctx.pipeline().remove(this);
-            }
-            
-            @Override
-            public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
-                responseFuture.completeExceptionally(cause);
-                ctx.pipeline().remove(this);
-            }
-        });
-        
-        // 发送心跳
-        channel.writeAndFlush(heartbeat).addListener((ChannelFutureListener) channelFuture -> {
-            if (!channelFuture.isSuccess()) {
-                responseFuture.completeExceptionally(channelFuture.cause());
-            }
-        });
-        
-        // 等待响应并计算延迟
-        responseFuture.whenComplete((response, error) -> {
-            if (error != null) {
-                logger.warn("心跳失败: {}", error.getMessage());
-                future.complete(-1L);
-            } else {
-                long receiveTime = System.currentTimeMillis();
-                long latency = receiveTime - sendTime;
-                logger.debug("心跳往返时间: {} ms", latency);
-                future.complete(latency);
+        compressionExecutor.execute(() -> {
+            ChunkSource source = null;
+            try {
+                source = opener.open();
+                ChunkSource opened = source;
+                long fileSize = source.size();
+                
+                PerformanceMetrics metrics = new PerformanceMetrics();
+                metrics.setOriginalSize(fileSize);
+                metrics.setAlgorithmName(algorithmName);
+                
+                CompressionAlgorithm algorithm = CompressionFactory.getAlgorithm(algorithmName);
+                if (algorithm == null) {
+                    throw new IllegalArgumentException("不支持的压缩算法: " + algorithmName);
+                }
+                
+                metrics.setAlgorithmId(algorithm.getAlgorithmId());
+                
+                if (progressCallback != null) {
+                    progressCallback.onProgress(0.1, "正在分块...");
+                }
+                
+                // 分块、查询和压缩都计入压缩耗时
+                long compressStartTime = System.currentTimeMillis();
+                metrics.setCompressStartTime(compressStartTime);
+                
+                List<Chunk> chunks;
+                try (InputStream in = source.openStream()) {
+                    chunks = chunker.split(in);
+                }
+                
+                if (progressCallback != null) {
+                    progressCallback.onProgress(0.2, "正在查询服务端已有分块...");
+                }
+                
+                // 查询响应到达后再在压缩线程池中继续，等待期间不占用线程
+                queryMissingChunks(chunks)
+                        .thenComposeAsync(queryResponse -> {
+                            try {
+                                if (queryResponse.getChunkCount() != chunks.size()) {
+                                    throw new IOException("分块查询响应的分块数不匹配");
+                                }
+                                
+                                if (progressCallback != null) {
+                                    progressCallback.onProgress(0.3, "正在压缩缺失分块...");
+                                }
+                                
+                                byte[] payload = DedupPayload.encode(opened, chunks, queryResponse.getMissing());
+                                byte[] compressedData = algorithm.compress(payload, compressionLevel);
+                                
+                                long compressEndTime = System.currentTimeMillis();
+                                metrics.setCompressEndTime(compressEndTime);
+                                metrics.setCompressedSize(compressedData.length);
+                                
+                                logger.info("去重压缩完成 - 分块数: {}, 缺失分块: {}, 原始大小: {} bytes, 发送大小: {} bytes, 耗时: {} ms",
+                                        chunks.size(), queryResponse.getMissing().cardinality(), fileSize,
+                                        compressedData.length, metrics.getCompressionTime());
+                                
+                                if (progressCallback != null) {
+                                    progressCallback.onProgress(0.5, "正在发送数据...");
+                                }
+                                
+                                long sendStartTime = System.currentTimeMillis();
+                                metrics.setSendStartTime(sendStartTime);
+                                
+                                long sendEndTime = System.currentTimeMillis();
+                                metrics.setSendEndTime(sendEndTime);
+                                
+                                TransferMessage transferMsg = new TransferMessage(
+                                        algorithm.getAlgorithmId(),
+                                        fileSize,
+                                        compressedData.length,
+                                        compressStartTime,
+                                        compressEndTime,
+                                        sendStartTime,
+                                        sendEndTime,
+                                        fileName,
+                                        compressedData
+                                );
+                                transferMsg.setTransferMode(TransferMode.DEDUP);
+                                
+                                attachIntegrity(transferMsg, opened);
+                                
+                                return transfer(transferMsg, metrics, progressCallback);
+                            } catch (Exception e) {
+                                throw new CompletionException(e);
+                            }
+                        }, compressionExecutor)
+                        .whenComplete((result, error) -> closeQuietly(opened))
+                        .whenComplete(completeWith(future, "去重发送文件时发生错误"));
+                
+            } catch (Exception e) {
+                logger.error("去重发送文件时发生错误", e);
+                closeQuietly(source);
+                future.completeExceptionally(e);
             }
         });
         
@@ -289,30 +794,1134 @@ public class CompressionClient {
     }
     
     /**
-     * 断开连接
+     * 增量发送文件数据
+     * 以服务端已保存的旧版本为参考，只发送Zstd增量
+     * @param fileData 新文件数据
+     * @param fileName 文件名（含扩展名）
+     * @param referenceData 参考文件数据（需与服务端保存的版本一致）
+     * @param referenceName 参考文件的原始文件名，服务端使用该名称最近保存的版本
+     * @param compressionLevel Zstd压缩级别
+     * @param progressCallback 进度回调
+     * @return 性能指标（压缩后大小为增量大小）
      */
-    public void disconnect() {
-        if (channel != null && channel.isActive()) {
-            channel.close();
-        }
-        if (group != null) {
-            group.shutdownGracefully();
+    public CompletableFuture<PerformanceMetrics> sendFileDelta(byte[] fileData, String fileName,
+                                                               byte[] referenceData, String referenceName,
+                                                               int compressionLevel,
+                                                               ProgressCallback progressCallback) {
+        CompletableFuture<PerformanceMetrics> future = new CompletableFuture<>();
+        
+        if (!connected || channel == null || !channel.isActive()) {
+            future.completeExceptionally(new IllegalStateException("未连接到服务器"));
+            return future;
         }
-        connected = false;
-        logger.info("已断开连接");
-    }
-    
-    /**
-     * 检查是否已连接
-     */
-    public boolean isConnected() {
-        return connected && channel != null && channel.isActive();
-    }
-    
-    /**
-     * 进度回调接口
-     */
-    public interface ProgressCallback {
+        
+        compressionExecutor.execute(() -> {
+            try {
+                // 增量模式固定使用Zstd
+                CompressionAlgorithm algorithm = CompressionFactory.getAlgorithm("Zstd");
+                
+                PerformanceMetrics metrics = new PerformanceMetrics();
+                metrics.setOriginalSize(fileData.length);
+                metrics.setAlgorithmName(algorithm.getName());
+                metrics.setAlgorithmId(algorithm.getAlgorithmId());
+                
+                if (progressCallback != null) {
+                    progressCallback.onProgress(0.1, "正在计算增量...");
+                }
+                
+                long compressStartTime = System.currentTimeMillis();
+                metrics.setCompressStartTime(compressStartTime);
+                
+                int level = Math.max(algorithm.getMinLevel(), Math.min(compressionLevel, algorithm.getMaxLevel()));
+                byte[] deltaData = ZstdDeltaCodec.encode(referenceData, fileData, level);
+                
+                long compressEndTime = System.currentTimeMillis();
+                metrics.setCompressEndTime(compressEndTime);
+                metrics.setCompressedSize(deltaData.length);
+                
+                logger.info("增量计算完成 - 参考文件: {} ({} bytes), 原始大小: {} bytes, 增量大小: {} bytes, 耗时: {} ms",
+                        referenceName, referenceData.length, fileData.length, deltaData.length,
+                        metrics.getCompressionTime());
+                
+                if (progressCallback != null) {
+                    progressCallback.onProgress(0.5, "正在发送数据...");
+                }
+                
+                long sendStartTime = System.currentTimeMillis();
+                metrics.setSendStartTime(sendStartTime);
+                
+                long sendEndTime = System.currentTimeMillis();
+                metrics.setSendEndTime(sendEndTime);
+                
+                TransferMessage transferMsg = new TransferMessage(
+                        algorithm.getAlgorithmId(),
+                        fileData.length,
+                        deltaData.length,
+                        compressStartTime,
+                        compressEndTime,
+                        sendStartTime,
+                        sendEndTime,
+                        fileName,
+                        deltaData
+                );
+                transferMsg.setTransferMode(TransferMode.DELTA);
+                transferMsg.setReferenceName(referenceName);
+                
+                attachIntegrity(transferMsg, fileData);
+                
+                transfer(transferMsg, metrics, progressCallback)
+                        .whenComplete(completeWith(future, "增量发送文件时发生错误"));
+                
+            } catch (Exception e) {
+                logger.error("增量发送文件时发生错误", e);
+                future.completeExceptionally(e);
+            }
+        });
+        
+        return future;
+    }
+    
+    /**
+     * 使用连接级压缩上下文发送文件数据
+     * 同一连接上的后续消息共享压缩历史，适合大量相似的小消息
+     * @param fileData 文件数据
+     * @param fileName 文件名（含扩展名）
+     * @param algorithmName 压缩算法名称（DEFLATE或Zstd）
+     * @param compressionLevel 压缩级别，与现有上下文不同时重建上下文
+     * @param progressCallback 进度回调
+     * @return 性能指标
+     */
+    public CompletableFuture<PerformanceMetrics> sendFileContext(byte[] fileData, String fileName,
+                                                                 String algorithmName,
+                                                                 int compressionLevel,
+                                                                 ProgressCallback progressCallback) {
+        CompletableFuture<PerformanceMetrics> future = new CompletableFuture<>();
+        
+        if (!connected || channel == null || !channel.isActive()) {
+            future.completeExceptionally(new IllegalStateException("未连接到服务器"));
+            return future;
+        }
+        
+        compressionExecutor.execute(() -> {
+            try {
+                CompressionAlgorithm algorithm = CompressionFactory.getAlgorithm(algorithmName);
+                if (algorithm == null || !StreamingContexts.supports(algorithm)) {
+                    throw new IllegalArgumentException("上下文模式不支持算法: " + algorithmName);
+                }
+                
+                PerformanceMetrics metrics = new PerformanceMetrics();
+                metrics.setOriginalSize(fileData.length);
+                metrics.setAlgorithmName(algorithm.getName());
+                metrics.setAlgorithmId(algorithm.getAlgorithmId());
+                
+                StreamingCompressor compressor = compressionContexts.compute(algorithm.getAlgorithmId(),
+                        (id, existing) -> {
+                            if (existing != null && existing.getLevel() == compressionLevel) {
+                                return existing;
+                            }
+                            // 旧上下文可能仍被其他发送线程持有，不在此处关闭
+                            try {
+                                return StreamingContexts.newCompressor(algorithm, compressionLevel);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                
+                // 片段必须按压缩顺序到达服务端，同一上下文上的传输串行执行
+                synchronized (compressor) {
+                    if (progressCallback != null) {
+                        progressCallback.onProgress(0.1, "正在压缩数据...");
+                    }
+                    
+                    long compressStartTime = System.currentTimeMillis();
+                    metrics.setCompressStartTime(compressStartTime);
+                    
+                    byte[] compressedData = compressor.compress(fileData);
+                    
+                    long compressEndTime = System.currentTimeMillis();
+                    metrics.setCompressEndTime(compressEndTime);
+                    metrics.setCompressedSize(compressedData.length);
+                    
+                    logger.info("上下文压缩完成 - 算法: {}, 原始大小: {} bytes, 压缩后: {} bytes, 耗时: {} ms",
+                            algorithm.getName(), fileData.length, compressedData.length,
+                            metrics.getCompressionTime());
+                    
+                    if (progressCallback != null) {
+                        progressCallback.onProgress(0.5, "正在发送数据...");
+                    }
+                    
+                    long sendStartTime = System.currentTimeMillis();
+                    metrics.setSendStartTime(sendStartTime);
+                    
+                    long sendEndTime = System.currentTimeMillis();
+                    metrics.setSendEndTime(sendEndTime);
+                    
+                    TransferMessage transferMsg = new TransferMessage(
+                            algorithm.getAlgorithmId(),
+                            fileData.length,
+                            compressedData.length,
+                            compressStartTime,
+                            compressEndTime,
+                            sendStartTime,
+                            sendEndTime,
+                            fileName,
+                            compressedData
+                    );
+                    transferMsg.setTransferMode(TransferMode.CONTEXT);
+                    
+                    attachIntegrity(transferMsg, fileData);
+                    
+                    // 在锁内写出，保证片段的上线顺序与压缩顺序一致；响应异步到达
+                    CompletableFuture<PerformanceMetrics> result;
+                    try {
+                        result = transfer(transferMsg, metrics, progressCallback);
+                    } catch (Exception e) {
+                        discardContext(algorithm.getAlgorithmId(), compressor);
+                        throw e;
+                    }
+                    result.whenCompleteAsync((m, error) -> {
+                        if (error != null) {
+                            // 服务端已丢弃上下文，下次从新的压缩流开始
+                            discardContext(algorithm.getAlgorithmId(), compressor);
+                        }
+                    }, compressionExecutor).whenComplete(completeWith(future, "上下文发送文件时发生错误"));
+                }
+                
+            } catch (Exception e) {
+                logger.error("上下文发送文件时发生错误", e);
+                future.completeExceptionally(e);
+            }
+        });
+        
+        return future;
+    }
+    
+    private void discardContext(byte algorithmId, StreamingCompressor compressor) {
+        compressionContexts.remove(algorithmId, compressor);
+        synchronized (compressor) {
+            closeQuietly(compressor);
+        }
+    }
+    
+    /**
+     * 以零拷贝方式发送磁盘上的文件，不压缩
+     * 文件内容不读入内存，消息头之后以FileRegion写出，由内核直接从文件发送（sendfile），可作为链路原始吞吐的基准；
+     * 服务端把收到的数据直接写入存储文件。此路径不附带完整性信息，帧也不分段，发送期间的心跳排在其后
+     * @param file 文件
+     * @param progressCallback 进度回调
+     * @return 性能指标
+     */
+    public CompletableFuture<PerformanceMetrics> sendFileZeroCopy(File file, ProgressCallback progressCallback) {
+        return sendFileRegion(file, file.getName(), "NONE", file.length(), progressCallback);
+    }
+    
+    /**
+     * 以零拷贝方式发送磁盘上已按指定算法压缩好的文件，客户端不再压缩
+     * @param file 压缩文件
+     * @param fileName 服务端保存解压结果时使用的文件名
+     * @param algorithmName 文件的压缩算法名称
+     * @param originalSize 解压后的大小，未知时为0（服务端只对大小做提示性检查）
+     * @param progressCallback 进度回调
+     * @return 性能指标
+     */
+    public CompletableFuture<PerformanceMetrics> sendPrecompressedFile(File file, String fileName, String algorithmName,
+                                                                       long originalSize,
+                                                                       ProgressCallback progressCallback) {
+        return sendFileRegion(file, fileName, algorithmName, originalSize, progressCallback);
+    }
+    
+    private CompletableFuture<PerformanceMetrics> sendFileRegion(File file, String fileName, String algorithmName,
+                                                                 long originalSize,
+                                                                 ProgressCallback progressCallback) {
+        CompletableFuture<PerformanceMetrics> future = new CompletableFuture<>();
+        
+        if (!connected || channel == null || !channel.isActive()) {
+            future.completeExceptionally(new IllegalStateException("未连接到服务器"));
+            return future;
+        }
+        
+        compressionExecutor.execute(() -> {
+            try {
+                CompressionAlgorithm algorithm = CompressionFactory.getAlgorithm(algorithmName);
+                if (algorithm == null) {
+                    throw new IllegalArgumentException("不支持的压缩算法: " + algorithmName);
+                }
+                if (!file.isFile()) {
+                    throw new IOException("不是一个有效的文件: " + file);
+                }
+                if (remoteAddress instanceof LocalAddress || remoteAddress instanceof SharedMemoryAddress) {
+                    // LocalChannel把写出的对象原样交给对端，FileRegion无法被服务端解码或写入共享内存
+                    throw new IOException("进程内连接与共享内存连接不支持零拷贝发送");
+                }
+                // 构造FileRegion之前按服务端的单帧上限检查，超限的文件不必发出后再被服务端断开连接
+                long length = file.length();
+                int maxFrameSize = maxFrameSizeOf(channel);
+                if (length > maxFrameSize) {
+                    throw new IOException(String.format("文件 %d bytes 超过服务端单帧上限 %d bytes，无法以单帧发送",
+                            length, maxFrameSize));
+                }
+                
+                PerformanceMetrics metrics = new PerformanceMetrics();
+                metrics.setOriginalSize(originalSize);
+                metrics.setAlgorithmName(algorithm.getName());
+                metrics.setAlgorithmId(algorithm.getAlgorithmId());
+                metrics.setCompressedSize(length);
+                
+                // 没有压缩阶段，压缩时间为0
+                long now = System.currentTimeMillis();
+                metrics.setCompressStartTime(now);
+                metrics.setCompressEndTime(now);
+                metrics.setSendStartTime(now);
+                metrics.setSendEndTime(now);
+                
+                if (progressCallback != null) {
+                    progressCallback.onProgress(0.5, "正在发送文件...");
+                }
+                
+                TransferMessage transferMsg = new TransferMessage(algorithm.getAlgorithmId(), originalSize, length,
+                        now, now, now, now, fileName, null);
+                transferMsg.setPayloadFile(file.toPath());
+                logger.info("零拷贝发送 - 算法: {}, 文件: {}, 大小: {} bytes", algorithm.getName(), file, length);
+                
+                transfer(transferMsg, metrics, progressCallback)
+                        .whenComplete(completeWith(future, "零拷贝发送文件时发生错误"));
+                
+            } catch (Exception e) {
+                logger.error("零拷贝发送文件时发生错误", e);
+                future.completeExceptionally(e);
+            }
+        });
+        
+        return future;
+    }
+    
+    /**
+     * 流式发送文件
+     * 读取、压缩、发送与服务端的解压、写入按分片流水线重叠进行：读取线程经有界队列把分片交给压缩发送线程，
+     * 在途分片数受窗口限制，连接不可写时暂停发送，两端的内存占用与文件大小无关
+     * 连接断开时在新连接上从服务端已确认的分片处续传，已压缩但未确认的分片直接重发
+     * @param file 文件
+     * @param algorithmName 压缩算法名称
+     * @param compressionLevel 压缩级别，开启自适应时为初始级别
+     * @param progressCallback 进度回调
+     * @return 性能指标（汇总全部分片）
+     */
+    public CompletableFuture<PerformanceMetrics> sendFileStreaming(File file, String algorithmName,
+                                                                   int compressionLevel,
+                                                                   ProgressCallback progressCallback) {
+        CompletableFuture<PerformanceMetrics> future = new CompletableFuture<>();
+        
+        if (!connected || channel == null || !channel.isActive()) {
+            future.completeExceptionally(new IllegalStateException("未连接到服务器"));
+            return future;
+        }
+        
+        // 发送线程在窗口和读取队列上阻塞，不占用压缩线程池
+        Thread sender = new Thread(() -> {
+            try {
+                future.complete(streamFile(file, algorithmName, compressionLevel, progressCallback));
+            } catch (Exception e) {
+                logger.error("流式发送文件时发生错误", e);
+                future.completeExceptionally(e);
+            }
+        }, "stream-sender");
+        sender.setDaemon(true);
+        sender.start();
+        
+        return future;
+    }
+    
+    private PerformanceMetrics streamFile(File file, String algorithmName, int compressionLevel,
+                                          ProgressCallback progressCallback) throws Exception {
+        CompressionAlgorithm algorithm = CompressionFactory.getAlgorithm(algorithmName);
+        if (algorithm == null) {
+            throw new IllegalArgumentException("不支持的压缩算法: " + algorithmName);
+        }
+        if (!file.isFile()) {
+            throw new IOException("不是一个有效的文件: " + file);
+        }
+        
+        long fileSize = file.length();
+        int chunkSize = streamChunkSize;
+        long chunkCount = Math.max(1, (fileSize + chunkSize - 1) / chunkSize);
+        StreamState state = new StreamState(newTransferId(), chunkCount, progressCallback);
+        // 同一流的分片必须由服务端按序处理，全部走同一个连接（断线后换到新连接）
+        Channel ch = selectChannel();
+        
+        PerformanceMetrics metrics = new PerformanceMetrics();
+        metrics.setOriginalSize(fileSize);
+        metrics.setAlgorithmName(algorithm.getName());
+        metrics.setAlgorithmId(algorithm.getAlgorithmId());
+        
+        if (progressCallback != null) {
+            progressCallback.onProgress(0.1, "正在流式发送...");
+        }
+        
+        BlockingQueue<byte[]> readQueue = new ArrayBlockingQueue<>(STREAM_READ_AHEAD);
+        AtomicReference<IOException> readError = new AtomicReference<>();
+        Thread reader = startStreamReader(file, fileSize, chunkSize, readQueue, readError);
+        
+        AdaptiveLevelController levels = new AdaptiveLevelController(algorithm, compressionLevel,
+                adaptiveLevelEnabled);
+        PayloadCipher cipher = payloadCipher;
+        long compressedSize = 0;
+        try {
+            for (long sequence = 0; sequence < chunkCount && state.failure.get() == null; sequence++) {
+                byte[] data = readQueue.take();
+                if (data == READ_FAILED) {
+                    throw readError.get();
+                }
+                
+                long compressStartTime = System.currentTimeMillis();
+                byte[] compressed = algorithm.compress(data, levels.nextLevel());
+                long compressEndTime = System.currentTimeMillis();
+                if (sequence == 0) {
+                    metrics.setCompressStartTime(compressStartTime);
+                    metrics.setSendStartTime(compressEndTime);
+                }
+                metrics.setCompressEndTime(compressEndTime);
+                compressedSize += compressed.length;
+                
+                TransferMessage chunk = new TransferMessage(algorithm.getAlgorithmId(), data.length, compressed.length,
+                        compressStartTime, compressEndTime, compressEndTime, compressEndTime, file.getName(), compressed);
+                if (cipher != null) {
+                    // 每个分片单独加密，加密阶段的起止与压缩一样取首个与最后一个分片
+                    long encryptStartTime = System.currentTimeMillis();
+                    encrypt(cipher, chunk);
+                    if (sequence == 0) {
+                        metrics.setEncryptStartTime(encryptStartTime);
+                        metrics.setSendStartTime(chunk.getSendStartTime());
+                    }
+                    metrics.setEncryptEndTime(System.currentTimeMillis());
+                }
+                chunk.setTransferMode(TransferMode.STREAM);
+                chunk.setStreamId(state.streamId);
+                chunk.setStreamSequence(sequence);
+                chunk.setStreamEnd(sequence == chunkCount - 1);
+                chunk.setWeight(transferWeight);
+                attachIntegrity(chunk, data);
+                checkNegotiated(ch, chunk);
+                state.unacked.add(chunk);
+                
+                // 连接不可写说明网络是瓶颈，等出站缓冲区回落后再交出分片；已排空说明压缩是瓶颈
+                boolean linkBlocked = !ch.isWritable();
+                levels.onChunkCompressed(linkBlocked, ch.bytesBeforeUnwritable() >= WRITE_BUFFER_HIGH_WATER_MARK
+                        && PriorityWriteScheduler.pendingBytes(ch) == 0);
+                if (linkBlocked) {
+                    try {
+                        dispatcherOf(ch).whenWritable(ch).get();
+                    } catch (ExecutionException e) {
+                        state.connectionLost.set(true);
+                    }
+                }
+                
+                if (state.connectionLost.get()) {
+                    // 续传会重发全部未确认的分片，包括当前分片
+                    ch = resumeStream(ch, state, sequence + 1);
+                } else {
+                    sendStreamChunk(ch, chunk, state);
+                }
+            }
+            
+            // 等待全部分片确认，期间断线时在新连接上续传
+            while (true) {
+                state.window.acquire(STREAM_WINDOW);
+                state.window.release(STREAM_WINDOW);
+                if (state.failure.get() != null || !state.connectionLost.get()) {
+                    break;
+                }
+                ch = resumeStream(ch, state, chunkCount);
+            }
+        } finally {
+            reader.interrupt();
+        }
+        
+        if (state.failure.get() != null) {
+            Throwable cause = state.failure.get();
+            throw cause instanceof Exception ? (Exception) cause : new IOException(cause);
+        }
+        
+        metrics.setSendEndTime(System.currentTimeMillis());
+        metrics.setCompressedSize(compressedSize);
+        metrics.setLevelTrajectory(levels.getTrajectory());
+        metrics.setResponseReceivedTime(System.currentTimeMillis());
+        metrics.setReceiptReceivedTime(state.finalReceiptTime);
+        
+        ResponseMessage response = state.finalResponse;
+        if (response != null) {
+            metrics.setReceiveStartTime(response.getReceiveStartTime());
+            metrics.setReceiveEndTime(response.getReceiveEndTime());
+            metrics.setDecompressStartTime(response.getDecompressStartTime());
+            metrics.setDecompressEndTime(response.getDecompressEndTime());
+            metrics.setDecryptStartTime(response.getDecryptStartTime());
+            metrics.setDecryptEndTime(response.getDecryptEndTime());
+            metrics.setIntegrityStatus(response.getIntegrityStatus());
+        } else {
+            // 最后一个分片已在服务端写入完成，但其响应随断开的连接丢失，服务端计时不可用
+            logger.warn("流式传输已在服务端完成，最终响应在断线时丢失");
+        }
+        
+        logger.info("流式传输完成 - 分片数: {}, 原始大小: {} bytes, 压缩后: {} bytes, 续传次数: {}{}",
+                chunkCount, fileSize, compressedSize, state.resumeCount,
+                response != null ? " - " + response.getMessage() : "");
+        logger.info("性能指标: {}", metrics);
+        
+        if (progressCallback != null) {
+            progressCallback.onProgress(1.0, "完成");
+        }
+        return metrics;
+    }
+    
+    /**
+     * 发送流式传输的一个分片，在途分片达到窗口大小时等待最早的分片被确认
+     * 连接断开导致的失败记为断线，等待续传；服务端拒绝等其他失败结束整个传输
+     */
+    private void sendStreamChunk(Channel ch, TransferMessage chunk, StreamState state) throws InterruptedException {
+        state.window.acquire();
+        Consumer<ReceiptMessage> onReceived = !chunk.isStreamEnd() ? null
+                : receipt -> state.finalReceiptTime = System.currentTimeMillis();
+        dispatcherOf(ch).send(ch, chunk, ResponseMessage.class, null, onReceived).whenComplete((response, error) -> {
+            if (error != null) {
+                if (ch.isActive()) {
+                    state.failure.compareAndSet(null, error);
+                } else {
+                    state.connectionLost.set(true);
+                }
+            } else if (!response.isSuccess()) {
+                state.failure.compareAndSet(null, new IOException("服务器处理失败: " + response.getMessage()));
+            } else {
+                state.unacked.remove(chunk);
+                if (!response.isPartial()) {
+                    state.finalResponse = response;
+                }
+                state.reportAcknowledged(1);
+            }
+            // 最后释放窗口，等待整个窗口的一方能看到以上状态
+            state.window.release();
+        });
+    }
+    
+    /**
+     * 断线后续传：重新建立连接，查询服务端已确认的进度，丢弃已确认的缓存分片并重发其余分片
+     * 已压缩的分片不重新压缩；服务端仍占用断开前的连接时稍后重试
+     * @param lost 断开的连接
+     * @param nextToSend 尚未发送过的第一个分片序号
+     * @return 续传使用的新连接
+     */
+    private Channel resumeStream(Channel lost, StreamState state, long nextToSend) throws Exception {
+        ProtocolSession session = ProtocolSession.get(lost);
+        if (session == null || !session.supportsFeature(ProtocolFeatures.RESUME)) {
+            throw new IOException("连接已断开，服务端不支持断点续传");
+        }
+        // 等断开的连接上的在途分片全部结束，之后不会再有旧回调修改状态
+        state.window.acquire(STREAM_WINDOW);
+        state.window.release(STREAM_WINDOW);
+        
+        Channel ch = lost;
+        Exception lastError = null;
+        for (int attempt = 1; attempt <= STREAM_RESUME_ATTEMPTS; attempt++) {
+            Thread.sleep(STREAM_RESUME_BACKOFF_MS * attempt);
+            ResumeQueryResponse progress;
+            try {
+                if (!ch.isActive()) {
+                    ch = reopenChannel(ch).get();
+                    ProtocolSession reopened = ProtocolSession.get(ch);
+                    if (reopened == null || !reopened.supportsFeature(ProtocolFeatures.RESUME)) {
+                        throw new IOException("新连接未协商断点续传");
+                    }
+                }
+                progress = dispatcherOf(ch).send(ch, new ResumeQueryMessage(state.streamId),
+                        ResumeQueryResponse.class, null).get();
+            } catch (ExecutionException e) {
+                lastError = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                logger.warn("续传第 {} 次尝试失败: {}", attempt, lastError.getMessage());
+                continue;
+            }
+            if (progress.getState() == ResumeQueryResponse.BUSY) {
+                logger.info("服务端仍在关闭断开前的连接，稍后重试续传");
+                continue;
+            }
+            
+            long next = progress.getNextSequence();
+            if (progress.getState() == ResumeQueryResponse.FINISHED) {
+                next = state.chunkCount;
+            }
+            int confirmed = 0;
+            while (!state.unacked.isEmpty() && state.unacked.peekFirst().getStreamSequence() < next) {
+                state.unacked.pollFirst();
+                confirmed++;
+            }
+            state.reportAcknowledged(confirmed);
+            long firstCached = state.unacked.isEmpty() ? nextToSend : state.unacked.peekFirst().getStreamSequence();
+            if (next != firstCached) {
+                throw new IOException(String.format("无法续传: 服务端已确认 %d 个分片，本地缓存从分片 %d 开始",
+                        next, firstCached));
+            }
+            
+            state.connectionLost.set(false);
+            state.resumeCount++;
+            logger.info("流式传输 {} 在新连接上续传 - 服务端已确认分片: {}, 重发缓存分片: {}",
+                    String.format("%016x", state.streamId), next, state.unacked.size());
+            for (TransferMessage chunk : new ArrayList<>(state.unacked)) {
+                sendStreamChunk(ch, chunk, state);
+            }
+            return ch;
+        }
+        throw new IOException("断线后续传失败", lastError);
+    }
+    
+    /**
+     * 启动读取线程，按分片大小顺序读取文件放入有界队列，队列满时阻塞
+     * 读取失败时记录异常并放入READ_FAILED标记；发送端放弃时中断该线程
+     */
+    private static Thread startStreamReader(File file, long fileSize, int chunkSize, BlockingQueue<byte[]> queue,
+                                            AtomicReference<IOException> error) {
+        Thread reader = new Thread(() -> {
+            try {
+                try (InputStream in = Files.newInputStream(file.toPath())) {
+                    long remaining = fileSize;
+                    do {
+                        int length = (int) Math.min(chunkSize, remaining);
+                        byte[] chunk = in.readNBytes(length);
+                        if (chunk.length < length) {
+                            throw new IOException("文件在读取过程中被截断: " + file);
+                        }
+                        remaining -= length;
+                        queue.put(chunk);
+                    } while (remaining > 0);
+                } catch (IOException e) {
+                    error.set(e);
+                    queue.put(READ_FAILED);
+                }
+            } catch (InterruptedException e) {
+                // 发送端已放弃，直接退出
+                Thread.currentThread().interrupt();
+            }
+        }, "stream-reader");
+        reader.setDaemon(true);
+        reader.start();
+        return reader;
+    }
+    
+    /**
+     * 查询服务端缺失的分块
+     */
+    private CompletableFuture<ChunkQueryResponse> queryMissingChunks(List<Chunk> chunks) {
+        List<byte[]> fingerprints = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+            fingerprints.add(chunk.getFingerprint());
+        }
+        
+        Channel ch = selectChannel();
+        return dispatcherOf(ch).send(ch, new ChunkQueryMessage(fingerprints), ChunkQueryResponse.class, null);
+    }
+    
+    /**
+     * 按当前设置为传输消息附带原始数据的完整性信息
+     */
+    private void attachIntegrity(TransferMessage transferMsg, byte[] fileData) {
+        if (!integrityCheckEnabled && !returnHashRequested) {
+            return;
+        }
+        long start = System.nanoTime();
+        transferMsg.setIntegrity(IntegrityInfo.compute(fileData));
+        transferMsg.setHashRequested(returnHashRequested);
+        logger.debug("完整性信息计算完成 - 大小: {} bytes, 耗时: {} us",
+                fileData.length, (System.nanoTime() - start) / 1000);
+    }
+    
+    /**
+     * 按当前设置为传输消息附带完整性信息，顺序读取数据来源计算
+     */
+    private void attachIntegrity(TransferMessage transferMsg, ChunkSource source) throws IOException {
+        if (!integrityCheckEnabled && !returnHashRequested) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (InputStream in = source.openStream()) {
+            transferMsg.setIntegrity(IntegrityInfo.compute(in, IntegrityInfo.DEFAULT_BLOCK_SIZE));
+        }
+        transferMsg.setHashRequested(returnHashRequested);
+        logger.debug("完整性信息计算完成 - 大小: {} bytes, 耗时: {} us",
+                transferMsg.getOriginalSize(), (System.nanoTime() - start) / 1000);
+    }
+    
+    /**
+     * 加密压缩数据，密文替换消息中的压缩数据；加密在发送之前，发送时间戳顺延到加密结束
+     * 条带传输切分的是密文，服务端重组后整体解密
+     */
+    private static void encrypt(PayloadCipher cipher, TransferMessage transferMsg) throws IOException {
+        if (transferMsg.getPayloadFile() != null) {
+            throw new IOException("加密传输不支持零拷贝发送文件");
+        }
+        byte[] compressed = transferMsg.getCompressedData();
+        byte[] ciphertext = cipher.encrypt(compressed);
+        long encryptEndTime = System.currentTimeMillis();
+        transferMsg.release();
+        transferMsg.setCompressedData(ciphertext);
+        transferMsg.setCompressedSize(ciphertext.length);
+        transferMsg.setEncrypted(true);
+        transferMsg.setSendStartTime(Math.max(transferMsg.getSendStartTime(), encryptEndTime));
+        transferMsg.setSendEndTime(Math.max(transferMsg.getSendEndTime(), encryptEndTime));
+        logger.debug("加密完成 - 算法: {}, 压缩数据: {} bytes, 密文: {} bytes", cipher.getSuite(),
+                compressed.length, ciphertext.length);
+    }
+    
+    /**
+     * 发送传输消息，响应到达后补全性能指标
+     * 同一连接上可以同时有任意多个未完成的传输，响应按请求ID对应
+     */
+    private CompletableFuture<PerformanceMetrics> transfer(TransferMessage transferMsg, PerformanceMetrics metrics,
+                                                           ProgressCallback progressCallback) throws IOException {
+        transferMsg.setWeight(transferWeight);
+        PayloadCipher cipher = payloadCipher;
+        if (cipher != null) {
+            long encryptStartTime = System.currentTimeMillis();
+            encrypt(cipher, transferMsg);
+            metrics.setEncryptStartTime(encryptStartTime);
+            metrics.setEncryptEndTime(System.currentTimeMillis());
+            metrics.setSendStartTime(transferMsg.getSendStartTime());
+            metrics.setSendEndTime(transferMsg.getSendEndTime());
+        }
+        Runnable onWritten = () -> {
+            logger.info("数据发送完成，耗时: {} ms",
+                    transferMsg.getSendEndTime() - transferMsg.getSendStartTime());
+            
+            if (progressCallback != null) {
+                progressCallback.onProgress(0.8, "等待服务器响应...");
+            }
+        };
+        // 接收确认把网络往返与服务端的解密、解压和写盘分开
+        Consumer<ReceiptMessage> onReceived = receipt -> {
+            metrics.setReceiptReceivedTime(System.currentTimeMillis());
+            if (progressCallback != null) {
+                progressCallback.onProgress(0.9, "服务器已接收，等待处理...");
+            }
+        };
+        
+        CompletableFuture<ResponseMessage> responseFuture;
+        List<Channel> stripeTargets = stripeTargets(transferMsg);
+        if (stripeTargets.size() > 1) {
+            responseFuture = sendStriped(transferMsg, stripeTargets, onWritten, onReceived);
+        } else {
+            // 上下文模式的压缩历史属于单个连接，固定使用主连接
+            Channel ch = transferMsg.getTransferMode() == TransferMode.CONTEXT ? channel : selectChannel();
+            checkNegotiated(ch, transferMsg);
+            responseFuture = dispatcherOf(ch).send(ch, transferMsg, ResponseMessage.class, onWritten, onReceived);
+        }
+        
+        return responseFuture.thenApply(response -> {
+            long responseReceivedTime = System.currentTimeMillis();
+            metrics.setResponseReceivedTime(responseReceivedTime);
+            
+            // 设置服务端时间戳
+            metrics.setReceiveStartTime(response.getReceiveStartTime());
+            metrics.setReceiveEndTime(response.getReceiveEndTime());
+            metrics.setDecompressStartTime(response.getDecompressStartTime());
+            metrics.setDecompressEndTime(response.getDecompressEndTime());
+            metrics.setDecryptStartTime(response.getDecryptStartTime());
+            metrics.setDecryptEndTime(response.getDecryptEndTime());
+            
+            if (progressCallback != null) {
+                progressCallback.onProgress(1.0, "完成");
+            }
+            
+            logger.info("收到服务器响应 - {}", response.getMessage());
+            logger.info("性能指标: {}", metrics);
+            
+            metrics.setIntegrityStatus(response.getIntegrityStatus());
+            
+            if (!response.isSuccess()) {
+                throw new CompletionException(new IOException("服务器处理失败: " + response.getMessage()));
+            }
+            if (response.isFileHashPresent() && transferMsg.getIntegrity() != null
+                    && response.getFileHash() != transferMsg.getIntegrity().getFileHash()) {
+                throw new CompletionException(new IOException(String.format("服务端文件哈希 %016x 与本地 %016x 不一致",
+                        response.getFileHash(), transferMsg.getIntegrity().getFileHash())));
+            }
+            return metrics;
+        });
+    }
+    
+    /**
+     * 选择未完成请求最少的活动连接
+     */
+    private Channel selectChannel() {
+        Channel selected = channel;
+        int minPending = Integer.MAX_VALUE;
+        for (Channel ch : channels) {
+            if (!ch.isActive()) {
+                continue;
+            }
+            int pending = dispatcherOf(ch).getPendingCount();
+            if (pending < minPending) {
+                selected = ch;
+                minPending = pending;
+            }
+        }
+        return selected;
+    }
+    
+    /**
+     * 获取可用于条带传输的连接
+     * @return 压缩数据超过分片大小且有多个协商了条带传输的活动连接时返回这些连接，否则返回空列表
+     */
+    private List<Channel> stripeTargets(TransferMessage transferMsg) {
+        // 零拷贝发送的文件整体经一个连接写出
+        if (transferMsg.getTransferMode() == TransferMode.CONTEXT || transferMsg.getPayloadFile() != null
+                || transferMsg.getDataLength() <= stripeChunkSize) {
+            return Collections.emptyList();
+        }
+        List<Channel> targets = new ArrayList<>();
+        for (Channel ch : channels) {
+            ProtocolSession session = ProtocolSession.get(ch);
+            if (ch.isActive() && session != null && session.supportsFeature(ProtocolFeatures.STRIPED)) {
+                targets.add(ch);
+            }
+        }
+        return targets;
+    }
+    
+    /**
+     * 将压缩数据切分为分片，轮流经各连接并行发送
+     * 每个分片单独应答：未完成时服务端回复已接收，最后到达的分片的响应携带整个传输的处理结果；
+     * 全部分片都收到接收确认时调用onReceived
+     */
+    private CompletableFuture<ResponseMessage> sendStriped(TransferMessage transferMsg, List<Channel> targets,
+                                                           Runnable onWritten, Consumer<ReceiptMessage> onReceived)
+            throws IOException {
+        for (Channel ch : targets) {
+            checkNegotiated(ch, transferMsg);
+        }
+        
+        byte[] data = transferMsg.getCompressedData();
+        long transferId = newTransferId();
+        
+        int chunkCount = (int) ((data.length + (long) stripeChunkSize - 1) / stripeChunkSize);
+        AtomicInteger written = new AtomicInteger();
+        AtomicInteger received = new AtomicInteger();
+        List<CompletableFuture<ResponseMessage>> parts = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            int offset = i * stripeChunkSize;
+            int length = Math.min(stripeChunkSize, data.length - offset);
+            TransferMessage chunk = newStripeChunk(transferMsg, transferId, offset,
+                    Unpooled.wrappedBuffer(data, offset, length));
+            Channel ch = targets.get(i % targets.size());
+            parts.add(dispatcherOf(ch).send(ch, chunk, ResponseMessage.class, () -> {
+                if (written.incrementAndGet() == chunkCount) {
+                    onWritten.run();
+                }
+            }, receipt -> {
+                if (received.incrementAndGet() == chunkCount) {
+                    onReceived.accept(receipt);
+                }
+            }));
+        }
+        logger.info("条带传输 - 分片数: {}, 分片大小: {} bytes, 连接数: {}", chunkCount, stripeChunkSize, targets.size());
+        
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            ResponseMessage result = null;
+            for (CompletableFuture<ResponseMessage> part : parts) {
+                ResponseMessage response = part.join();
+                if (!response.isSuccess()) {
+                    return response;
+                }
+                if (!response.isPartial()) {
+                    result = response;
+                }
+            }
+            if (result == null) {
+                throw new CompletionException(new IOException("条带传输的分片均已确认，但未收到处理结果"));
+            }
+            return result;
+        });
+    }
+    
+    /**
+     * 生成非0的随机传输ID，用于条带传输与流式传输
+     */
+    private static long newTransferId() {
+        long transferId;
+        do {
+            transferId = ThreadLocalRandom.current().nextLong();
+        } while (transferId == 0);
+        return transferId;
+    }
+    
+    /**
+     * 创建条带传输的分片消息，完整性信息只随偏移为0的分片发送
+     */
+    private static TransferMessage newStripeChunk(TransferMessage transferMsg, long transferId, long offset,
+                                                  ByteBuf payload) {
+        TransferMessage chunk = new TransferMessage();
+        chunk.setAlgorithmId(transferMsg.getAlgorithmId());
+        chunk.setTransferMode(transferMsg.getTransferMode());
+        chunk.setOriginalSize(transferMsg.getOriginalSize());
+        chunk.setCompressedSize(transferMsg.getCompressedSize());
+        chunk.setCompressStartTime(transferMsg.getCompressStartTime());
+        chunk.setCompressEndTime(transferMsg.getCompressEndTime());
+        chunk.setSendStartTime(transferMsg.getSendStartTime());
+        chunk.setSendEndTime(transferMsg.getSendEndTime());
+        chunk.setFileName(transferMsg.getFileName());
+        chunk.setReferenceName(transferMsg.getReferenceName());
+        chunk.setEncrypted(transferMsg.isEncrypted());
+        if (offset == 0) {
+            chunk.setIntegrity(transferMsg.getIntegrity());
+            chunk.setHashRequested(transferMsg.isHashRequested());
+        }
+        chunk.setTransferId(transferId);
+        chunk.setChunkOffset(offset);
+        chunk.setWeight(transferMsg.getWeight());
+        chunk.setPayload(payload);
+        return chunk;
+    }
+    
+    /**
+     * 将异步结果转交给调用方的Future，失败时解开CompletionException并记录日志
+     */
+    private static <T> BiConsumer<T, Throwable> completeWith(CompletableFuture<T> future, String errorMessage) {
+        return (result, error) -> {
+            if (error == null) {
+                future.complete(result);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            logger.error(errorMessage, cause);
+            future.completeExceptionally(cause);
+        };
+    }
+    
+    /**
+     * 发送心跳并测量网络延迟
+     * @return 往返时间（毫秒），如果失败返回-1
+     */
+    public CompletableFuture<Long> sendHeartbeat() {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        
+        if (!connected || channel == null || !channel.isActive()) {
+            future.complete(-1L);
+            return future;
+        }
+        
+        long sendTime = System.currentTimeMillis();
+        HeartbeatMessage heartbeat = new HeartbeatMessage(sendTime);
+        
+        CompletableFuture<HeartbeatMessage> responseFuture = dispatcherOf(channel).sendHeartbeat(channel, heartbeat);
+        
+        // 等待响应并计算延迟
+        responseFuture.whenComplete((response, error) -> {
+            if (error != null) {
+                logger.warn("心跳失败: {}", error.getMessage());
+                future.complete(-1L);
+            } else {
+                long receiveTime = System.currentTimeMillis();
+                long latency = receiveTime - sendTime;
+                logger.debug("心跳往返时间: {} ms", latency);
+                future.complete(latency);
+            }
+        });
+        
+        return future;
+    }
+    
+    /**
+     * 断开连接
+     */
+    public void disconnect() {
+        for (Channel ch : channels) {
+            if (ch.isActive()) {
+                ch.close();
+            }
+        }
+        channels.clear();
+        if (sharedMemoryRelay != null) {
+            sharedMemoryRelay.close();
+            sharedMemoryRelay = null;
+        }
+        if (group != null) {
+            group.shutdownGracefully();
+        }
+        if (compressionExecutor != null) {
+            compressionExecutor.shutdown();
+        }
+        connected = false;
+        closeCompressionContexts();
+        logger.info("已断开连接");
+    }
+    
+    private static ExecutorService newCompressionExecutor() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread thread = new Thread(r, "compression-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    private void closeCompressionContexts() {
+        compressionContexts.values().forEach(CompressionClient::closeQuietly);
+        compressionContexts.clear();
+    }
+    
+    private static void closeQuietly(StreamingCompressor compressor) {
+        if (compressor == null) {
+            return;
+        }
+        try {
+            compressor.close();
+        } catch (IOException e) {
+            logger.warn("关闭压缩上下文失败", e);
+        }
+    }
+    
+    private static void closeQuietly(ChunkSource source) {
+        if (source == null) {
+            return;
+        }
+        try {
+            source.close();
+        } catch (IOException e) {
+            logger.warn("关闭去重数据来源失败", e);
+        }
+    }
+    
+    /**
+     * 设置是否附带块校验和与文件哈希，默认开启
+     */
+    public void setIntegrityCheckEnabled(boolean integrityCheckEnabled) {
+        this.integrityCheckEnabled = integrityCheckEnabled;
+    }
+    
+    /**
+     * 设置是否要求服务端返回计算的文件哈希，返回后与本地哈希比对
+     */
+    public void setReturnHashRequested(boolean returnHashRequested) {
+        this.returnHashRequested = returnHashRequested;
+    }
+    
+    /**
+     * 设置连接时申请的最高协议版本，下次连接生效；连接不支持握手的旧服务端时设为v1，
+     * 否则握手超时后关闭连接并自动降为v1重新连接
+     */
+    public void setProtocolVersion(int protocolVersion) {
+        if (protocolVersion < ProtocolSession.V1 || protocolVersion > ProtocolSession.CURRENT) {
+            throw new IllegalArgumentException("不支持的协议版本: " + protocolVersion);
+        }
+        this.protocolVersion = protocolVersion;
+    }
+    
+    /**
+     * 设置连接池中的连接数，下次连接生效；大于1时启用连接池模式
+     */
+    public void setPoolSize(int poolSize) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("连接数必须为正数: " + poolSize);
+        }
+        this.poolSize = poolSize;
+    }
+    
+    /**
+     * 设置条带传输的分片大小，压缩数据超过该大小且有多个连接时切分发送
+     */
+    public void setStripeChunkSize(int stripeChunkSize) {
+        if (stripeChunkSize < 1) {
+            throw new IllegalArgumentException("分片大小必须为正数: " + stripeChunkSize);
+        }
+        this.stripeChunkSize = stripeChunkSize;
+    }
+    
+    /**
+     * 设置流式传输每个分片的原始数据大小
+     */
+    public void setStreamChunkSize(int streamChunkSize) {
+        if (streamChunkSize < 1) {
+            throw new IllegalArgumentException("分片大小必须为正数: " + streamChunkSize);
+        }
+        this.streamChunkSize = streamChunkSize;
+    }
+    
+    /**
+     * 设置流式传输是否自动调整压缩级别
+     */
+    public void setAdaptiveLevelEnabled(boolean adaptiveLevelEnabled) {
+        this.adaptiveLevelEnabled = adaptiveLevelEnabled;
+    }
+    
+    /**
+     * 设置之后发起的传输的发送权重
+     * 同一连接上有多个大传输同时发送时，各自每轮发送的字节数与权重成正比；心跳等小消息不受权重影响，总是优先发送
+     */
+    public void setTransferWeight(int transferWeight) {
+        if (transferWeight < 1 || transferWeight > PriorityWriteScheduler.MAX_WEIGHT) {
+            throw new IllegalArgumentException("权重必须在1到" + PriorityWriteScheduler.MAX_WEIGHT + "之间: " + transferWeight);
+        }
+        this.transferWeight = transferWeight;
+    }
+    
+    /**
+     * 设置压缩后的加密阶段，下次连接生效（握手时声明ENCRYPTION特性）；为null时不加密
+     * 服务端须配置同一预共享密钥，否则加密的传输在发送前即因协商失败被拒绝
+     */
+    public void setEncryption(PayloadCipher payloadCipher) {
+        this.payloadCipher = payloadCipher;
+    }
+    
+    /**
+     * 设置模拟的链路条件，下次连接生效；为null时不模拟
+     * 连接按该条件限制上下行带宽并推迟收发的数据，无需root权限或tc/netem；服务端已启用模拟时不应重复启用
+     */
+    public void setNetworkProfile(NetworkProfile networkProfile) {
+        this.networkProfile = networkProfile;
+    }
+    
+    /**
+     * 检查是否已连接
+     */
+    public boolean isConnected() {
+        return connected && channel != null && channel.isActive();
+    }
+    
+    /**
+     * 进度回调接口
+     */
+    public interface ProgressCallback {
         void onProgress(double progress, String message);
     }
+    
+    /**
+     * 一次流式传输的发送状态，由发送线程与响应回调共享
+     */
+    private static final class StreamState {
+        
+        private final long streamId;
+        private final long chunkCount;
+        private final ProgressCallback progressCallback;
+        // 已发送、尚未被服务端确认的分片数上限
+        private final Semaphore window = new Semaphore(STREAM_WINDOW);
+        // 已发送但未确认的分片，按序号排列并保留压缩结果，续传时直接重发
+        private final Deque<TransferMessage> unacked = new ConcurrentLinkedDeque<>();
+        // 服务端拒绝等不可恢复的失败
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        // 连接已断开，等待续传
+        private final AtomicBoolean connectionLost = new AtomicBoolean();
+        private final AtomicLong acknowledged = new AtomicLong();
+        private volatile ResponseMessage finalResponse;
+        // 最后一个分片收到接收确认的时间，未收到时为0
+        private volatile long finalReceiptTime;
+        private int resumeCount;
+        
+        StreamState(long streamId, long chunkCount, ProgressCallback progressCallback) {
+            this.streamId = streamId;
+            this.chunkCount = chunkCount;
+            this.progressCallback = progressCallback;
+        }
+        
+        void reportAcknowledged(int count) {
+            long done = acknowledged.addAndGet(count);
+            if (progressCallback != null && count > 0) {
+                progressCallback.onProgress(0.1 + 0.9 * done / chunkCount, "已写入 " + done + "/" + chunkCount + " 个分片");
+            }
+        }
+    }
 }
@@ -0,0 +1,257 @@
+package com.datacompress.client;
+
+import com.datacompress.protocol.CorrelatedMessage;
+import com.datacompress.protocol.HeartbeatMessage;
+import com.datacompress.protocol.HelloMessage;
+import com.datacompress.protocol.ProtocolSession;
+import com.datacompress.protocol.ReceiptMessage;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 客户端响应分发器
+ * 常驻在管道末端，按请求ID把服务端响应交给对应的等待者，同一连接上可以有任意多个未完成的请求。
+ * v1服务端不回传请求ID但按顺序应答，此时按发送顺序对应；心跳总是按顺序回显。
+ * 协商了RECEIPT特性时，传输请求在最终响应之前还会收到接收确认，只通知登记的回调，不结束请求。
+ */
+public class ResponseDispatcher extends ChannelInboundHandlerAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseDispatcher.class);
+
+    private final AtomicLong nextRequestId = new AtomicLong();
+    private final Map<Long, PendingRequest<?>> pending = new ConcurrentHashMap<>();
+    // v1连接上请求ID的发送顺序，与写出顺序一致
+    private final Queue<Long> v1Order = new ConcurrentLinkedQueue<>();
+    private final Queue<CompletableFuture<HeartbeatMessage>> heartbeats = new ConcurrentLinkedQueue<>();
+    private final CompletableFuture<HelloMessage> hello = new CompletableFuture<>();
+    // 等待连接恢复可写的发送方
+    private final Queue<CompletableFuture<Void>> writabilityWaiters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 为请求分配ID、登记等待者并写出
+     * 登记与写出在同一把锁内完成，保证v1连接上的登记顺序就是消息上线的顺序
+     * @param channel 连接
+     * @param request 请求消息
+     * @param responseType 期望的响应类型
+     * @param onWritten 消息写出成功后的回调，可为空
+     * @return 响应，写出失败或连接断开时异常完成
+     */
+    public <T extends CorrelatedMessage> CompletableFuture<T> send(Channel channel, CorrelatedMessage request,
+                                                                    Class<T> responseType, Runnable onWritten) {
+        return send(channel, request, responseType, onWritten, null);
+    }
+
+    /**
+     * 为请求分配ID、登记等待者并写出，服务端确认已接收时另行通知
+     * @param onReceived 收到接收确认时的回调，在I/O线程上执行，可为空；未协商RECEIPT特性时不会调用
+     * @return 最终响应，写出失败或连接断开时异常完成
+     */
+    public <T extends CorrelatedMessage> CompletableFuture<T> send(Channel channel, CorrelatedMessage request,
+                                                                    Class<T> responseType, Runnable onWritten,
+                                                                    Consumer<ReceiptMessage> onReceived) {
+        long requestId = nextRequestId.incrementAndGet();
+        request.setRequestId(requestId);
+        PendingRequest<T> entry = new PendingRequest<>(responseType, onReceived);
+
+        synchronized (this) {
+            pending.put(requestId, entry);
+            if (ProtocolSession.versionOf(channel) < ProtocolSession.V2) {
+                v1Order.add(requestId);
+            }
+            channel.writeAndFlush(request).addListener((ChannelFutureListener) writeFuture -> {
+                if (writeFuture.isSuccess()) {
+                    if (onWritten != null) {
+                        onWritten.run();
+                    }
+                } else if (pending.remove(requestId, entry)) {
+                    v1Order.remove(requestId);
+                    entry.future.completeExceptionally(writeFuture.cause());
+                }
+            });
+        }
+        return entry.future;
+    }
+
+    /**
+     * 登记心跳回显并写出心跳
+     * @return 服务端回显的心跳，写出失败或连接断开时异常完成
+     */
+    public CompletableFuture<HeartbeatMessage> sendHeartbeat(Channel channel, HeartbeatMessage heartbeat) {
+        CompletableFuture<HeartbeatMessage> future = new CompletableFuture<>();
+        synchronized (this) {
+            heartbeats.add(future);
+            channel.writeAndFlush(heartbeat).addListener((ChannelFutureListener) writeFuture -> {
+                if (!writeFuture.isSuccess() && heartbeats.remove(future)) {
+                    future.completeExceptionally(writeFuture.cause());
+                }
+            });
+        }
+        return future;
+    }
+
+    /**
+     * 等待连接可写，即出站缓冲区回落到低水位以下
+     * @return 连接可写时完成，连接断开时异常完成
+     */
+    public CompletableFuture<Void> whenWritable(Channel channel) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        writabilityWaiters.add(future);
+        // 登记之后再检查，避免错过登记前发生的可写变化
+        if (channel.isWritable()) {
+            releaseWritabilityWaiters();
+        } else if (!channel.isActive()) {
+            failAll(new IOException("连接已断开"));
+        }
+        return future;
+    }
+
+    /**
+     * 服务端的握手回复
+     */
+    public CompletableFuture<HelloMessage> getHello() {
+        return hello;
+    }
+
+    /**
+     * 当前未完成的请求数
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof ReceiptMessage) {
+            acknowledge((ReceiptMessage) msg);
+        } else if (msg instanceof CorrelatedMessage) {
+            dispatch((CorrelatedMessage) msg);
+        } else if (msg instanceof HeartbeatMessage) {
+            CompletableFuture<HeartbeatMessage> future = heartbeats.poll();
+            if (future != null) {
+                future.complete((HeartbeatMessage) msg);
+            }
+        } else if (msg instanceof HelloMessage) {
+            hello.complete((HelloMessage) msg);
+        } else {
+            ctx.fireChannelRead(msg);
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            releaseWritabilityWaiters();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    private void releaseWritabilityWaiters() {
+        CompletableFuture<Void> waiter;
+        while ((waiter = writabilityWaiters.poll()) != null) {
+            waiter.complete(null);
+        }
+    }
+
+    private void acknowledge(ReceiptMessage receipt) {
+        // 接收确认总在同一请求的最终响应之前到达，请求仍在等待
+        PendingRequest<?> entry = pending.get(receipt.getRequestId());
+        if (entry == null) {
+            logger.warn("收到未知请求ID {} 的接收确认", receipt.getRequestId());
+            return;
+        }
+        if (entry.onReceived != null) {
+            entry.onReceived.accept(receipt);
+        }
+    }
+
+    private void dispatch(CorrelatedMessage response) {
+        long requestId = response.getRequestId();
+        if (requestId == 0) {
+            Long next = v1Order.poll();
+            if (next == null) {
+                logger.warn("收到无法对应请求的响应: {}", response.getClass().getSimpleName());
+                return;
+            }
+            requestId = next;
+        }
+
+        PendingRequest<?> entry = pending.remove(requestId);
+        if (entry == null) {
+            logger.warn("收到未知请求ID {} 的响应", requestId);
+            return;
+        }
+        entry.complete(response);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        failAll(new IOException("连接已断开"));
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        // 解码失败后字节流已无法对齐，所有未完成请求都不会再有响应
+        logger.error("连接异常，关闭连接: {}", cause.getMessage(), cause);
+        failAll(cause);
+        ctx.close();
+    }
+
+    private void failAll(Throwable cause) {
+        synchronized (this) {
+            for (Long requestId : pending.keySet()) {
+                PendingRequest<?> entry = pending.remove(requestId);
+                if (entry != null) {
+                    entry.future.completeExceptionally(cause);
+                }
+            }
+            v1Order.clear();
+        }
+        CompletableFuture<HeartbeatMessage> heartbeat;
+        while ((heartbeat = heartbeats.poll()) != null) {
+            heartbeat.completeExceptionally(cause);
+        }
+        CompletableFuture<Void> waiter;
+        while ((waiter = writabilityWaiters.poll()) != null) {
+            waiter.completeExceptionally(cause);
+        }
+        hello.completeExceptionally(cause);
+    }
+
+    /**
+     * 未完成的请求及其期望的响应类型与接收确认回调
+     */
+    private static final class PendingRequest<T> {
+
+        private final Class<T> responseType;
+        private final Consumer<ReceiptMessage> onReceived;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        PendingRequest(Class<T> responseType, Consumer<ReceiptMessage> onReceived) {
+            this.responseType = responseType;
+            this.onReceived = onReceived;
+        }
+
+        void complete(Object response) {
+            if (responseType.isInstance(response)) {
+                future.complete(responseType.cast(response));
+            } else {
+                future.completeExceptionally(new IOException("响应类型不匹配: 期望 "
+                        + responseType.getSimpleName() + "，实际 " + response.getClass().getSimpleName()));
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.datacompress.client;
+
+import com.datacompress.shm.SharedMemoryAddress;
+import com.datacompress.shm.SharedMemoryBridge;
+import com.datacompress.shm.SharedMemoryConnection;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalServerChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 客户端一侧的共享内存中转
+ * 客户端的连接是连到本中转的LocalChannel；每建立一个连接先在共享目录中创建连接文件并等待服务端接入，
+ * 再由中转接受的LocalChannel经SharedMemoryBridge与连接文件对接，客户端处理器链因此无需任何改动。
+ */
+final class SharedMemoryRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedMemoryRelay.class);
+
+    // 等待服务端接入连接文件的时间，服务端每10毫秒扫描一次共享目录
+    private static final long ATTACH_TIMEOUT_MS = 3000;
+    private static final AtomicInteger RELAY_INDEX = new AtomicInteger();
+
+    private final SharedMemoryAddress address;
+    private final LocalAddress localAddress;
+    private final Channel serverChannel;
+    // 已被服务端接入、等待中转接受对应LocalChannel的连接
+    private final Queue<SharedMemoryConnection> pending = new ConcurrentLinkedQueue<>();
+
+    SharedMemoryRelay(SharedMemoryAddress address, EventLoopGroup group) {
+        this.address = address;
+        this.localAddress = new LocalAddress("compression-client-shm-" + RELAY_INDEX.incrementAndGet());
+        this.serverChannel = new ServerBootstrap()
+                .group(group)
+                .channel(LocalServerChannel.class)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        SharedMemoryConnection connection = pending.poll();
+                        if (connection == null) {
+                            ch.close();
+                            return;
+                        }
+                        ch.pipeline().addLast("shmBridge",
+                                new SharedMemoryBridge(connection, address.getWaitStrategy()));
+                    }
+                })
+                .bind(localAddress).syncUninterruptibly().channel();
+    }
+
+    /**
+     * 建立一个经共享内存的连接
+     * 创建连接文件与等待服务端接入在executor中执行，不阻塞调用线程
+     * @param bootstrap 客户端处理器链的配置
+     * @return 连接建立后完成，服务端未接入或连接失败时异常完成
+     */
+    CompletableFuture<Channel> connect(Bootstrap bootstrap, Executor executor) {
+        CompletableFuture<Channel> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            SharedMemoryConnection connection;
+            try {
+                connection = SharedMemoryConnection.create(address.getDirectory(), address.getRingCapacity());
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+                return;
+            }
+            if (!connection.awaitAttached(ATTACH_TIMEOUT_MS, TimeUnit.MILLISECONDS, address.getWaitStrategy())) {
+                close(connection);
+                future.completeExceptionally(new IOException("服务端未接入共享内存连接: " + address));
+                return;
+            }
+            logger.debug("服务端已接入共享内存连接: {}", connection);
+            pending.add(connection);
+            bootstrap.connect(localAddress).addListener((ChannelFutureListener) channelFuture -> {
+                if (channelFuture.isSuccess()) {
+                    future.complete(channelFuture.channel());
+                } else {
+                    if (pending.remove(connection)) {
+                        close(connection);
+                    }
+                    future.completeExceptionally(channelFuture.cause());
+                }
+            });
+        });
+        return future;
+    }
+
+    /**
+     * 停止中转，已建立的连接随各自的Channel关闭
+     */
+    void close() {
+        serverChannel.close();
+        SharedMemoryConnection connection;
+        while ((connection = pending.poll()) != null) {
+            close(connection);
+        }
+    }
+
+    private static void close(SharedMemoryConnection connection) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            logger.warn("关闭共享内存连接 {} 失败", connection, e);
+        }
+    }
+}
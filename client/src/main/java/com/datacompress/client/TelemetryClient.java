@@ -0,0 +1,367 @@
+package com.datacompress.client;
+
+import com.datacompress.algorithm.CompressionAlgorithm;
+import com.datacompress.algorithm.CompressionFactory;
+import com.datacompress.algorithm.impl.ZstdCompression;
+import com.datacompress.dictionary.ZstdDictionary;
+import com.datacompress.model.PerformanceMetrics;
+import com.datacompress.protocol.SelectiveAckWindow;
+import com.datacompress.protocol.TelemetryAck;
+import com.datacompress.protocol.TelemetryCodec;
+import com.datacompress.protocol.TelemetryDatagram;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 遥测数据报客户端
+ * 把压缩后能放入一个UDP数据报的小数据直接发给服务端，不建立TCP连接、不握手，每条数据独立压缩，
+ * 可使用与服务端共享的Zstd字典。数据报不重传：要求确认时，收到确认的数据报报告往返时延，
+ * 服务端的选择性确认表明其后已有数据报到达而自身仍未到达，或超时未确认的数据报判定为丢失，
+ * 发送与丢失的累计数随每条数据的性能指标一同报告。服务端需在server.properties中启用server.udp.enabled。
+ */
+public class TelemetryClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(TelemetryClient.class);
+
+    /** 默认的数据报上限：以太网MTU减去IP与UDP头，不会在IP层分片 */
+    public static final int DEFAULT_MAX_DATAGRAM_SIZE = 1472;
+    private static final long DEFAULT_ACK_TIMEOUT_MS = 1000;
+    // 确认表明之后已有这么多个序号到达时，判定间隙中的数据报已丢失而不是乱序
+    private static final int REORDER_THRESHOLD = 3;
+    private static final long SWEEP_INTERVAL_MS = 50;
+
+    private final InetSocketAddress remoteAddress;
+    // 每个客户端实例一个会话，服务端按会话重置接收窗口
+    private final int sessionId = ThreadLocalRandom.current().nextInt();
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicLong datagramsSent = new AtomicLong();
+    private final AtomicLong datagramsLost = new AtomicLong();
+    // 已发出、等待确认的数据报
+    private final Map<Long, Pending> outstanding = new ConcurrentHashMap<>();
+
+    private EventLoopGroup group;
+    private Channel channel;
+    private ScheduledFuture<?> sweepFuture;
+    private volatile ZstdDictionary dictionary;
+    private volatile boolean ackRequested = true;
+    private volatile int maxDatagramSize = DEFAULT_MAX_DATAGRAM_SIZE;
+    private volatile long ackTimeoutMs = DEFAULT_ACK_TIMEOUT_MS;
+
+    public TelemetryClient(String host, int port) {
+        this.remoteAddress = new InetSocketAddress(host, port);
+    }
+
+    /**
+     * 等待确认的数据报
+     */
+    private static final class Pending {
+        final PerformanceMetrics metrics;
+        final long sendNanos;
+        final CompletableFuture<PerformanceMetrics> future;
+
+        Pending(PerformanceMetrics metrics, long sendNanos, CompletableFuture<PerformanceMetrics> future) {
+            this.metrics = metrics;
+            this.sendNanos = sendNanos;
+            this.future = future;
+        }
+    }
+
+    /**
+     * 绑定本地端口并关联服务端地址，之后只接收来自服务端的数据报
+     * @return 是否成功
+     */
+    public CompletableFuture<Boolean> connect() {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        group = new NioEventLoopGroup(1);
+        Bootstrap bootstrap = new Bootstrap();
+        bootstrap.group(group)
+                .channel(NioDatagramChannel.class)
+                .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(TelemetryCodec.MAX_DATAGRAM_SIZE))
+                .handler(new AckHandler());
+        bootstrap.connect(remoteAddress).addListener((ChannelFutureListener) channelFuture -> {
+            if (channelFuture.isSuccess()) {
+                channel = channelFuture.channel();
+                sweepFuture = channel.eventLoop().scheduleWithFixedDelay(this::expireOutstanding,
+                        SWEEP_INTERVAL_MS, SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                logger.info("遥测客户端已就绪 - 服务端: {}, 本地: {}", remoteAddress, channel.localAddress());
+                future.complete(true);
+            } else {
+                logger.error("遥测客户端无法关联服务端 {}", remoteAddress, channelFuture.cause());
+                future.complete(false);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 压缩并以一个数据报发送
+     * 压缩在调用线程上完成；压缩后超过数据报上限时不发送，应改用TCP传输
+     * @param data 原始数据
+     * @param name 数据名称，服务端保存时用作文件名
+     * @param algorithmName 压缩算法名称，为Zstd且设置了字典时以字典压缩
+     * @param compressionLevel 压缩级别
+     * @return 要求确认时在收到确认后完成，数据报判定丢失时异常完成；否则在数据报发出后完成
+     */
+    public CompletableFuture<PerformanceMetrics> send(byte[] data, String name, String algorithmName,
+                                                      int compressionLevel) {
+        CompletableFuture<PerformanceMetrics> future = new CompletableFuture<>();
+        Channel ch = channel;
+        if (ch == null || !ch.isActive()) {
+            future.completeExceptionally(new IllegalStateException("遥测客户端未就绪"));
+            return future;
+        }
+
+        ByteBuf encoded;
+        PerformanceMetrics metrics = new PerformanceMetrics();
+        TelemetryDatagram datagram = new TelemetryDatagram();
+        try {
+            CompressionAlgorithm algorithm = CompressionFactory.getAlgorithm(algorithmName);
+            if (algorithm == null) {
+                throw new IllegalArgumentException("不支持的压缩算法: " + algorithmName);
+            }
+            metrics.setOriginalSize(data.length);
+            metrics.setAlgorithmName(algorithmName);
+            metrics.setAlgorithmId(algorithm.getAlgorithmId());
+
+            ZstdDictionary dict = dictionary;
+            metrics.setCompressStartTime(System.currentTimeMillis());
+            byte[] payload;
+            if (dict != null && algorithm instanceof ZstdCompression) {
+                payload = dict.compress(data, compressionLevel);
+                datagram.setDictionaryId(dict.getId());
+            } else {
+                payload = algorithm.compress(data, compressionLevel);
+            }
+            metrics.setCompressEndTime(System.currentTimeMillis());
+            metrics.setCompressedSize(payload.length);
+
+            datagram.setSessionId(sessionId);
+            datagram.setAckRequested(ackRequested);
+            datagram.setAlgorithmId(algorithm.getAlgorithmId());
+            datagram.setOriginalSize(data.length);
+            datagram.setName(name);
+            datagram.setPayload(payload);
+            datagram.setSendTime(System.currentTimeMillis());
+            int size = TelemetryCodec.maxEncodedSize(datagram);
+            if (size > maxDatagramSize) {
+                // 在分配序号前检查，未发出的数据报不会在服务端的接收窗口中留下间隙
+                throw new IOException(String.format(
+                        "压缩后的数据报(约%d bytes)超过上限 %d bytes，请改用TCP传输", size, maxDatagramSize));
+            }
+            datagram.setSequence(nextSequence.getAndIncrement());
+            encoded = TelemetryCodec.encode(ch.alloc(), datagram);
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        long sequence = datagram.getSequence();
+        metrics.setDatagramSequence(sequence);
+        metrics.setSendStartTime(datagram.getSendTime());
+        datagramsSent.incrementAndGet();
+        if (datagram.isAckRequested()) {
+            outstanding.put(sequence, new Pending(metrics, System.nanoTime(), future));
+        }
+        ch.writeAndFlush(encoded).addListener((ChannelFutureListener) writeFuture -> {
+            metrics.setSendEndTime(System.currentTimeMillis());
+            if (!writeFuture.isSuccess()) {
+                if (outstanding.remove(sequence) != null || !datagram.isAckRequested()) {
+                    datagramsLost.incrementAndGet();
+                    future.completeExceptionally(writeFuture.cause());
+                }
+            } else if (!datagram.isAckRequested()) {
+                snapshotCounters(metrics);
+                future.complete(metrics);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 处理确认：完成被确认的数据报，并按选择性确认处理其他等待确认的数据报
+     */
+    private void onAck(TelemetryAck ack) {
+        long now = System.nanoTime();
+        Pending acked = outstanding.remove(ack.getSequence());
+        if (acked != null) {
+            PerformanceMetrics metrics = acked.metrics;
+            metrics.setReceiveStartTime(ack.getReceiveTime());
+            metrics.setReceiveEndTime(ack.getReceiveTime());
+            metrics.setDecompressStartTime(ack.getDecompressStartTime());
+            metrics.setDecompressEndTime(ack.getDecompressEndTime());
+            complete(acked, ack.isSuccess(), ack.getMessage(), now);
+        }
+
+        long[] ranges = ack.getSackRanges();
+        // 区间数达到上限时更早的区间未被报告，其中的序号无法判断
+        long reportedFrom = ranges.length / 2 < SelectiveAckWindow.MAX_SACK_RANGES ? ack.getCumulativeAck() : ranges[0];
+        long lossBelow = ack.getHighestReceived() - REORDER_THRESHOLD;
+        for (Iterator<Map.Entry<Long, Pending>> it = outstanding.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Pending> entry = it.next();
+            long sequence = entry.getKey();
+            if (ack.isReceived(sequence)) {
+                // 数据报已送达而其确认丢失，处理结果与服务端时间未知
+                it.remove();
+                complete(entry.getValue(), true, null, now);
+            } else if (sequence >= reportedFrom && sequence < lossBelow) {
+                it.remove();
+                markLost(entry.getValue(), sequence, "之后的数据报已到达");
+            }
+        }
+    }
+
+    private void complete(Pending pending, boolean success, String message, long now) {
+        PerformanceMetrics metrics = pending.metrics;
+        metrics.setRoundTripNanos(now - pending.sendNanos);
+        metrics.setResponseReceivedTime(System.currentTimeMillis());
+        snapshotCounters(metrics);
+        if (success) {
+            pending.future.complete(metrics);
+        } else {
+            pending.future.completeExceptionally(new IOException("服务端处理失败: " + message));
+        }
+    }
+
+    private void markLost(Pending pending, long sequence, String reason) {
+        datagramsLost.incrementAndGet();
+        logger.debug("数据报 {} 判定丢失: {}", sequence, reason);
+        pending.future.completeExceptionally(new IOException("数据报 " + sequence + " 已丢失（" + reason + "）"));
+    }
+
+    /**
+     * 超时未确认的数据报判定为丢失
+     */
+    private void expireOutstanding() {
+        long deadline = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(ackTimeoutMs);
+        for (Iterator<Map.Entry<Long, Pending>> it = outstanding.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Pending> entry = it.next();
+            if (entry.getValue().sendNanos - deadline < 0 && outstanding.remove(entry.getKey()) != null) {
+                markLost(entry.getValue(), entry.getKey(), "确认超时");
+            }
+        }
+    }
+
+    private void snapshotCounters(PerformanceMetrics metrics) {
+        metrics.setDatagramsSent(datagramsSent.get());
+        metrics.setDatagramsLost(datagramsLost.get());
+    }
+
+    /**
+     * 接收服务端的确认
+     */
+    private final class AckHandler extends SimpleChannelInboundHandler<DatagramPacket> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket packet) {
+            Object message;
+            try {
+                message = TelemetryCodec.decode(packet.content());
+            } catch (CorruptedFrameException e) {
+                logger.debug("丢弃无效的数据报: {}", e.getMessage());
+                return;
+            }
+            if (message instanceof TelemetryAck && ((TelemetryAck) message).getSessionId() == sessionId) {
+                onAck((TelemetryAck) message);
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            // 服务端未启动时会收到ICMP端口不可达，数据报随之按超时判定丢失
+            logger.debug("遥测数据报套接字异常: {}", cause.toString());
+        }
+    }
+
+    /**
+     * 关闭客户端，等待确认的数据报按丢失处理
+     */
+    public void disconnect() {
+        if (sweepFuture != null) {
+            sweepFuture.cancel(false);
+        }
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        for (Long sequence : outstanding.keySet()) {
+            Pending pending = outstanding.remove(sequence);
+            if (pending != null) {
+                pending.future.completeExceptionally(new IOException("遥测客户端已关闭"));
+            }
+        }
+        if (group != null) {
+            group.shutdownGracefully();
+        }
+        logger.info("遥测客户端已关闭 - 发送: {}, 丢失: {}", datagramsSent.get(), datagramsLost.get());
+    }
+
+    /**
+     * 设置与服务端共享的Zstd字典，之后以Zstd发送的数据使用该字典压缩
+     * @param dictionary 字典，null表示不使用字典
+     */
+    public void setDictionary(ZstdDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * 设置是否要求服务端确认，不要求确认时无法测量往返时延与丢失
+     */
+    public void setAckRequested(boolean ackRequested) {
+        this.ackRequested = ackRequested;
+    }
+
+    /**
+     * 设置数据报上限（字节），链路MTU较大或在本机回环上时可以放宽
+     */
+    public void setMaxDatagramSize(int maxDatagramSize) {
+        if (maxDatagramSize < 64 || maxDatagramSize > TelemetryCodec.MAX_DATAGRAM_SIZE) {
+            throw new IllegalArgumentException("数据报上限必须在64到" + TelemetryCodec.MAX_DATAGRAM_SIZE + "之间");
+        }
+        this.maxDatagramSize = maxDatagramSize;
+    }
+
+    /**
+     * 设置等待确认的超时时间，超时未确认的数据报判定为丢失
+     */
+    public void setAckTimeoutMs(long ackTimeoutMs) {
+        this.ackTimeoutMs = ackTimeoutMs;
+    }
+
+    /**
+     * 已发出的数据报数
+     */
+    public long getDatagramsSent() {
+        return datagramsSent.get();
+    }
+
+    /**
+     * 判定丢失的数据报数
+     */
+    public long getDatagramsLost() {
+        return datagramsLost.get();
+    }
+}
@@ -5,6 +5,7 @@ import com.datacompress.algorithm.CompressionFactory;
 import com.datacompress.client.CompressionClient;
 import com.datacompress.client.FileManager;
 import com.datacompress.model.PerformanceMetrics;
+import com.datacompress.shm.SharedMemoryAddress;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -13,11 +14,14 @@ import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -29,6 +33,10 @@ import javafx.scene.chart.*;
 public class MainController {
 
     private static final Logger logger = LoggerFactory.getLogger(MainController.class);
+    // 服务器地址的该前缀表示Unix域套接字路径
+    private static final String UNIX_SOCKET_PREFIX = "unix:";
+    // 服务器地址的该前缀表示共享内存连接的共享目录
+    private static final String SHARED_MEMORY_PREFIX = "shm:";
 
     @FXML private TextField hostField;
     @FXML private TextField portField;
@@ -39,9 +47,14 @@ public class MainController {
 
     @FXML private TextField filePathField;
     @FXML private Button browseButton;
+    @FXML private Button browseDirectoryButton;
     @FXML private ComboBox<String> algorithmComboBox;
     @FXML private Spinner<Integer> compressionLevelSpinner;
     @FXML private Label levelLabel;
+    @FXML private CheckBox dedupCheckBox;
+    @FXML private CheckBox deltaCheckBox;
+    @FXML private CheckBox contextCheckBox;
+    @FXML private CheckBox streamCheckBox;
     @FXML private Button sendButton;
     @FXML private ProgressBar progressBar;
     @FXML private Label progressLabel;
@@ -237,17 +250,28 @@ public class MainController {
             updateConnectionStatus(false);
             connectButton.setText("连接");
         } else {
-            // 连接服务器
+            // 连接服务器，地址以unix:开头时经该路径的Unix域套接字连接，以shm:开头时经该共享目录的共享内存连接，
+            // 二者均忽略端口
             String host = hostField.getText().trim();
-            int port;
-            try {
-                port = Integer.parseInt(portField.getText().trim());
-            } catch (NumberFormatException e) {
-                showAlert("错误", "无效的端口号");
-                return;
+            String target;
+            if (host.startsWith(UNIX_SOCKET_PREFIX)) {
+                target = host;
+                client = new CompressionClient(Paths.get(host.substring(UNIX_SOCKET_PREFIX.length())));
+            } else if (host.startsWith(SHARED_MEMORY_PREFIX)) {
+                target = host;
+                client = new CompressionClient(
+                        new SharedMemoryAddress(Paths.get(host.substring(SHARED_MEMORY_PREFIX.length()))));
+            } else {
+                int port;
+                try {
+                    port = Integer.parseInt(portField.getText().trim());
+                } catch (NumberFormatException e) {
+                    showAlert("错误", "无效的端口号");
+                    return;
+                }
+                target = host + ":" + port;
+                client = new CompressionClient(host, port);
             }
-
-            client = new CompressionClient(host, port);
             connectButton.setDisable(true);
 
             client.connect().thenAccept(success -> {
@@ -258,7 +282,7 @@ public class MainController {
                         connectButton.setText("断开");
                         startHeartbeat();
                     } else {
-                        showAlert("连接失败", "无法连接到服务器 " + host + ":" + port);
+                        showAlert("连接失败", "无法连接到服务器 " + target);
                         updateConnectionStatus(false);
                     }
                 });
@@ -278,6 +302,19 @@ public class MainController {
         }
     }
 
+    @FXML
+    private void handleBrowseDirectory() {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("选择要传输的文件夹");
+        File directory = directoryChooser.showDialog(browseDirectoryButton.getScene().getWindow());
+
+        if (directory != null) {
+            selectedFile = directory;
+            filePathField.setText(directory.getAbsolutePath());
+            sendButton.setDisable(client == null || !client.isConnected());
+        }
+    }
+
     @FXML
     private void handleSend() {
         if (selectedFile == null) {
@@ -305,6 +342,39 @@ public class MainController {
         progressLabel.setText("准备中...");
         clearMetrics();
 
+        CompressionClient.ProgressCallback progressCallback = (progress, message) -> {
+            Platform.runLater(() -> {
+                progressBar.setProgress(progress);
+                progressLabel.setText(message);
+            });
+        };
+
+        // 文件夹以多条目ZIP归档发送
+        if (selectedFile.isDirectory()) {
+            handleTransferResult(client.sendDirectory(selectedFile, compressionLevel, progressCallback));
+            return;
+        }
+
+        // 流式传输：边读边发，不把整个文件读入内存
+        if (streamCheckBox.isSelected()) {
+            handleTransferResult(client.sendFileStreaming(selectedFile, algorithm, compressionLevel,
+                    progressCallback));
+            return;
+        }
+
+        // 不压缩的普通传输：文件不读入内存，以零拷贝方式发送
+        if ("NONE".equals(algorithm) && !deltaCheckBox.isSelected() && !contextCheckBox.isSelected()
+                && !dedupCheckBox.isSelected()) {
+            handleTransferResult(client.sendFileZeroCopy(selectedFile, progressCallback));
+            return;
+        }
+
+        // 去重传输：只发送服务端缺失的分块，文件按偏移读取，不整体读入内存
+        if (dedupCheckBox.isSelected() && !deltaCheckBox.isSelected() && !contextCheckBox.isSelected()) {
+            handleTransferResult(client.sendFileDedup(selectedFile, algorithm, compressionLevel, progressCallback));
+            return;
+        }
+
         // 读取文件
         byte[] fileData;
         try {
@@ -316,13 +386,49 @@ public class MainController {
             return;
         }
 
+        // 增量传输：选择本地旧版本作为参考，服务端使用同名的最近版本
+        if (deltaCheckBox.isSelected()) {
+            FileChooser referenceChooser = new FileChooser();
+            referenceChooser.setTitle("选择服务端已有的旧版本文件");
+            File referenceFile = referenceChooser.showOpenDialog(sendButton.getScene().getWindow());
+            if (referenceFile == null) {
+                sendButton.setDisable(false);
+                progressLabel.setText("");
+                return;
+            }
+
+            byte[] referenceData;
+            try {
+                referenceData = FileManager.readFile(referenceFile);
+            } catch (Exception e) {
+                logger.error("读取参考文件失败", e);
+                showAlert("错误", "读取参考文件失败: " + e.getMessage());
+                sendButton.setDisable(false);
+                return;
+            }
+
+            handleTransferResult(client.sendFileDelta(fileData, selectedFile.getName(), referenceData,
+                    referenceFile.getName(), compressionLevel, progressCallback));
+            return;
+        }
+
+        // 上下文传输：复用连接上的压缩流历史
+        if (contextCheckBox.isSelected()) {
+            handleTransferResult(client.sendFileContext(fileData, selectedFile.getName(), algorithm, compressionLevel,
+                    progressCallback));
+            return;
+        }
+
         // 发送文件（传递文件名和压缩级别）
-        client.sendFile(fileData, selectedFile.getName(), algorithm, compressionLevel, (progress, message) -> {
-            Platform.runLater(() -> {
-                progressBar.setProgress(progress);
-                progressLabel.setText(message);
-            });
-        }).thenAccept(metrics -> {
+        handleTransferResult(client.sendFile(fileData, selectedFile.getName(), algorithm, compressionLevel,
+                progressCallback));
+    }
+
+    /**
+     * 处理传输结果：显示指标或错误
+     */
+    private void handleTransferResult(CompletableFuture<PerformanceMetrics> result) {
+        result.thenAccept(metrics -> {
             Platform.runLater(() -> {
                 displayMetrics(metrics);
                 addToHistory(metrics);
@@ -1,6 +1,7 @@
 package com.datacompress.algorithm;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * 压缩算法统一接口
@@ -38,12 +39,36 @@ public interface CompressionAlgorithm {
     byte[] compress(byte[] data, int level) throws IOException;
     
     /**
-     * 解压数据
+     * 解压数据（不限制输出大小，只用于可信数据）
      * @param compressedData 压缩后的数据
      * @return 原始数据
      * @throws IOException 解压过程中发生的异常
      */
-    byte[] decompress(byte[] compressedData) throws IOException;
+    default byte[] decompress(byte[] compressedData) throws IOException {
+        return decompress(compressedData, DecompressionGuard.UNLIMITED);
+    }
+    
+    /**
+     * 在解压保护限制内解压数据
+     * @param compressedData 压缩后的数据
+     * @param guard 解压限制
+     * @return 原始数据
+     * @throws DecompressionLimitException 输出超过限制
+     * @throws IOException 解压过程中发生的异常
+     */
+    byte[] decompress(byte[] compressedData, DecompressionGuard guard) throws IOException;
+    
+    /**
+     * 创建流式解压输入流，边读取压缩数据边解压，内存占用与数据总大小无关
+     * 输入为该算法的标准流格式，输出总量由调用方按解压限制检查
+     * @param compressedStream 压缩数据流，随返回的流一同关闭
+     * @return 解压后的数据流
+     * @throws UnsupportedOperationException 算法没有可流式解压的格式
+     * @throws IOException 流头部无效
+     */
+    default InputStream newDecompressingStream(InputStream compressedStream) throws IOException {
+        throw new UnsupportedOperationException(getName() + " 不支持流式解压");
+    }
     
     /**
      * 是否支持自定义压缩级别
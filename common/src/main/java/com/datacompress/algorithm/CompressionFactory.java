@@ -57,4 +57,17 @@ public class CompressionFactory {
     public static String[] getAllAlgorithmNames() {
         return algorithmByName.keySet().toArray(new String[0]);
     }
+    
+    /**
+     * 获取所有支持的算法ID
+     * @return 算法ID数组
+     */
+    public static byte[] getAllAlgorithmIds() {
+        byte[] ids = new byte[algorithmById.size()];
+        int i = 0;
+        for (Byte id : algorithmById.keySet()) {
+            ids[i++] = id;
+        }
+        return ids;
+    }
 }
@@ -0,0 +1,162 @@
+package com.datacompress.algorithm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * 解压内存保护
+ * 限制单次解压的最大输出和最大压缩比，按固定步长分批解压，超限时立即中止，
+ * 避免恶意或损坏的数据声明超大长度或构造压缩炸弹耗尽内存
+ */
+public class DecompressionGuard {
+    
+    /** Java数组长度上限 */
+    public static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+    public static final int DEFAULT_STEP_SIZE = 64 * 1024;
+    /** 输出不超过该大小时不检查压缩比，避免小而高度重复的数据被误判 */
+    static final long RATIO_GRACE_SIZE = 1024 * 1024;
+    
+    /** 不限制压缩比，输出只受数组长度上限约束 */
+    public static final DecompressionGuard UNLIMITED = new DecompressionGuard(MAX_ARRAY_SIZE, 0, DEFAULT_STEP_SIZE);
+    
+    private final long maxOutputSize;
+    private final int maxRatio;
+    private final int stepSize;
+    
+    /**
+     * @param maxOutputSize 单次解压的最大输出字节数
+     * @param maxRatio 最大压缩比（输出/输入），0表示不限制
+     * @param stepSize 每步解压的最大字节数
+     */
+    public DecompressionGuard(long maxOutputSize, int maxRatio, int stepSize) {
+        if (maxOutputSize <= 0 || maxRatio < 0 || stepSize <= 0) {
+            throw new IllegalArgumentException("非法的解压限制参数");
+        }
+        this.maxOutputSize = Math.min(maxOutputSize, MAX_ARRAY_SIZE);
+        this.maxRatio = maxRatio;
+        this.stepSize = stepSize;
+    }
+    
+    /**
+     * 计算给定输入大小允许的最大输出
+     * @param compressedLength 压缩数据大小
+     * @return 最大输出字节数
+     */
+    public long limitFor(long compressedLength) {
+        if (maxRatio == 0) {
+            return maxOutputSize;
+        }
+        long byRatio = Math.max(RATIO_GRACE_SIZE, Math.multiplyExact(Math.max(1, compressedLength), (long) maxRatio));
+        return Math.min(maxOutputSize, byRatio);
+    }
+    
+    /**
+     * 检查数据中声明的原始大小，在分配内存之前调用
+     * @param declaredSize 声明的原始大小
+     * @param compressedLength 压缩数据大小
+     * @return 可以安全分配的大小
+     * @throws DecompressionLimitException 声明的大小非法或超限
+     */
+    public int checkDeclaredSize(long declaredSize, long compressedLength) throws DecompressionLimitException {
+        if (declaredSize < 0) {
+            throw new DecompressionLimitException("声明的原始大小非法: " + declaredSize);
+        }
+        long limit = limitFor(compressedLength);
+        if (declaredSize > limit) {
+            throw new DecompressionLimitException(String.format(
+                    "声明的原始大小 %d bytes 超过上限 %d bytes（压缩数据 %d bytes）",
+                    declaredSize, limit, compressedLength));
+        }
+        return (int) declaredSize;
+    }
+    
+    /**
+     * 创建有上限的输出缓冲区
+     * @param compressedLength 压缩数据大小
+     * @return 输出缓冲区
+     */
+    public BoundedOutput newOutput(long compressedLength) {
+        return new BoundedOutput(limitFor(compressedLength), compressedLength);
+    }
+    
+    /**
+     * 按步长读取解压流直到结束
+     * @param in 解压输入流
+     * @param compressedLength 压缩数据大小
+     * @return 解压后的数据
+     * @throws IOException 读取失败或超限
+     */
+    public byte[] readFully(InputStream in, long compressedLength) throws IOException {
+        BoundedOutput out = newOutput(compressedLength);
+        byte[] buffer = new byte[stepSize];
+        int len;
+        while ((len = in.read(buffer)) > 0) {
+            out.write(buffer, 0, len);
+        }
+        return out.toByteArray();
+    }
+    
+    public long getMaxOutputSize() {
+        return maxOutputSize;
+    }
+    
+    public int getMaxRatio() {
+        return maxRatio;
+    }
+    
+    public int getStepSize() {
+        return stepSize;
+    }
+    
+    /**
+     * 有上限的字节输出缓冲区，写入超过上限时抛出 {@link DecompressionLimitException}
+     */
+    public class BoundedOutput extends OutputStream {
+        
+        private final long limit;
+        private final long compressedLength;
+        private byte[] buffer;
+        private int count;
+        
+        private BoundedOutput(long limit, long compressedLength) {
+            this.limit = limit;
+            this.compressedLength = compressedLength;
+            this.buffer = new byte[(int) Math.min(limit, Math.max(stepSize, compressedLength))];
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            ensureCapacity(1);
+            buffer[count++] = (byte) b;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureCapacity(len);
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+        
+        public int size() {
+            return count;
+        }
+        
+        public byte[] toByteArray() {
+            return count == buffer.length ? buffer : Arrays.copyOf(buffer, count);
+        }
+        
+        private void ensureCapacity(int additional) throws DecompressionLimitException {
+            long required = (long) count + additional;
+            if (required > limit) {
+                throw new DecompressionLimitException(String.format(
+                        "解压输出超过上限 %d bytes（压缩数据 %d bytes），已中止", limit, compressedLength));
+            }
+            if (required > buffer.length) {
+                long grown = Math.max(required, (long) buffer.length * 2);
+                buffer = Arrays.copyOf(buffer, (int) Math.min(grown, limit));
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.datacompress.algorithm;
+
+import java.io.IOException;
+
+/**
+ * 解压输出超过 {@link DecompressionGuard} 的限制
+ */
+public class DecompressionLimitException extends IOException {
+    
+    public DecompressionLimitException(String message) {
+        super(message);
+    }
+}
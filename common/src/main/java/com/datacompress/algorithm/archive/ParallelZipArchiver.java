@@ -0,0 +1,263 @@
+package com.datacompress.algorithm.archive;
+
+import com.datacompress.algorithm.DecompressionGuard;
+import com.datacompress.algorithm.DecompressionLimitException;
+import org.apache.commons.compress.archivers.zip.DefaultBackingStoreSupplier;
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.parallel.InputStreamSupplier;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+/**
+ * 多条目ZIP归档工具
+ * 打包时使用commons-compress的ParallelScatterZipCreator并发压缩各条目，
+ * 解包时通过中央目录随机访问各条目并并行解压
+ */
+public class ParallelZipArchiver {
+
+    private final int threads;
+
+    public ParallelZipArchiver() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelZipArchiver(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * 将目录打包为多条目ZIP归档
+     * @param directory 要打包的目录
+     * @param level 压缩级别 (0-9)
+     * @return 归档结果
+     * @throws IOException 读取目录或压缩时发生的异常
+     */
+    public ArchiveResult archive(Path directory, int level) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            throw new IOException("不是一个有效的目录: " + directory);
+        }
+
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            paths = walk.filter(p -> !p.equals(directory)).sorted().collect(Collectors.toList());
+        }
+
+        // ParallelScatterZipCreator在writeTo结束后会关闭线程池
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ParallelScatterZipCreator creator = new ParallelScatterZipCreator(executor,
+                new DefaultBackingStoreSupplier(null), level);
+
+        long totalSize = 0;
+        int entryCount = 0;
+        for (Path path : paths) {
+            String entryName = toEntryName(directory, path);
+            if (Files.isDirectory(path)) {
+                ZipArchiveEntry entry = new ZipArchiveEntry(entryName + "/");
+                entry.setMethod(ZipEntry.STORED);
+                creator.addArchiveEntry(entry, emptyStream());
+            } else {
+                ZipArchiveEntry entry = new ZipArchiveEntry(entryName);
+                entry.setMethod(ZipEntry.DEFLATED);
+                entry.setSize(Files.size(path));
+                creator.addArchiveEntry(entry, fileStream(path));
+                totalSize += entry.getSize();
+                entryCount++;
+            }
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(baos)) {
+            creator.writeTo(zip);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("归档被中断", e);
+        } catch (ExecutionException e) {
+            throw new IOException("并行压缩条目失败", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return new ArchiveResult(baos.toByteArray(), totalSize, entryCount);
+    }
+
+    /**
+     * 并行解压ZIP归档
+     * @param archiveData 归档数据
+     * @param targetDirectory 解压目标目录，为null时只解压校验、不落盘
+     * @return 解压结果
+     * @throws IOException 解压过程中发生的异常
+     */
+    public ExtractResult extract(byte[] archiveData, Path targetDirectory) throws IOException {
+        return extract(archiveData, targetDirectory, DecompressionGuard.UNLIMITED);
+    }
+    
+    /**
+     * 在解压保护限制内并行解压ZIP归档，所有条目的解压总量共享同一上限
+     * @param archiveData 归档数据
+     * @param targetDirectory 解压目标目录，为null时只解压校验、不落盘
+     * @param guard 解压限制
+     * @return 解压结果
+     * @throws IOException 解压过程中发生的异常或解压总量超限
+     */
+    public ExtractResult extract(byte[] archiveData, Path targetDirectory, DecompressionGuard guard)
+            throws IOException {
+        long limit = guard.limitFor(archiveData.length);
+        AtomicLong budget = new AtomicLong(limit);
+        Path root = targetDirectory != null ? targetDirectory.toAbsolutePath().normalize() : null;
+        if (root != null) {
+            Files.createDirectories(root);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (ZipFile zipFile = new ZipFile(new SeekableInMemoryByteChannel(archiveData))) {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (ZipArchiveEntry entry : Collections.list(zipFile.getEntries())) {
+                Path target = root != null ? resolveEntry(root, entry.getName()) : null;
+                if (entry.isDirectory()) {
+                    if (target != null) {
+                        Files.createDirectories(target);
+                    }
+                    continue;
+                }
+                // ZipFile在读取条目数据时对底层通道加锁定位，inflate过程可以并行
+                futures.add(executor.submit(() -> extractEntry(zipFile, entry, target, guard.getStepSize(), budget, limit)));
+            }
+
+            long totalSize = 0;
+            for (Future<Long> future : futures) {
+                totalSize += future.get();
+            }
+            return new ExtractResult(totalSize, futures.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("解压被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof DecompressionLimitException) {
+                throw (DecompressionLimitException) cause;
+            }
+            throw new IOException("并行解压条目失败: " + cause.getMessage(), cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long extractEntry(ZipFile zipFile, ZipArchiveEntry entry, Path target,
+                              int stepSize, AtomicLong budget, long limit) throws IOException {
+        if (target != null) {
+            Files.createDirectories(target.getParent());
+        }
+        try (InputStream in = zipFile.getInputStream(entry);
+             OutputStream out = target != null ? Files.newOutputStream(target) : OutputStream.nullOutputStream()) {
+            byte[] buffer = new byte[stepSize];
+            long total = 0;
+            int len;
+            while ((len = in.read(buffer)) > 0) {
+                if (budget.addAndGet(-len) < 0) {
+                    throw new DecompressionLimitException("归档解压总量超过上限 " + limit + " bytes，已中止");
+                }
+                out.write(buffer, 0, len);
+                total += len;
+            }
+            return total;
+        }
+    }
+    
+    /**
+     * 解析条目路径，拒绝跳出目标目录的条目（Zip Slip）
+     */
+    private static Path resolveEntry(Path root, String entryName) throws IOException {
+        Path target = root.resolve(entryName).normalize();
+        if (!target.startsWith(root)) {
+            throw new IOException("非法的归档条目路径: " + entryName);
+        }
+        return target;
+    }
+
+    private static String toEntryName(Path directory, Path path) {
+        return directory.relativize(path).toString().replace('\\', '/');
+    }
+
+    private static InputStreamSupplier emptyStream() {
+        return InputStream::nullInputStream;
+    }
+
+    private static InputStreamSupplier fileStream(Path path) {
+        return () -> {
+            try {
+                return Files.newInputStream(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    /**
+     * 归档结果
+     */
+    public static class ArchiveResult {
+        private final byte[] data;
+        private final long totalSize;
+        private final int fileCount;
+
+        public ArchiveResult(byte[] data, long totalSize, int fileCount) {
+            this.data = data;
+            this.totalSize = totalSize;
+            this.fileCount = fileCount;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+
+        public long getTotalSize() {
+            return totalSize;
+        }
+
+        public int getFileCount() {
+            return fileCount;
+        }
+    }
+
+    /**
+     * 解压结果
+     */
+    public static class ExtractResult {
+        private final long totalSize;
+        private final int fileCount;
+
+        public ExtractResult(long totalSize, int fileCount) {
+            this.totalSize = totalSize;
+            this.fileCount = fileCount;
+        }
+
+        public long getTotalSize() {
+            return totalSize;
+        }
+
+        public int getFileCount() {
+            return fileCount;
+        }
+    }
+}
@@ -5,10 +5,12 @@ import com.aayushatharva.brotli4j.decoder.BrotliInputStream;
 import com.aayushatharva.brotli4j.encoder.BrotliOutputStream;
 import com.aayushatharva.brotli4j.encoder.Encoder;
 import com.datacompress.algorithm.CompressionAlgorithm;
+import com.datacompress.algorithm.DecompressionGuard;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Brotli压缩算法实现
@@ -53,19 +55,17 @@ public class BrotliCompression implements CompressionAlgorithm {
     }
     
     @Override
-    public byte[] decompress(byte[] compressedData) throws IOException {
+    public byte[] decompress(byte[] compressedData, DecompressionGuard guard) throws IOException {
         ByteArrayInputStream bais = new ByteArrayInputStream(compressedData);
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
         
         try (BrotliInputStream brotli = new BrotliInputStream(bais)) {
-            byte[] buffer = new byte[8192];
-            int len;
-            while ((len = brotli.read(buffer)) > 0) {
-                baos.write(buffer, 0, len);
-            }
+            return guard.readFully(brotli, compressedData.length);
         }
-        
-        return baos.toByteArray();
+    }
+    
+    @Override
+    public InputStream newDecompressingStream(InputStream compressedStream) throws IOException {
+        return new BrotliInputStream(compressedStream);
     }
     
     @Override
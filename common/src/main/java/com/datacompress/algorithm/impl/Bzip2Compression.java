@@ -1,6 +1,7 @@
 package com.datacompress.algorithm.impl;
 
 import com.datacompress.algorithm.CompressionAlgorithm;
+import com.datacompress.algorithm.DecompressionGuard;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
 
@@ -41,19 +42,12 @@ public class Bzip2Compression implements CompressionAlgorithm {
     }
     
     @Override
-    public byte[] decompress(byte[] compressedData) throws IOException {
+    public byte[] decompress(byte[] compressedData, DecompressionGuard guard) throws IOException {
         ByteArrayInputStream bais = new ByteArrayInputStream(compressedData);
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
         
         try (BZip2CompressorInputStream bzip2 = new BZip2CompressorInputStream(bais)) {
-            byte[] buffer = new byte[8192];
-            int len;
-            while ((len = bzip2.read(buffer)) > 0) {
-                baos.write(buffer, 0, len);
-            }
+            return guard.readFully(bzip2, compressedData.length);
         }
-        
-        return baos.toByteArray();
     }
     
     @Override
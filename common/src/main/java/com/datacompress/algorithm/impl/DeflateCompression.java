@@ -1,11 +1,15 @@
 package com.datacompress.algorithm.impl;
 
 import com.datacompress.algorithm.CompressionAlgorithm;
+import com.datacompress.algorithm.DecompressionGuard;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 /**
  * DEFLATE压缩算法实现
@@ -14,6 +18,7 @@ import java.util.zip.Inflater;
 public class DeflateCompression implements CompressionAlgorithm {
     
     private static final int DEFAULT_LEVEL = 6;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
     
     @Override
     public String getName() {
@@ -49,25 +54,47 @@ public class DeflateCompression implements CompressionAlgorithm {
     }
     
     @Override
-    public byte[] decompress(byte[] compressedData) throws IOException {
+    public byte[] decompress(byte[] compressedData, DecompressionGuard guard) throws IOException {
         Inflater inflater = new Inflater();
         inflater.setInput(compressedData);
         
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        byte[] buffer = new byte[8192];
+        DecompressionGuard.BoundedOutput out = guard.newOutput(compressedData.length);
+        byte[] buffer = new byte[guard.getStepSize()];
         
         try {
             while (!inflater.finished()) {
                 int count = inflater.inflate(buffer);
-                baos.write(buffer, 0, count);
+                if (count == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("DEFLATE数据不完整");
+                }
+                out.write(buffer, 0, count);
             }
-        } catch (Exception e) {
+        } catch (DataFormatException e) {
             throw new IOException("Failed to decompress data", e);
         } finally {
             inflater.end();
         }
         
-        return baos.toByteArray();
+        return out.toByteArray();
+    }
+    
+    /**
+     * 数据为带zlib头的DEFLATE流（即HTTP中的deflate编码）
+     */
+    @Override
+    public InputStream newDecompressingStream(InputStream compressedStream) {
+        Inflater inflater = new Inflater();
+        return new InflaterInputStream(compressedStream, inflater, STREAM_BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    // 传入自建的Inflater时InflaterInputStream不会释放其本地内存
+                    inflater.end();
+                }
+            }
+        };
     }
     
     @Override
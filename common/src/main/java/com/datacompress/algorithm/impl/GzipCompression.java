@@ -1,11 +1,13 @@
 package com.datacompress.algorithm.impl;
 
 import com.datacompress.algorithm.CompressionAlgorithm;
+import com.datacompress.algorithm.DecompressionGuard;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.util.zip.Deflater;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -16,6 +18,7 @@ import java.util.zip.GZIPOutputStream;
 public class GzipCompression implements CompressionAlgorithm {
     
     private static final int DEFAULT_LEVEL = 6;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
     
     @Override
     public String getName() {
@@ -47,19 +50,17 @@ public class GzipCompression implements CompressionAlgorithm {
     }
     
     @Override
-    public byte[] decompress(byte[] compressedData) throws IOException {
+    public byte[] decompress(byte[] compressedData, DecompressionGuard guard) throws IOException {
         ByteArrayInputStream bais = new ByteArrayInputStream(compressedData);
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
         
         try (GZIPInputStream gzip = new GZIPInputStream(bais)) {
-            byte[] buffer = new byte[8192];
-            int len;
-            while ((len = gzip.read(buffer)) > 0) {
-                baos.write(buffer, 0, len);
-            }
+            return guard.readFully(gzip, compressedData.length);
         }
-        
-        return baos.toByteArray();
+    }
+    
+    @Override
+    public InputStream newDecompressingStream(InputStream compressedStream) throws IOException {
+        return new GZIPInputStream(compressedStream, STREAM_BUFFER_SIZE);
     }
     
     @Override
@@ -1,11 +1,15 @@
 package com.datacompress.algorithm.impl;
 
 import com.datacompress.algorithm.CompressionAlgorithm;
+import com.datacompress.algorithm.DecompressionGuard;
 import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
 import net.jpountz.lz4.LZ4Factory;
-import net.jpountz.lz4.LZ4FastDecompressor;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4SafeDecompressor;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 
 /**
@@ -56,20 +60,37 @@ public class Lz4Compression implements CompressionAlgorithm {
     }
     
     @Override
-    public byte[] decompress(byte[] compressedData) throws IOException {
-        ByteBuffer buffer = ByteBuffer.wrap(compressedData);
-        int originalLength = buffer.getInt();
-        
-        byte[] compressed = new byte[compressedData.length - 4];
-        buffer.get(compressed);
+    public byte[] decompress(byte[] compressedData, DecompressionGuard guard) throws IOException {
+        if (compressedData.length < 4) {
+            throw new IOException("LZ4数据过短");
+        }
+        int originalLength = guard.checkDeclaredSize(
+                ByteBuffer.wrap(compressedData).getInt(), compressedData.length - 4);
         
-        LZ4FastDecompressor decompressor = factory.fastDecompressor();
+        // 原始长度来自发送方，使用带边界检查的解压器，输出不足声明长度时视为损坏
+        LZ4SafeDecompressor decompressor = factory.safeDecompressor();
         byte[] restored = new byte[originalLength];
-        decompressor.decompress(compressed, 0, restored, 0, originalLength);
+        try {
+            int length = decompressor.decompress(compressedData, 4, compressedData.length - 4,
+                    restored, 0, originalLength);
+            if (length != originalLength) {
+                throw new IOException("LZ4解压后大小(" + length + ") 与声明的原始大小(" + originalLength + ") 不匹配");
+            }
+        } catch (LZ4Exception e) {
+            throw new IOException("LZ4数据损坏", e);
+        }
         
         return restored;
     }
     
+    /**
+     * 流格式为标准的LZ4帧格式（与lz4命令行工具相同），不同于compress输出的带长度前缀的单个块
+     */
+    @Override
+    public InputStream newDecompressingStream(InputStream compressedStream) throws IOException {
+        return new LZ4FrameInputStream(compressedStream);
+    }
+    
     @Override
     public boolean supportsCustomLevel() {
         return true;
@@ -1,6 +1,7 @@
 package com.datacompress.algorithm.impl;
 
 import com.datacompress.algorithm.CompressionAlgorithm;
+import com.datacompress.algorithm.DecompressionGuard;
 import org.tukaani.xz.LZMA2Options;
 import org.tukaani.xz.XZInputStream;
 import org.tukaani.xz.XZOutputStream;
@@ -42,19 +43,12 @@ public class LzmaCompression implements CompressionAlgorithm {
     }
     
     @Override
-    public byte[] decompress(byte[] compressedData) throws IOException {
+    public byte[] decompress(byte[] compressedData, DecompressionGuard guard) throws IOException {
         ByteArrayInputStream bais = new ByteArrayInputStream(compressedData);
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
         
         try (XZInputStream xz = new XZInputStream(bais)) {
-            byte[] buffer = new byte[8192];
-            int len;
-            while ((len = xz.read(buffer)) > 0) {
-                baos.write(buffer, 0, len);
-            }
+            return guard.readFully(xz, compressedData.length);
         }
-        
-        return baos.toByteArray();
     }
     
     @Override
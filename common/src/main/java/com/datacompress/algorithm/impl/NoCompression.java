@@ -1,8 +1,10 @@
 package com.datacompress.algorithm.impl;
 
 import com.datacompress.algorithm.CompressionAlgorithm;
+import com.datacompress.algorithm.DecompressionGuard;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * 无压缩算法实现
@@ -34,11 +36,17 @@ public class NoCompression implements CompressionAlgorithm {
     }
     
     @Override
-    public byte[] decompress(byte[] compressedData) throws IOException {
+    public byte[] decompress(byte[] compressedData, DecompressionGuard guard) throws IOException {
         // 不进行任何解压，直接返回原始数据
+        guard.checkDeclaredSize(compressedData.length, compressedData.length);
         return compressedData;
     }
     
+    @Override
+    public InputStream newDecompressingStream(InputStream compressedStream) {
+        return compressedStream;
+    }
+    
     @Override
     public boolean supportsCustomLevel() {
         // 不支持自定义压缩级别
@@ -1,9 +1,12 @@
 package com.datacompress.algorithm.impl;
 
 import com.datacompress.algorithm.CompressionAlgorithm;
+import com.datacompress.algorithm.DecompressionGuard;
 import org.xerial.snappy.Snappy;
+import org.xerial.snappy.SnappyFramedInputStream;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * SNAPPY压缩算法实现
@@ -34,10 +37,19 @@ public class SnappyCompression implements CompressionAlgorithm {
     }
     
     @Override
-    public byte[] decompress(byte[] compressedData) throws IOException {
+    public byte[] decompress(byte[] compressedData, DecompressionGuard guard) throws IOException {
+        guard.checkDeclaredSize(Snappy.uncompressedLength(compressedData), compressedData.length);
         return Snappy.uncompress(compressedData);
     }
     
+    /**
+     * 流格式为Snappy分帧格式（framing format），不同于compress输出的单个原始块
+     */
+    @Override
+    public InputStream newDecompressingStream(InputStream compressedStream) throws IOException {
+        return new SnappyFramedInputStream(compressedStream);
+    }
+    
     @Override
     public boolean supportsCustomLevel() {
         return false;
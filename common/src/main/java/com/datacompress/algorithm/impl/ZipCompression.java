@@ -1,6 +1,7 @@
 package com.datacompress.algorithm.impl;
 
 import com.datacompress.algorithm.CompressionAlgorithm;
+import com.datacompress.algorithm.DecompressionGuard;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -46,23 +47,18 @@ public class ZipCompression implements CompressionAlgorithm {
     }
     
     @Override
-    public byte[] decompress(byte[] compressedData) throws IOException {
+    public byte[] decompress(byte[] compressedData, DecompressionGuard guard) throws IOException {
         ByteArrayInputStream bais = new ByteArrayInputStream(compressedData);
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
         
         try (ZipInputStream zip = new ZipInputStream(bais)) {
             ZipEntry entry = zip.getNextEntry();
-            if (entry != null) {
-                byte[] buffer = new byte[8192];
-                int len;
-                while ((len = zip.read(buffer)) > 0) {
-                    baos.write(buffer, 0, len);
-                }
-                zip.closeEntry();
+            if (entry == null) {
+                return new byte[0];
             }
+            byte[] data = guard.readFully(zip, compressedData.length);
+            zip.closeEntry();
+            return data;
         }
-        
-        return baos.toByteArray();
     }
     
     @Override
@@ -1,9 +1,13 @@
 package com.datacompress.algorithm.impl;
 
 import com.datacompress.algorithm.CompressionAlgorithm;
+import com.datacompress.algorithm.DecompressionGuard;
 import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdInputStream;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Zstd压缩算法实现
@@ -38,15 +42,28 @@ public class ZstdCompression implements CompressionAlgorithm {
     }
     
     @Override
-    public byte[] decompress(byte[] compressedData) throws IOException {
+    public byte[] decompress(byte[] compressedData, DecompressionGuard guard) throws IOException {
+        long declaredSize = Zstd.decompressedSize(compressedData);
+        if (declaredSize <= 0) {
+            // 帧头未记录原始大小时按步长流式解压
+            try (ZstdInputStream zstd = new ZstdInputStream(new ByteArrayInputStream(compressedData))) {
+                return guard.readFully(zstd, compressedData.length);
+            }
+        }
+        
+        int originalSize = guard.checkDeclaredSize(declaredSize, compressedData.length);
         try {
-            long originalSize = Zstd.decompressedSize(compressedData);
-            return Zstd.decompress(compressedData, (int) originalSize);
+            return Zstd.decompress(compressedData, originalSize);
         } catch (Exception e) {
             throw new IOException("Failed to decompress with Zstd", e);
         }
     }
     
+    @Override
+    public InputStream newDecompressingStream(InputStream compressedStream) throws IOException {
+        return new ZstdInputStream(compressedStream);
+    }
+    
     @Override
     public boolean supportsCustomLevel() {
         return true;
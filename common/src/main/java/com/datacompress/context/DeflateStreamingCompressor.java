@@ -0,0 +1,39 @@
+package com.datacompress.context;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * DEFLATE流式压缩上下文
+ * 使用raw deflate并以SYNC_FLUSH结束每个片段，32KB滑动窗口在片段间保留
+ */
+public class DeflateStreamingCompressor extends StreamingCompressor {
+    
+    private final Deflater deflater;
+    private final byte[] buffer = new byte[8192];
+    
+    public DeflateStreamingCompressor(byte algorithmId, int level) {
+        super(algorithmId, level);
+        this.deflater = new Deflater(level, true);
+    }
+    
+    @Override
+    protected byte[] compressSegment(byte[] data) {
+        deflater.setInput(data);
+        
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+        int count;
+        // 输出缓冲区未被填满时说明SYNC_FLUSH已完成
+        do {
+            count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            baos.write(buffer, 0, count);
+        } while (count == buffer.length);
+        
+        return baos.toByteArray();
+    }
+    
+    @Override
+    public void close() {
+        deflater.end();
+    }
+}
@@ -0,0 +1,54 @@
+package com.datacompress.context;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * DEFLATE流式解压上下文
+ */
+public class DeflateStreamingDecompressor extends StreamingDecompressor {
+    
+    private final Inflater inflater = new Inflater(true);
+    
+    @Override
+    protected byte[] decompressSegment(byte[] segment, int offset, int length, int originalSize)
+            throws IOException {
+        inflater.setInput(segment, offset, length);
+        
+        byte[] output = new byte[originalSize];
+        int produced = 0;
+        try {
+            while (produced < originalSize) {
+                int count = inflater.inflate(output, produced, originalSize - produced);
+                if (count == 0 && (inflater.needsInput() || inflater.finished())) {
+                    break;
+                }
+                produced += count;
+            }
+            // 消费片段末尾SYNC_FLUSH产生的空存储块，不应再有输出
+            byte[] extra = new byte[1];
+            while (inflater.getRemaining() > 0 && !inflater.finished()) {
+                int remaining = inflater.getRemaining();
+                if (inflater.inflate(extra) > 0) {
+                    throw new IOException("DEFLATE片段包含多余数据");
+                }
+                if (inflater.getRemaining() == remaining) {
+                    break;
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("DEFLATE流式解压失败", e);
+        }
+        
+        if (produced != originalSize || inflater.getRemaining() > 0) {
+            throw new IOException("DEFLATE片段不完整，解压得到 " + produced + " bytes，期望 " + originalSize);
+        }
+        return output;
+    }
+    
+    @Override
+    public void close() {
+        inflater.end();
+    }
+}
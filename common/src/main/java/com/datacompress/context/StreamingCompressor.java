@@ -0,0 +1,51 @@
+package com.datacompress.context;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 连接级流式压缩上下文
+ * 同一连接上的多次传输共用一条压缩流，每条消息是流中一个刷新过的片段，
+ * 后续消息可以引用前面消息的内容（类似WebSocket permessage-deflate的上下文接管）
+ * 片段格式: [4字节片段序号][压缩流片段]，序号为0表示新建流
+ */
+public abstract class StreamingCompressor implements Closeable {
+    
+    private final byte algorithmId;
+    private final int level;
+    private int sequence;
+    
+    protected StreamingCompressor(byte algorithmId, int level) {
+        this.algorithmId = algorithmId;
+        this.level = level;
+    }
+    
+    /**
+     * 压缩一条消息并刷新，生成可独立发送的片段
+     * 调用方需保证片段按生成顺序发送
+     * @param data 原始数据
+     * @return 带序号的片段
+     * @throws IOException 压缩过程中发生的异常
+     */
+    public synchronized byte[] compress(byte[] data) throws IOException {
+        byte[] segment = compressSegment(data);
+        return ByteBuffer.allocate(4 + segment.length)
+                .putInt(sequence++)
+                .put(segment)
+                .array();
+    }
+    
+    public byte getAlgorithmId() {
+        return algorithmId;
+    }
+    
+    public int getLevel() {
+        return level;
+    }
+    
+    /**
+     * 压缩数据并刷新到字节边界，不结束压缩流
+     */
+    protected abstract byte[] compressSegment(byte[] data) throws IOException;
+}
@@ -0,0 +1,59 @@
+package com.datacompress.context;
+
+import com.datacompress.algorithm.CompressionAlgorithm;
+import com.datacompress.algorithm.impl.DeflateCompression;
+import com.datacompress.algorithm.impl.ZstdCompression;
+
+import java.io.IOException;
+
+/**
+ * 流式压缩上下文工厂
+ * 目前支持DEFLATE和Zstd两种可以在不结束流的情况下刷新的算法
+ */
+public final class StreamingContexts {
+    
+    private StreamingContexts() {
+    }
+    
+    /**
+     * 是否支持连接级压缩上下文
+     * @param algorithm 压缩算法
+     * @return true表示支持
+     */
+    public static boolean supports(CompressionAlgorithm algorithm) {
+        return algorithm instanceof DeflateCompression || algorithm instanceof ZstdCompression;
+    }
+    
+    /**
+     * 创建压缩上下文
+     * @param algorithm 压缩算法
+     * @param level 压缩级别
+     * @return 压缩上下文
+     * @throws IOException 创建失败
+     */
+    public static StreamingCompressor newCompressor(CompressionAlgorithm algorithm, int level) throws IOException {
+        if (algorithm instanceof DeflateCompression) {
+            return new DeflateStreamingCompressor(algorithm.getAlgorithmId(), level);
+        }
+        if (algorithm instanceof ZstdCompression) {
+            return new ZstdStreamingCompressor(algorithm.getAlgorithmId(), level);
+        }
+        throw new IllegalArgumentException("压缩上下文不支持算法: " + algorithm.getName());
+    }
+    
+    /**
+     * 创建解压上下文
+     * @param algorithm 压缩算法
+     * @return 解压上下文
+     * @throws IOException 创建失败
+     */
+    public static StreamingDecompressor newDecompressor(CompressionAlgorithm algorithm) throws IOException {
+        if (algorithm instanceof DeflateCompression) {
+            return new DeflateStreamingDecompressor();
+        }
+        if (algorithm instanceof ZstdCompression) {
+            return new ZstdStreamingDecompressor();
+        }
+        throw new IllegalArgumentException("压缩上下文不支持算法: " + algorithm.getName());
+    }
+}
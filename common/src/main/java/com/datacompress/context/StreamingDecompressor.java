@@ -0,0 +1,53 @@
+package com.datacompress.context;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 连接级流式解压上下文，与 {@link StreamingCompressor} 一一对应
+ */
+public abstract class StreamingDecompressor implements Closeable {
+    
+    private int expectedSequence;
+    
+    /**
+     * 读取片段序号
+     * @param payload 片段数据
+     * @return 片段序号
+     * @throws IOException 片段过短
+     */
+    public static int sequenceOf(byte[] payload) throws IOException {
+        if (payload.length < 4) {
+            throw new IOException("流式片段过短");
+        }
+        return ByteBuffer.wrap(payload).getInt();
+    }
+    
+    /**
+     * 解压一个片段，片段必须按压缩顺序到达
+     * @param payload 带序号的片段
+     * @param originalSize 片段对应的原始数据大小
+     * @return 原始数据
+     * @throws IOException 序号不连续或解压失败
+     */
+    public byte[] decompress(byte[] payload, long originalSize) throws IOException {
+        int sequence = sequenceOf(payload);
+        if (sequence != expectedSequence) {
+            throw new IOException("压缩上下文不同步，期望片段 " + expectedSequence + "，收到 " + sequence);
+        }
+        if (originalSize < 0 || originalSize > Integer.MAX_VALUE - 8) {
+            throw new IOException("非法的原始大小: " + originalSize);
+        }
+        
+        byte[] data = decompressSegment(payload, 4, payload.length - 4, (int) originalSize);
+        expectedSequence++;
+        return data;
+    }
+    
+    /**
+     * 解压片段，输出恰好originalSize字节
+     */
+    protected abstract byte[] decompressSegment(byte[] segment, int offset, int length, int originalSize)
+            throws IOException;
+}
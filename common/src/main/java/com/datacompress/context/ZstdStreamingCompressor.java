@@ -0,0 +1,35 @@
+package com.datacompress.context;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Zstd流式压缩上下文
+ * 整个连接只有一个Zstd帧，每个片段以flush结束当前块，窗口内的历史在片段间保留
+ */
+public class ZstdStreamingCompressor extends StreamingCompressor {
+    
+    private final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    private final ZstdOutputStream zstd;
+    
+    public ZstdStreamingCompressor(byte algorithmId, int level) throws IOException {
+        super(algorithmId, level);
+        this.zstd = new ZstdOutputStream(sink, level);
+    }
+    
+    @Override
+    protected byte[] compressSegment(byte[] data) throws IOException {
+        zstd.write(data);
+        zstd.flush();
+        byte[] segment = sink.toByteArray();
+        sink.reset();
+        return segment;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        zstd.close();
+    }
+}
@@ -0,0 +1,87 @@
+package com.datacompress.context;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Zstd流式解压上下文
+ * 解压流以连续模式读取，输入耗尽时不视为截断，等待下一个片段
+ */
+public class ZstdStreamingDecompressor extends StreamingDecompressor {
+    
+    private final SegmentInputStream source = new SegmentInputStream();
+    private final ZstdInputStream zstd;
+    
+    public ZstdStreamingDecompressor() throws IOException {
+        this.zstd = new ZstdInputStream(source).setContinuous(true);
+    }
+    
+    @Override
+    protected byte[] decompressSegment(byte[] segment, int offset, int length, int originalSize)
+            throws IOException {
+        source.feed(segment, offset, length);
+        
+        byte[] output = new byte[originalSize];
+        int produced = 0;
+        while (produced < originalSize) {
+            int count = zstd.read(output, produced, originalSize - produced);
+            if (count <= 0) {
+                break;
+            }
+            produced += count;
+        }
+        
+        if (produced != originalSize || source.remaining() > 0) {
+            throw new IOException("Zstd片段不完整，解压得到 " + produced + " bytes，期望 " + originalSize);
+        }
+        return output;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        zstd.close();
+    }
+    
+    /**
+     * 逐个片段供给数据的输入流，当前片段读完时返回-1
+     */
+    private static class SegmentInputStream extends InputStream {
+        
+        private byte[] buffer = new byte[0];
+        private int position;
+        private int limit;
+        
+        void feed(byte[] data, int offset, int length) {
+            this.buffer = data;
+            this.position = offset;
+            this.limit = offset + length;
+        }
+        
+        int remaining() {
+            return limit - position;
+        }
+        
+        @Override
+        public int read() {
+            return position < limit ? buffer[position++] & 0xFF : -1;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position >= limit) {
+                return -1;
+            }
+            int count = Math.min(len, limit - position);
+            System.arraycopy(buffer, position, b, off, count);
+            position += count;
+            return count;
+        }
+        
+        @Override
+        public int available() {
+            return remaining();
+        }
+    }
+}
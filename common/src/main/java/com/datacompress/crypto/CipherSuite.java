@@ -0,0 +1,67 @@
+package com.datacompress.crypto;
+
+import java.util.Locale;
+
+/**
+ * 加密阶段可用的认证加密算法，均由JDK自带的提供者实现，密钥长度均为256位
+ * 有AES指令集的CPU上AES-GCM更快，没有时ChaCha20-Poly1305更快
+ */
+public enum CipherSuite {
+    AES_GCM((byte) 1, "AES/GCM/NoPadding", "AES"),
+    CHACHA20_POLY1305((byte) 2, "ChaCha20-Poly1305", "ChaCha20");
+
+    private final byte id;
+    private final String transformation;
+    private final String keyAlgorithm;
+
+    CipherSuite(byte id, String transformation, String keyAlgorithm) {
+        this.id = id;
+        this.transformation = transformation;
+        this.keyAlgorithm = keyAlgorithm;
+    }
+
+    /**
+     * 密文头中记录的算法ID
+     */
+    public byte getId() {
+        return id;
+    }
+
+    String getTransformation() {
+        return transformation;
+    }
+
+    String getKeyAlgorithm() {
+        return keyAlgorithm;
+    }
+
+    /**
+     * 根据ID获取算法
+     * @return 算法，未知的ID返回null
+     */
+    public static CipherSuite fromId(byte id) {
+        for (CipherSuite suite : values()) {
+            if (suite.id == id) {
+                return suite;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 根据名称获取算法，忽略大小写，连字符与下划线等同（如 aes-gcm、chacha20-poly1305）
+     * @return 算法，未知的名称返回null
+     */
+    public static CipherSuite fromName(String name) {
+        if (name == null) {
+            return null;
+        }
+        String normalized = name.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+        for (CipherSuite suite : values()) {
+            if (suite.name().equals(normalized)) {
+                return suite;
+            }
+        }
+        return null;
+    }
+}
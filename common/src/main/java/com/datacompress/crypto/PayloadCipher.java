@@ -0,0 +1,183 @@
+package com.datacompress.crypto;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+
+/**
+ * 压缩数据的分块认证加密
+ * 密文格式: [1字节版本][1字节算法ID][4字节密钥ID][4字节分块大小][8字节随机数前缀][分块...]
+ *   每个分块为不超过分块大小的明文加密后的密文加16字节认证标签，至少一个分块（空明文只有标签）。
+ *   分块的12字节nonce为 [随机数前缀][4字节分块序号，最后一个分块置最高位]，密文头作为每个分块的附加认证数据，
+ *   因此分块被调换、删除、截断或密文头被改动都会使认证失败。
+ * 分块使解密端可以逐块校验、不必先缓冲整份密文再一次性认证；每份密文使用新的随机数前缀，同一密钥下nonce不重复。
+ * 加密使用本实例的算法；解密时算法取自密文头，与本实例的加密算法无关。实例可在多个线程间共享。
+ */
+public final class PayloadCipher {
+
+    /** 默认分块大小 */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    /** 密文头长度 */
+    public static final int HEADER_SIZE = 1 + 1 + 4 + 4 + 8;
+    /** 每个分块的认证标签长度 */
+    public static final int TAG_SIZE = 16;
+
+    private static final byte VERSION = 1;
+    private static final int MIN_CHUNK_SIZE = 1024;
+    private static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final int NONCE_SIZE = 12;
+    private static final int NONCE_PREFIX_OFFSET = HEADER_SIZE - 8;
+    private static final int LAST_CHUNK = 0x80000000;
+
+    private final PreSharedKey key;
+    private final CipherSuite suite;
+    private final int chunkSize;
+    private final SecureRandom random = new SecureRandom();
+
+    public PayloadCipher(PreSharedKey key, CipherSuite suite) {
+        this(key, suite, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize 每个分块的明文字节数
+     */
+    public PayloadCipher(PreSharedKey key, CipherSuite suite, int chunkSize) {
+        if (chunkSize < MIN_CHUNK_SIZE || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("分块大小必须在 " + MIN_CHUNK_SIZE + " 到 " + MAX_CHUNK_SIZE + " 字节之间");
+        }
+        this.key = key;
+        this.suite = suite;
+        this.chunkSize = chunkSize;
+    }
+
+    public PreSharedKey getKey() {
+        return key;
+    }
+
+    public CipherSuite getSuite() {
+        return suite;
+    }
+
+    /**
+     * 加密
+     * @param plaintext 明文（压缩后的数据）
+     * @return 密文，比明文长 HEADER_SIZE + 分块数 * TAG_SIZE 字节
+     */
+    public byte[] encrypt(byte[] plaintext) {
+        int chunks = Math.max(1, (int) (((long) plaintext.length + chunkSize - 1) / chunkSize));
+        long total = (long) HEADER_SIZE + plaintext.length + (long) chunks * TAG_SIZE;
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("明文过大，无法加密: " + plaintext.length);
+        }
+        byte[] out = new byte[(int) total];
+        ByteBuffer header = ByteBuffer.wrap(out, 0, HEADER_SIZE);
+        header.put(VERSION).put(suite.getId()).putInt(key.getId()).putInt(chunkSize);
+        byte[] noncePrefix = new byte[8];
+        random.nextBytes(noncePrefix);
+        header.put(noncePrefix);
+
+        try {
+            Cipher cipher = Cipher.getInstance(suite.getTransformation());
+            SecretKeySpec secretKey = new SecretKeySpec(key.getEncoded(), suite.getKeyAlgorithm());
+            byte[] nonce = new byte[NONCE_SIZE];
+            System.arraycopy(noncePrefix, 0, nonce, 0, noncePrefix.length);
+            int offset = 0;
+            int position = HEADER_SIZE;
+            for (int i = 0; i < chunks; i++) {
+                int length = Math.min(chunkSize, plaintext.length - offset);
+                cipher.init(Cipher.ENCRYPT_MODE, secretKey, parameterSpec(suite, nonce, i, i == chunks - 1));
+                cipher.updateAAD(out, 0, HEADER_SIZE);
+                position += cipher.doFinal(plaintext, offset, length, out, position);
+                offset += length;
+            }
+            return out;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(suite + " 加密失败", e);
+        }
+    }
+
+    /**
+     * 解密并逐块认证
+     * @param ciphertext 从position到limit为一份完整的密文，position不移动
+     * @return 明文
+     * @throws IOException 密文格式错误、密钥ID不一致或认证失败
+     */
+    public byte[] decrypt(ByteBuffer ciphertext) throws IOException {
+        ByteBuffer data = ciphertext.duplicate();
+        if (data.remaining() < HEADER_SIZE + TAG_SIZE) {
+            throw new IOException("密文不完整: " + data.remaining() + " bytes");
+        }
+        byte[] header = new byte[HEADER_SIZE];
+        data.get(header);
+        ByteBuffer fields = ByteBuffer.wrap(header);
+        byte version = fields.get();
+        if (version != VERSION) {
+            throw new IOException("不支持的密文版本: " + version);
+        }
+        byte suiteId = fields.get();
+        CipherSuite cipherSuite = CipherSuite.fromId(suiteId);
+        if (cipherSuite == null) {
+            throw new IOException("不支持的加密算法ID: " + suiteId);
+        }
+        int keyId = fields.getInt();
+        if (keyId != key.getId()) {
+            throw new IOException(String.format("密文的密钥ID %08x 与本端密钥 %08x 不一致", keyId, key.getId()));
+        }
+        int cipherChunkSize = fields.getInt();
+        if (cipherChunkSize < MIN_CHUNK_SIZE || cipherChunkSize > MAX_CHUNK_SIZE) {
+            throw new IOException("非法的分块大小: " + cipherChunkSize);
+        }
+
+        int body = data.remaining();
+        long stride = (long) cipherChunkSize + TAG_SIZE;
+        int chunks = (int) ((body + stride - 1) / stride);
+        if (body - (chunks - 1) * stride < TAG_SIZE) {
+            throw new IOException("非法的密文长度: " + (HEADER_SIZE + body));
+        }
+        ByteBuffer output = ByteBuffer.allocate(body - chunks * TAG_SIZE);
+
+        try {
+            Cipher cipher = Cipher.getInstance(cipherSuite.getTransformation());
+            SecretKeySpec secretKey = new SecretKeySpec(key.getEncoded(), cipherSuite.getKeyAlgorithm());
+            byte[] nonce = new byte[NONCE_SIZE];
+            System.arraycopy(header, NONCE_PREFIX_OFFSET, nonce, 0, 8);
+            for (int i = 0; i < chunks; i++) {
+                int length = (int) Math.min(stride, data.remaining());
+                ByteBuffer chunk = data.duplicate();
+                chunk.limit(chunk.position() + length);
+                cipher.init(Cipher.DECRYPT_MODE, secretKey, parameterSpec(cipherSuite, nonce, i, i == chunks - 1));
+                cipher.updateAAD(header);
+                cipher.doFinal(chunk, output);
+                data.position(data.position() + length);
+            }
+        } catch (AEADBadTagException e) {
+            throw new IOException("密文认证失败，数据被篡改或两端密钥不一致", e);
+        } catch (GeneralSecurityException e) {
+            throw new IOException(cipherSuite + " 解密失败: " + e.getMessage(), e);
+        }
+        return output.array();
+    }
+
+    /**
+     * 解密字节数组形式的密文
+     */
+    public byte[] decrypt(byte[] ciphertext) throws IOException {
+        return decrypt(ByteBuffer.wrap(ciphertext));
+    }
+
+    private static AlgorithmParameterSpec parameterSpec(CipherSuite suite, byte[] nonce, int index, boolean last) {
+        int counter = last ? index | LAST_CHUNK : index;
+        nonce[8] = (byte) (counter >>> 24);
+        nonce[9] = (byte) (counter >>> 16);
+        nonce[10] = (byte) (counter >>> 8);
+        nonce[11] = (byte) counter;
+        return suite == CipherSuite.AES_GCM ? new GCMParameterSpec(TAG_SIZE * 8, nonce) : new IvParameterSpec(nonce);
+    }
+}
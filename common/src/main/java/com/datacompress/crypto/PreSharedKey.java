@@ -0,0 +1,115 @@
+package com.datacompress.crypto;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * 收发两端事先共享的256位密钥
+ * 密钥文件可以是32字节的原始密钥，也可以是64个十六进制字符或Base64编码的文本（首尾空白忽略）。
+ * 密钥ID取密钥SHA-256摘要的前4字节，写入每份密文，接收端据此在解密前发现两端密钥不一致。
+ */
+public final class PreSharedKey {
+
+    /** 密钥长度（字节） */
+    public static final int KEY_SIZE = 32;
+
+    private final byte[] key;
+    private final int id;
+
+    public PreSharedKey(byte[] key) {
+        if (key == null || key.length != KEY_SIZE) {
+            throw new IllegalArgumentException("密钥长度必须为 " + KEY_SIZE + " 字节");
+        }
+        this.key = key.clone();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key);
+            this.id = ((digest[0] & 0xFF) << 24) | ((digest[1] & 0xFF) << 16) | ((digest[2] & 0xFF) << 8)
+                    | (digest[3] & 0xFF);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("JDK缺少SHA-256实现", e);
+        }
+    }
+
+    /**
+     * 生成随机密钥
+     */
+    public static PreSharedKey generate() {
+        byte[] key = new byte[KEY_SIZE];
+        new SecureRandom().nextBytes(key);
+        return new PreSharedKey(key);
+    }
+
+    /**
+     * 从密钥文件加载
+     * @throws IOException 文件无法读取或内容不是有效的密钥
+     */
+    public static PreSharedKey load(Path file) throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        if (content.length == KEY_SIZE) {
+            return new PreSharedKey(content);
+        }
+        String text = new String(content, StandardCharsets.US_ASCII).trim();
+        try {
+            byte[] key = text.length() == 2 * KEY_SIZE && text.matches("[0-9a-fA-F]+")
+                    ? parseHex(text) : Base64.getDecoder().decode(text);
+            if (key.length == KEY_SIZE) {
+                return new PreSharedKey(key);
+            }
+        } catch (IllegalArgumentException e) {
+            // 按格式错误处理
+        }
+        throw new IOException("密钥文件 " + file + " 不是有效的256位密钥（原始32字节、64个十六进制字符或Base64）");
+    }
+
+    /**
+     * 把密钥以十六进制文本保存到文件，供另一端加载
+     */
+    public void save(Path file) throws IOException {
+        StringBuilder hex = new StringBuilder(2 * KEY_SIZE + 1);
+        for (byte b : key) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        Files.write(file, hex.append('\n').toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] parseHex(String text) {
+        byte[] bytes = new byte[text.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(text.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
+    /**
+     * 密钥ID，写入密文头
+     */
+    public int getId() {
+        return id;
+    }
+
+    byte[] getEncoded() {
+        return key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PreSharedKey && MessageDigest.isEqual(key, ((PreSharedKey) o).key);
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        // 不输出密钥本身
+        return String.format("PreSharedKey[id=%08x]", id);
+    }
+}
@@ -0,0 +1,30 @@
+package com.datacompress.dedup;
+
+/**
+ * 内容定义分块的结果
+ * 记录分块在原始数据中的位置和内容指纹
+ */
+public class Chunk {
+    
+    private final long offset;           // 在原始数据中的偏移量
+    private final int length;            // 分块长度
+    private final byte[] fingerprint;    // 内容指纹（SHA-256）
+    
+    public Chunk(long offset, int length, byte[] fingerprint) {
+        this.offset = offset;
+        this.length = length;
+        this.fingerprint = fingerprint;
+    }
+    
+    public long getOffset() {
+        return offset;
+    }
+    
+    public int getLength() {
+        return length;
+    }
+    
+    public byte[] getFingerprint() {
+        return fingerprint;
+    }
+}
@@ -0,0 +1,47 @@
+package com.datacompress.dedup;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 分块内容指纹工具
+ * 使用SHA-256作为内容寻址的键
+ */
+public class ChunkFingerprint {
+    
+    public static final int LENGTH = 32;
+    
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private ChunkFingerprint() {
+    }
+    
+    /**
+     * 计算数据片段的指纹
+     */
+    public static byte[] of(byte[] data, int offset, int length) {
+        MessageDigest digest = newDigest();
+        digest.update(data, offset, length);
+        return digest.digest();
+    }
+    
+    /**
+     * 将指纹转换为十六进制字符串
+     */
+    public static String toHex(byte[] fingerprint) {
+        char[] chars = new char[fingerprint.length * 2];
+        for (int i = 0; i < fingerprint.length; i++) {
+            chars[i * 2] = HEX[(fingerprint[i] >> 4) & 0x0F];
+            chars[i * 2 + 1] = HEX[fingerprint[i] & 0x0F];
+        }
+        return new String(chars);
+    }
+    
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
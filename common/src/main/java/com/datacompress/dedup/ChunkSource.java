@@ -0,0 +1,100 @@
+package com.datacompress.dedup;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 去重传输的原始数据来源
+ * 分块时顺序读取，编码负载时按长整型偏移只读取需要发送的分块，文件无需整体载入内存
+ */
+public interface ChunkSource extends Closeable {
+
+    /**
+     * 数据总字节数
+     */
+    long size() throws IOException;
+
+    /**
+     * 从头顺序读取全部数据，返回的流由调用方关闭，不影响数据来源本身
+     */
+    InputStream openStream() throws IOException;
+
+    /**
+     * 从指定位置读取数据直到填满dst
+     * @throws EOFException 数据在填满之前结束
+     */
+    void read(long position, ByteBuffer dst) throws IOException;
+
+    /**
+     * 内存中的数据
+     */
+    static ChunkSource of(byte[] data) {
+        return new ChunkSource() {
+            @Override
+            public long size() {
+                return data.length;
+            }
+
+            @Override
+            public InputStream openStream() {
+                return new ByteArrayInputStream(data);
+            }
+
+            @Override
+            public void read(long position, ByteBuffer dst) throws IOException {
+                if (position + dst.remaining() > data.length) {
+                    throw new EOFException("读取位置超出数据末尾: " + position);
+                }
+                dst.put(data, (int) position, dst.remaining());
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * 打开文件，按位置读取使用FileChannel，偏移不受2GB限制
+     */
+    static ChunkSource open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        return new ChunkSource() {
+            @Override
+            public long size() throws IOException {
+                return channel.size();
+            }
+
+            @Override
+            public InputStream openStream() throws IOException {
+                // 独立打开，顺序读取不改变共享通道的位置
+                return Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ));
+            }
+
+            @Override
+            public void read(long position, ByteBuffer dst) throws IOException {
+                long offset = position;
+                while (dst.hasRemaining()) {
+                    int n = channel.read(dst, offset);
+                    if (n < 0) {
+                        throw new EOFException("文件在分块之后被截断: " + file);
+                    }
+                    offset += n;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,180 @@
+package com.datacompress.dedup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 去重传输的负载格式（压缩前）
+ * 格式: [4字节分块数] + 每个分块 [32字节指纹 + 4字节长度 + 1字节是否内联] + 内联分块数据
+ * 服务端按分块顺序重组文件，未内联的分块从服务端分块仓库读取
+ */
+public class DedupPayload {
+    
+    private static final int ENTRY_SIZE = ChunkFingerprint.LENGTH + 4 + 1;
+    
+    private final List<Entry> entries;
+    private final byte[] buffer;
+    
+    private DedupPayload(List<Entry> entries, byte[] buffer) {
+        this.entries = entries;
+        this.buffer = buffer;
+    }
+    
+    /**
+     * 编码负载，只内联服务端缺失的分块（同一文件内重复的分块只内联一次）
+     * @param data 原始数据
+     * @param chunks 分块列表
+     * @param missing 服务端缺失的分块索引
+     * @return 负载字节
+     */
+    public static byte[] encode(byte[] data, List<Chunk> chunks, BitSet missing) {
+        try {
+            return encode(ChunkSource.of(data), chunks, missing);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("分块超出数据范围", e);
+        }
+    }
+    
+    /**
+     * 编码负载，只从数据来源读取需要内联的分块
+     * @param source 原始数据来源
+     * @param chunks 分块列表
+     * @param missing 服务端缺失的分块索引
+     * @return 负载字节
+     * @throws IOException 读取分块失败
+     */
+    public static byte[] encode(ChunkSource source, List<Chunk> chunks, BitSet missing) throws IOException {
+        Set<String> inlined = new HashSet<>();
+        boolean[] inline = new boolean[chunks.size()];
+        long inlineSize = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk chunk = chunks.get(i);
+            if (missing.get(i) && inlined.add(ChunkFingerprint.toHex(chunk.getFingerprint()))) {
+                inline[i] = true;
+                inlineSize += chunk.getLength();
+            }
+        }
+        
+        long totalSize = 4L + (long) ENTRY_SIZE * chunks.size() + inlineSize;
+        if (totalSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("去重负载过大: " + totalSize + " bytes");
+        }
+        
+        ByteBuffer out = ByteBuffer.allocate((int) totalSize);
+        out.putInt(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk chunk = chunks.get(i);
+            out.put(chunk.getFingerprint());
+            out.putInt(chunk.getLength());
+            out.put((byte) (inline[i] ? 1 : 0));
+        }
+        for (int i = 0; i < chunks.size(); i++) {
+            if (inline[i]) {
+                Chunk chunk = chunks.get(i);
+                ByteBuffer slice = out.slice();
+                slice.limit(chunk.getLength());
+                source.read(chunk.getOffset(), slice);
+                out.position(out.position() + chunk.getLength());
+            }
+        }
+        return out.array();
+    }
+    
+    /**
+     * 解析负载
+     * @param payload 解压后的负载字节
+     * @return 解析结果
+     * @throws IOException 负载格式错误
+     */
+    public static DedupPayload decode(byte[] payload) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        if (in.remaining() < 4) {
+            throw new IOException("去重负载过短");
+        }
+        int count = in.getInt();
+        if (count < 0 || (long) count * ENTRY_SIZE > in.remaining()) {
+            throw new IOException("去重负载分块数无效: " + count);
+        }
+        
+        List<Entry> entries = new ArrayList<>(count);
+        int dataOffset = 4 + count * ENTRY_SIZE;
+        for (int i = 0; i < count; i++) {
+            byte[] fingerprint = new byte[ChunkFingerprint.LENGTH];
+            in.get(fingerprint);
+            int length = in.getInt();
+            boolean inline = in.get() != 0;
+            if (length < 0) {
+                throw new IOException("去重负载分块长度无效: " + length);
+            }
+            if (inline) {
+                if ((long) dataOffset + length > payload.length) {
+                    throw new IOException("去重负载内联数据不完整");
+                }
+                entries.add(new Entry(fingerprint, length, dataOffset));
+                dataOffset += length;
+            } else {
+                entries.add(new Entry(fingerprint, length, -1));
+            }
+        }
+        return new DedupPayload(Collections.unmodifiableList(entries), payload);
+    }
+    
+    public List<Entry> getEntries() {
+        return entries;
+    }
+    
+    /**
+     * 负载缓冲区，内联分块数据通过 {@link Entry#getDataOffset()} 定位
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+    
+    /**
+     * 重组后的文件总大小
+     */
+    public long getTotalSize() {
+        long total = 0;
+        for (Entry entry : entries) {
+            total += entry.getLength();
+        }
+        return total;
+    }
+    
+    /**
+     * 负载中的分块条目
+     */
+    public static class Entry {
+        private final byte[] fingerprint;
+        private final int length;
+        private final int dataOffset;   // 内联数据在负载中的偏移，-1表示未内联
+        
+        Entry(byte[] fingerprint, int length, int dataOffset) {
+            this.fingerprint = fingerprint;
+            this.length = length;
+            this.dataOffset = dataOffset;
+        }
+        
+        public byte[] getFingerprint() {
+            return fingerprint;
+        }
+        
+        public int getLength() {
+            return length;
+        }
+        
+        public int getDataOffset() {
+            return dataOffset;
+        }
+        
+        public boolean isInline() {
+            return dataOffset >= 0;
+        }
+    }
+}
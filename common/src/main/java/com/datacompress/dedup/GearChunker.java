@@ -0,0 +1,138 @@
+package com.datacompress.dedup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 基于Gear滚动哈希的内容定义分块器（FastCDC归一化分块）
+ * 分块边界只取决于局部内容，文件中间插入或删除数据只会影响附近的分块
+ */
+public class GearChunker {
+    
+    public static final int DEFAULT_MIN_SIZE = 16 * 1024;
+    public static final int DEFAULT_AVG_SIZE = 64 * 1024;
+    public static final int DEFAULT_MAX_SIZE = 256 * 1024;
+    
+    /** 流式切分时读取缓冲区的最小字节数 */
+    private static final int STREAM_BUFFER_SIZE = 1024 * 1024;
+    
+    // Gear表必须固定，否则不同进程对相同内容的切分结果不一致
+    private static final long[] GEAR = new long[256];
+    
+    static {
+        SplittableRandom random = new SplittableRandom(0x6765617243444341L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+    
+    private final int minSize;
+    private final int avgSize;
+    private final int maxSize;
+    private final long maskSmall;   // 未达到平均大小时使用更严格的掩码
+    private final long maskLarge;   // 超过平均大小后使用更宽松的掩码
+    
+    public GearChunker() {
+        this(DEFAULT_MIN_SIZE, DEFAULT_AVG_SIZE, DEFAULT_MAX_SIZE);
+    }
+    
+    public GearChunker(int minSize, int avgSize, int maxSize) {
+        if (minSize <= 0 || minSize > avgSize || avgSize > maxSize || Integer.bitCount(avgSize) != 1) {
+            throw new IllegalArgumentException("分块大小参数无效: min=" + minSize + ", avg=" + avgSize + ", max=" + maxSize);
+        }
+        this.minSize = minSize;
+        this.avgSize = avgSize;
+        this.maxSize = maxSize;
+        int bits = Integer.numberOfTrailingZeros(avgSize);
+        // 使用哈希高位：Gear哈希左移累加，高位覆盖的窗口最长
+        this.maskSmall = highBits(bits + 1);
+        this.maskLarge = highBits(bits - 1);
+    }
+    
+    /**
+     * 将数据切分为内容定义的分块，并计算每个分块的指纹
+     */
+    public List<Chunk> split(byte[] data) {
+        List<Chunk> chunks = new ArrayList<>();
+        int offset = 0;
+        while (offset < data.length) {
+            int end = nextBoundary(data, offset, data.length);
+            chunks.add(new Chunk(offset, end - offset, ChunkFingerprint.of(data, offset, end - offset)));
+            offset = end;
+        }
+        return chunks;
+    }
+    
+    /**
+     * 顺序读取数据流并切分，偏移为长整型，大文件无需整体载入内存
+     * 缓冲区中始终保留至少一个最大分块的数据（或直到流结束），切分结果与 {@link #split(byte[])} 一致
+     * @param in 数据流，读取到结束但不关闭
+     */
+    public List<Chunk> split(InputStream in) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        byte[] buffer = new byte[Math.max(2 * maxSize, STREAM_BUFFER_SIZE)];
+        int start = 0;
+        int end = 0;
+        long position = 0;
+        boolean eof = false;
+        while (true) {
+            if (!eof && end - start < maxSize) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                start = 0;
+                while (end < buffer.length) {
+                    int n = in.read(buffer, end, buffer.length - end);
+                    if (n < 0) {
+                        eof = true;
+                        break;
+                    }
+                    end += n;
+                }
+            }
+            if (start == end) {
+                return chunks;
+            }
+            int boundary = nextBoundary(buffer, start, end);
+            int length = boundary - start;
+            chunks.add(new Chunk(position, length, ChunkFingerprint.of(buffer, start, length)));
+            position += length;
+            start = boundary;
+        }
+    }
+    
+    /**
+     * 查找下一个分块边界
+     * @return 分块结束位置（不含）
+     */
+    int nextBoundary(byte[] data, int start, int end) {
+        int remaining = end - start;
+        if (remaining <= minSize) {
+            return end;
+        }
+        int normal = Math.min(remaining, avgSize);
+        int limit = Math.min(remaining, maxSize);
+        
+        long hash = 0;
+        int i = minSize;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[data[start + i] & 0xFF];
+            if ((hash & maskSmall) == 0) {
+                return start + i + 1;
+            }
+        }
+        for (; i < limit; i++) {
+            hash = (hash << 1) + GEAR[data[start + i] & 0xFF];
+            if ((hash & maskLarge) == 0) {
+                return start + i + 1;
+            }
+        }
+        return start + limit;
+    }
+    
+    private static long highBits(int count) {
+        return count <= 0 ? 0 : -1L << (64 - count);
+    }
+}
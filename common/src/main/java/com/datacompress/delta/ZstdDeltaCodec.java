@@ -0,0 +1,118 @@
+package com.datacompress.delta;
+
+import com.datacompress.algorithm.DecompressionGuard;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdException;
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+/**
+ * 基于Zstd参考前缀的增量编解码（等价于 zstd --patch-from）
+ * 以参考文件作为原始内容字典，并把窗口扩大到覆盖参考文件，使新文件可以整体引用旧版本中的内容
+ * 格式: [8字节参考文件长度][4字节参考文件CRC32C][Zstd帧]
+ */
+public class ZstdDeltaCodec {
+    
+    private static final int HEADER_SIZE = 8 + 4;
+    private static final int MIN_WINDOW_LOG = 10;
+    private static final int MAX_WINDOW_LOG = 31;
+    /** 匹配表上限，约128MB/张 */
+    private static final int MAX_TABLE_LOG = 25;
+    /** 低级别的fast/dfast策略只靠单张哈希表，无法覆盖大参考文件 */
+    private static final int MIN_LEVEL = 9;
+    
+    private ZstdDeltaCodec() {
+    }
+    
+    /**
+     * 以参考文件为基准压缩新文件
+     * @param reference 参考文件内容（服务端已持有）
+     * @param target 新文件内容
+     * @param level Zstd压缩级别（低于9时按9处理）
+     * @return 增量数据
+     * @throws IOException 压缩过程中发生的异常
+     */
+    public static byte[] encode(byte[] reference, byte[] target, int level) throws IOException {
+        int windowLog = windowLogFor(reference.length, target.length);
+        int tableLog = Math.min(windowLog, MAX_TABLE_LOG);
+        
+        byte[] frame;
+        try (ZstdCompressCtx ctx = new ZstdCompressCtx()) {
+            ctx.setLevel(Math.max(level, MIN_LEVEL));
+            ctx.setWindowLog(windowLog);
+            ctx.setLong(windowLog);
+            // 与 --patch-from 一样按参考文件大小放大匹配表，否则大参考文件的大部分位置无法被索引
+            ctx.setHashLog(tableLog);
+            ctx.setChainLog(tableLog);
+            ctx.loadDict(reference);
+            frame = ctx.compress(target);
+        } catch (ZstdException e) {
+            throw new IOException("增量压缩失败: " + e.getMessage(), e);
+        }
+        
+        return ByteBuffer.allocate(HEADER_SIZE + frame.length)
+                .putLong(reference.length)
+                .putInt(checksum(reference))
+                .put(frame)
+                .array();
+    }
+    
+    /**
+     * 用参考文件还原新文件
+     * @param reference 参考文件内容
+     * @param delta 增量数据
+     * @return 新文件内容
+     * @throws IOException 参考文件不匹配或解压失败
+     */
+    public static byte[] decode(byte[] reference, byte[] delta) throws IOException {
+        return decode(reference, delta, DecompressionGuard.UNLIMITED);
+    }
+    
+    /**
+     * 在解压保护限制内用参考文件还原新文件
+     * 压缩比按参考文件与增量的总大小计算
+     * @param reference 参考文件内容
+     * @param delta 增量数据
+     * @param guard 解压限制
+     * @return 新文件内容
+     * @throws IOException 参考文件不匹配、解压失败或输出超限
+     */
+    public static byte[] decode(byte[] reference, byte[] delta, DecompressionGuard guard) throws IOException {
+        if (delta.length < HEADER_SIZE) {
+            throw new IOException("增量数据过短");
+        }
+        
+        ByteBuffer header = ByteBuffer.wrap(delta, 0, HEADER_SIZE);
+        long referenceLength = header.getLong();
+        int referenceChecksum = header.getInt();
+        if (referenceLength != reference.length || referenceChecksum != checksum(reference)) {
+            throw new IOException("参考文件与客户端使用的版本不一致");
+        }
+        
+        ByteArrayInputStream bais = new ByteArrayInputStream(delta, HEADER_SIZE, delta.length - HEADER_SIZE);
+        try (ZstdInputStream zstd = new ZstdInputStream(bais)) {
+            zstd.setDict(reference);
+            zstd.setLongMax(MAX_WINDOW_LOG);
+            return guard.readFully(zstd, (long) reference.length + delta.length);
+        }
+    }
+    
+    /**
+     * 窗口需要同时覆盖参考文件和新文件，否则新文件后部无法引用参考文件开头的内容
+     */
+    static int windowLogFor(long referenceLength, long targetLength) {
+        long span = Math.max(1, referenceLength + targetLength);
+        int log = 64 - Long.numberOfLeadingZeros(span - 1);
+        return Math.max(MIN_WINDOW_LOG, Math.min(MAX_WINDOW_LOG, log));
+    }
+    
+    private static int checksum(byte[] data) {
+        CRC32C crc = new CRC32C();
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,146 @@
+package com.datacompress.dictionary;
+
+import com.datacompress.algorithm.DecompressionGuard;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.github.luben.zstd.ZstdException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Zstd压缩字典
+ * 小数据单独压缩时没有可引用的历史内容，压缩比很差；用同类样本训练出的字典预先提供常见内容，
+ * 每条数据只需编码与字典不同的部分。字典须由收发两端事先共享，按ID（字典内容的CRC32C）匹配。
+ * 各压缩级别的字典在首次使用时准备好后缓存，实例可在多个线程间共享。
+ */
+public final class ZstdDictionary {
+
+    /** 字典文件的扩展名 */
+    public static final String FILE_SUFFIX = ".dict";
+    /** 默认的字典大小上限 */
+    public static final int DEFAULT_MAX_SIZE = 16 * 1024;
+
+    private final byte[] content;
+    private final int id;
+    private final Map<Integer, ZstdDictCompress> compressDicts = new ConcurrentHashMap<>();
+    private volatile ZstdDictDecompress decompressDict;
+
+    public ZstdDictionary(byte[] content) {
+        if (content == null || content.length == 0) {
+            throw new IllegalArgumentException("字典内容不能为空");
+        }
+        this.content = content.clone();
+        CRC32C crc = new CRC32C();
+        crc.update(content);
+        this.id = (int) crc.getValue();
+    }
+
+    /**
+     * 用样本训练字典
+     * @param samples 样本，应与之后要压缩的数据同类，数量通常需要上百个
+     * @param maxSize 字典大小上限（字节）
+     * @return 训练出的字典
+     * @throws IOException 样本过少或过小，无法训练
+     */
+    public static ZstdDictionary train(List<byte[]> samples, int maxSize) throws IOException {
+        long total = 0;
+        for (byte[] sample : samples) {
+            total += sample.length;
+        }
+        if (samples.isEmpty() || total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("样本总大小必须在1到" + Integer.MAX_VALUE + "字节之间");
+        }
+        ZstdDictTrainer trainer = new ZstdDictTrainer((int) total, maxSize);
+        for (byte[] sample : samples) {
+            trainer.addSample(sample);
+        }
+        try {
+            return new ZstdDictionary(trainer.trainSamples());
+        } catch (ZstdException e) {
+            throw new IOException("训练字典失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 从文件加载字典
+     */
+    public static ZstdDictionary load(Path file) throws IOException {
+        return new ZstdDictionary(Files.readAllBytes(file));
+    }
+
+    /**
+     * 把字典保存到文件，供另一端加载
+     */
+    public void save(Path file) throws IOException {
+        Files.write(file, content);
+    }
+
+    /**
+     * 用字典压缩
+     * @param data 原始数据
+     * @param level Zstd压缩级别
+     * @return Zstd帧
+     */
+    public byte[] compress(byte[] data, int level) throws IOException {
+        ZstdDictCompress dict = compressDicts.computeIfAbsent(level, l -> new ZstdDictCompress(content, l));
+        try {
+            return Zstd.compress(data, dict);
+        } catch (ZstdException e) {
+            throw new IOException("字典压缩失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 在解压保护限制内用字典解压
+     * @param compressedData Zstd帧
+     * @param originalSize 发送端声明的原始大小
+     * @param guard 解压限制
+     * @return 原始数据
+     * @throws IOException 字典不匹配、数据损坏或原始大小超限
+     */
+    public byte[] decompress(byte[] compressedData, int originalSize, DecompressionGuard guard) throws IOException {
+        guard.checkDeclaredSize(originalSize, compressedData.length);
+        ZstdDictDecompress dict = decompressDict;
+        if (dict == null) {
+            dict = new ZstdDictDecompress(content);
+            decompressDict = dict;
+        }
+        byte[] result;
+        try {
+            result = Zstd.decompress(compressedData, dict, originalSize);
+        } catch (ZstdException e) {
+            throw new IOException("字典解压失败: " + e.getMessage(), e);
+        }
+        if (result.length != originalSize) {
+            throw new IOException("字典解压后大小(" + result.length + ")与声明的原始大小(" + originalSize + ")不一致");
+        }
+        return result;
+    }
+
+    /**
+     * 字典ID，即字典内容的CRC32C
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * 字典大小（字节）
+     */
+    public int size() {
+        return content.length;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ZstdDictionary[id=%08x, size=%d]", id, content.length);
+    }
+}
@@ -0,0 +1,13 @@
+package com.datacompress.integrity;
+
+import java.io.IOException;
+
+/**
+ * 完整性校验失败
+ */
+public class IntegrityException extends IOException {
+    
+    public IntegrityException(String message) {
+        super(message);
+    }
+}
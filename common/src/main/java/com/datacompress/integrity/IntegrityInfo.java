@@ -0,0 +1,116 @@
+package com.datacompress.integrity;
+
+import net.jpountz.xxhash.StreamingXXHash64;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * 原始数据的完整性信息
+ * 每个数据块一个CRC32C（JDK使用CPU指令实现），整个文件一个xxHash64
+ */
+public class IntegrityInfo implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+    static final long HASH_SEED = 0L;
+    
+    private final int blockSize;
+    private final int[] blockChecksums;
+    private final long fileHash;
+    
+    public IntegrityInfo(int blockSize, int[] blockChecksums, long fileHash) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("块大小必须为正数: " + blockSize);
+        }
+        this.blockSize = blockSize;
+        this.blockChecksums = blockChecksums;
+        this.fileHash = fileHash;
+    }
+    
+    /**
+     * 按默认块大小计算完整性信息
+     * @param data 原始数据
+     * @return 完整性信息
+     */
+    public static IntegrityInfo compute(byte[] data) {
+        return compute(data, DEFAULT_BLOCK_SIZE);
+    }
+    
+    /**
+     * 计算完整性信息
+     * @param data 原始数据
+     * @param blockSize 块大小
+     * @return 完整性信息
+     */
+    public static IntegrityInfo compute(byte[] data, int blockSize) {
+        int blockCount = blockCount(data.length, blockSize);
+        int[] checksums = new int[blockCount];
+        CRC32C crc = new CRC32C();
+        for (int i = 0; i < blockCount; i++) {
+            int offset = i * blockSize;
+            crc.reset();
+            crc.update(data, offset, Math.min(blockSize, data.length - offset));
+            checksums[i] = (int) crc.getValue();
+        }
+        
+        try (StreamingXXHash64 hash = newFileHash()) {
+            hash.update(data, 0, data.length);
+            return new IntegrityInfo(blockSize, checksums, hash.getValue());
+        }
+    }
+    
+    /**
+     * 顺序读取数据流计算完整性信息，内存占用只有一个块
+     * @param in 数据流，读取到结束但不关闭
+     * @param blockSize 块大小
+     * @return 完整性信息
+     * @throws IOException 读取失败
+     */
+    public static IntegrityInfo compute(InputStream in, int blockSize) throws IOException {
+        List<Integer> checksums = new ArrayList<>();
+        byte[] block = new byte[blockSize];
+        CRC32C crc = new CRC32C();
+        try (StreamingXXHash64 hash = newFileHash()) {
+            int length;
+            while ((length = in.readNBytes(block, 0, blockSize)) > 0) {
+                crc.reset();
+                crc.update(block, 0, length);
+                checksums.add((int) crc.getValue());
+                hash.update(block, 0, length);
+            }
+            return new IntegrityInfo(blockSize, checksums.stream().mapToInt(Integer::intValue).toArray(),
+                    hash.getValue());
+        }
+    }
+    
+    static int blockCount(long length, int blockSize) {
+        return (int) ((length + blockSize - 1) / blockSize);
+    }
+    
+    static StreamingXXHash64 newFileHash() {
+        return XXHashFactory.fastestInstance().newStreamingHash64(HASH_SEED);
+    }
+    
+    public int getBlockSize() {
+        return blockSize;
+    }
+    
+    public int[] getBlockChecksums() {
+        return blockChecksums;
+    }
+    
+    public int getBlockCount() {
+        return blockChecksums.length;
+    }
+    
+    public long getFileHash() {
+        return fileHash;
+    }
+}
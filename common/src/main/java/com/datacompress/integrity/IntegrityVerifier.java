@@ -0,0 +1,165 @@
+package com.datacompress.integrity;
+
+import com.datacompress.protocol.IntegrityStatus;
+import net.jpountz.xxhash.StreamingXXHash64;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32C;
+
+/**
+ * 增量完整性校验器
+ * 解压输出按顺序送入，每凑满一个块立即比对CRC32C，结束时比对总长度和文件哈希
+ */
+public class IntegrityVerifier {
+    
+    private final IntegrityInfo expected;
+    private final long expectedSize;
+    private final boolean hashRequested;
+    
+    private final CRC32C blockCrc = new CRC32C();
+    private final StreamingXXHash64 fileHash;
+    private long processed;
+    private int blockIndex;
+    private int blockRemaining;
+    private boolean finished;
+    private boolean verified;
+    private long computedHash;
+    
+    /**
+     * @param expected 期望的完整性信息，为null时不做校验
+     * @param expectedSize 期望的原始大小
+     * @param hashRequested 是否需要计算文件哈希返回给客户端
+     */
+    public IntegrityVerifier(IntegrityInfo expected, long expectedSize, boolean hashRequested) {
+        this.expected = expected;
+        this.expectedSize = expectedSize;
+        this.hashRequested = hashRequested;
+        this.fileHash = expected != null || hashRequested ? IntegrityInfo.newFileHash() : null;
+        if (expected != null) {
+            if (expected.getBlockCount() != IntegrityInfo.blockCount(expectedSize, expected.getBlockSize())) {
+                throw new IllegalArgumentException("块校验和数量与原始大小不匹配");
+            }
+            this.blockRemaining = expected.getBlockSize();
+        }
+    }
+    
+    /**
+     * 是否需要校验或计算哈希
+     */
+    public boolean isActive() {
+        return fileHash != null;
+    }
+    
+    public void update(byte[] data) throws IntegrityException {
+        update(data, 0, data.length);
+    }
+    
+    /**
+     * 送入下一段解压输出
+     * @throws IntegrityException 数据超出原始大小或块校验和不匹配
+     */
+    public void update(byte[] data, int offset, int length) throws IntegrityException {
+        if (fileHash == null) {
+            return;
+        }
+        fileHash.update(data, offset, length);
+        processed += length;
+        if (expected == null) {
+            return;
+        }
+        if (processed > expectedSize) {
+            throw new IntegrityException("解压数据超出原始大小 " + expectedSize + " bytes");
+        }
+        
+        while (length > 0) {
+            int count = Math.min(length, blockRemaining);
+            blockCrc.update(data, offset, count);
+            offset += count;
+            length -= count;
+            blockRemaining -= count;
+            if (blockRemaining == 0) {
+                checkBlock();
+            }
+        }
+    }
+    
+    /**
+     * 结束校验
+     * @return 计算得到的文件哈希
+     * @throws IntegrityException 长度、末块或文件哈希不匹配
+     */
+    public long finish() throws IntegrityException {
+        if (finished || fileHash == null) {
+            return computedHash;
+        }
+        if (expected != null) {
+            if (processed != expectedSize) {
+                throw new IntegrityException("解压后大小(" + processed + ") 与原始大小(" + expectedSize + ") 不匹配");
+            }
+            if (blockRemaining != expected.getBlockSize()) {
+                checkBlock();
+            }
+        }
+        computedHash = fileHash.getValue();
+        fileHash.close();
+        finished = true;
+        
+        if (expected != null && computedHash != expected.getFileHash()) {
+            throw new IntegrityException(String.format("文件哈希不匹配，期望 %016x，实际 %016x",
+                    expected.getFileHash(), computedHash));
+        }
+        verified = expected != null;
+        return computedHash;
+    }
+    
+    /**
+     * 包装输出流，写入的数据同时送入校验器
+     */
+    public OutputStream wrap(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                update(new byte[]{(byte) b});
+                out.write(b);
+            }
+            
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                update(b, off, len);
+                out.write(b, off, len);
+            }
+        };
+    }
+    
+    /**
+     * 校验状态，见 {@link IntegrityStatus}
+     */
+    public byte getStatus() {
+        return verified ? IntegrityStatus.VERIFIED : IntegrityStatus.NOT_CHECKED;
+    }
+    
+    /**
+     * 是否有需要返回给客户端的文件哈希
+     */
+    public boolean hasHashToReturn() {
+        return hashRequested && finished;
+    }
+    
+    public long getComputedHash() {
+        return computedHash;
+    }
+    
+    private void checkBlock() throws IntegrityException {
+        int actual = (int) blockCrc.getValue();
+        int expectedCrc = expected.getBlockChecksums()[blockIndex];
+        if (actual != expectedCrc) {
+            throw new IntegrityException(String.format("第 %d 块CRC32C不匹配，期望 %08x，实际 %08x",
+                    blockIndex, expectedCrc, actual));
+        }
+        blockIndex++;
+        blockCrc.reset();
+        blockRemaining = expected.getBlockSize();
+    }
+}
@@ -13,18 +13,35 @@ public class PerformanceMetrics {
     // 时间戳
     private long compressStartTime;      // 压缩开始时间
     private long compressEndTime;        // 压缩结束时间
+    private long encryptStartTime;       // 加密开始时间（未加密时为0）
+    private long encryptEndTime;         // 加密结束时间
     private long sendStartTime;          // 发送开始时间
     private long sendEndTime;            // 发送结束时间
     private long receiveStartTime;       // 接收开始时间（服务端）
     private long receiveEndTime;         // 接收结束时间（服务端）
+    private long decryptStartTime;       // 解密开始时间（服务端，未加密时为0）
+    private long decryptEndTime;         // 解密结束时间（服务端）
     private long decompressStartTime;    // 解压开始时间（服务端）
     private long decompressEndTime;      // 解压结束时间（服务端）
+    private long receiptReceivedTime;    // 收到接收确认时间（客户端，服务端未回复确认时为0）
     private long responseReceivedTime;   // 收到响应时间（客户端）
     
     // 算法信息
     private String algorithmName;
     private byte algorithmId;
     
+    // 完整性校验结果（服务端返回，见IntegrityStatus）
+    private byte integrityStatus;
+    
+    // 流式传输各分片依次使用的压缩级别（自适应调整的轨迹），其他模式为null
+    private int[] levelTrajectory;
+    
+    // 数据报传输（UDP遥测）：序号、往返时延与客户端累计的发送/丢失数，其他模式为0
+    private long datagramSequence;
+    private long roundTripNanos;         // 发出数据报到收到确认的时间（纳秒），未请求确认时为0
+    private long datagramsSent;
+    private long datagramsLost;
+    
     // Getters and Setters
     
     public long getOriginalSize() {
@@ -59,6 +76,22 @@ public class PerformanceMetrics {
         this.compressEndTime = compressEndTime;
     }
     
+    public long getEncryptStartTime() {
+        return encryptStartTime;
+    }
+    
+    public void setEncryptStartTime(long encryptStartTime) {
+        this.encryptStartTime = encryptStartTime;
+    }
+    
+    public long getEncryptEndTime() {
+        return encryptEndTime;
+    }
+    
+    public void setEncryptEndTime(long encryptEndTime) {
+        this.encryptEndTime = encryptEndTime;
+    }
+    
     public long getSendStartTime() {
         return sendStartTime;
     }
@@ -91,6 +124,22 @@ public class PerformanceMetrics {
         this.receiveEndTime = receiveEndTime;
     }
     
+    public long getDecryptStartTime() {
+        return decryptStartTime;
+    }
+    
+    public void setDecryptStartTime(long decryptStartTime) {
+        this.decryptStartTime = decryptStartTime;
+    }
+    
+    public long getDecryptEndTime() {
+        return decryptEndTime;
+    }
+    
+    public void setDecryptEndTime(long decryptEndTime) {
+        this.decryptEndTime = decryptEndTime;
+    }
+    
     public long getDecompressStartTime() {
         return decompressStartTime;
     }
@@ -107,6 +156,14 @@ public class PerformanceMetrics {
         this.decompressEndTime = decompressEndTime;
     }
     
+    public long getReceiptReceivedTime() {
+        return receiptReceivedTime;
+    }
+    
+    public void setReceiptReceivedTime(long receiptReceivedTime) {
+        this.receiptReceivedTime = receiptReceivedTime;
+    }
+    
     public long getResponseReceivedTime() {
         return responseReceivedTime;
     }
@@ -150,6 +207,14 @@ public class PerformanceMetrics {
         return compressEndTime - compressStartTime;
     }
     
+    /**
+     * 计算加密耗时（毫秒）
+     * @return 加密耗时，未加密时为0
+     */
+    public long getEncryptionTime() {
+        return encryptEndTime - encryptStartTime;
+    }
+    
     /**
      * 计算发送耗时（毫秒）
      * @return 发送耗时
@@ -166,6 +231,14 @@ public class PerformanceMetrics {
         return receiveEndTime - receiveStartTime;
     }
     
+    /**
+     * 计算解密耗时（毫秒）
+     * @return 解密耗时，未加密时为0
+     */
+    public long getDecryptionTime() {
+        return decryptEndTime - decryptStartTime;
+    }
+    
     /**
      * 计算解压耗时（毫秒）
      * @return 解压耗时
@@ -186,12 +259,123 @@ public class PerformanceMetrics {
     
     /**
      * 计算排队时延（毫秒）
-     * 接收完成到解压开始的时间差
+     * 接收完成到开始处理（解密或解压）的时间差
      * @return 排队时延
      */
     public long getQueuingDelay() {
-        if (decompressStartTime == 0 || receiveEndTime == 0) return 0;
-        return Math.max(0, decompressStartTime - receiveEndTime);
+        long processStartTime = decryptStartTime != 0 ? decryptStartTime : decompressStartTime;
+        if (processStartTime == 0 || receiveEndTime == 0) return 0;
+        return Math.max(0, processStartTime - receiveEndTime);
+    }
+    
+    /**
+     * 计算网络往返时间（毫秒）
+     * 发送开始到收到接收确认的时间，即数据在链路上传输与确认返回的耗时；
+     * 两个时间都取自客户端时钟，不受两端时钟偏差影响
+     * @return 网络往返时间，未收到接收确认时为0
+     */
+    public long getNetworkRoundTripTime() {
+        if (receiptReceivedTime == 0 || sendStartTime == 0) return 0;
+        return Math.max(0, receiptReceivedTime - sendStartTime);
+    }
+    
+    /**
+     * 计算服务端处理时间（毫秒）
+     * 收到接收确认到收到最终响应的时间，包含服务端排队、解密、解压与写盘；同样只使用客户端时钟
+     * @return 服务端处理时间，未收到接收确认时为0
+     */
+    public long getServerProcessingTime() {
+        if (receiptReceivedTime == 0 || responseReceivedTime == 0) return 0;
+        return Math.max(0, responseReceivedTime - receiptReceivedTime);
+    }
+    
+    /**
+     * 是否收到了服务端的接收确认
+     */
+    public boolean isReceiptReceived() {
+        return receiptReceivedTime != 0;
+    }
+    
+    /**
+     * 是否经过了加密阶段
+     */
+    public boolean isEncrypted() {
+        return encryptEndTime != 0;
+    }
+    
+    public byte getIntegrityStatus() {
+        return integrityStatus;
+    }
+    
+    public void setIntegrityStatus(byte integrityStatus) {
+        this.integrityStatus = integrityStatus;
+    }
+    
+    public int[] getLevelTrajectory() {
+        return levelTrajectory;
+    }
+    
+    public void setLevelTrajectory(int[] levelTrajectory) {
+        this.levelTrajectory = levelTrajectory;
+    }
+    
+    /**
+     * 级别轨迹的摘要：只列出级别发生变化处，如 "3x4 -> 4x10 -> 3x2" 表示级别3用了4个分片，依此类推
+     * @return 摘要，没有轨迹时为空字符串
+     */
+    public String getLevelTrajectorySummary() {
+        if (levelTrajectory == null || levelTrajectory.length == 0) return "";
+        StringBuilder summary = new StringBuilder();
+        int start = 0;
+        for (int i = 1; i <= levelTrajectory.length; i++) {
+            if (i == levelTrajectory.length || levelTrajectory[i] != levelTrajectory[start]) {
+                if (summary.length() > 0) summary.append(" -> ");
+                summary.append(levelTrajectory[start]).append('x').append(i - start);
+                start = i;
+            }
+        }
+        return summary.toString();
+    }
+    
+    public long getDatagramSequence() {
+        return datagramSequence;
+    }
+    
+    public void setDatagramSequence(long datagramSequence) {
+        this.datagramSequence = datagramSequence;
+    }
+    
+    public long getRoundTripNanos() {
+        return roundTripNanos;
+    }
+    
+    public void setRoundTripNanos(long roundTripNanos) {
+        this.roundTripNanos = roundTripNanos;
+    }
+    
+    public long getDatagramsSent() {
+        return datagramsSent;
+    }
+    
+    public void setDatagramsSent(long datagramsSent) {
+        this.datagramsSent = datagramsSent;
+    }
+    
+    public long getDatagramsLost() {
+        return datagramsLost;
+    }
+    
+    public void setDatagramsLost(long datagramsLost) {
+        this.datagramsLost = datagramsLost;
+    }
+    
+    /**
+     * 计算数据报丢失率
+     * @return 丢失率（0-1之间的小数），非数据报传输时为0
+     */
+    public double getDatagramLossRate() {
+        if (datagramsSent == 0) return 0;
+        return (double) datagramsLost / datagramsSent;
     }
     
     /**
@@ -204,12 +388,19 @@ public class PerformanceMetrics {
     
     @Override
     public String toString() {
+        String levels = levelTrajectory == null ? "" : ", levels=" + getLevelTrajectorySummary();
+        String crypto = !isEncrypted() ? "" : String.format(", encryptTime=%dms, decryptTime=%dms",
+            getEncryptionTime(), getDecryptionTime());
+        String phases = !isReceiptReceived() ? "" : String.format(", networkTime=%dms, serverTime=%dms",
+            getNetworkRoundTripTime(), getServerProcessingTime());
+        String datagram = datagramsSent == 0 ? "" : String.format(", seq=%d, rtt=%dus, loss=%.2f%%",
+            datagramSequence, roundTripNanos / 1000, getDatagramLossRate() * 100);
         return String.format(
             "PerformanceMetrics[algorithm=%s, originalSize=%d, compressedSize=%d, " +
-            "ratio=%.2f%%, compressTime=%dms, sendTime=%dms, decompressTime=%dms, totalTime=%dms]",
+            "ratio=%.2f%%, compressTime=%dms%s, sendTime=%dms, decompressTime=%dms, totalTime=%dms%s%s%s]",
             algorithmName, originalSize, compressedSize, 
-            getCompressionRatio() * 100, getCompressionTime(), 
-            getSendTime(), getDecompressionTime(), getTotalRoundTripTime()
+            getCompressionRatio() * 100, getCompressionTime(), crypto,
+            getSendTime(), getDecompressionTime(), getTotalRoundTripTime(), phases, levels, datagram
         );
     }
 }
@@ -0,0 +1,270 @@
+package com.datacompress.netem;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.FileRegion;
+import io.netty.handler.traffic.ChannelTrafficShapingHandler;
+import io.netty.util.ReferenceCountUtil;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 链路时延、抖动与丢包停顿的模拟
+ * 出站与入站的数据各自按单向时延（往返时延的一半加随机抖动）推迟后再交给下一个处理器；
+ * 按分段数抽中丢包时再推迟一个重传超时。每个方向的放行时刻单调不减，数据不会乱序，与TCP一致。
+ * 带宽由同时安装的ChannelTrafficShapingHandler限制，见 {@link #install}。
+ *
+ * 延迟中的出站字节计入连接的可写状态（超过高水位时不可写），上层的写调度因此与真实链路一样被背压。
+ * 一端即可模拟整条链路的两个方向，两端同时启用时时延与丢包会叠加。所有状态只在I/O线程上访问。
+ */
+public class NetworkEmulationHandler extends ChannelDuplexHandler {
+
+    /** 按分段计算丢包的分段大小（以太网MTU下的典型MSS） */
+    static final int SEGMENT_SIZE = 1448;
+    /** 最小重传超时，与Linux一致 */
+    private static final long MIN_RTO_MILLIS = 200;
+    /** 统计带宽的周期，较短的周期使限速更平滑 */
+    private static final long SHAPING_CHECK_INTERVAL_MILLIS = 100;
+    /** 延迟中的出站字节使用的用户定义可写性位，与流量整形处理器使用的位（1～3）区分 */
+    private static final int WRITABILITY_INDEX = 4;
+
+    private final long oneWayNanos;
+    private final long jitterNanos;
+    private final long rtoNanos;
+    private final double lossRate;
+
+    private final DelayLine outbound = new DelayLine(true);
+    private final DelayLine inbound = new DelayLine(false);
+    private long pendingWriteBytes;
+
+    public NetworkEmulationHandler(NetworkProfile profile) {
+        this.oneWayNanos = TimeUnit.MILLISECONDS.toNanos(profile.getRttMillis()) / 2;
+        this.jitterNanos = TimeUnit.MILLISECONDS.toNanos(profile.getJitterMillis());
+        this.rtoNanos = TimeUnit.MILLISECONDS.toNanos(
+                Math.max(MIN_RTO_MILLIS, profile.getRttMillis() + 4L * profile.getJitterMillis()));
+        this.lossRate = profile.getLossRate();
+    }
+
+    /**
+     * 在处理器链最靠近网络的一侧安装链路模拟：带宽限制（流量整形）与时延、抖动、丢包停顿
+     * @param serverSide 是否为服务端的连接，服务端的出站方向为下行
+     */
+    public static void install(ChannelPipeline pipeline, NetworkProfile profile, boolean serverSide) {
+        long uplink = profile.getUplinkBitsPerSecond() / 8;
+        long downlink = profile.getDownlinkBitsPerSecond() / 8;
+        ChannelTrafficShapingHandler shaping = new ChannelTrafficShapingHandler(
+                serverSide ? downlink : uplink, serverSide ? uplink : downlink, SHAPING_CHECK_INTERVAL_MILLIS);
+        // 整形队列超过高水位即令连接不可写，默认4MB会在慢速链路上积压数秒的数据
+        shaping.setMaxWriteSize(pipeline.channel().config().getWriteBufferHighWaterMark());
+        pipeline.addFirst("netemDelay", new NetworkEmulationHandler(profile));
+        pipeline.addFirst("netemShaping", shaping);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        long size = sizeOf(msg);
+        long delay = nextDelayNanos(size);
+        if (delay == 0 && outbound.isEmpty()) {
+            ctx.write(msg, promise);
+            return;
+        }
+        outbound.add(ctx, new Entry(msg, promise, size), delay);
+        pendingWriteBytes += size;
+        ChannelConfig config = ctx.channel().config();
+        if (pendingWriteBytes > config.getWriteBufferHighWaterMark()) {
+            setWritable(ctx, false);
+        }
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+        // 延迟中的数据放行时自行刷新，这里只刷新已直接写出的数据
+        if (outbound.isEmpty()) {
+            ctx.flush();
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        long delay = nextDelayNanos(sizeOf(msg));
+        if (delay == 0 && inbound.isEmpty()) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        inbound.add(ctx, new Entry(msg, null, 0), delay);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        // 延迟中的数据放行后再通知读取完成
+        if (inbound.isEmpty()) {
+            ctx.fireChannelReadComplete();
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        // 连接关闭后处理器链随即销毁，已收到的数据不再等待，立即交出后通知连接关闭
+        inbound.releaseAll(ctx);
+        outbound.discard();
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        outbound.discard();
+        inbound.discard();
+    }
+
+    private long nextDelayNanos(long size) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = oneWayNanos;
+        if (jitterNanos > 0) {
+            delay = Math.max(0, delay + random.nextLong(-jitterNanos, jitterNanos + 1));
+        }
+        if (lossRate > 0 && size > 0) {
+            // 至少一个分段丢失的概率
+            long segments = (size + SEGMENT_SIZE - 1) / SEGMENT_SIZE;
+            if (random.nextDouble() < 1 - Math.pow(1 - lossRate, segments)) {
+                delay += rtoNanos;
+            }
+        }
+        return delay;
+    }
+
+    private void released(ChannelHandlerContext ctx, long size) {
+        pendingWriteBytes -= size;
+        if (pendingWriteBytes < ctx.channel().config().getWriteBufferLowWaterMark()) {
+            setWritable(ctx, true);
+        }
+    }
+
+    private static void setWritable(ChannelHandlerContext ctx, boolean writable) {
+        ChannelOutboundBuffer buffer = ctx.channel().unsafe().outboundBuffer();
+        if (buffer != null) {
+            buffer.setUserDefinedWritability(WRITABILITY_INDEX, writable);
+        }
+    }
+
+    private static long sizeOf(Object msg) {
+        if (msg instanceof ByteBuf) {
+            return ((ByteBuf) msg).readableBytes();
+        }
+        if (msg instanceof ByteBufHolder) {
+            return ((ByteBufHolder) msg).content().readableBytes();
+        }
+        if (msg instanceof FileRegion) {
+            return ((FileRegion) msg).count() - ((FileRegion) msg).transferred();
+        }
+        return 0;
+    }
+
+    /**
+     * 延迟中的一条消息，入站消息没有promise
+     */
+    private static final class Entry {
+        final Object msg;
+        final ChannelPromise promise;
+        final long size;
+        long releaseTime;
+
+        Entry(Object msg, ChannelPromise promise, long size) {
+            this.msg = msg;
+            this.promise = promise;
+            this.size = size;
+        }
+    }
+
+    /**
+     * 一个方向上按放行时刻排队的消息，只有队首有一个定时任务
+     */
+    private final class DelayLine {
+        private final boolean outbound;
+        private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+        private long lastRelease;
+
+        DelayLine(boolean outbound) {
+            this.outbound = outbound;
+        }
+
+        boolean isEmpty() {
+            return entries.isEmpty();
+        }
+
+        void add(ChannelHandlerContext ctx, Entry entry, long delayNanos) {
+            long now = System.nanoTime();
+            // 放行时刻不早于前一条，抖动不会使数据乱序
+            entry.releaseTime = entries.isEmpty() ? now + delayNanos : Math.max(lastRelease, now + delayNanos);
+            lastRelease = entry.releaseTime;
+            entries.addLast(entry);
+            if (entries.size() == 1) {
+                schedule(ctx, now);
+            }
+        }
+
+        private void schedule(ChannelHandlerContext ctx, long now) {
+            ctx.executor().schedule(() -> release(ctx), entries.peekFirst().releaseTime - now, TimeUnit.NANOSECONDS);
+        }
+
+        private void release(ChannelHandlerContext ctx) {
+            long now = System.nanoTime();
+            boolean released = false;
+            while (!entries.isEmpty() && entries.peekFirst().releaseTime - now <= 0) {
+                deliver(ctx, entries.pollFirst());
+                released = true;
+            }
+            if (released) {
+                complete(ctx);
+            }
+            if (!entries.isEmpty()) {
+                schedule(ctx, now);
+            }
+        }
+
+        void releaseAll(ChannelHandlerContext ctx) {
+            if (!entries.isEmpty()) {
+                Entry entry;
+                while ((entry = entries.pollFirst()) != null) {
+                    deliver(ctx, entry);
+                }
+                complete(ctx);
+            }
+        }
+
+        private void deliver(ChannelHandlerContext ctx, Entry entry) {
+            if (outbound) {
+                released(ctx, entry.size);
+                ctx.write(entry.msg, entry.promise);
+            } else {
+                ctx.fireChannelRead(entry.msg);
+            }
+        }
+
+        private void complete(ChannelHandlerContext ctx) {
+            if (outbound) {
+                ctx.flush();
+            } else {
+                ctx.fireChannelReadComplete();
+            }
+        }
+
+        void discard() {
+            Entry entry;
+            while ((entry = entries.pollFirst()) != null) {
+                ReferenceCountUtil.release(entry.msg);
+                if (entry.promise != null) {
+                    entry.promise.tryFailure(new ClosedChannelException());
+                }
+            }
+        }
+    }
+}
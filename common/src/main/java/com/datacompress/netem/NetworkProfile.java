@@ -0,0 +1,179 @@
+package com.datacompress.netem;
+
+import java.util.Locale;
+
+/**
+ * 模拟的链路条件
+ * 带宽按客户端视角区分上行（客户端到服务端）与下行，0表示不限速；往返时延平分到两个方向；
+ * 抖动为每个方向时延的随机变化幅度；丢包率按TCP分段计，丢包不会真的丢弃数据（TCP会重传），
+ * 而是让该分段及其后的数据等待一个重传超时，模拟丢包造成的停顿。
+ *
+ * 预置LAN、WAN、4G与卫星链路；也可用文本描述，格式为预置名称和/或逗号分隔的键值，
+ * 如 "4g"、"wan,rtt=80"、"up=20,down=100,rtt=30,jitter=5,loss=0.1%"，
+ * 其中up/down单位为Mbit/s，rtt/jitter单位为毫秒，loss为百分比。
+ */
+public final class NetworkProfile {
+
+    /** 局域网：千兆，往返1ms */
+    public static final NetworkProfile LAN = new NetworkProfile("LAN", mbit(1000), mbit(1000), 1, 0, 0);
+    /** 广域网：50Mbit/s，往返40ms */
+    public static final NetworkProfile WAN = new NetworkProfile("WAN", mbit(50), mbit(50), 40, 5, 0.0001);
+    /** 4G移动网络：上行10Mbit/s、下行30Mbit/s，往返60ms，抖动较大 */
+    public static final NetworkProfile MOBILE_4G = new NetworkProfile("4G", mbit(10), mbit(30), 60, 20, 0.001);
+    /** 同步轨道卫星：上行5Mbit/s、下行25Mbit/s，往返600ms */
+    public static final NetworkProfile SATELLITE = new NetworkProfile("SATELLITE", mbit(5), mbit(25), 600, 30, 0.005);
+
+    private static final NetworkProfile[] PRESETS = {LAN, WAN, MOBILE_4G, SATELLITE};
+
+    private final String name;
+    private final long uplinkBitsPerSecond;
+    private final long downlinkBitsPerSecond;
+    private final int rttMillis;
+    private final int jitterMillis;
+    private final double lossRate;
+
+    /**
+     * @param uplinkBitsPerSecond 客户端到服务端的带宽（bit/s），0表示不限速
+     * @param downlinkBitsPerSecond 服务端到客户端的带宽（bit/s），0表示不限速
+     * @param rttMillis 往返时延（毫秒）
+     * @param jitterMillis 每个方向时延的抖动幅度（毫秒）
+     * @param lossRate 每个TCP分段的丢包概率，0到1之间
+     */
+    public NetworkProfile(String name, long uplinkBitsPerSecond, long downlinkBitsPerSecond,
+                          int rttMillis, int jitterMillis, double lossRate) {
+        if (uplinkBitsPerSecond < 0 || downlinkBitsPerSecond < 0) {
+            throw new IllegalArgumentException("带宽不能为负数");
+        }
+        if (rttMillis < 0 || jitterMillis < 0) {
+            throw new IllegalArgumentException("时延与抖动不能为负数");
+        }
+        if (!(lossRate >= 0 && lossRate < 1)) {
+            throw new IllegalArgumentException("丢包率必须在0到1之间: " + lossRate);
+        }
+        this.name = name;
+        this.uplinkBitsPerSecond = uplinkBitsPerSecond;
+        this.downlinkBitsPerSecond = downlinkBitsPerSecond;
+        this.rttMillis = rttMillis;
+        this.jitterMillis = jitterMillis;
+        this.lossRate = lossRate;
+    }
+
+    /**
+     * 解析链路条件的文本描述
+     * @param spec 预置名称（lan、wan、4g、satellite，忽略大小写）和/或键值 up、down、rtt、jitter、loss
+     * @return 链路条件，spec为空时返回null
+     * @throws IllegalArgumentException 名称未知或键值无效
+     */
+    public static NetworkProfile parse(String spec) {
+        if (spec == null || spec.trim().isEmpty()) {
+            return null;
+        }
+        String[] parts = spec.trim().split("\\s*,\\s*");
+        int first = 0;
+        NetworkProfile base = new NetworkProfile("CUSTOM", 0, 0, 0, 0, 0);
+        if (!parts[0].contains("=")) {
+            base = preset(parts[0]);
+            if (base == null) {
+                throw new IllegalArgumentException("未知的网络配置: " + parts[0] + "（可选 lan、wan、4g、satellite）");
+            }
+            first = 1;
+        }
+        if (first == parts.length) {
+            return base;
+        }
+
+        long up = base.uplinkBitsPerSecond;
+        long down = base.downlinkBitsPerSecond;
+        int rtt = base.rttMillis;
+        int jitter = base.jitterMillis;
+        double loss = base.lossRate;
+        for (int i = first; i < parts.length; i++) {
+            int eq = parts[i].indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("网络配置项应为 键=值: " + parts[i]);
+            }
+            String key = parts[i].substring(0, eq).trim().toLowerCase(Locale.ROOT);
+            String value = parts[i].substring(eq + 1).trim();
+            try {
+                switch (key) {
+                    case "up":
+                        up = Math.round(Double.parseDouble(value) * 1_000_000);
+                        break;
+                    case "down":
+                        down = Math.round(Double.parseDouble(value) * 1_000_000);
+                        break;
+                    case "rtt":
+                        rtt = Integer.parseInt(value);
+                        break;
+                    case "jitter":
+                        jitter = Integer.parseInt(value);
+                        break;
+                    case "loss":
+                        loss = Double.parseDouble(value.endsWith("%") ? value.substring(0, value.length() - 1) : value)
+                                / 100;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("未知的网络配置项: " + key + "（可选 up、down、rtt、jitter、loss）");
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("网络配置项 " + key + " 的值 " + value + " 不是有效的数字");
+            }
+        }
+        return new NetworkProfile(first == 1 ? base.name + "*" : base.name, up, down, rtt, jitter, loss);
+    }
+
+    private static NetworkProfile preset(String name) {
+        String normalized = name.trim().toUpperCase(Locale.ROOT);
+        for (NetworkProfile preset : PRESETS) {
+            if (preset.name.equals(normalized)) {
+                return preset;
+            }
+        }
+        return null;
+    }
+
+    private static long mbit(int megabits) {
+        return megabits * 1_000_000L;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 客户端到服务端的带宽（bit/s），0表示不限速
+     */
+    public long getUplinkBitsPerSecond() {
+        return uplinkBitsPerSecond;
+    }
+
+    /**
+     * 服务端到客户端的带宽（bit/s），0表示不限速
+     */
+    public long getDownlinkBitsPerSecond() {
+        return downlinkBitsPerSecond;
+    }
+
+    public int getRttMillis() {
+        return rttMillis;
+    }
+
+    public int getJitterMillis() {
+        return jitterMillis;
+    }
+
+    public double getLossRate() {
+        return lossRate;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s[up=%s, down=%s, rtt=%dms, jitter=%dms, loss=%.3f%%]",
+                name, formatBandwidth(uplinkBitsPerSecond), formatBandwidth(downlinkBitsPerSecond),
+                rttMillis, jitterMillis, lossRate * 100);
+    }
+
+    private static String formatBandwidth(long bitsPerSecond) {
+        return bitsPerSecond == 0 ? "不限" : String.format(Locale.ROOT, "%.1fMbit/s", bitsPerSecond / 1e6);
+    }
+}
@@ -0,0 +1,41 @@
+package com.datacompress.protocol;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 分块查询消息
+ * 去重传输前客户端发送全部分块指纹，询问服务端缺少哪些分块
+ */
+public class ChunkQueryMessage implements Serializable, CorrelatedMessage {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private long requestId;              // 请求ID（v1为0）
+    private List<byte[]> fingerprints;   // 分块指纹（按文件中的顺序）
+    
+    public ChunkQueryMessage() {
+    }
+    
+    public ChunkQueryMessage(List<byte[]> fingerprints) {
+        this.fingerprints = fingerprints;
+    }
+    
+    @Override
+    public long getRequestId() {
+        return requestId;
+    }
+    
+    @Override
+    public void setRequestId(long requestId) {
+        this.requestId = requestId;
+    }
+    
+    public List<byte[]> getFingerprints() {
+        return fingerprints;
+    }
+    
+    public void setFingerprints(List<byte[]> fingerprints) {
+        this.fingerprints = fingerprints;
+    }
+}
@@ -0,0 +1,30 @@
+package com.datacompress.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+/**
+ * ChunkQueryMessage编码器
+ * 格式: [类型][4字节分块数][每个分块32字节指纹]
+ * 握手协商为v2后使用v2帧
+ */
+public class ChunkQueryMessageEncoder extends MessageToByteEncoder<ChunkQueryMessage> {
+    
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ChunkQueryMessage msg, ByteBuf out) throws Exception {
+        if (ProtocolSession.versionOf(ctx.channel()) >= ProtocolSession.V2) {
+            ProtocolV2.encodeChunkQuery(msg, out);
+            return;
+        }
+        
+        // 写入消息类型
+        out.writeByte(MessageType.CHUNK_QUERY);
+        
+        // 写入分块数和指纹
+        out.writeInt(msg.getFingerprints().size());
+        for (byte[] fingerprint : msg.getFingerprints()) {
+            out.writeBytes(fingerprint);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.datacompress.protocol;
+
+import java.io.Serializable;
+import java.util.BitSet;
+
+/**
+ * 分块查询响应
+ * 服务端返回缺失分块的索引位图
+ */
+public class ChunkQueryResponse implements Serializable, CorrelatedMessage {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private long requestId;              // 对应请求的ID（v1为0）
+    private int chunkCount;              // 查询的分块总数
+    private BitSet missing;              // 缺失分块的索引
+    
+    public ChunkQueryResponse() {
+    }
+    
+    public ChunkQueryResponse(int chunkCount, BitSet missing) {
+        this.chunkCount = chunkCount;
+        this.missing = missing;
+    }
+    
+    @Override
+    public long getRequestId() {
+        return requestId;
+    }
+    
+    @Override
+    public void setRequestId(long requestId) {
+        this.requestId = requestId;
+    }
+    
+    public int getChunkCount() {
+        return chunkCount;
+    }
+    
+    public void setChunkCount(int chunkCount) {
+        this.chunkCount = chunkCount;
+    }
+    
+    public BitSet getMissing() {
+        return missing;
+    }
+    
+    public void setMissing(BitSet missing) {
+        this.missing = missing;
+    }
+}
@@ -0,0 +1,32 @@
+package com.datacompress.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+/**
+ * ChunkQueryResponse编码器
+ * 格式: [类型][4字节分块数][4字节位图长度][缺失分块位图]
+ * 握手协商为v2后使用v2帧
+ */
+public class ChunkQueryResponseEncoder extends MessageToByteEncoder<ChunkQueryResponse> {
+    
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ChunkQueryResponse msg, ByteBuf out) throws Exception {
+        if (ProtocolSession.versionOf(ctx.channel()) >= ProtocolSession.V2) {
+            ProtocolV2.encodeChunkQueryResult(msg, out);
+            return;
+        }
+        
+        // 写入消息类型
+        out.writeByte(MessageType.CHUNK_QUERY_RESULT);
+        
+        // 写入分块数
+        out.writeInt(msg.getChunkCount());
+        
+        // 写入缺失分块位图
+        byte[] bitmap = msg.getMissing().toByteArray();
+        out.writeInt(bitmap.length);
+        out.writeBytes(bitmap);
+    }
+}
@@ -0,0 +1,13 @@
+package com.datacompress.protocol;
+
+/**
+ * 带请求ID的消息
+ * 客户端为每个请求分配连接内唯一的非零ID，服务端在响应中原样带回，同一连接上的请求因此可以乱序应答。
+ * v1帧不携带请求ID，解码后为0，只能按发送顺序对应。
+ */
+public interface CorrelatedMessage {
+    
+    long getRequestId();
+    
+    void setRequestId(long requestId);
+}
@@ -0,0 +1,92 @@
+package com.datacompress.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 分段帧的接收端拼接
+ * 各分段帧的段按ID组合到各自的CompositeByteBuf中，不复制数据；最后一段到达后按完整的v2帧解码。
+ * 拼接出的传输消息以第一段的到达时间作为接收开始时间。
+ * 只在解码器所在的I/O线程上使用。
+ */
+final class FragmentAssembler {
+
+    /** 同一连接上同时未完成的分段帧上限，发送端的交错数（PriorityWriteScheduler）不超过该值 */
+    static final int MAX_PENDING_FRAMES = 64;
+
+    private final int maxFrameSize;
+    private final Map<Long, PendingFrame> pending = new HashMap<>();
+
+    FragmentAssembler(int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * 追加一段
+     * @param alloc 缓冲区分配器
+     * @param flags 段的帧标志
+     * @param body 段的消息体，本方法不释放
+     * @param receiveTime 段的帧头解析时间
+     * @return 最后一段到达时返回拼接后解码得到的消息，否则返回null
+     */
+    Object append(ByteBufAllocator alloc, int flags, ByteBuf body, long receiveTime) {
+        long fragmentId = ProtocolV2.readVarint(body);
+        PendingFrame pendingFrame = pending.get(fragmentId);
+        if (pendingFrame == null) {
+            if (pending.size() >= MAX_PENDING_FRAMES) {
+                throw new CorruptedFrameException("未完成的分段帧超过 " + MAX_PENDING_FRAMES + " 个");
+            }
+            pendingFrame = new PendingFrame(alloc.compositeBuffer(Integer.MAX_VALUE), receiveTime);
+            pending.put(fragmentId, pendingFrame);
+        }
+        CompositeByteBuf frame = pendingFrame.frame;
+        if ((long) frame.readableBytes() + body.readableBytes() > maxFrameSize) {
+            pending.remove(fragmentId).frame.release();
+            throw new TooLongFrameException("分段帧长度超过上限 " + maxFrameSize);
+        }
+        frame.addComponent(true, body.readRetainedSlice(body.readableBytes()));
+
+        if ((flags & TransferFlags.FRAGMENT_END) == 0) {
+            return null;
+        }
+        pending.remove(fragmentId);
+        try {
+            Object message = ProtocolV2.decodeFrame(frame);
+            if (message instanceof TransferMessage) {
+                ((TransferMessage) message).setReceiveStartTime(pendingFrame.startTime);
+            }
+            return message;
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * 释放全部未完成的分段帧
+     */
+    void clear() {
+        for (PendingFrame pendingFrame : pending.values()) {
+            pendingFrame.frame.release();
+        }
+        pending.clear();
+    }
+
+    /**
+     * 未完成的分段帧及其第一段的到达时间
+     */
+    private static final class PendingFrame {
+        final CompositeByteBuf frame;
+        final long startTime;
+
+        PendingFrame(CompositeByteBuf frame, long startTime) {
+            this.frame = frame;
+            this.startTime = startTime;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.datacompress.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.DefaultByteBufHolder;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * 待分段写出的完整v2帧
+ * 由TransferMessageEncoder生成，PriorityWriteScheduler每次取出一段编码为FRAGMENT帧写出。
+ */
+final class FragmentedFrame extends DefaultByteBufHolder {
+
+    private final long groupKey;
+    private final int weight;
+    private long fragmentId = -1;
+    private ChannelPromise promise;
+
+    /**
+     * @param frame 完整的v2帧，所有权转移给本对象
+     * @param groupKey 所属的流，同一流的帧按写入顺序发送
+     * @param weight 调度权重
+     */
+    FragmentedFrame(ByteBuf frame, long groupKey, int weight) {
+        super(frame);
+        this.groupKey = groupKey;
+        this.weight = weight;
+    }
+
+    long getGroupKey() {
+        return groupKey;
+    }
+
+    int getWeight() {
+        return weight;
+    }
+
+    ChannelPromise getPromise() {
+        return promise;
+    }
+
+    void setPromise(ChannelPromise promise) {
+        this.promise = promise;
+    }
+
+    /**
+     * 是否已开始写出，开始后才占用一个分段帧ID
+     */
+    boolean isStarted() {
+        return fragmentId >= 0;
+    }
+
+    void start(long fragmentId) {
+        this.fragmentId = fragmentId;
+    }
+
+    /**
+     * 取出下一段，编码为FRAGMENT帧
+     * @return 帧头与该段数据的组合缓冲区
+     */
+    ByteBuf nextFragment(ByteBufAllocator alloc) {
+        ByteBuf frame = content();
+        int length = Math.min(ProtocolV2.FRAGMENT_SIZE, frame.readableBytes());
+        boolean last = length == frame.readableBytes();
+        ByteBuf header = ProtocolV2.encodeFragmentHeader(alloc, fragmentId, length, last);
+        return alloc.compositeBuffer(2).addComponents(true, header, frame.readRetainedSlice(length));
+    }
+
+    /**
+     * 尚未写出的字节数
+     */
+    int remaining() {
+        return content().readableBytes();
+    }
+}
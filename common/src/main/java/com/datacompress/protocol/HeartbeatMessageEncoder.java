@@ -9,12 +9,17 @@ import java.io.ObjectOutputStream;
 
 /**
  * 心跳消息编码器
- * 将HeartbeatMessage对象编码为字节流
+ * 将HeartbeatMessage对象编码为字节流，握手协商为v2后使用v2帧
  */
 public class HeartbeatMessageEncoder extends MessageToByteEncoder<HeartbeatMessage> {
     
     @Override
     protected void encode(ChannelHandlerContext ctx, HeartbeatMessage msg, ByteBuf out) throws Exception {
+        if (ProtocolSession.versionOf(ctx.channel()) >= ProtocolSession.V2) {
+            ProtocolV2.encodeHeartbeat(msg, out);
+            return;
+        }
+        
         // 使用Java序列化
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         ObjectOutputStream oos = new ObjectOutputStream(baos);
@@ -0,0 +1,59 @@
+package com.datacompress.protocol;
+
+import java.io.Serializable;
+
+/**
+ * 协议握手消息
+ * 客户端连接后首先发送，服务端以自身能力回复；双方据此协商协议版本、可用算法、单帧上限和特性
+ */
+public class HelloMessage implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private int version;          // 发送方支持的最高协议版本（回复中为协商结果）
+    private byte[] algorithmIds;  // 发送方支持的压缩算法ID
+    private int maxFrameSize;     // 发送方可接收的单帧最大字节数
+    private int features;         // 发送方支持的特性位，见ProtocolFeatures
+    
+    public HelloMessage() {
+    }
+    
+    public HelloMessage(int version, byte[] algorithmIds, int maxFrameSize, int features) {
+        this.version = version;
+        this.algorithmIds = algorithmIds;
+        this.maxFrameSize = maxFrameSize;
+        this.features = features;
+    }
+    
+    public int getVersion() {
+        return version;
+    }
+    
+    public void setVersion(int version) {
+        this.version = version;
+    }
+    
+    public byte[] getAlgorithmIds() {
+        return algorithmIds;
+    }
+    
+    public void setAlgorithmIds(byte[] algorithmIds) {
+        this.algorithmIds = algorithmIds;
+    }
+    
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+    
+    public void setMaxFrameSize(int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+    }
+    
+    public int getFeatures() {
+        return features;
+    }
+    
+    public void setFeatures(int features) {
+        this.features = features;
+    }
+}
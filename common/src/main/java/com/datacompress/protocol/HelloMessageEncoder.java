@@ -0,0 +1,17 @@
+package com.datacompress.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+/**
+ * 握手消息编码器
+ * 握手消息只存在于v2，总是以v2帧发送
+ */
+public class HelloMessageEncoder extends MessageToByteEncoder<HelloMessage> {
+    
+    @Override
+    protected void encode(ChannelHandlerContext ctx, HelloMessage msg, ByteBuf out) throws Exception {
+        ProtocolV2.encodeHello(msg, out);
+    }
+}
@@ -0,0 +1,10 @@
+package com.datacompress.protocol;
+
+/**
+ * 完整性校验结果常量
+ */
+public class IntegrityStatus {
+    public static final byte NOT_CHECKED = 0x00;  // 未携带校验信息或该模式不支持校验
+    public static final byte VERIFIED = 0x01;     // 块校验和与文件哈希全部通过
+    public static final byte FAILED = 0x02;       // 校验不通过，文件未保存
+}
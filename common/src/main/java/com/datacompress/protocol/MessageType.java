@@ -7,4 +7,11 @@ public class MessageType {
     public static final byte HEARTBEAT = 0x01;
     public static final byte TRANSFER = 0x02;
     public static final byte RESPONSE = 0x03;
+    public static final byte CHUNK_QUERY = 0x04;
+    public static final byte CHUNK_QUERY_RESULT = 0x05;
+    public static final byte HELLO = 0x06;        // 协议握手，只以v2帧发送
+    public static final byte RESUME_QUERY = 0x07;   // 查询流式传输的续传进度，只以v2帧发送
+    public static final byte RESUME_RESULT = 0x08;  // 续传进度查询结果，只以v2帧发送
+    public static final byte FRAGMENT = 0x09;       // 大帧的一段，拼接后为一个完整的v2帧，只以v2帧发送
+    public static final byte RECEIVED = 0x0A;       // 传输帧已完整接收的确认，处理结果随后以RESPONSE返回，只以v2帧发送
 }
@@ -0,0 +1,196 @@
+package com.datacompress.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 出站帧的优先级调度
+ * 协商了FRAGMENT特性后，TransferMessageEncoder把超过一段的大帧交给本处理器分段写出；
+ * 心跳、查询、握手与不足一段的小传输不经排队直接下行，只需等出站缓冲区中已有的段（不超过高水位）发完，
+ * 而不必等整个大帧发完。
+ *
+ * 大帧按所属的流分组（流式传输为流ID，条带传输为传输ID，其余为请求ID），组内按写入顺序发送，
+ * 组间做按权重的差额轮询（DRR）：每轮一个组可发送的字节数与其权重成正比，同权重的并发传输平分带宽。
+ * 同时交错的大帧不超过MAX_INTERLEAVED_FRAMES个，接收端的拼接缓冲因此有上限。
+ * 段只在连接可写时写出，不可写时暂停，恢复可写后继续，因此本处理器必须位于管道中最靠近网络的一侧，
+ * 写出的段直接进入出站缓冲区并计入可写状态。所有状态只在I/O线程上访问。
+ */
+public class PriorityWriteScheduler extends ChannelDuplexHandler {
+
+    /** 默认权重 */
+    public static final int DEFAULT_WEIGHT = 16;
+    /** 最大权重 */
+    public static final int MAX_WEIGHT = 256;
+    /** 同时交错写出的大帧上限，不超过接收端FragmentAssembler.MAX_PENDING_FRAMES */
+    static final int MAX_INTERLEAVED_FRAMES = 16;
+    /** 每单位权重每轮可发送的字节数，默认权重每轮恰好一段 */
+    private static final int QUANTUM_PER_WEIGHT = ProtocolV2.FRAGMENT_SIZE / DEFAULT_WEIGHT;
+
+    private final Map<Long, Group> groups = new HashMap<>();
+    // 轮询顺序，队首为当前发送的组
+    private final Deque<Group> rounds = new ArrayDeque<>();
+    private long nextFragmentId;
+    private int startedFrames;
+    // 已交给本处理器、尚未写出的字节数，供其他线程估计出站积压
+    private volatile long pendingBytes;
+
+    /**
+     * 获取连接上尚在调度队列中、未进入出站缓冲区的字节数
+     * @return 字节数，连接未使用本处理器时为0
+     */
+    public static long pendingBytes(Channel channel) {
+        PriorityWriteScheduler scheduler = channel.pipeline().get(PriorityWriteScheduler.class);
+        return scheduler != null ? scheduler.pendingBytes : 0;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        if (!(msg instanceof FragmentedFrame)) {
+            ctx.write(msg, promise);
+            return;
+        }
+        FragmentedFrame frame = (FragmentedFrame) msg;
+        if (!ctx.channel().isActive()) {
+            frame.release();
+            promise.tryFailure(new ClosedChannelException());
+            return;
+        }
+        frame.setPromise(promise);
+        Group group = groups.get(frame.getGroupKey());
+        if (group == null) {
+            group = new Group(frame.getGroupKey());
+            groups.put(group.key, group);
+            rounds.addLast(group);
+        }
+        group.frames.addLast(frame);
+        pendingBytes += frame.remaining();
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+        writeFragments(ctx);
+        ctx.flush();
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        // 先通知上层，ChunkedWriteHandler等在不可写期间排队的小消息先于后续的段写出
+        ctx.fireChannelWritabilityChanged();
+        if (ctx.channel().isWritable() && !rounds.isEmpty()) {
+            writeFragments(ctx);
+            ctx.flush();
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        failPending(new ClosedChannelException());
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        failPending(new ClosedChannelException());
+    }
+
+    /**
+     * 按差额轮询写出各组的段，直到连接不可写或全部写完
+     */
+    private void writeFragments(ChannelHandlerContext ctx) {
+        Channel channel = ctx.channel();
+        while (channel.isWritable() && !rounds.isEmpty()) {
+            Group group = rounds.pollFirst();
+            if (!group.inTurn) {
+                group.deficit += (long) QUANTUM_PER_WEIGHT * group.frames.peekFirst().getWeight();
+                group.inTurn = true;
+            }
+
+            boolean blocked = false;
+            while (group.deficit > 0 && channel.isWritable()) {
+                FragmentedFrame frame = group.frames.peekFirst();
+                if (!frame.isStarted()) {
+                    if (startedFrames >= MAX_INTERLEAVED_FRAMES) {
+                        // 等其他大帧写完再开始
+                        blocked = true;
+                        break;
+                    }
+                    frame.start(nextFragmentId++);
+                    startedFrames++;
+                }
+                int before = frame.remaining();
+                ByteBuf fragment = frame.nextFragment(ctx.alloc());
+                int written = before - frame.remaining();
+                group.deficit -= written;
+                pendingBytes -= written;
+
+                boolean last = frame.remaining() == 0;
+                ChannelPromise promise = frame.getPromise();
+                ctx.write(fragment).addListener((ChannelFutureListener) future -> {
+                    if (!future.isSuccess()) {
+                        promise.tryFailure(future.cause());
+                    } else if (last) {
+                        promise.trySuccess();
+                    }
+                });
+                if (last) {
+                    group.frames.pollFirst();
+                    frame.release();
+                    startedFrames--;
+                    if (group.frames.isEmpty()) {
+                        break;
+                    }
+                }
+            }
+
+            if (group.frames.isEmpty()) {
+                groups.remove(group.key);
+            } else if (group.deficit > 0 && !blocked) {
+                // 连接不可写而中断，恢复可写后继续本轮
+                rounds.addFirst(group);
+            } else {
+                group.inTurn = false;
+                if (blocked) {
+                    group.deficit = 0;
+                }
+                rounds.addLast(group);
+            }
+        }
+    }
+
+    private void failPending(Throwable cause) {
+        for (Group group : rounds) {
+            for (FragmentedFrame frame : group.frames) {
+                frame.release();
+                frame.getPromise().tryFailure(cause);
+            }
+        }
+        rounds.clear();
+        groups.clear();
+        startedFrames = 0;
+        pendingBytes = 0;
+    }
+
+    /**
+     * 同一流的待写大帧
+     */
+    private static final class Group {
+        private final long key;
+        private final Deque<FragmentedFrame> frames = new ArrayDeque<>();
+        private long deficit;
+        private boolean inTurn;
+
+        private Group(long key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.datacompress.protocol;
+
+/**
+ * 握手时交换的特性位
+ * 双方都支持的特性才会在协商结果中保留
+ */
+public class ProtocolFeatures {
+    public static final int INTEGRITY = 0x01;  // 块校验和与文件哈希
+    public static final int ARCHIVE = 0x02;    // 目录归档传输
+    public static final int DEDUP = 0x04;      // 分块去重传输
+    public static final int DELTA = 0x08;      // 基于参考文件的增量传输
+    public static final int CONTEXT = 0x10;    // 连接级压缩上下文
+    public static final int STRIPED = 0x20;    // 大传输切分为分片，经多个连接并行发送后按偏移重组
+    public static final int STREAM = 0x40;     // 流式传输，分片边读边压边发，服务端边解压边写
+    public static final int RESUME = 0x80;     // 流式传输断线后在新连接上查询进度并续传
+    public static final int FRAGMENT = 0x100;  // 大帧切分为FRAGMENT段发送，与其他帧交错，接收端拼接后解码
+    public static final int ENCRYPTION = 0x200; // 压缩数据以预共享密钥加密，只有配置了密钥的一端才声明，不在ALL中
+    public static final int RECEIPT = 0x400;   // 传输帧完整到达后立即回复RECEIVED确认，处理结果随后以RESPONSE返回
+    
+    /** 当前实现支持的全部特性 */
+    public static final int ALL = INTEGRITY | ARCHIVE | DEDUP | DELTA | CONTEXT | STRIPED | STREAM | RESUME
+            | FRAGMENT | RECEIPT;
+    
+    /**
+     * 获取传输模式依赖的特性
+     * @param transferMode 传输模式
+     * @return 特性位，普通传输返回0
+     */
+    public static int forTransferMode(byte transferMode) {
+        switch (transferMode) {
+            case TransferMode.ARCHIVE:
+                return ARCHIVE;
+            case TransferMode.DEDUP:
+                return DEDUP;
+            case TransferMode.DELTA:
+                return DELTA;
+            case TransferMode.CONTEXT:
+                return CONTEXT;
+            case TransferMode.STREAM:
+                return STREAM;
+            default:
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.datacompress.protocol;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+import java.util.BitSet;
+
+/**
+ * 连接上协商得到的协议参数
+ * 握手完成后保存在Channel属性中，编码器据此选择帧格式；未握手的连接（旧客户端）始终使用v1
+ */
+public final class ProtocolSession {
+
+    public static final byte V1 = 1;
+    public static final byte V2 = 2;
+    /** 本实现支持的最高版本 */
+    public static final byte CURRENT = V2;
+
+    public static final AttributeKey<ProtocolSession> KEY = AttributeKey.valueOf("protocolSession");
+
+    private final int version;
+    private final BitSet algorithms = new BitSet(256);
+    private final int maxFrameSize;
+    private final int features;
+
+    private ProtocolSession(int version, byte[] algorithmIds, int maxFrameSize, int features) {
+        this.version = version;
+        for (byte id : algorithmIds) {
+            algorithms.set(id & 0xFF);
+        }
+        this.maxFrameSize = maxFrameSize;
+        this.features = features;
+    }
+
+    /**
+     * 根据本端与对端的握手消息协商会话参数
+     * 版本取两者较低者，算法与特性取交集，单帧上限取对端的接收上限
+     * @param local 本端能力
+     * @param remote 对端能力
+     * @return 协商结果
+     */
+    public static ProtocolSession negotiate(HelloMessage local, HelloMessage remote) {
+        int version = Math.min(local.getVersion(), remote.getVersion());
+
+        BitSet remoteAlgorithms = new BitSet(256);
+        for (byte id : remote.getAlgorithmIds()) {
+            remoteAlgorithms.set(id & 0xFF);
+        }
+        byte[] shared = local.getAlgorithmIds().clone();
+        int count = 0;
+        for (byte id : local.getAlgorithmIds()) {
+            if (remoteAlgorithms.get(id & 0xFF)) {
+                shared[count++] = id;
+            }
+        }
+        byte[] algorithmIds = new byte[count];
+        System.arraycopy(shared, 0, algorithmIds, 0, count);
+
+        return new ProtocolSession(version, algorithmIds, remote.getMaxFrameSize(),
+                local.getFeatures() & remote.getFeatures());
+    }
+
+    /**
+     * 获取连接上的协商结果
+     * @return 协商结果，未握手时返回null
+     */
+    public static ProtocolSession get(Channel channel) {
+        return channel.attr(KEY).get();
+    }
+
+    /**
+     * 获取连接当前使用的协议版本，未握手时为v1
+     */
+    public static int versionOf(Channel channel) {
+        ProtocolSession session = get(channel);
+        return session != null ? session.version : V1;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public boolean supportsAlgorithm(byte algorithmId) {
+        return algorithms.get(algorithmId & 0xFF);
+    }
+
+    /**
+     * 对端可接收的单帧最大字节数
+     */
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    public int getFeatures() {
+        return features;
+    }
+
+    public boolean supportsFeature(int feature) {
+        return (features & feature) == feature;
+    }
+
+    @Override
+    public String toString() {
+        return "ProtocolSession[version=" + version + ", algorithms=" + algorithms
+                + ", maxFrameSize=" + maxFrameSize + ", features=0x" + Integer.toHexString(features) + "]";
+    }
+}
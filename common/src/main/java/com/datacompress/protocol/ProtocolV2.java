@@ -0,0 +1,576 @@
+package com.datacompress.protocol;
+
+import com.datacompress.dedup.ChunkFingerprint;
+import com.datacompress.integrity.IntegrityInfo;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.CorruptedFrameException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * v2协议帧格式与消息体编解码
+ * 帧格式: [2字节魔数][1字节版本][1字节消息类型][varint标志][varint消息体长度][消息体]
+ * 消息体中的整数字段均为无符号varint（LEB128），校验和、哈希与指纹保持定长
+ * 请求与响应的消息体都以varint请求ID开头，同一连接上的请求可以乱序应答
+ *
+ * 各消息体:
+ *   HELLO:     [varint版本][varint算法数][算法ID...][varint单帧上限][varint特性位]
+ *   HEARTBEAT: [varint时间戳]
+ *   TRANSFER:  [varint请求ID][算法ID][传输模式][varint原始大小][varint压缩后大小][4个varint时间戳][varint文件名长度][文件名]
+ *              [DICTIONARY时: varint参考文件名长度][参考文件名]
+ *              [CHECKSUMS时: varint块大小][varint块数][块数*4字节CRC32C][8字节文件哈希]
+ *              [CHUNKED时: 8字节传输ID][varint分片偏移]
+ *              [传输模式为STREAM时: 8字节流ID][varint分片序号]（STREAM_END标志表示流的最后一个分片）
+ *              [压缩数据（CHUNKED时为一个分片；ENCRYPTED标志表示压缩数据的密文，见PayloadCipher），直到帧尾]
+ *   RESPONSE:  [varint请求ID][4个varint时间戳][成功标志][varint消息长度][消息][完整性状态][RETURN_HASH时: 8字节文件哈希]
+ *              [ENCRYPTED时: 2个varint解密时间戳]（CHUNKED标志表示分片已接收、传输尚未完成）
+ *   CHUNK_QUERY:        [varint请求ID][varint分块数][分块数*32字节指纹]
+ *   CHUNK_QUERY_RESULT: [varint请求ID][varint分块数][varint位图长度][位图]
+ *   RESUME_QUERY:       [varint请求ID][8字节流ID]
+ *   RESUME_RESULT:      [varint请求ID][状态][varint下一个分片序号][varint已写入字节数]
+ *   FRAGMENT:           [varint分段帧ID][一个完整v2帧中的一段字节]（FRAGMENT_END标志表示最后一段）
+ *   RECEIVED:           [varint请求ID][varint接收开始时间戳][varint接收完成时间戳]
+ *
+ * 协商了FRAGMENT特性后，超过FRAGMENT_SIZE的帧切分为FRAGMENT段发送，不同分段帧的段以及其他帧可以交错到达；
+ * 接收端按分段帧ID拼接，最后一段到达后把拼接结果当作一个完整的v2帧解码。
+ * 协商了RECEIPT特性后，每个TRANSFER先得到一个RECEIVED确认，之后才是携带处理结果的RESPONSE。
+ */
+public final class ProtocolV2 {
+
+    public static final short MAGIC = (short) 0xDC5A;
+    /** 魔数首字节，与v1的消息类型（0x01-0x05）不重叠，解码器据此区分两种帧 */
+    public static final byte MAGIC_FIRST_BYTE = (byte) 0xDC;
+
+    /** 魔数 + 版本 + 类型 */
+    private static final int PREFIX_SIZE = 4;
+    private static final int MAX_VARINT_SIZE = 10;
+
+    /** 分段帧每段携带的最大字节数，超过该长度的帧才切分 */
+    public static final int FRAGMENT_SIZE = 64 * 1024;
+
+    /** 无压缩算法的ID，STORED标志与之对应 */
+    private static final byte STORED_ALGORITHM_ID = 0;
+
+    private static final int TRANSFER_FLAGS = TransferFlags.CHECKSUMS | TransferFlags.RETURN_HASH
+            | TransferFlags.STORED | TransferFlags.DICTIONARY | TransferFlags.CHUNKED | TransferFlags.STREAM_END
+            | TransferFlags.ENCRYPTED;
+    private static final int RESPONSE_FLAGS = TransferFlags.RETURN_HASH | TransferFlags.CHUNKED
+            | TransferFlags.ENCRYPTED;
+
+    private ProtocolV2() {
+    }
+
+    // ==================== 帧头 ====================
+
+    /**
+     * 通过绝对下标探测帧头长度，不移动读指针
+     * @param in 输入缓冲区，读指针位于魔数
+     * @return 帧头字节数；尚未到齐时返回-1
+     */
+    static int peekFrameHeaderLength(ByteBuf in) {
+        int start = in.readerIndex();
+        if (in.readableBytes() < PREFIX_SIZE) {
+            return -1;
+        }
+        if (in.getShort(start) != MAGIC) {
+            throw new CorruptedFrameException(String.format("非法的魔数: 0x%04x", in.getShort(start) & 0xFFFF));
+        }
+        byte version = in.getByte(start + 2);
+        if (version != ProtocolSession.V2) {
+            throw new CorruptedFrameException("不支持的协议版本: " + version);
+        }
+        int flagsSize = peekVarintSize(in, start + PREFIX_SIZE);
+        if (flagsSize < 0) {
+            return -1;
+        }
+        int lengthSize = peekVarintSize(in, start + PREFIX_SIZE + flagsSize);
+        if (lengthSize < 0) {
+            return -1;
+        }
+        return PREFIX_SIZE + flagsSize + lengthSize;
+    }
+
+    private static void writeFrameHeader(ByteBuf out, byte type, int flags, int bodyLength) {
+        out.writeShort(MAGIC);
+        out.writeByte(ProtocolSession.V2);
+        out.writeByte(type);
+        writeVarint(out, flags);
+        writeVarint(out, bodyLength);
+    }
+
+    /**
+     * 消息体较小的消息先写入临时缓冲区，再补上帧头
+     */
+    private static void writeFrame(ByteBuf out, byte type, int flags, ByteBuf body) {
+        try {
+            writeFrameHeader(out, type, flags, body.readableBytes());
+            out.writeBytes(body);
+        } finally {
+            body.release();
+        }
+    }
+
+    // ==================== varint ====================
+
+    static void writeVarint(ByteBuf out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarint(ByteBuf in) {
+        long value = 0;
+        for (int shift = 0; shift < 7 * MAX_VARINT_SIZE; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new CorruptedFrameException("varint超过" + MAX_VARINT_SIZE + "字节");
+    }
+
+    static int readVarintInt(ByteBuf in, String field) {
+        long value = readVarint(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new CorruptedFrameException("非法的" + field + ": " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * @return varint占用的字节数；尚未到齐时返回-1
+     */
+    private static int peekVarintSize(ByteBuf in, int index) {
+        int end = in.writerIndex();
+        for (int i = 0; i < MAX_VARINT_SIZE; i++) {
+            if (index + i >= end) {
+                return -1;
+            }
+            if (in.getByte(index + i) >= 0) {
+                return i + 1;
+            }
+        }
+        throw new CorruptedFrameException("varint超过" + MAX_VARINT_SIZE + "字节");
+    }
+
+    static void writeString(ByteBuf out, String value) {
+        byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        writeVarint(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    static String readString(ByteBuf in) {
+        int length = readVarintInt(in, "字符串长度");
+        String value = in.toString(in.readerIndex(), length, StandardCharsets.UTF_8);
+        in.skipBytes(length);
+        return value;
+    }
+
+    // ==================== 编码 ====================
+
+    /**
+     * 编码传输消息的帧头与消息体前缀，压缩数据由调用方紧接其后写出
+     * @param alloc 缓冲区分配器
+     * @param msg 传输消息
+     * @param dataLength 压缩数据长度
+     * @return 帧头与消息体前缀
+     */
+    static ByteBuf encodeTransferHeader(ByteBufAllocator alloc, TransferMessage msg, int dataLength) {
+        IntegrityInfo integrity = msg.getIntegrity();
+        boolean hasReference = msg.getReferenceName() != null && !msg.getReferenceName().isEmpty();
+
+        int flags = 0;
+        if (integrity != null) {
+            flags |= TransferFlags.CHECKSUMS;
+        }
+        if (msg.isHashRequested()) {
+            flags |= TransferFlags.RETURN_HASH;
+        }
+        if (msg.getAlgorithmId() == STORED_ALGORITHM_ID) {
+            flags |= TransferFlags.STORED;
+        }
+        if (hasReference) {
+            flags |= TransferFlags.DICTIONARY;
+        }
+        if (msg.isChunk()) {
+            flags |= TransferFlags.CHUNKED;
+        }
+        if (msg.isStreamEnd()) {
+            flags |= TransferFlags.STREAM_END;
+        }
+        if (msg.isEncrypted()) {
+            flags |= TransferFlags.ENCRYPTED;
+        }
+
+        ByteBuf prefix = alloc.buffer();
+        ByteBuf header = null;
+        try {
+            writeVarint(prefix, msg.getRequestId());
+            prefix.writeByte(msg.getAlgorithmId());
+            prefix.writeByte(msg.getTransferMode());
+            writeVarint(prefix, msg.getOriginalSize());
+            writeVarint(prefix, msg.getCompressedSize());
+            writeVarint(prefix, msg.getCompressStartTime());
+            writeVarint(prefix, msg.getCompressEndTime());
+            writeVarint(prefix, msg.getSendStartTime());
+            writeVarint(prefix, msg.getSendEndTime());
+            writeString(prefix, msg.getFileName());
+            if (hasReference) {
+                writeString(prefix, msg.getReferenceName());
+            }
+            if (integrity != null) {
+                writeVarint(prefix, integrity.getBlockSize());
+                writeVarint(prefix, integrity.getBlockCount());
+                for (int checksum : integrity.getBlockChecksums()) {
+                    prefix.writeInt(checksum);
+                }
+                prefix.writeLong(integrity.getFileHash());
+            }
+            if (msg.isChunk()) {
+                prefix.writeLong(msg.getTransferId());
+                writeVarint(prefix, msg.getChunkOffset());
+            }
+            if (msg.getTransferMode() == TransferMode.STREAM) {
+                prefix.writeLong(msg.getStreamId());
+                writeVarint(prefix, msg.getStreamSequence());
+            }
+
+            long bodyLength = (long) prefix.readableBytes() + dataLength;
+            if (bodyLength > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("传输消息过大: " + bodyLength);
+            }
+            header = alloc.buffer(PREFIX_SIZE + 2 * 5 + prefix.readableBytes());
+            writeFrameHeader(header, MessageType.TRANSFER, flags, (int) bodyLength);
+            header.writeBytes(prefix);
+            return header;
+        } catch (RuntimeException e) {
+            if (header != null) {
+                header.release();
+            }
+            throw e;
+        } finally {
+            prefix.release();
+        }
+    }
+
+    static void encodeHello(HelloMessage msg, ByteBuf out) {
+        ByteBuf body = out.alloc().buffer();
+        writeVarint(body, msg.getVersion());
+        byte[] algorithmIds = msg.getAlgorithmIds();
+        writeVarint(body, algorithmIds.length);
+        body.writeBytes(algorithmIds);
+        writeVarint(body, msg.getMaxFrameSize());
+        writeVarint(body, msg.getFeatures() & 0xFFFFFFFFL);
+        writeFrame(out, MessageType.HELLO, 0, body);
+    }
+
+    static void encodeHeartbeat(HeartbeatMessage msg, ByteBuf out) {
+        ByteBuf body = out.alloc().buffer(MAX_VARINT_SIZE);
+        writeVarint(body, msg.getTimestamp());
+        writeFrame(out, MessageType.HEARTBEAT, 0, body);
+    }
+
+    static void encodeResponse(ResponseMessage msg, ByteBuf out) {
+        ByteBuf body = out.alloc().buffer();
+        writeVarint(body, msg.getRequestId());
+        writeVarint(body, msg.getReceiveStartTime());
+        writeVarint(body, msg.getReceiveEndTime());
+        writeVarint(body, msg.getDecompressStartTime());
+        writeVarint(body, msg.getDecompressEndTime());
+        body.writeBoolean(msg.isSuccess());
+        writeString(body, msg.getMessage());
+        body.writeByte(msg.getIntegrityStatus());
+        if (msg.isFileHashPresent()) {
+            body.writeLong(msg.getFileHash());
+        }
+        if (msg.isDecrypted()) {
+            writeVarint(body, msg.getDecryptStartTime());
+            writeVarint(body, msg.getDecryptEndTime());
+        }
+        int flags = 0;
+        if (msg.isFileHashPresent()) {
+            flags |= TransferFlags.RETURN_HASH;
+        }
+        if (msg.isPartial()) {
+            flags |= TransferFlags.CHUNKED;
+        }
+        if (msg.isDecrypted()) {
+            flags |= TransferFlags.ENCRYPTED;
+        }
+        writeFrame(out, MessageType.RESPONSE, flags, body);
+    }
+
+    static void encodeChunkQuery(ChunkQueryMessage msg, ByteBuf out) {
+        List<byte[]> fingerprints = msg.getFingerprints();
+        ByteBuf body = out.alloc().buffer(2 * MAX_VARINT_SIZE + fingerprints.size() * ChunkFingerprint.LENGTH);
+        writeVarint(body, msg.getRequestId());
+        writeVarint(body, fingerprints.size());
+        for (byte[] fingerprint : fingerprints) {
+            body.writeBytes(fingerprint);
+        }
+        writeFrame(out, MessageType.CHUNK_QUERY, 0, body);
+    }
+
+    static void encodeChunkQueryResult(ChunkQueryResponse msg, ByteBuf out) {
+        byte[] bitmap = msg.getMissing().toByteArray();
+        ByteBuf body = out.alloc().buffer(3 * MAX_VARINT_SIZE + bitmap.length);
+        writeVarint(body, msg.getRequestId());
+        writeVarint(body, msg.getChunkCount());
+        writeVarint(body, bitmap.length);
+        body.writeBytes(bitmap);
+        writeFrame(out, MessageType.CHUNK_QUERY_RESULT, 0, body);
+    }
+
+    static void encodeResumeQuery(ResumeQueryMessage msg, ByteBuf out) {
+        ByteBuf body = out.alloc().buffer(MAX_VARINT_SIZE + 8);
+        writeVarint(body, msg.getRequestId());
+        body.writeLong(msg.getStreamId());
+        writeFrame(out, MessageType.RESUME_QUERY, 0, body);
+    }
+
+    static void encodeResumeResult(ResumeQueryResponse msg, ByteBuf out) {
+        ByteBuf body = out.alloc().buffer(3 * MAX_VARINT_SIZE + 1);
+        writeVarint(body, msg.getRequestId());
+        body.writeByte(msg.getState());
+        writeVarint(body, msg.getNextSequence());
+        writeVarint(body, msg.getWrittenBytes());
+        writeFrame(out, MessageType.RESUME_RESULT, 0, body);
+    }
+
+    static void encodeReceipt(ReceiptMessage msg, ByteBuf out) {
+        ByteBuf body = out.alloc().buffer(3 * MAX_VARINT_SIZE);
+        writeVarint(body, msg.getRequestId());
+        writeVarint(body, msg.getReceiveStartTime());
+        writeVarint(body, msg.getReceiveEndTime());
+        writeFrame(out, MessageType.RECEIVED, 0, body);
+    }
+
+    /**
+     * 编码分段帧一段的帧头与消息体前缀，该段的字节由调用方紧接其后写出
+     * @param alloc 缓冲区分配器
+     * @param fragmentId 分段帧ID，同一连接上未完成的分段帧互不相同
+     * @param length 该段的字节数
+     * @param last 是否为最后一段
+     */
+    static ByteBuf encodeFragmentHeader(ByteBufAllocator alloc, long fragmentId, int length, boolean last) {
+        ByteBuf header = alloc.buffer(PREFIX_SIZE + 3 * MAX_VARINT_SIZE);
+        int idLength = varintSize(fragmentId);
+        writeFrameHeader(header, MessageType.FRAGMENT, last ? TransferFlags.FRAGMENT_END : 0, idLength + length);
+        writeVarint(header, fragmentId);
+        return header;
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    // ==================== 解码 ====================
+
+    /**
+     * 解码分段帧拼接得到的完整v2帧
+     * @param frame 拼接结果，读指针位于魔数，调用方仍需释放
+     * @return 解码得到的消息
+     */
+    static Object decodeFrame(ByteBuf frame) {
+        int headerLength = peekFrameHeaderLength(frame);
+        if (headerLength < 0) {
+            throw new CorruptedFrameException("分段帧拼接后的帧头不完整");
+        }
+        frame.skipBytes(3);
+        byte type = frame.readByte();
+        int flags = (int) readVarint(frame);
+        long length = readVarint(frame);
+        if (type == MessageType.FRAGMENT || length != frame.readableBytes()) {
+            throw new CorruptedFrameException("非法的分段帧内容: type=" + type + ", bodyLength=" + length
+                    + ", actual=" + frame.readableBytes());
+        }
+        return decodeBody(type, flags, frame);
+    }
+
+    /**
+     * 解码完整的消息体
+     * 传输消息的压缩数据以引用计数切片交付，调用方仍需释放body本身
+     * @param type 消息类型
+     * @param flags 帧标志
+     * @param body 完整的消息体
+     * @return 解码得到的消息
+     */
+    static Object decodeBody(byte type, int flags, ByteBuf body) {
+        switch (type) {
+            case MessageType.HELLO:
+                checkFlags(type, flags, 0);
+                return decodeHello(body);
+            case MessageType.HEARTBEAT:
+                checkFlags(type, flags, 0);
+                return new HeartbeatMessage(readVarint(body));
+            case MessageType.TRANSFER:
+                checkFlags(type, flags, TRANSFER_FLAGS);
+                return decodeTransfer(flags, body);
+            case MessageType.RESPONSE:
+                checkFlags(type, flags, RESPONSE_FLAGS);
+                return decodeResponse(flags, body);
+            case MessageType.CHUNK_QUERY:
+                checkFlags(type, flags, 0);
+                return decodeChunkQuery(body);
+            case MessageType.CHUNK_QUERY_RESULT:
+                checkFlags(type, flags, 0);
+                long requestId = readVarint(body);
+                int chunkCount = readVarintInt(body, "分块数");
+                byte[] bitmap = new byte[readVarintInt(body, "位图长度")];
+                body.readBytes(bitmap);
+                ChunkQueryResponse result = new ChunkQueryResponse(chunkCount, BitSet.valueOf(bitmap));
+                result.setRequestId(requestId);
+                return result;
+            case MessageType.RESUME_QUERY:
+                checkFlags(type, flags, 0);
+                ResumeQueryMessage resumeQuery = new ResumeQueryMessage();
+                resumeQuery.setRequestId(readVarint(body));
+                resumeQuery.setStreamId(body.readLong());
+                return resumeQuery;
+            case MessageType.RESUME_RESULT:
+                checkFlags(type, flags, 0);
+                ResumeQueryResponse resumeResult = new ResumeQueryResponse();
+                resumeResult.setRequestId(readVarint(body));
+                resumeResult.setState(body.readByte());
+                resumeResult.setNextSequence(readVarint(body));
+                resumeResult.setWrittenBytes(readVarint(body));
+                return resumeResult;
+            case MessageType.RECEIVED:
+                checkFlags(type, flags, 0);
+                ReceiptMessage receipt = new ReceiptMessage();
+                receipt.setRequestId(readVarint(body));
+                receipt.setReceiveStartTime(readVarint(body));
+                receipt.setReceiveEndTime(readVarint(body));
+                return receipt;
+            default:
+                throw new CorruptedFrameException("未知的消息类型: " + type);
+        }
+    }
+
+    private static void checkFlags(byte type, int flags, int allowed) {
+        if ((flags & ~allowed) != 0) {
+            throw new CorruptedFrameException(String.format("消息类型 %d 不支持的标志: 0x%x", type, flags & ~allowed));
+        }
+    }
+
+    private static HelloMessage decodeHello(ByteBuf body) {
+        int version = readVarintInt(body, "协议版本");
+        byte[] algorithmIds = new byte[readVarintInt(body, "算法数")];
+        body.readBytes(algorithmIds);
+        int maxFrameSize = readVarintInt(body, "单帧上限");
+        int features = (int) readVarint(body);
+        return new HelloMessage(version, algorithmIds, maxFrameSize, features);
+    }
+
+    private static TransferMessage decodeTransfer(int flags, ByteBuf body) {
+        TransferMessage message = new TransferMessage();
+        message.setRequestId(readVarint(body));
+        message.setAlgorithmId(body.readByte());
+        message.setTransferMode(body.readByte());
+        message.setOriginalSize(readVarint(body));
+        message.setCompressedSize(readVarint(body));
+        message.setCompressStartTime(readVarint(body));
+        message.setCompressEndTime(readVarint(body));
+        message.setSendStartTime(readVarint(body));
+        message.setSendEndTime(readVarint(body));
+        message.setFileName(readString(body));
+        message.setReferenceName((flags & TransferFlags.DICTIONARY) != 0 ? readString(body) : "");
+
+        if ((flags & TransferFlags.STORED) != 0 && message.getAlgorithmId() != STORED_ALGORITHM_ID) {
+            throw new CorruptedFrameException("STORED标志与算法ID " + message.getAlgorithmId() + " 不一致");
+        }
+
+        if ((flags & TransferFlags.CHECKSUMS) != 0) {
+            int blockSize = readVarintInt(body, "块大小");
+            int blockCount = readVarintInt(body, "块数");
+            if (blockSize == 0 || body.readableBytes() < (long) blockCount * 4 + 8) {
+                throw new CorruptedFrameException("非法的块校验信息: blockSize=" + blockSize + ", blockCount=" + blockCount);
+            }
+            int[] checksums = new int[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                checksums[i] = body.readInt();
+            }
+            message.setIntegrity(new IntegrityInfo(blockSize, checksums, body.readLong()));
+        }
+        message.setHashRequested((flags & TransferFlags.RETURN_HASH) != 0);
+
+        if ((flags & TransferFlags.CHUNKED) != 0) {
+            long transferId = body.readLong();
+            long chunkOffset = readVarint(body);
+            if (transferId == 0 || chunkOffset < 0 || chunkOffset + body.readableBytes() > message.getCompressedSize()) {
+                throw new CorruptedFrameException("非法的分片: transferId=" + transferId + ", offset=" + chunkOffset
+                        + ", length=" + body.readableBytes() + ", total=" + message.getCompressedSize());
+            }
+            message.setTransferId(transferId);
+            message.setChunkOffset(chunkOffset);
+        }
+
+        if (message.getTransferMode() == TransferMode.STREAM) {
+            message.setStreamId(body.readLong());
+            message.setStreamSequence(readVarint(body));
+            message.setStreamEnd((flags & TransferFlags.STREAM_END) != 0);
+        } else if ((flags & TransferFlags.STREAM_END) != 0) {
+            throw new CorruptedFrameException("STREAM_END标志只能用于流式传输");
+        }
+        message.setEncrypted((flags & TransferFlags.ENCRYPTED) != 0);
+
+        message.setPayload(body.readRetainedSlice(body.readableBytes()));
+        return message;
+    }
+
+    private static ResponseMessage decodeResponse(int flags, ByteBuf body) {
+        long requestId = readVarint(body);
+        long receiveStartTime = readVarint(body);
+        long receiveEndTime = readVarint(body);
+        long decompressStartTime = readVarint(body);
+        long decompressEndTime = readVarint(body);
+        boolean success = body.readBoolean();
+        String message = readString(body);
+
+        ResponseMessage response = new ResponseMessage(
+            receiveStartTime, receiveEndTime,
+            decompressStartTime, decompressEndTime,
+            success, message
+        );
+        response.setRequestId(requestId);
+        response.setIntegrityStatus(body.readByte());
+        if ((flags & TransferFlags.RETURN_HASH) != 0) {
+            response.setFileHash(body.readLong());
+        }
+        if ((flags & TransferFlags.ENCRYPTED) != 0) {
+            response.setDecryptStartTime(readVarint(body));
+            response.setDecryptEndTime(readVarint(body));
+        }
+        response.setPartial((flags & TransferFlags.CHUNKED) != 0);
+        return response;
+    }
+
+    private static ChunkQueryMessage decodeChunkQuery(ByteBuf body) {
+        long requestId = readVarint(body);
+        int count = readVarintInt(body, "分块数");
+        if (body.readableBytes() < (long) count * ChunkFingerprint.LENGTH) {
+            throw new CorruptedFrameException("分块查询长度不足: " + count);
+        }
+        List<byte[]> fingerprints = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] fingerprint = new byte[ChunkFingerprint.LENGTH];
+            body.readBytes(fingerprint);
+            fingerprints.add(fingerprint);
+        }
+        ChunkQueryMessage query = new ChunkQueryMessage(fingerprints);
+        query.setRequestId(requestId);
+        return query;
+    }
+}
@@ -0,0 +1,52 @@
+package com.datacompress.protocol;
+
+import java.io.Serializable;
+
+/**
+ * 接收确认
+ * 协商了RECEIPT特性后，服务端在传输帧完整到达时立即回复，不等待解密、解压与写盘；
+ * 处理结果随后仍以ResponseMessage返回。客户端据此区分网络往返与服务端处理耗时。
+ */
+public class ReceiptMessage implements Serializable, CorrelatedMessage {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private long requestId;              // 对应请求的ID
+    private long receiveStartTime;       // 接收开始时间戳（服务端）
+    private long receiveEndTime;         // 接收完成时间戳（服务端）
+    
+    public ReceiptMessage() {
+    }
+    
+    public ReceiptMessage(long requestId, long receiveStartTime, long receiveEndTime) {
+        this.requestId = requestId;
+        this.receiveStartTime = receiveStartTime;
+        this.receiveEndTime = receiveEndTime;
+    }
+    
+    @Override
+    public long getRequestId() {
+        return requestId;
+    }
+    
+    @Override
+    public void setRequestId(long requestId) {
+        this.requestId = requestId;
+    }
+    
+    public long getReceiveStartTime() {
+        return receiveStartTime;
+    }
+    
+    public void setReceiveStartTime(long receiveStartTime) {
+        this.receiveStartTime = receiveStartTime;
+    }
+    
+    public long getReceiveEndTime() {
+        return receiveEndTime;
+    }
+    
+    public void setReceiveEndTime(long receiveEndTime) {
+        this.receiveEndTime = receiveEndTime;
+    }
+}
@@ -0,0 +1,17 @@
+package com.datacompress.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+/**
+ * 接收确认编码器
+ * 接收确认只存在于v2，总是以v2帧发送
+ */
+public class ReceiptMessageEncoder extends MessageToByteEncoder<ReceiptMessage> {
+    
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ReceiptMessage msg, ByteBuf out) throws Exception {
+        ProtocolV2.encodeReceipt(msg, out);
+    }
+}
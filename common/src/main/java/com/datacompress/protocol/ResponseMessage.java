@@ -6,16 +6,23 @@ import java.io.Serializable;
  * 服务端返回给客户端的响应消息
  * 包含服务端的处理时间戳和状态信息
  */
-public class ResponseMessage implements Serializable {
+public class ResponseMessage implements Serializable, CorrelatedMessage {
     
     private static final long serialVersionUID = 1L;
     
+    private long requestId;              // 对应请求的ID（v1为0）
     private long receiveStartTime;       // 接收开始时间戳
     private long receiveEndTime;         // 接收完成时间戳
     private long decompressStartTime;    // 解压开始时间戳
     private long decompressEndTime;      // 解压完成时间戳
     private boolean success;             // 处理是否成功
     private String message;              // 消息（成功或错误信息）
+    private byte integrityStatus = IntegrityStatus.NOT_CHECKED; // 完整性校验结果
+    private boolean fileHashPresent;     // 是否携带服务端计算的文件哈希
+    private long fileHash;               // 服务端计算的文件xxHash64
+    private boolean partial;             // 条带传输的分片已接收，整个传输尚未完成（仅v2）
+    private long decryptStartTime;       // 解密开始时间戳（仅加密传输，v2）
+    private long decryptEndTime;         // 解密完成时间戳（仅加密传输，v2）
     
     public ResponseMessage() {
     }
@@ -33,6 +40,16 @@ public class ResponseMessage implements Serializable {
     
     // Getters and Setters
     
+    @Override
+    public long getRequestId() {
+        return requestId;
+    }
+    
+    @Override
+    public void setRequestId(long requestId) {
+        this.requestId = requestId;
+    }
+    
     public long getReceiveStartTime() {
         return receiveStartTime;
     }
@@ -80,4 +97,56 @@ public class ResponseMessage implements Serializable {
     public void setMessage(String message) {
         this.message = message;
     }
+    
+    public byte getIntegrityStatus() {
+        return integrityStatus;
+    }
+    
+    public void setIntegrityStatus(byte integrityStatus) {
+        this.integrityStatus = integrityStatus;
+    }
+    
+    public boolean isFileHashPresent() {
+        return fileHashPresent;
+    }
+    
+    public long getFileHash() {
+        return fileHash;
+    }
+    
+    public void setFileHash(long fileHash) {
+        this.fileHash = fileHash;
+        this.fileHashPresent = true;
+    }
+    
+    public long getDecryptStartTime() {
+        return decryptStartTime;
+    }
+    
+    public void setDecryptStartTime(long decryptStartTime) {
+        this.decryptStartTime = decryptStartTime;
+    }
+    
+    public long getDecryptEndTime() {
+        return decryptEndTime;
+    }
+    
+    public void setDecryptEndTime(long decryptEndTime) {
+        this.decryptEndTime = decryptEndTime;
+    }
+    
+    /**
+     * 是否携带解密计时
+     */
+    public boolean isDecrypted() {
+        return decryptEndTime != 0;
+    }
+    
+    public boolean isPartial() {
+        return partial;
+    }
+    
+    public void setPartial(boolean partial) {
+        this.partial = partial;
+    }
 }
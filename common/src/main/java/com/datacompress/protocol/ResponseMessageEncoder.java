@@ -6,12 +6,18 @@ import io.netty.handler.codec.MessageToByteEncoder;
 
 /**
  * ResponseMessage编码器
- * 将ResponseMessage对象编码为字节流发送
+ * 将ResponseMessage对象编码为字节流发送，握手协商为v2后使用v2帧
+ * v1帧保持基线格式，完整性校验结果与文件哈希只在v2帧中携带
  */
 public class ResponseMessageEncoder extends MessageToByteEncoder<ResponseMessage> {
     
     @Override
     protected void encode(ChannelHandlerContext ctx, ResponseMessage msg, ByteBuf out) throws Exception {
+        if (ProtocolSession.versionOf(ctx.channel()) >= ProtocolSession.V2) {
+            ProtocolV2.encodeResponse(msg, out);
+            return;
+        }
+        
         // 写入消息类型
         out.writeByte(MessageType.RESPONSE);
         
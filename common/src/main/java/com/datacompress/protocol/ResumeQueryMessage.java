@@ -0,0 +1,40 @@
+package com.datacompress.protocol;
+
+import java.io.Serializable;
+
+/**
+ * 续传进度查询消息
+ * 流式传输的连接断开后，客户端在新连接上询问服务端该流已确认到哪个分片
+ */
+public class ResumeQueryMessage implements Serializable, CorrelatedMessage {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private long requestId;              // 请求ID
+    private long streamId;               // 流ID
+    
+    public ResumeQueryMessage() {
+    }
+    
+    public ResumeQueryMessage(long streamId) {
+        this.streamId = streamId;
+    }
+    
+    @Override
+    public long getRequestId() {
+        return requestId;
+    }
+    
+    @Override
+    public void setRequestId(long requestId) {
+        this.requestId = requestId;
+    }
+    
+    public long getStreamId() {
+        return streamId;
+    }
+    
+    public void setStreamId(long streamId) {
+        this.streamId = streamId;
+    }
+}
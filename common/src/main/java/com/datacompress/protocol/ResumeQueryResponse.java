@@ -0,0 +1,69 @@
+package com.datacompress.protocol;
+
+import java.io.Serializable;
+
+/**
+ * 续传进度查询结果
+ * 服务端返回流的状态与已确认的进度，客户端从下一个分片序号继续发送
+ */
+public class ResumeQueryResponse implements Serializable, CorrelatedMessage {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /** 服务端没有该流的记录，只能从头发送 */
+    public static final byte UNKNOWN = 0;
+    /** 可从下一个分片序号续传 */
+    public static final byte RESUMABLE = 1;
+    /** 该流仍被断开前的连接占用，稍后重试 */
+    public static final byte BUSY = 2;
+    /** 该流已全部写入完成 */
+    public static final byte FINISHED = 3;
+    
+    private long requestId;              // 对应请求的ID
+    private byte state;                  // 流的状态
+    private long nextSequence;           // 下一个期望的分片序号，即已确认的分片数
+    private long writtenBytes;           // 已确认分片解压后的总字节数
+    
+    public ResumeQueryResponse() {
+    }
+    
+    public ResumeQueryResponse(byte state, long nextSequence, long writtenBytes) {
+        this.state = state;
+        this.nextSequence = nextSequence;
+        this.writtenBytes = writtenBytes;
+    }
+    
+    @Override
+    public long getRequestId() {
+        return requestId;
+    }
+    
+    @Override
+    public void setRequestId(long requestId) {
+        this.requestId = requestId;
+    }
+    
+    public byte getState() {
+        return state;
+    }
+    
+    public void setState(byte state) {
+        this.state = state;
+    }
+    
+    public long getNextSequence() {
+        return nextSequence;
+    }
+    
+    public void setNextSequence(long nextSequence) {
+        this.nextSequence = nextSequence;
+    }
+    
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+    
+    public void setWrittenBytes(long writtenBytes) {
+        this.writtenBytes = writtenBytes;
+    }
+}
@@ -0,0 +1,17 @@
+package com.datacompress.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+/**
+ * 续传进度查询结果编码器
+ * 续传只存在于v2，总是以v2帧发送
+ */
+public class ResumeQueryResponseEncoder extends MessageToByteEncoder<ResumeQueryResponse> {
+    
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ResumeQueryResponse msg, ByteBuf out) throws Exception {
+        ProtocolV2.encodeResumeResult(msg, out);
+    }
+}
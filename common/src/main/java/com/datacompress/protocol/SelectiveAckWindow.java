@@ -0,0 +1,75 @@
+package com.datacompress.protocol;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+/**
+ * 遥测数据报的接收窗口
+ * 记录一个会话已收到的序号：小于累计确认的序号全部已收到，之后已收到的序号单独记录，
+ * 用于识别重复数据报并生成选择性确认区间。间隙中记录的序号超过上限时放弃等待最早的间隙，
+ * 累计确认越过它（数据报不重传，间隙中的数据报视为丢失）。
+ */
+public final class SelectiveAckWindow {
+
+    /** 确认中最多携带的区间数 */
+    public static final int MAX_SACK_RANGES = 16;
+    /** 累计确认之后最多记录的序号数 */
+    static final int MAX_PENDING = 1024;
+
+    private long cumulative;
+    private final TreeSet<Long> received = new TreeSet<>();
+
+    /**
+     * 记录收到的序号
+     * @return 首次收到时返回true，重复时返回false
+     */
+    public synchronized boolean record(long sequence) {
+        if (sequence < cumulative || !received.add(sequence)) {
+            return false;
+        }
+        if (received.size() > MAX_PENDING) {
+            cumulative = received.first();
+        }
+        while (!received.isEmpty() && received.first() == cumulative) {
+            received.pollFirst();
+            cumulative++;
+        }
+        return true;
+    }
+
+    /**
+     * 把当前状态写入确认：累计确认与最近的若干区间
+     */
+    public synchronized void fill(TelemetryAck ack) {
+        ack.setCumulativeAck(cumulative);
+        // 从最大的序号往前合并区间，只保留最近的MAX_SACK_RANGES个
+        Deque<long[]> ranges = new ArrayDeque<>();
+        Iterator<Long> descending = received.descendingIterator();
+        while (descending.hasNext() && ranges.size() <= MAX_SACK_RANGES) {
+            long sequence = descending.next();
+            long[] last = ranges.peekFirst();
+            if (last != null && last[0] == sequence + 1) {
+                last[0] = sequence;
+            } else {
+                ranges.addFirst(new long[]{sequence, sequence + 1});
+            }
+        }
+        if (ranges.size() > MAX_SACK_RANGES) {
+            // 最后加入的区间可能不完整
+            ranges.pollFirst();
+        }
+        long[] flat = new long[ranges.size() * 2];
+        int i = 0;
+        for (long[] range : ranges) {
+            flat[i++] = range[0];
+            flat[i++] = range[1];
+        }
+        ack.setSackRanges(flat);
+    }
+
+    public synchronized long getCumulative() {
+        return cumulative;
+    }
+}
@@ -0,0 +1,126 @@
+package com.datacompress.protocol;
+
+/**
+ * 遥测数据报的确认
+ * 除被确认数据报的处理结果与时间戳外，还携带服务端接收窗口的快照：
+ * 累计确认（小于该序号的数据报均已收到）以及其后已收到的若干序号区间（选择性确认），
+ * 客户端据此得知先前确认丢失的数据报已经送达，或判定间隙中的数据报已经丢失。
+ */
+public class TelemetryAck {
+
+    private int sessionId;               // 客户端会话ID
+    private long sequence;               // 被确认数据报的序号
+    private long sendTime;               // 数据报中的发送时间戳，原样带回
+    private long receiveTime;            // 服务端收到数据报的时间戳
+    private long decompressStartTime;    // 解压开始时间戳
+    private long decompressEndTime;      // 解压完成时间戳
+    private boolean success;             // 处理是否成功
+    private String message;              // 消息（成功或错误信息）
+    private long cumulativeAck;          // 小于该序号的数据报均已收到
+    private long[] sackRanges = new long[0]; // 累计确认之后已收到的区间，依次为[起始, 结束)，按序号升序
+
+    public TelemetryAck() {
+    }
+
+    /**
+     * 序号为sequence的数据报是否已被服务端收到
+     */
+    public boolean isReceived(long sequence) {
+        if (sequence < cumulativeAck) {
+            return true;
+        }
+        for (int i = 0; i < sackRanges.length; i += 2) {
+            if (sequence >= sackRanges[i] && sequence < sackRanges[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 服务端已收到的最大序号加1
+     */
+    public long getHighestReceived() {
+        return sackRanges.length == 0 ? cumulativeAck : sackRanges[sackRanges.length - 1];
+    }
+
+    public int getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(int sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public long getSendTime() {
+        return sendTime;
+    }
+
+    public void setSendTime(long sendTime) {
+        this.sendTime = sendTime;
+    }
+
+    public long getReceiveTime() {
+        return receiveTime;
+    }
+
+    public void setReceiveTime(long receiveTime) {
+        this.receiveTime = receiveTime;
+    }
+
+    public long getDecompressStartTime() {
+        return decompressStartTime;
+    }
+
+    public void setDecompressStartTime(long decompressStartTime) {
+        this.decompressStartTime = decompressStartTime;
+    }
+
+    public long getDecompressEndTime() {
+        return decompressEndTime;
+    }
+
+    public void setDecompressEndTime(long decompressEndTime) {
+        this.decompressEndTime = decompressEndTime;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public long getCumulativeAck() {
+        return cumulativeAck;
+    }
+
+    public void setCumulativeAck(long cumulativeAck) {
+        this.cumulativeAck = cumulativeAck;
+    }
+
+    public long[] getSackRanges() {
+        return sackRanges;
+    }
+
+    public void setSackRanges(long[] sackRanges) {
+        this.sackRanges = sackRanges;
+    }
+}
@@ -0,0 +1,184 @@
+package com.datacompress.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.CorruptedFrameException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 遥测数据报编解码
+ * 一个UDP数据报恰好是一条消息，没有帧长度字段；整数字段与v2帧一样使用无符号varint。
+ * 数据报格式: [2字节魔数][1字节版本][1字节类型][varint标志][4字节会话ID][varint序号][消息体]
+ *   DATA: [varint发送时间戳][算法ID][DICTIONARY时: 4字节字典ID][varint原始大小][varint名称长度][名称]
+ *         [压缩数据，直到数据报末尾]（ACK_REQUESTED标志要求服务端确认）
+ *   ACK:  [4个varint时间戳][varint消息长度][消息][varint累计确认][varint区间数]
+ *         [每个区间: varint与前一区间结束（首个区间为累计确认）的间距][varint区间长度]（SUCCESS标志表示处理成功）
+ */
+public final class TelemetryCodec {
+
+    public static final short MAGIC = (short) 0xDC5D;
+    public static final byte VERSION = 1;
+
+    /** 数据报的最大长度（IPv4下UDP负载的上限） */
+    public static final int MAX_DATAGRAM_SIZE = 65507;
+
+    private static final int MAX_VARINT_SIZE = 10;
+
+    static final byte TYPE_DATA = 1;
+    static final byte TYPE_ACK = 2;
+
+    static final int ACK_REQUESTED = 0x01;
+    static final int DICTIONARY = 0x02;
+    static final int SUCCESS = 0x01;
+
+    private TelemetryCodec() {
+    }
+
+    /**
+     * 编码遥测数据报
+     */
+    public static ByteBuf encode(ByteBufAllocator alloc, TelemetryDatagram datagram) {
+        byte[] payload = datagram.getPayload();
+        ByteBuf out = alloc.buffer(64 + payload.length);
+        int flags = (datagram.isAckRequested() ? ACK_REQUESTED : 0) | (datagram.isDictionary() ? DICTIONARY : 0);
+        writeHeader(out, TYPE_DATA, flags, datagram.getSessionId(), datagram.getSequence());
+        ProtocolV2.writeVarint(out, datagram.getSendTime());
+        out.writeByte(datagram.getAlgorithmId());
+        if (datagram.isDictionary()) {
+            out.writeInt(datagram.getDictionaryId());
+        }
+        ProtocolV2.writeVarint(out, datagram.getOriginalSize());
+        ProtocolV2.writeString(out, datagram.getName());
+        out.writeBytes(payload);
+        return out;
+    }
+
+    /**
+     * 数据报编码后的长度上界，序号按varint的最大长度计算，可在分配序号之前检查数据报是否超过上限
+     */
+    public static int maxEncodedSize(TelemetryDatagram datagram) {
+        int nameLength = datagram.getName() != null ? datagram.getName().getBytes(StandardCharsets.UTF_8).length : 0;
+        return 2 + 1 + 1 + 1 + 4 + MAX_VARINT_SIZE
+                + varintSize(datagram.getSendTime()) + 1 + (datagram.isDictionary() ? 4 : 0)
+                + varintSize(datagram.getOriginalSize()) + varintSize(nameLength) + nameLength
+                + datagram.getPayload().length;
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * 编码确认
+     */
+    public static ByteBuf encode(ByteBufAllocator alloc, TelemetryAck ack) {
+        ByteBuf out = alloc.buffer(128);
+        writeHeader(out, TYPE_ACK, ack.isSuccess() ? SUCCESS : 0, ack.getSessionId(), ack.getSequence());
+        ProtocolV2.writeVarint(out, ack.getSendTime());
+        ProtocolV2.writeVarint(out, ack.getReceiveTime());
+        ProtocolV2.writeVarint(out, ack.getDecompressStartTime());
+        ProtocolV2.writeVarint(out, ack.getDecompressEndTime());
+        ProtocolV2.writeString(out, ack.getMessage());
+        ProtocolV2.writeVarint(out, ack.getCumulativeAck());
+        long[] ranges = ack.getSackRanges();
+        ProtocolV2.writeVarint(out, ranges.length / 2);
+        long previousEnd = ack.getCumulativeAck();
+        for (int i = 0; i < ranges.length; i += 2) {
+            ProtocolV2.writeVarint(out, ranges[i] - previousEnd);
+            ProtocolV2.writeVarint(out, ranges[i + 1] - ranges[i]);
+            previousEnd = ranges[i + 1];
+        }
+        return out;
+    }
+
+    private static void writeHeader(ByteBuf out, byte type, int flags, int sessionId, long sequence) {
+        out.writeShort(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(type);
+        ProtocolV2.writeVarint(out, flags);
+        out.writeInt(sessionId);
+        ProtocolV2.writeVarint(out, sequence);
+    }
+
+    /**
+     * 解码一个数据报
+     * @param in 数据报内容，不释放
+     * @return TelemetryDatagram或TelemetryAck
+     * @throws CorruptedFrameException 魔数、版本或类型不符，或数据报不完整
+     */
+    public static Object decode(ByteBuf in) {
+        try {
+            if (in.readShort() != MAGIC) {
+                throw new CorruptedFrameException("不是遥测数据报");
+            }
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new CorruptedFrameException("不支持的遥测数据报版本: " + version);
+            }
+            byte type = in.readByte();
+            int flags = ProtocolV2.readVarintInt(in, "标志");
+            int sessionId = in.readInt();
+            long sequence = ProtocolV2.readVarint(in);
+            switch (type) {
+                case TYPE_DATA:
+                    return decodeData(in, flags, sessionId, sequence);
+                case TYPE_ACK:
+                    return decodeAck(in, flags, sessionId, sequence);
+                default:
+                    throw new CorruptedFrameException("未知的遥测数据报类型: " + type);
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new CorruptedFrameException("遥测数据报不完整", e);
+        }
+    }
+
+    private static TelemetryDatagram decodeData(ByteBuf in, int flags, int sessionId, long sequence) {
+        TelemetryDatagram datagram = new TelemetryDatagram();
+        datagram.setSessionId(sessionId);
+        datagram.setSequence(sequence);
+        datagram.setAckRequested((flags & ACK_REQUESTED) != 0);
+        datagram.setSendTime(ProtocolV2.readVarint(in));
+        datagram.setAlgorithmId(in.readByte());
+        if ((flags & DICTIONARY) != 0) {
+            datagram.setDictionaryId(in.readInt());
+        }
+        datagram.setOriginalSize(ProtocolV2.readVarintInt(in, "原始大小"));
+        datagram.setName(ProtocolV2.readString(in));
+        byte[] payload = new byte[in.readableBytes()];
+        in.readBytes(payload);
+        datagram.setPayload(payload);
+        return datagram;
+    }
+
+    private static TelemetryAck decodeAck(ByteBuf in, int flags, int sessionId, long sequence) {
+        TelemetryAck ack = new TelemetryAck();
+        ack.setSessionId(sessionId);
+        ack.setSequence(sequence);
+        ack.setSuccess((flags & SUCCESS) != 0);
+        ack.setSendTime(ProtocolV2.readVarint(in));
+        ack.setReceiveTime(ProtocolV2.readVarint(in));
+        ack.setDecompressStartTime(ProtocolV2.readVarint(in));
+        ack.setDecompressEndTime(ProtocolV2.readVarint(in));
+        ack.setMessage(ProtocolV2.readString(in));
+        ack.setCumulativeAck(ProtocolV2.readVarint(in));
+        int rangeCount = ProtocolV2.readVarintInt(in, "区间数");
+        if (rangeCount > SelectiveAckWindow.MAX_SACK_RANGES) {
+            throw new CorruptedFrameException("确认区间数超过上限: " + rangeCount);
+        }
+        long[] ranges = new long[rangeCount * 2];
+        long previousEnd = ack.getCumulativeAck();
+        for (int i = 0; i < ranges.length; i += 2) {
+            ranges[i] = previousEnd + ProtocolV2.readVarint(in);
+            ranges[i + 1] = ranges[i] + ProtocolV2.readVarint(in);
+            previousEnd = ranges[i + 1];
+        }
+        ack.setSackRanges(ranges);
+        return ack;
+    }
+}
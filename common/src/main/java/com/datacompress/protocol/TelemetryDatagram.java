@@ -0,0 +1,104 @@
+package com.datacompress.protocol;
+
+/**
+ * 遥测数据报
+ * 一个UDP数据报承载一条独立压缩的小数据，编解码见TelemetryCodec。
+ * 序号在同一会话内从0开始递增，服务端据此识别重复并回复选择性确认；会话ID由客户端随机生成，
+ * 客户端重新创建时换用新会话，服务端随之重置该地址的接收窗口。
+ */
+public class TelemetryDatagram {
+
+    private int sessionId;           // 客户端会话ID
+    private long sequence;           // 会话内的序号
+    private boolean ackRequested;    // 是否要求服务端确认
+    private long sendTime;           // 发送时间戳（毫秒），确认中原样带回
+    private byte algorithmId;        // 压缩算法ID
+    private boolean dictionary;      // 是否以Zstd字典压缩
+    private int dictionaryId;        // 字典ID（ZstdDictionary.getId）
+    private int originalSize;        // 原始大小
+    private String name;             // 数据名称，服务端保存时用作文件名
+    private byte[] payload;          // 压缩数据
+
+    public TelemetryDatagram() {
+    }
+
+    public int getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(int sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public boolean isAckRequested() {
+        return ackRequested;
+    }
+
+    public void setAckRequested(boolean ackRequested) {
+        this.ackRequested = ackRequested;
+    }
+
+    public long getSendTime() {
+        return sendTime;
+    }
+
+    public void setSendTime(long sendTime) {
+        this.sendTime = sendTime;
+    }
+
+    public byte getAlgorithmId() {
+        return algorithmId;
+    }
+
+    public void setAlgorithmId(byte algorithmId) {
+        this.algorithmId = algorithmId;
+    }
+
+    public boolean isDictionary() {
+        return dictionary;
+    }
+
+    public int getDictionaryId() {
+        return dictionaryId;
+    }
+
+    /**
+     * 标记数据以指定ID的Zstd字典压缩
+     */
+    public void setDictionaryId(int dictionaryId) {
+        this.dictionary = true;
+        this.dictionaryId = dictionaryId;
+    }
+
+    public int getOriginalSize() {
+        return originalSize;
+    }
+
+    public void setOriginalSize(int originalSize) {
+        this.originalSize = originalSize;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+}
@@ -0,0 +1,16 @@
+package com.datacompress.protocol;
+
+/**
+ * TransferMessage标志位常量
+ * 只用于v2帧头的标志字段，v1帧为基线格式，不携带标志
+ */
+public class TransferFlags {
+    public static final int CHECKSUMS = 0x01;    // 携带块校验和与文件哈希
+    public static final int RETURN_HASH = 0x02;  // 要求服务端在响应中返回计算的文件哈希（响应帧中表示携带哈希）
+    public static final int STORED = 0x04;       // 数据未压缩，原样存储（v2）
+    public static final int DICTIONARY = 0x08;   // 数据需以参考文件为字典还原，帧内携带参考文件名（v2）
+    public static final int CHUNKED = 0x10;      // 数据为条带传输的一个分片，按偏移重组（v2，需协商STRIPED特性；响应帧中表示分片已接收、传输未完成）
+    public static final int STREAM_END = 0x20;   // 流式传输的最后一个分片（v2）
+    public static final int FRAGMENT_END = 0x40; // 分段帧的最后一段（v2，FRAGMENT消息）
+    public static final int ENCRYPTED = 0x80;    // 数据为压缩后再加密的密文，服务端先解密再解压（v2，需协商ENCRYPTION特性；响应帧中表示携带解密计时）
+}
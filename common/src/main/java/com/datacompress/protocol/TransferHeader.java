@@ -0,0 +1,77 @@
+package com.datacompress.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 传输消息头的解析工具，供统一解码器和独立的TransferMessage解码器共用
+ * 消息头指类型字节之后、压缩数据之前的全部字段（含末尾的4字节数据长度）
+ * 只解析v1的基线格式，传输模式、参考文件名与完整性信息只在v2帧中携带（见ProtocolV2）
+ */
+final class TransferHeader {
+
+    /** 1字节算法ID + 6*8字节(sizes+timestamps) */
+    private static final int FIXED_SIZE = 1 + 6 * 8;
+
+    private TransferHeader() {
+    }
+
+    /**
+     * 只通过绝对下标探测消息头长度，不移动读指针
+     * @param in 输入缓冲区
+     * @param start 消息头起始下标（类型字节之后）
+     * @return 消息头字节数；数据尚未到齐时返回-1
+     */
+    static int peekLength(ByteBuf in, int start) {
+        int end = in.writerIndex();
+        long index = (long) start + FIXED_SIZE;
+
+        // 文件名
+        if (index + 4 > end) {
+            return -1;
+        }
+        int nameLength = in.getInt((int) index);
+        if (nameLength < 0) {
+            throw new CorruptedFrameException("非法的名称长度: " + nameLength);
+        }
+        index += 4 + nameLength;
+
+        // 压缩数据长度
+        index += 4;
+        if (index > end) {
+            return -1;
+        }
+        return (int) (index - start);
+    }
+
+    /**
+     * 读取完整的消息头，调用前须确认 {@link #peekLength} 已返回非负值
+     * 读指针停在压缩数据长度字段之前
+     * @param in 输入缓冲区，读指针位于类型字节之后
+     * @return 除压缩数据外字段均已填充的消息
+     */
+    static TransferMessage read(ByteBuf in) {
+        TransferMessage message = new TransferMessage();
+        message.setAlgorithmId(in.readByte());
+        message.setOriginalSize(in.readLong());
+        message.setCompressedSize(in.readLong());
+        message.setCompressStartTime(in.readLong());
+        message.setCompressEndTime(in.readLong());
+        message.setSendStartTime(in.readLong());
+        message.setSendEndTime(in.readLong());
+        message.setFileName(readString(in));
+        return message;
+    }
+
+    private static String readString(ByteBuf in) {
+        int length = in.readInt();
+        if (length == 0) {
+            return "";
+        }
+        String value = in.toString(in.readerIndex(), length, StandardCharsets.UTF_8);
+        in.skipBytes(length);
+        return value;
+    }
+}
@@ -1,16 +1,23 @@
 package com.datacompress.protocol;
 
+import com.datacompress.integrity.IntegrityInfo;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
 import java.io.Serializable;
+import java.nio.file.Path;
 
 /**
  * 客户端发送给服务端的传输消息
  * 包含压缩算法信息、时间戳和压缩后的数据
  */
-public class TransferMessage implements Serializable {
+public class TransferMessage implements Serializable, CorrelatedMessage {
     
     private static final long serialVersionUID = 1L;
     
+    private long requestId;              // 请求ID（v1为0）
     private byte algorithmId;            // 压缩算法ID (1-9)
+    private byte transferMode = TransferMode.NORMAL; // 传输模式
     private long originalSize;           // 原始文件大小
     private long compressedSize;         // 压缩后数据大小
     private long compressStartTime;      // 压缩开始时间戳
@@ -18,7 +25,20 @@ public class TransferMessage implements Serializable {
     private long sendStartTime;          // 发送开始时间戳
     private long sendEndTime;            // 发送结束时间戳（用于计算传播时延）
     private String fileName;             // 原始文件名（含扩展名）
+    private String referenceName;        // 增量传输的参考文件名（服务端已持有的旧版本）
+    private IntegrityInfo integrity;     // 原始数据的块校验和与文件哈希（可为空）
+    private boolean hashRequested;       // 是否要求服务端返回计算的文件哈希
+    private long transferId;             // 条带传输ID，非0时本消息只携带压缩数据的一个分片
+    private long chunkOffset;            // 分片在压缩数据中的偏移（压缩数据总长为compressedSize）
+    private long streamId;               // 流式传输ID（仅STREAM模式）
+    private long streamSequence;         // 分片在流中的序号，从0开始（仅STREAM模式）
+    private boolean streamEnd;           // 是否为流的最后一个分片（仅STREAM模式）
+    private boolean encrypted;           // 数据是否为压缩后再加密的密文（见PayloadCipher），此时compressedSize为密文长度
+    private int weight = PriorityWriteScheduler.DEFAULT_WEIGHT; // 分段发送时的调度权重，只在本端使用，不编码
     private byte[] compressedData;       // 压缩后的数据
+    private transient ByteBuf payload;   // 解码器交付的压缩数据切片（引用计数，处理完需release）
+    private transient Path payloadFile;  // 压缩数据所在的文件，零拷贝发送时代替compressedData，长度为compressedSize
+    private transient long receiveStartTime; // 接收端解析出消息头（分段帧为第一段）的时间戳，由解码器记录，不编码
     
     public TransferMessage() {
     }
@@ -39,6 +59,16 @@ public class TransferMessage implements Serializable {
     
     // Getters and Setters
     
+    @Override
+    public long getRequestId() {
+        return requestId;
+    }
+    
+    @Override
+    public void setRequestId(long requestId) {
+        this.requestId = requestId;
+    }
+    
     public byte getAlgorithmId() {
         return algorithmId;
     }
@@ -47,6 +77,14 @@ public class TransferMessage implements Serializable {
         this.algorithmId = algorithmId;
     }
     
+    public byte getTransferMode() {
+        return transferMode;
+    }
+    
+    public void setTransferMode(byte transferMode) {
+        this.transferMode = transferMode;
+    }
+    
     public long getOriginalSize() {
         return originalSize;
     }
@@ -95,7 +133,14 @@ public class TransferMessage implements Serializable {
         this.sendEndTime = sendEndTime;
     }
     
+    /**
+     * 获取压缩数据
+     * 由解码器构造的消息只持有ByteBuf切片，首次调用时才复制为字节数组
+     */
     public byte[] getCompressedData() {
+        if (compressedData == null && payload != null) {
+            compressedData = ByteBufUtil.getBytes(payload);
+        }
         return compressedData;
     }
     
@@ -110,4 +155,143 @@ public class TransferMessage implements Serializable {
     public void setFileName(String fileName) {
         this.fileName = fileName;
     }
+    
+    public String getReferenceName() {
+        return referenceName;
+    }
+    
+    public void setReferenceName(String referenceName) {
+        this.referenceName = referenceName;
+    }
+    
+    public IntegrityInfo getIntegrity() {
+        return integrity;
+    }
+    
+    public void setIntegrity(IntegrityInfo integrity) {
+        this.integrity = integrity;
+    }
+    
+    public boolean isHashRequested() {
+        return hashRequested;
+    }
+    
+    public void setHashRequested(boolean hashRequested) {
+        this.hashRequested = hashRequested;
+    }
+    
+    public long getTransferId() {
+        return transferId;
+    }
+    
+    public void setTransferId(long transferId) {
+        this.transferId = transferId;
+    }
+    
+    public long getChunkOffset() {
+        return chunkOffset;
+    }
+    
+    public void setChunkOffset(long chunkOffset) {
+        this.chunkOffset = chunkOffset;
+    }
+    
+    public long getStreamId() {
+        return streamId;
+    }
+    
+    public void setStreamId(long streamId) {
+        this.streamId = streamId;
+    }
+    
+    public long getStreamSequence() {
+        return streamSequence;
+    }
+    
+    public void setStreamSequence(long streamSequence) {
+        this.streamSequence = streamSequence;
+    }
+    
+    public boolean isStreamEnd() {
+        return streamEnd;
+    }
+    
+    public void setStreamEnd(boolean streamEnd) {
+        this.streamEnd = streamEnd;
+    }
+    
+    public boolean isEncrypted() {
+        return encrypted;
+    }
+    
+    public void setEncrypted(boolean encrypted) {
+        this.encrypted = encrypted;
+    }
+    
+    public int getWeight() {
+        return weight;
+    }
+    
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+    
+    /**
+     * 是否为条带传输的一个分片
+     */
+    public boolean isChunk() {
+        return transferId != 0;
+    }
+    
+    public ByteBuf getPayload() {
+        return payload;
+    }
+    
+    public void setPayload(ByteBuf payload) {
+        this.payload = payload;
+    }
+    
+    public Path getPayloadFile() {
+        return payloadFile;
+    }
+    
+    public void setPayloadFile(Path payloadFile) {
+        this.payloadFile = payloadFile;
+    }
+    
+    /**
+     * 接收端开始接收本消息的时间戳，解码器在解析出消息头时记录，数据尚未到齐
+     * @return 时间戳；不是由解码器交付的消息为0
+     */
+    public long getReceiveStartTime() {
+        return receiveStartTime;
+    }
+    
+    public void setReceiveStartTime(long receiveStartTime) {
+        this.receiveStartTime = receiveStartTime;
+    }
+    
+    /**
+     * 压缩数据的字节数，无需先复制切片
+     */
+    public int getDataLength() {
+        if (compressedData != null) {
+            return compressedData.length;
+        }
+        if (payloadFile != null) {
+            // 发送方已按单帧上限检查过文件长度，超出int范围说明未经检查，不能截断
+            return Math.toIntExact(compressedSize);
+        }
+        return payload != null ? payload.readableBytes() : 0;
+    }
+    
+    /**
+     * 释放解码器交付的数据切片，可重复调用
+     */
+    public void release() {
+        if (payload != null) {
+            payload.release();
+            payload = null;
+        }
+    }
 }
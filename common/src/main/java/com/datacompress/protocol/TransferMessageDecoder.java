@@ -3,87 +3,79 @@ package com.datacompress.protocol;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
 
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
  * TransferMessage解码器
  * 将接收到的字节流解码为TransferMessage对象
+ * 消息头只解析一次，压缩数据以引用计数切片交付，处理完毕后需调用 {@link TransferMessage#release()}
  */
 public class TransferMessageDecoder extends ByteToMessageDecoder {
 
-    private static final int HEADER_SIZE = 1 + 8 + 8 + 8 + 8 + 8 + 8 + 4; // 53 bytes
+    private final int maxFrameSize;
 
-    @Override
-    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
-        // 需要至少: 1字节类型 + 1字节算法ID + 6*8字节(sizes+timestamps) + 4字节文件名长度 = 59字节
-        if (in.readableBytes() < 59) {
-            return;
-        }
+    private TransferMessage pendingTransfer; // 已解析消息头、等待数据的传输消息
+    private int bodyLength;
 
-        // 标记读位置
-        in.markReaderIndex();
+    public TransferMessageDecoder() {
+        this(UnifiedMessageDecoder.DEFAULT_MAX_FRAME_SIZE);
+    }
 
-        // 读取并检查消息类型
-        byte messageType = in.readByte();
-        if (messageType != MessageType.TRANSFER) {
-            in.resetReaderIndex();
-            return;
+    /**
+     * @param maxFrameSize 单条消息（含消息头）允许的最大字节数，超出时抛出TooLongFrameException
+     */
+    public TransferMessageDecoder(int maxFrameSize) {
+        if (maxFrameSize <= 0) {
+            throw new IllegalArgumentException("maxFrameSize必须为正数: " + maxFrameSize);
         }
+        this.maxFrameSize = maxFrameSize;
+        setCumulator(COMPOSITE_CUMULATOR);
+    }
 
-        // 读取消息头信息
-        byte algorithmId = in.readByte();
-        long originalSize = in.readLong();
-        long compressedSize = in.readLong();
-        long compressStartTime = in.readLong();
-        long compressEndTime = in.readLong();
-        long sendStartTime = in.readLong();
-        long sendEndTime = in.readLong();
-        
-        // 读取文件名长度
-        int fileNameLength = in.readInt();
-        
-        // 检查是否有足够的字节读取文件名
-        if (in.readableBytes() < fileNameLength + 4) { // +4 for data length field
-            in.resetReaderIndex();
-            return;
-        }
-        
-        // 读取文件名
-        String fileName = "";
-        if (fileNameLength > 0) {
-            byte[] fileNameBytes = new byte[fileNameLength];
-            in.readBytes(fileNameBytes);
-            fileName = new String(fileNameBytes, StandardCharsets.UTF_8);
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        if (pendingTransfer == null) {
+            // 需要至少1字节类型，消息头到齐前只探测长度
+            if (!in.isReadable()) {
+                return;
+            }
+            if (in.getByte(in.readerIndex()) != MessageType.TRANSFER) {
+                return;
+            }
+            int headerLength = TransferHeader.peekLength(in, in.readerIndex() + 1);
+            if (headerLength < 0) {
+                checkFrameSize(in.readableBytes());
+                return;
+            }
+
+            in.skipBytes(1);
+            TransferMessage message = TransferHeader.read(in);
+            message.setReceiveStartTime(System.currentTimeMillis());
+            bodyLength = in.readInt();
+            if (bodyLength < 0) {
+                throw new CorruptedFrameException("非法的压缩数据长度: " + bodyLength);
+            }
+            checkFrameSize(1L + headerLength + bodyLength);
+            pendingTransfer = message;
         }
-        
-        // 读取压缩数据长度
-        int dataLength = in.readInt();
 
         // 检查是否有足够的字节读取压缩数据
-        if (in.readableBytes() < dataLength) {
-            in.resetReaderIndex();
+        if (in.readableBytes() < bodyLength) {
             return;
         }
 
-        // 读取压缩数据
-        byte[] compressedData = new byte[dataLength];
-        in.readBytes(compressedData);
-
-        // 创建TransferMessage对象
-        TransferMessage message = new TransferMessage(
-                algorithmId,
-                originalSize,
-                compressedSize,
-                compressStartTime,
-                compressEndTime,
-                sendStartTime,
-                sendEndTime,
-                fileName,
-                compressedData
-        );
-
+        TransferMessage message = pendingTransfer;
+        message.setPayload(in.readRetainedSlice(bodyLength));
+        pendingTransfer = null;
         out.add(message);
     }
+
+    private void checkFrameSize(long frameLength) {
+        if (frameLength > maxFrameSize) {
+            throw new TooLongFrameException("消息长度 " + frameLength + " 超过上限 " + maxFrameSize);
+        }
+    }
 }
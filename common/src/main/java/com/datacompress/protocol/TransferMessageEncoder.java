@@ -1,19 +1,132 @@
 package com.datacompress.protocol;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.handler.codec.MessageToMessageEncoder;
+import io.netty.handler.stream.ChunkedStream;
+import io.netty.handler.stream.ChunkedWriteHandler;
 
+import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
  * TransferMessage编码器
  * 将TransferMessage对象编码为字节流发送
+ * 
+ * 只为消息头分配缓冲区，压缩数据不再复制进一个完整大小的输出缓冲区：
+ * 管道中有ChunkedWriteHandler时，字节数组按块随通道可写逐步送出，任意时刻只有少量数据在途；
+ * 否则直接包装字节数组，与消息头组合成一个CompositeByteBuf写出。
+ * 解码得到的消息沿用其ByteBuf切片，与消息头组合后以聚集写（writev）发出；
+ * 条带传输的分片以堆上字节数组的包装缓冲区作为数据，与字节数组一样分块写出。
+ * 握手协商为v2后消息头使用v2帧格式，压缩数据的写出方式不变；v1帧保持基线格式，
+ * 传输模式等后来增加的字段只在v2帧中携带，需要这些字段的消息不能按v1发送；
+ * 若还协商了FRAGMENT特性且管道中有PriorityWriteScheduler，超过一段的帧交给它分段写出，与其他消息交错。
+ * 数据在文件中的消息（零拷贝发送）在消息头之后写出DefaultFileRegion，由内核直接从文件发送（sendfile），
+ * 数据不经过堆也不分段。
  */
-public class TransferMessageEncoder extends MessageToByteEncoder<TransferMessage> {
+public class TransferMessageEncoder extends MessageToMessageEncoder<TransferMessage> {
+    
+    /** v1消息头固定部分: 1字节类型 + 1字节算法ID + 6*8字节 + 4字节文件名长度 + 4字节数据长度 */
+    private static final int FIXED_HEADER_SIZE = 1 + 1 + 6 * 8 + 4 + 4;
+    
+    /** 分块写出时每块的字节数 */
+    public static final int CHUNK_SIZE = 64 * 1024;
     
     @Override
-    protected void encode(ChannelHandlerContext ctx, TransferMessage msg, ByteBuf out) throws Exception {
+    protected void encode(ChannelHandlerContext ctx, TransferMessage msg, List<Object> out) throws Exception {
+        ByteBuf header;
+        if (ProtocolSession.versionOf(ctx.channel()) >= ProtocolSession.V2) {
+            header = ProtocolV2.encodeTransferHeader(ctx.alloc(), msg, msg.getDataLength());
+        } else {
+            checkV1(msg);
+            header = encodeV1Header(ctx, msg);
+        }
+        
+        if (msg.getPayloadFile() != null) {
+            out.add(header);
+            out.add(new DefaultFileRegion(msg.getPayloadFile().toFile(), 0, msg.getDataLength()));
+            return;
+        }
+        
+        ByteBuf payload = msg.getPayload();
+        if (isFragmented(ctx, header, msg)) {
+            ByteBuf data = payload != null ? payload.retainedDuplicate() : Unpooled.wrappedBuffer(msg.getCompressedData());
+            out.add(new FragmentedFrame(ctx.alloc().compositeBuffer(2).addComponents(true, header, data),
+                    groupKeyOf(msg), msg.getWeight()));
+            return;
+        }
+        boolean chunkedWrite = ctx.pipeline().get(ChunkedWriteHandler.class) != null;
+        if (payload != null && !(chunkedWrite && payload.hasArray())) {
+            out.add(ctx.alloc().compositeBuffer(2)
+                    .addComponents(true, header, payload.retainedDuplicate()));
+        } else if (chunkedWrite) {
+            // 堆上的字节数组写出时总要复制到直接内存，按块进行可避免整份复制
+            out.add(header);
+            ByteArrayInputStream data = payload != null
+                    ? new ByteArrayInputStream(payload.array(), payload.arrayOffset() + payload.readerIndex(),
+                            payload.readableBytes())
+                    : new ByteArrayInputStream(msg.getCompressedData());
+            out.add(new ChunkedStream(data, CHUNK_SIZE));
+        } else {
+            out.add(ctx.alloc().compositeBuffer(2)
+                    .addComponents(true, header, Unpooled.wrappedBuffer(msg.getCompressedData())));
+        }
+    }
+    
+    private static boolean isFragmented(ChannelHandlerContext ctx, ByteBuf header, TransferMessage msg) {
+        ProtocolSession session = ProtocolSession.get(ctx.channel());
+        return session != null && session.getVersion() >= ProtocolSession.V2
+                && session.supportsFeature(ProtocolFeatures.FRAGMENT)
+                && (long) header.readableBytes() + msg.getDataLength() > ProtocolV2.FRAGMENT_SIZE
+                && ctx.pipeline().get(PriorityWriteScheduler.class) != null;
+    }
+    
+    /**
+     * 消息所属的流，同一流的大帧按顺序发送，不同流之间按权重轮询
+     */
+    private static long groupKeyOf(TransferMessage msg) {
+        if (msg.getTransferMode() == TransferMode.STREAM) {
+            return msg.getStreamId();
+        }
+        return msg.isChunk() ? msg.getTransferId() : msg.getRequestId();
+    }
+    
+    /**
+     * 检查消息能否按v1的基线格式发送，基线格式没有的字段不能丢弃后照常发送
+     */
+    private static void checkV1(TransferMessage msg) {
+        if (msg.isChunk() || msg.isEncrypted()) {
+            throw new IllegalArgumentException("v1协议不支持条带传输与加密传输");
+        }
+        if (msg.getTransferMode() != TransferMode.NORMAL) {
+            throw new IllegalArgumentException("v1协议不支持传输模式: " + msg.getTransferMode());
+        }
+        if (msg.getReferenceName() != null && !msg.getReferenceName().isEmpty()) {
+            throw new IllegalArgumentException("v1协议不支持参考文件: " + msg.getReferenceName());
+        }
+        if (msg.getIntegrity() != null || msg.isHashRequested()) {
+            throw new IllegalArgumentException("v1协议不支持完整性校验信息与返回文件哈希");
+        }
+    }
+    
+    private ByteBuf encodeV1Header(ChannelHandlerContext ctx, TransferMessage msg) {
+        byte[] fileNameBytes = msg.getFileName() != null ? 
+            msg.getFileName().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        ByteBuf header = ctx.alloc().buffer(FIXED_HEADER_SIZE + fileNameBytes.length);
+        try {
+            writeHeader(msg, fileNameBytes, header);
+            header.writeInt(msg.getDataLength());
+        } catch (RuntimeException e) {
+            header.release();
+            throw e;
+        }
+        return header;
+    }
+    
+    private void writeHeader(TransferMessage msg, byte[] fileNameBytes, ByteBuf out) {
         // 写入消息类型
         out.writeByte(MessageType.TRANSFER);
         
@@ -39,17 +152,9 @@ public class TransferMessageEncoder extends MessageToByteEncoder<TransferMessage
         out.writeLong(msg.getSendEndTime());
         
         // 写入文件名
-        byte[] fileNameBytes = msg.getFileName() != null ? 
-            msg.getFileName().getBytes(StandardCharsets.UTF_8) : new byte[0];
         out.writeInt(fileNameBytes.length);
         if (fileNameBytes.length > 0) {
             out.writeBytes(fileNameBytes);
         }
-        
-        // 写入压缩数据长度
-        out.writeInt(msg.getCompressedData().length);
-        
-        // 写入压缩数据
-        out.writeBytes(msg.getCompressedData());
     }
 }
@@ -0,0 +1,14 @@
+package com.datacompress.protocol;
+
+/**
+ * 传输模式常量
+ * 决定服务端如何解释TransferMessage中的压缩数据
+ */
+public class TransferMode {
+    public static final byte NORMAL = 0x00;   // 单文件：压缩数据即完整文件
+    public static final byte ARCHIVE = 0x01;  // 目录：压缩数据为多条目ZIP归档
+    public static final byte DEDUP = 0x02;    // 去重：压缩数据为分块清单加服务端缺失的分块
+    public static final byte DELTA = 0x03;    // 增量：压缩数据为相对服务端参考文件的Zstd增量
+    public static final byte CONTEXT = 0x04;  // 上下文：压缩数据为连接级压缩流中的一个片段
+    public static final byte STREAM = 0x05;   // 流式：压缩数据为文件按序切分后独立压缩的一个分片，服务端边收边写
+}
@@ -1,69 +1,299 @@
 package com.datacompress.protocol;
 
+import com.datacompress.dedup.ChunkFingerprint;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
 
 import java.io.ByteArrayInputStream;
 import java.io.ObjectInputStream;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 /**
  * 统一消息解码器
  * 根据消息类型分发到相应的解码逻辑
+ * 
+ * 按状态逐步解析：先确认消息类型，再等待消息头（或小消息的整帧）到齐后一次性解析，
+ * 传输消息的压缩数据最后以引用计数切片交付，等待期间不再反复解析消息头。
+ * 累积缓冲区使用组合方式拼接，大数据传输时不会因扩容而反复复制已收到的数据。
+ * 
+ * 每一帧独立判断版本：以v2魔数开头的按v2帧解析（见ProtocolV2），否则按v1的基线格式解析，
+ * 因此同一连接在握手前后、以及未握手的旧客户端都能正确解码。
+ * v2的FRAGMENT段交给FragmentAssembler拼接，整帧到齐后才交付消息。
+ * 传输消息在解析出消息头（分段帧为第一段的帧头）时记录接收开始时间，接收耗时因此包含等待数据到齐的时间。
  */
 public class UnifiedMessageDecoder extends ByteToMessageDecoder {
     
     private static final org.slf4j.Logger logger = 
         org.slf4j.LoggerFactory.getLogger(UnifiedMessageDecoder.class);
     
+    /** 默认单帧上限 512MB */
+    public static final int DEFAULT_MAX_FRAME_SIZE = 512 * 1024 * 1024;
+    
+    private enum State {
+        READ_TYPE,   // 等待消息类型字节
+        READ_HEADER, // 等待消息头（小消息为整帧）到齐
+        READ_BODY,   // 传输消息头已解析，等待压缩数据
+        READ_V2_HEADER, // 等待v2帧头到齐
+        READ_V2_BODY    // v2帧头已解析，等待消息体
+    }
+    
+    private final int maxFrameSize;
+    private final FragmentAssembler fragments;
+    
+    private State state = State.READ_TYPE;
+    private byte messageType;
+    private TransferMessage pendingTransfer; // 已解析消息头、等待数据的传输消息
+    private int bodyLength;
+    private int frameFlags;                  // v2帧标志
+    private long frameStartTime;             // 当前v2帧的帧头解析时间
+    
+    public UnifiedMessageDecoder() {
+        this(DEFAULT_MAX_FRAME_SIZE);
+    }
+    
+    /**
+     * @param maxFrameSize 单条消息（含消息头）允许的最大字节数，超出时抛出TooLongFrameException
+     */
+    public UnifiedMessageDecoder(int maxFrameSize) {
+        if (maxFrameSize <= 0) {
+            throw new IllegalArgumentException("maxFrameSize必须为正数: " + maxFrameSize);
+        }
+        this.maxFrameSize = maxFrameSize;
+        this.fragments = new FragmentAssembler(maxFrameSize);
+        setCumulator(COMPOSITE_CUMULATOR);
+    }
+    
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+    
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
-        // 至少需要1个字节来读取消息类型
-        if (in.readableBytes() < 1) {
+        if (state == State.READ_V2_HEADER || state == State.READ_V2_BODY) {
+            decodeV2(in, out);
             return;
         }
         
-        // 标记当前读位置
-        in.markReaderIndex();
+        if (state == State.READ_TYPE) {
+            // 至少需要1个字节来读取消息类型
+            if (!in.isReadable()) {
+                return;
+            }
+            if (in.getByte(in.readerIndex()) == ProtocolV2.MAGIC_FIRST_BYTE) {
+                state = State.READ_V2_HEADER;
+                decodeV2(in, out);
+                return;
+            }
+            messageType = in.readByte();
+            if (!isKnownType(messageType)) {
+                // 未知消息类型，跳过这个字节
+                logger.warn("未知的消息类型: {}", messageType);
+                return;
+            }
+            state = State.READ_HEADER;
+        }
+        
+        if (state == State.READ_HEADER) {
+            if (messageType == MessageType.TRANSFER) {
+                if (!readTransferHeader(in)) {
+                    return;
+                }
+                state = State.READ_BODY;
+            } else {
+                int frameLength = peekFrameLength(in);
+                if (frameLength < 0 || in.readableBytes() < frameLength) {
+                    return;
+                }
+                decodeFrame(in, out);
+                state = State.READ_TYPE;
+                return;
+            }
+        }
         
-        // 读取消息类型
-        byte messageType = in.readByte();
+        if (state == State.READ_BODY) {
+            if (in.readableBytes() < bodyLength) {
+                return;
+            }
+            TransferMessage message = pendingTransfer;
+            message.setPayload(in.readRetainedSlice(bodyLength));
+            pendingTransfer = null;
+            state = State.READ_TYPE;
+            out.add(message);
+        }
+    }
+    
+    /**
+     * v2帧：帧头声明了消息体长度，到齐后一次性解析
+     */
+    private void decodeV2(ByteBuf in, List<Object> out) {
+        if (state == State.READ_V2_HEADER) {
+            int headerLength = ProtocolV2.peekFrameHeaderLength(in);
+            if (headerLength < 0) {
+                return;
+            }
+            in.skipBytes(3); // 魔数与版本已在探测时校验
+            messageType = in.readByte();
+            frameFlags = (int) ProtocolV2.readVarint(in);
+            long length = ProtocolV2.readVarint(in);
+            if (length < 0 || length > Integer.MAX_VALUE) {
+                throw new CorruptedFrameException("非法的消息体长度: " + length);
+            }
+            bodyLength = (int) length;
+            checkFrameSize((long) headerLength + bodyLength);
+            frameStartTime = System.currentTimeMillis();
+            state = State.READ_V2_BODY;
+        }
+        
+        if (in.readableBytes() < bodyLength) {
+            return;
+        }
+        ByteBuf body = in.readRetainedSlice(bodyLength);
+        state = State.READ_TYPE;
+        try {
+            if (messageType == MessageType.FRAGMENT) {
+                if ((frameFlags & ~TransferFlags.FRAGMENT_END) != 0) {
+                    throw new CorruptedFrameException(String.format("分段帧不支持的标志: 0x%x", frameFlags));
+                }
+                Object message = fragments.append(body.alloc(), frameFlags, body, frameStartTime);
+                if (message != null) {
+                    out.add(message);
+                }
+            } else {
+                Object message = ProtocolV2.decodeBody(messageType, frameFlags, body);
+                if (message instanceof TransferMessage) {
+                    ((TransferMessage) message).setReceiveStartTime(frameStartTime);
+                }
+                out.add(message);
+            }
+        } finally {
+            body.release();
+        }
+    }
+    
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) {
+        pendingTransfer = null;
+        state = State.READ_TYPE;
+        fragments.clear();
+    }
+    
+    private static boolean isKnownType(byte type) {
+        switch (type) {
+            case MessageType.HEARTBEAT:
+            case MessageType.TRANSFER:
+            case MessageType.RESPONSE:
+            case MessageType.CHUNK_QUERY:
+            case MessageType.CHUNK_QUERY_RESULT:
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * 消息头到齐后一次性解析，并检查整帧大小
+     * @return 消息头是否已解析
+     */
+    private boolean readTransferHeader(ByteBuf in) {
+        int headerLength = TransferHeader.peekLength(in, in.readerIndex());
+        if (headerLength < 0) {
+            checkFrameSize(in.readableBytes());
+            return false;
+        }
         
-        // 根据消息类型分发
+        pendingTransfer = TransferHeader.read(in);
+        pendingTransfer.setReceiveStartTime(System.currentTimeMillis());
+        bodyLength = in.readInt();
+        if (bodyLength < 0) {
+            throw new CorruptedFrameException("非法的压缩数据长度: " + bodyLength);
+        }
+        checkFrameSize(1L + headerLength + bodyLength);
+        return true;
+    }
+    
+    /**
+     * 通过绝对下标计算小消息的整帧长度（不含类型字节），不移动读指针
+     * @return 帧长度；长度字段尚未到齐时返回-1
+     */
+    private int peekFrameLength(ByteBuf in) {
+        int start = in.readerIndex();
+        int readable = in.readableBytes();
+        long length;
         switch (messageType) {
             case MessageType.HEARTBEAT:
-                decodeHeartbeat(in, out);
+                // [4字节长度][序列化数据]
+                if (readable < 4) {
+                    return -1;
+                }
+                length = 4L + in.getInt(start);
                 break;
-            case MessageType.TRANSFER:
-                decodeTransfer(in, out);
+            case MessageType.RESPONSE:
+                // [4*8字节时间戳][1字节成功标志][4字节消息长度][消息]
+                if (readable < 37) {
+                    return -1;
+                }
+                int messageLength = in.getInt(start + 33);
+                if (messageLength < 0) {
+                    throw new CorruptedFrameException("非法的响应消息长度: " + messageLength);
+                }
+                length = 37L + messageLength;
+                break;
+            case MessageType.CHUNK_QUERY:
+                // [4字节分块数][指纹...]
+                if (readable < 4) {
+                    return -1;
+                }
+                length = 4 + (long) in.getInt(start) * ChunkFingerprint.LENGTH;
+                break;
+            case MessageType.CHUNK_QUERY_RESULT:
+                // [4字节分块数][4字节位图长度][位图]
+                if (readable < 8) {
+                    return -1;
+                }
+                length = 8L + in.getInt(start + 4);
+                break;
+            default:
+                throw new IllegalStateException("未知的消息类型: " + messageType);
+        }
+        if (length < 0) {
+            throw new CorruptedFrameException("非法的消息长度: " + length);
+        }
+        checkFrameSize(length);
+        return (int) length;
+    }
+    
+    private void checkFrameSize(long frameLength) {
+        if (frameLength > maxFrameSize) {
+            throw new TooLongFrameException("消息长度 " + frameLength + " 超过上限 " + maxFrameSize);
+        }
+    }
+    
+    private void decodeFrame(ByteBuf in, List<Object> out) throws Exception {
+        switch (messageType) {
+            case MessageType.HEARTBEAT:
+                decodeHeartbeat(in, out);
                 break;
             case MessageType.RESPONSE:
                 decodeResponse(in, out);
                 break;
-            default:
-                // 未知消息类型，跳过这个字节
-                logger.warn("未知的消息类型: {}", messageType);
+            case MessageType.CHUNK_QUERY:
+                decodeChunkQuery(in, out);
+                break;
+            case MessageType.CHUNK_QUERY_RESULT:
+                decodeChunkQueryResult(in, out);
                 break;
+            default:
+                throw new IllegalStateException("未知的消息类型: " + messageType);
         }
     }
     
     private void decodeHeartbeat(ByteBuf in, List<Object> out) throws Exception {
-        // 检查是否有足够的字节 (4 bytes length)
-        if (in.readableBytes() < 4) {
-            in.resetReaderIndex();
-            return;
-        }
-        
-        // 不要再mark了，直接读取
         int length = in.readInt();
-        
-        if (in.readableBytes() < length) {
-            in.resetReaderIndex();
-            return;
-        }
-        
         byte[] bytes = new byte[length];
         in.readBytes(bytes);
         
@@ -74,67 +304,7 @@ public class UnifiedMessageDecoder extends ByteToMessageDecoder {
         out.add(msg);
     }
     
-    private void decodeTransfer(ByteBuf in, List<Object> out) throws Exception {
-        // 需要: 1字节算法ID + 6*8字节(sizes+timestamps) + 4字节文件名长度 = 57字节
-        if (in.readableBytes() < 57) {
-            in.resetReaderIndex();
-            return;
-        }
-        
-        // 不要再mark了，直接读取（已经在主decode中mark过了）
-        byte algorithmId = in.readByte();
-        long originalSize = in.readLong();
-        long compressedSize = in.readLong();
-        long compressStartTime = in.readLong();
-        long compressEndTime = in.readLong();
-        long sendStartTime = in.readLong();
-        long sendEndTime = in.readLong();
-        
-        // 读取文件名长度
-        int fileNameLength = in.readInt();
-        
-        // 检查是否有足够的字节读取文件名
-        if (in.readableBytes() < fileNameLength + 4) { // +4 for data length field
-            in.resetReaderIndex();
-            return;
-        }
-        
-        // 读取文件名
-        String fileName = "";
-        if (fileNameLength > 0) {
-            byte[] fileNameBytes = new byte[fileNameLength];
-            in.readBytes(fileNameBytes);
-            fileName = new String(fileNameBytes, StandardCharsets.UTF_8);
-        }
-        
-        // 读取压缩数据长度
-        int dataLength = in.readInt();
-        
-        if (in.readableBytes() < dataLength) {
-            in.resetReaderIndex();
-            return;
-        }
-        
-        byte[] compressedData = new byte[dataLength];
-        in.readBytes(compressedData);
-        
-        TransferMessage message = new TransferMessage(
-                algorithmId, originalSize, compressedSize,
-                compressStartTime, compressEndTime, sendStartTime, sendEndTime,
-                fileName, compressedData
-        );
-        
-        out.add(message);
-    }
-    
     private void decodeResponse(ByteBuf in, List<Object> out) throws Exception {
-        // 需要: 4*8字节(时间戳) + 1字节(boolean) + 4字节(消息长度) = 37字节
-        if (in.readableBytes() < 37) {
-            in.resetReaderIndex();
-            return;
-        }
-        
-        // 不要再mark了，直接读取
         long receiveStartTime = in.readLong();
         long receiveEndTime = in.readLong();
         long decompressStartTime = in.readLong();
@@ -142,11 +312,6 @@ public class UnifiedMessageDecoder extends ByteToMessageDecoder {
         boolean success = in.readBoolean();
         int messageLength = in.readInt();
         
-        if (in.readableBytes() < messageLength) {
-            in.resetReaderIndex();
-            return;
-        }
-        
         byte[] messageBytes = new byte[messageLength];
         in.readBytes(messageBytes);
         String message = new String(messageBytes, "UTF-8");
@@ -159,4 +324,27 @@ public class UnifiedMessageDecoder extends ByteToMessageDecoder {
         
         out.add(response);
     }
+    
+    private void decodeChunkQuery(ByteBuf in, List<Object> out) {
+        int count = in.readInt();
+        
+        List<byte[]> fingerprints = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] fingerprint = new byte[ChunkFingerprint.LENGTH];
+            in.readBytes(fingerprint);
+            fingerprints.add(fingerprint);
+        }
+        
+        out.add(new ChunkQueryMessage(fingerprints));
+    }
+    
+    private void decodeChunkQueryResult(ByteBuf in, List<Object> out) {
+        int chunkCount = in.readInt();
+        int bitmapLength = in.readInt();
+        
+        byte[] bitmap = new byte[bitmapLength];
+        in.readBytes(bitmap);
+        
+        out.add(new ChunkQueryResponse(chunkCount, BitSet.valueOf(bitmap)));
+    }
 }
@@ -0,0 +1,57 @@
+package com.datacompress.shm;
+
+import java.net.SocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+
+/**
+ * 共享内存连接的地址：服务端扫描的共享目录、读写等待方式与单向环形缓冲区容量
+ */
+public final class SharedMemoryAddress extends SocketAddress {
+
+    private static final long serialVersionUID = 1L;
+
+    /** 默认的共享目录 */
+    public static final Path DEFAULT_DIRECTORY = Paths.get("/dev/shm/datacompress");
+
+    private final transient Path directory;
+    private final WaitStrategy waitStrategy;
+    private final int ringCapacity;
+
+    public SharedMemoryAddress(Path directory) {
+        this(directory, WaitStrategy.PARK, SharedMemoryConnection.DEFAULT_RING_CAPACITY);
+    }
+
+    /**
+     * @param directory 服务端扫描的共享目录
+     * @param waitStrategy 读写等待方式
+     * @param ringCapacity 单向环形缓冲区容量，必须为2的幂
+     */
+    public SharedMemoryAddress(Path directory, WaitStrategy waitStrategy, int ringCapacity) {
+        this.directory = Objects.requireNonNull(directory, "directory");
+        this.waitStrategy = Objects.requireNonNull(waitStrategy, "waitStrategy");
+        if (ringCapacity < SharedMemoryConnection.MIN_RING_CAPACITY || Integer.bitCount(ringCapacity) != 1) {
+            throw new IllegalArgumentException("环形缓冲区容量必须为不小于 " + SharedMemoryConnection.MIN_RING_CAPACITY
+                    + " 的2的幂: " + ringCapacity);
+        }
+        this.ringCapacity = ringCapacity;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public int getRingCapacity() {
+        return ringCapacity;
+    }
+
+    @Override
+    public String toString() {
+        return "shm:" + directory;
+    }
+}
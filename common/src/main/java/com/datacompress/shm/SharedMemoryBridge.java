@@ -0,0 +1,115 @@
+package com.datacompress.shm;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把一个LocalChannel与共享内存连接对接
+ * 对端处理器链写出的字节（本Channel读到的消息）原样写入发送方向的环形缓冲区；
+ * 读取线程把接收方向环形缓冲区中的字节写回本Channel，交给对端处理器链解码。
+ * 两端的编解码器与处理器都不感知共享内存，消息语义与TCP连接完全相同。
+ * 环形缓冲区已满时在本Channel的I/O线程上等待，读取线程空闲时按等待方式等待。
+ */
+public final class SharedMemoryBridge extends ChannelInboundHandlerAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedMemoryBridge.class);
+
+    // 每次从环形缓冲区读出的最大字节数
+    private static final int READ_CHUNK_SIZE = 64 * 1024;
+    // 空闲时检查对端进程是否存活的间隔
+    private static final long LIVENESS_CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final SharedMemoryConnection connection;
+    private final WaitStrategy waitStrategy;
+
+    public SharedMemoryBridge(SharedMemoryConnection connection, WaitStrategy waitStrategy) {
+        this.connection = connection;
+        this.waitStrategy = waitStrategy;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        Channel channel = ctx.channel();
+        Thread reader = new Thread(() -> pump(channel), "shm-reader-" + connection.getFile().getFileName());
+        reader.setDaemon(true);
+        reader.start();
+        ctx.fireChannelActive();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (!(msg instanceof ByteBuf)) {
+            ReferenceCountUtil.release(msg);
+            logger.error("共享内存连接只能传输字节数据，收到: {}", msg.getClass().getSimpleName());
+            ctx.close();
+            return;
+        }
+        ByteBuf data = (ByteBuf) msg;
+        try {
+            if (!connection.write(data, waitStrategy)) {
+                ctx.close();
+            }
+        } finally {
+            data.release();
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        closeConnection();
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        logger.error("共享内存连接 {} 发生异常", connection, cause);
+        ctx.close();
+    }
+
+    /**
+     * 读取线程：把接收方向的数据写回Channel，对端关闭或退出后关闭Channel
+     */
+    private void pump(Channel channel) {
+        int attempt = 0;
+        long nextLivenessCheck = System.nanoTime() + LIVENESS_CHECK_INTERVAL_NANOS;
+        while (channel.isActive()) {
+            // 先读对端状态再读数据量，对端关闭前写入的数据不会被遗漏
+            boolean peerClosed = connection.isPeerClosed();
+            int available = connection.available();
+            if (available > 0) {
+                int length = Math.min(available, READ_CHUNK_SIZE);
+                ByteBuf data = channel.alloc().buffer(length);
+                connection.read(data, length);
+                channel.writeAndFlush(data);
+                attempt = 0;
+            } else if (peerClosed || connection.isClosed()) {
+                break;
+            } else if (attempt > 0 && System.nanoTime() - nextLivenessCheck > 0) {
+                if (!connection.isPeerAlive()) {
+                    logger.warn("共享内存连接 {} 的对端进程已退出", connection);
+                    break;
+                }
+                nextLivenessCheck = System.nanoTime() + LIVENESS_CHECK_INTERVAL_NANOS;
+            } else {
+                waitStrategy.idle(attempt++);
+            }
+        }
+        channel.close();
+    }
+
+    private void closeConnection() {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            logger.warn("关闭共享内存连接 {} 失败", connection, e);
+        }
+    }
+}
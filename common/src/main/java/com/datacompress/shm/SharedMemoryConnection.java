@@ -0,0 +1,246 @@
+package com.datacompress.shm;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 经内存映射文件通信的一条连接
+ * 文件由客户端在共享目录（通常位于/dev/shm）中创建，包含文件头与两个方向的环形缓冲区：
+ * <pre>
+ * [魔数 4][版本 4][容量 4][客户端进程ID 8 @16][服务端进程ID 8 @24] ... [客户端状态 @64] ... [服务端状态 @128] ...
+ * [客户端到服务端的环形缓冲区 @256] [服务端到客户端的环形缓冲区]
+ * </pre>
+ * 客户端写好文件头后把自身状态置为就绪，服务端扫描目录发现后把自身状态置为已接入；
+ * 任一端关闭时把自身状态置为已关闭，对端读完剩余数据后随之关闭。文件由客户端在关闭时删除；
+ * 进程异常退出时来不及关闭，对端按文件头中的进程ID判断其是否仍在运行。
+ */
+public final class SharedMemoryConnection implements Closeable {
+
+    /** 默认的单向环形缓冲区容量 */
+    public static final int DEFAULT_RING_CAPACITY = 4 * 1024 * 1024;
+    /** 最小的单向环形缓冲区容量 */
+    public static final int MIN_RING_CAPACITY = 4096;
+    /** 连接文件的扩展名 */
+    public static final String FILE_SUFFIX = ".ring";
+
+    private static final int MAGIC = 0x53484D52;  // "SHMR"
+    private static final int VERSION = 1;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int CLIENT_PID_OFFSET = 16;
+    private static final int SERVER_PID_OFFSET = 24;
+    private static final int CLIENT_STATE_OFFSET = 64;
+    private static final int SERVER_STATE_OFFSET = 128;
+    private static final int HEADER_SIZE = 256;
+
+    private static final int STATE_NONE = 0;
+    private static final int STATE_READY = 1;
+    private static final int STATE_CLOSED = 2;
+
+    private static final VarHandle INTS =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final AtomicLong FILE_INDEX = new AtomicLong();
+
+    private final Path file;
+    private final boolean clientSide;
+    private final MappedByteBuffer buffer;
+    private final SharedMemoryRing outbound;
+    private final SharedMemoryRing inbound;
+    private volatile boolean closed;
+
+    private SharedMemoryConnection(Path file, boolean clientSide, MappedByteBuffer buffer, int capacity) {
+        this.file = file;
+        this.clientSide = clientSide;
+        this.buffer = buffer;
+        SharedMemoryRing toServer = new SharedMemoryRing(buffer, HEADER_SIZE, capacity);
+        SharedMemoryRing toClient = new SharedMemoryRing(buffer,
+                HEADER_SIZE + SharedMemoryRing.CONTROL_SIZE + capacity, capacity);
+        this.outbound = clientSide ? toServer : toClient;
+        this.inbound = clientSide ? toClient : toServer;
+    }
+
+    /**
+     * 客户端在共享目录中创建连接文件，创建后等待服务端接入
+     * @param directory 共享目录
+     * @param ringCapacity 单向环形缓冲区容量，必须为2的幂且不小于MIN_RING_CAPACITY
+     */
+    public static SharedMemoryConnection create(Path directory, int ringCapacity) throws IOException {
+        if (ringCapacity < MIN_RING_CAPACITY || Integer.bitCount(ringCapacity) != 1) {
+            throw new IllegalArgumentException("环形缓冲区容量必须为不小于 " + MIN_RING_CAPACITY + " 的2的幂: "
+                    + ringCapacity);
+        }
+        Files.createDirectories(directory);
+        Path file = directory.resolve(ProcessHandle.current().pid() + "-" + FILE_INDEX.incrementAndGet()
+                + FILE_SUFFIX);
+        int size = fileSize(ringCapacity);
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(CAPACITY_OFFSET, ringCapacity);
+        buffer.putLong(CLIENT_PID_OFFSET, ProcessHandle.current().pid());
+        // 文件头写完后才发布就绪状态，服务端看到就绪时文件头一定完整
+        INTS.setRelease(buffer, CLIENT_STATE_OFFSET, STATE_READY);
+        return new SharedMemoryConnection(file, true, buffer, ringCapacity);
+    }
+
+    /**
+     * 服务端接入客户端创建的连接文件
+     * @param file 连接文件
+     * @return 接入的连接；文件尚未就绪、已被接入或格式不符时返回null
+     */
+    public static SharedMemoryConnection attach(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                return null;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        if ((int) INTS.getAcquire(buffer, CLIENT_STATE_OFFSET) != STATE_READY
+                || buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != VERSION) {
+            return null;
+        }
+        int capacity = buffer.getInt(CAPACITY_OFFSET);
+        if (capacity < MIN_RING_CAPACITY || Integer.bitCount(capacity) != 1 || buffer.capacity() != fileSize(capacity)) {
+            return null;
+        }
+        if (!isAlive(buffer.getLong(CLIENT_PID_OFFSET))) {
+            // 客户端异常退出时遗留的文件
+            Files.deleteIfExists(file);
+            return null;
+        }
+        if (!INTS.compareAndSet(buffer, SERVER_STATE_OFFSET, STATE_NONE, STATE_READY)) {
+            return null;
+        }
+        buffer.putLong(SERVER_PID_OFFSET, ProcessHandle.current().pid());
+        return new SharedMemoryConnection(file, false, buffer, capacity);
+    }
+
+    private static int fileSize(int ringCapacity) {
+        return HEADER_SIZE + 2 * (SharedMemoryRing.CONTROL_SIZE + ringCapacity);
+    }
+
+    /**
+     * 客户端等待服务端接入
+     * @return 超时前服务端已接入时返回true
+     */
+    public boolean awaitAttached(long timeout, TimeUnit unit, WaitStrategy strategy) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int attempt = 0;
+        while ((int) INTS.getAcquire(buffer, SERVER_STATE_OFFSET) == STATE_NONE) {
+            if (closed || System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            strategy.idle(attempt++);
+        }
+        return (int) INTS.getAcquire(buffer, SERVER_STATE_OFFSET) == STATE_READY;
+    }
+
+    /**
+     * 写入全部数据，环形缓冲区已满时按等待方式等待对端读取
+     * @param src 数据来源，写入的部分从中读出
+     * @return 全部写入时返回true，写入过程中本端或对端关闭时返回false
+     */
+    public boolean write(ByteBuf src, WaitStrategy strategy) {
+        int attempt = 0;
+        while (src.isReadable()) {
+            if (outbound.write(src) > 0) {
+                attempt = 0;
+            } else if (closed || isPeerClosed()) {
+                return false;
+            } else {
+                strategy.idle(attempt++);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 读取对端已写入的数据，不等待
+     * @return 读取的字节数，没有数据时为0
+     */
+    public int read(ByteBuf dst, int maxLength) {
+        return inbound.read(dst, maxLength);
+    }
+
+    /**
+     * 对端已写入、尚未读取的字节数
+     */
+    public int available() {
+        return inbound.available();
+    }
+
+    /**
+     * 对端是否已关闭，关闭前写入的数据仍可读取
+     */
+    public boolean isPeerClosed() {
+        int offset = clientSide ? SERVER_STATE_OFFSET : CLIENT_STATE_OFFSET;
+        return (int) INTS.getAcquire(buffer, offset) == STATE_CLOSED;
+    }
+
+    /**
+     * 对端进程是否仍在运行，对端尚未写入进程ID时视为运行中
+     */
+    public boolean isPeerAlive() {
+        long pid = buffer.getLong(clientSide ? SERVER_PID_OFFSET : CLIENT_PID_OFFSET);
+        return pid == 0 || isAlive(pid);
+    }
+
+    private static boolean isAlive(long pid) {
+        return ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 单向环形缓冲区容量
+     */
+    public int getRingCapacity() {
+        return outbound.capacity();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * 关闭连接，通知对端；客户端同时删除连接文件，映射在两端释放前仍然有效
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        INTS.setRelease(buffer, clientSide ? CLIENT_STATE_OFFSET : SERVER_STATE_OFFSET, STATE_CLOSED);
+        // 客户端进程异常退出时由服务端代为删除
+        if (clientSide || !isPeerAlive()) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+}
@@ -0,0 +1,118 @@
+package com.datacompress.shm;
+
+import io.netty.buffer.ByteBuf;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 共享内存中的单生产者单消费者字节环形缓冲区
+ * 控制区保存写入位置与读取位置，二者单调递增、各占一个缓存行，对容量取模得到数据区中的下标。
+ * 写入方复制数据后以release语义发布写入位置，读取方以acquire语义读取写入位置后再读数据；
+ * 读取方发布读取位置的方式相同，因此跨进程也不需要锁。
+ * 每端只由一个线程写入、一个线程读取。
+ */
+final class SharedMemoryRing {
+
+    /** 控制区字节数：写入位置与读取位置各占一个缓存行 */
+    static final int CONTROL_SIZE = 128;
+
+    private static final int TAIL_OFFSET = 0;
+    private static final int HEAD_OFFSET = 64;
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer buffer;
+    private final int tailOffset;
+    private final int headOffset;
+    private final int dataOffset;
+    private final int capacity;
+    private final int mask;
+    // 写入方与读取方各用一个视图复制数据，互不影响position与limit
+    private final ByteBuffer producerView;
+    private final ByteBuffer consumerView;
+
+    /**
+     * @param buffer 映射的共享内存
+     * @param offset 本环形缓冲区控制区的起始偏移，必须按8字节对齐
+     * @param capacity 数据区字节数，必须为2的幂
+     */
+    SharedMemoryRing(ByteBuffer buffer, int offset, int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("环形缓冲区容量必须为2的幂: " + capacity);
+        }
+        this.buffer = buffer;
+        this.tailOffset = offset + TAIL_OFFSET;
+        this.headOffset = offset + HEAD_OFFSET;
+        this.dataOffset = offset + CONTROL_SIZE;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.producerView = buffer.duplicate();
+        this.consumerView = buffer.duplicate();
+    }
+
+    /**
+     * 写入尽可能多的数据，不等待
+     * @param src 数据来源，读取位置随写入前进
+     * @return 写入的字节数，环形缓冲区已满时为0
+     */
+    int write(ByteBuf src) {
+        long tail = (long) LONGS.get(buffer, tailOffset);
+        long head = (long) LONGS.getAcquire(buffer, headOffset);
+        int length = Math.min(capacity - (int) (tail - head), src.readableBytes());
+        if (length <= 0) {
+            return 0;
+        }
+        int index = (int) tail & mask;
+        int first = Math.min(length, capacity - index);
+        src.readBytes(region(producerView, index, first));
+        if (first < length) {
+            src.readBytes(region(producerView, 0, length - first));
+        }
+        LONGS.setRelease(buffer, tailOffset, tail + length);
+        return length;
+    }
+
+    /**
+     * 读取尽可能多的数据，不等待
+     * @param dst 数据去向
+     * @param maxLength 最多读取的字节数
+     * @return 读取的字节数，环形缓冲区为空时为0
+     */
+    int read(ByteBuf dst, int maxLength) {
+        long head = (long) LONGS.get(buffer, headOffset);
+        long tail = (long) LONGS.getAcquire(buffer, tailOffset);
+        int length = Math.min((int) (tail - head), maxLength);
+        if (length <= 0) {
+            return 0;
+        }
+        int index = (int) head & mask;
+        int first = Math.min(length, capacity - index);
+        dst.writeBytes(region(consumerView, index, first));
+        if (first < length) {
+            dst.writeBytes(region(consumerView, 0, length - first));
+        }
+        LONGS.setRelease(buffer, headOffset, head + length);
+        return length;
+    }
+
+    /**
+     * 可读取的字节数
+     */
+    int available() {
+        return (int) ((long) LONGS.getAcquire(buffer, tailOffset) - (long) LONGS.get(buffer, headOffset));
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    private ByteBuffer region(ByteBuffer view, int index, int length) {
+        view.clear();
+        view.position(dataOffset + index);
+        view.limit(dataOffset + index + length);
+        return view;
+    }
+}
@@ -0,0 +1,42 @@
+package com.datacompress.shm;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 共享内存环形缓冲区为空（读取方）或已满（写入方）时的等待方式
+ * 两端位于不同进程，无法互相唤醒，只能反复检查对端写入的位置。
+ */
+public enum WaitStrategy {
+    
+    /** 持续自旋，延迟最低，等待期间占满一个CPU核 */
+    BUSY_SPIN {
+        @Override
+        public void idle(int attempt) {
+            Thread.onSpinWait();
+        }
+    },
+    
+    /** 先短暂自旋，再让出CPU，之后每次休眠一小段时间，空闲时几乎不占CPU */
+    PARK {
+        @Override
+        public void idle(int attempt) {
+            if (attempt < SPIN_ATTEMPTS) {
+                Thread.onSpinWait();
+            } else if (attempt < SPIN_ATTEMPTS + YIELD_ATTEMPTS) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    };
+    
+    private static final int SPIN_ATTEMPTS = 1000;
+    private static final int YIELD_ATTEMPTS = 100;
+    private static final long PARK_NANOS = 50_000;
+    
+    /**
+     * 等待一次
+     * @param attempt 本轮已连续等待的次数，检查到进展后应从0重新计数
+     */
+    public abstract void idle(int attempt);
+}
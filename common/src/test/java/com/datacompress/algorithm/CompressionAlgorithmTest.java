@@ -5,7 +5,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Random;
@@ -222,4 +224,30 @@ class CompressionAlgorithmTest {
             assertEquals(name, algorithm.getName(), "算法名称应该匹配");
         }
     }
+    
+    /**
+     * 测试流式解压：块接口的输出与流格式相同的算法，应能由解压流还原
+     */
+    @ParameterizedTest
+    @MethodSource("streamFormatProvider")
+    void testDecompressingStream(CompressionAlgorithm algorithm) throws IOException {
+        byte[] original = new byte[300 * 1024];
+        new Random(7).nextBytes(original);
+        Arrays.fill(original, 0, 200 * 1024, (byte) 'x');
+        
+        byte[] compressed = algorithm.compress(original);
+        try (InputStream in = algorithm.newDecompressingStream(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(original, in.readAllBytes(), algorithm.getName() + " 解压流的输出应与原始数据一致");
+        }
+    }
+    
+    static Stream<CompressionAlgorithm> streamFormatProvider() {
+        return Stream.of(
+            new NoCompression(),
+            new GzipCompression(),
+            new DeflateCompression(),
+            new ZstdCompression(),
+            new BrotliCompression()
+        );
+    }
 }
@@ -0,0 +1,75 @@
+package com.datacompress.algorithm;
+
+import com.datacompress.algorithm.impl.Lz4Compression;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 解压保护单元测试
+ */
+class DecompressionGuardTest {
+    
+    private static final int LIMIT = 2 * 1024 * 1024;
+    private final DecompressionGuard guard = new DecompressionGuard(LIMIT, 0, 16 * 1024);
+    
+    static Stream<CompressionAlgorithm> algorithmProvider() {
+        return CompressionAlgorithmTest.algorithmProvider();
+    }
+    
+    /**
+     * 测试解压输出超过上限时中止
+     */
+    @ParameterizedTest
+    @MethodSource("algorithmProvider")
+    void testRejectsOutputAboveLimit(CompressionAlgorithm algorithm) throws IOException {
+        byte[] compressed = algorithm.compress(new byte[LIMIT + 1]);
+        
+        assertThrows(DecompressionLimitException.class, () -> algorithm.decompress(compressed, guard),
+                algorithm.getName() + ": 超过上限的输出应被拒绝");
+    }
+    
+    /**
+     * 测试上限以内的数据正常解压
+     */
+    @ParameterizedTest
+    @MethodSource("algorithmProvider")
+    void testAllowsOutputWithinLimit(CompressionAlgorithm algorithm) throws IOException {
+        byte[] data = new byte[LIMIT];
+        new Random(1).nextBytes(data);
+        
+        assertArrayEquals(data, algorithm.decompress(algorithm.compress(data), guard),
+                algorithm.getName() + ": 上限以内的数据应正常解压");
+    }
+    
+    /**
+     * 测试压缩比超限时中止
+     */
+    @Test
+    void testRejectsRatioAboveLimit() throws IOException {
+        DecompressionGuard ratioGuard = new DecompressionGuard(Integer.MAX_VALUE, 100, 16 * 1024);
+        CompressionAlgorithm algorithm = CompressionFactory.getAlgorithm("Zstd");
+        byte[] compressed = algorithm.compress(new byte[8 * 1024 * 1024]);
+        
+        assertThrows(DecompressionLimitException.class, () -> algorithm.decompress(compressed, ratioGuard),
+                "压缩比超过上限应被拒绝");
+    }
+    
+    /**
+     * 测试伪造的LZ4原始长度在分配内存前被拒绝
+     */
+    @Test
+    void testRejectsForgedDeclaredSize() {
+        byte[] forged = ByteBuffer.allocate(16).putInt(Integer.MAX_VALUE - 16).array();
+        
+        assertThrows(DecompressionLimitException.class, () -> new Lz4Compression().decompress(forged, guard),
+                "伪造的原始长度应被拒绝");
+    }
+}
@@ -0,0 +1,68 @@
+package com.datacompress.algorithm.archive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多条目ZIP归档单元测试
+ */
+class ParallelZipArchiverTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * 测试目录打包后并行解压，文件内容与目录结构保持一致
+     */
+    @Test
+    void testArchiveAndExtractDirectory() throws IOException {
+        Path source = Files.createDirectories(tempDir.resolve("source"));
+        Files.createDirectories(source.resolve("sub/empty"));
+        long expectedSize = 0;
+        for (int i = 0; i < 50; i++) {
+            byte[] content = ("file-" + i + "-").repeat(100 + i).getBytes(StandardCharsets.UTF_8);
+            Path dir = i % 2 == 0 ? source : source.resolve("sub");
+            Files.write(dir.resolve("f" + i + ".txt"), content);
+            expectedSize += content.length;
+        }
+
+        ParallelZipArchiver archiver = new ParallelZipArchiver(4);
+        ParallelZipArchiver.ArchiveResult archive = archiver.archive(source, 6);
+        assertEquals(50, archive.getFileCount(), "归档文件数应为50");
+        assertEquals(expectedSize, archive.getTotalSize(), "归档原始大小应为各文件大小之和");
+        assertTrue(archive.getData().length < expectedSize, "归档后大小应小于原始大小");
+
+        Path target = tempDir.resolve("target");
+        ParallelZipArchiver.ExtractResult result = archiver.extract(archive.getData(), target);
+        assertEquals(50, result.getFileCount(), "解压文件数应为50");
+        assertEquals(expectedSize, result.getTotalSize(), "解压后总大小应与原始大小一致");
+
+        assertTrue(Files.isDirectory(target.resolve("sub/empty")), "空目录应被保留");
+        for (int i = 0; i < 50; i++) {
+            String relative = (i % 2 == 0 ? "" : "sub/") + "f" + i + ".txt";
+            assertArrayEquals(Files.readAllBytes(source.resolve(relative)),
+                Files.readAllBytes(target.resolve(relative)), relative + ": 解压内容应与原始文件一致");
+        }
+    }
+
+    /**
+     * 测试目标目录为null时只校验解压、不落盘
+     */
+    @Test
+    void testExtractWithoutTarget() throws IOException {
+        Path source = Files.createDirectories(tempDir.resolve("source"));
+        Files.write(source.resolve("a.txt"), "hello".getBytes(StandardCharsets.UTF_8));
+
+        ParallelZipArchiver archiver = new ParallelZipArchiver(2);
+        ParallelZipArchiver.ExtractResult result = archiver.extract(archiver.archive(source, 1).getData(), null);
+        assertEquals(1, result.getFileCount());
+        assertEquals(5, result.getTotalSize());
+    }
+}
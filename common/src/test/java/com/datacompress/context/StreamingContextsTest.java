@@ -0,0 +1,79 @@
+package com.datacompress.context;
+
+import com.datacompress.algorithm.CompressionAlgorithm;
+import com.datacompress.algorithm.CompressionFactory;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 连接级流式压缩上下文单元测试
+ */
+class StreamingContextsTest {
+    
+    /**
+     * 测试多条消息依次压缩解压，并且后续相似消息受益于前面的历史
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"DEFLATE", "Zstd"})
+    void testSuccessiveMessagesShareHistory(String algorithmName) throws IOException {
+        CompressionAlgorithm algorithm = CompressionFactory.getAlgorithm(algorithmName);
+        List<byte[]> messages = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            messages.add(sampleMessage(i));
+        }
+        messages.add(new byte[0]);
+        byte[] large = new byte[1024 * 1024];
+        new Random(1).nextBytes(large);
+        messages.add(large);
+        messages.add(sampleMessage(99));
+        
+        try (StreamingCompressor compressor = StreamingContexts.newCompressor(algorithm, algorithm.getDefaultLevel());
+             StreamingDecompressor decompressor = StreamingContexts.newDecompressor(algorithm)) {
+            List<byte[]> payloads = new ArrayList<>();
+            for (byte[] message : messages) {
+                payloads.add(compressor.compress(message));
+            }
+            
+            for (int i = 0; i < messages.size(); i++) {
+                assertArrayEquals(messages.get(i), decompressor.decompress(payloads.get(i), messages.get(i).length),
+                        algorithmName + ": 第 " + i + " 条消息解压结果不一致");
+            }
+            
+            int independent = algorithm.compress(messages.get(19)).length;
+            assertTrue(payloads.get(19).length < independent,
+                    algorithmName + ": 共享上下文的片段应小于独立压缩结果");
+        }
+    }
+    
+    /**
+     * 测试片段乱序时拒绝解压
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"DEFLATE", "Zstd"})
+    void testRejectsOutOfOrderSegment(String algorithmName) throws IOException {
+        CompressionAlgorithm algorithm = CompressionFactory.getAlgorithm(algorithmName);
+        try (StreamingCompressor compressor = StreamingContexts.newCompressor(algorithm, algorithm.getDefaultLevel());
+             StreamingDecompressor decompressor = StreamingContexts.newDecompressor(algorithm)) {
+            compressor.compress(sampleMessage(0));
+            byte[] second = compressor.compress(sampleMessage(1));
+            
+            assertThrows(IOException.class, () -> decompressor.decompress(second, sampleMessage(1).length),
+                    algorithmName + ": 跳过片段时应抛出异常");
+        }
+    }
+    
+    private static byte[] sampleMessage(int index) {
+        String json = "{\"deviceId\":\"sensor-" + (index % 3) + "\",\"type\":\"telemetry\",\"firmware\":\"2.4.1\","
+                + "\"location\":{\"site\":\"warehouse-east\",\"rack\":12},\"readings\":{\"temperature\":"
+                + (20 + index % 5) + ",\"humidity\":" + (40 + index % 7) + "},\"seq\":" + index + "}";
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,98 @@
+package com.datacompress.crypto;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分块认证加密测试
+ */
+class PayloadCipherTest {
+
+    private static final int CHUNK_SIZE = 4096;
+
+    @ParameterizedTest
+    @EnumSource(CipherSuite.class)
+    void testRoundTrip(CipherSuite suite) throws IOException {
+        PayloadCipher cipher = new PayloadCipher(PreSharedKey.generate(), suite, CHUNK_SIZE);
+        for (int length : new int[]{0, 1, CHUNK_SIZE, CHUNK_SIZE + 1, 5 * CHUNK_SIZE + 123}) {
+            byte[] plaintext = new byte[length];
+            new Random(length).nextBytes(plaintext);
+
+            byte[] ciphertext = cipher.encrypt(plaintext);
+            int chunks = Math.max(1, (length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+            assertEquals(PayloadCipher.HEADER_SIZE + length + chunks * PayloadCipher.TAG_SIZE, ciphertext.length,
+                    "密文长度应为密文头加每个分块的标签");
+            assertArrayEquals(plaintext, cipher.decrypt(ciphertext), suite + " 解密后应与明文一致，长度 " + length);
+
+            // 直接内存中的密文（解码器交付的切片）同样可以解密
+            ByteBuffer direct = ByteBuffer.allocateDirect(ciphertext.length);
+            direct.put(ciphertext).flip();
+            assertArrayEquals(plaintext, cipher.decrypt(direct));
+            assertEquals(0, direct.position(), "解密不应移动输入的position");
+        }
+    }
+
+    @Test
+    void testSameInputEncryptsDifferently() {
+        PayloadCipher cipher = new PayloadCipher(PreSharedKey.generate(), CipherSuite.AES_GCM);
+        byte[] plaintext = "same compressed bytes".getBytes(StandardCharsets.UTF_8);
+        assertFalse(Arrays.equals(cipher.encrypt(plaintext), cipher.encrypt(plaintext)),
+                "每份密文应使用新的随机数前缀");
+    }
+
+    @Test
+    void testRejectsTamperingAndTruncation() {
+        PayloadCipher cipher = new PayloadCipher(PreSharedKey.generate(), CipherSuite.CHACHA20_POLY1305, CHUNK_SIZE);
+        byte[] plaintext = new byte[3 * CHUNK_SIZE];
+        new Random(3).nextBytes(plaintext);
+        byte[] ciphertext = cipher.encrypt(plaintext);
+        int stride = CHUNK_SIZE + PayloadCipher.TAG_SIZE;
+
+        byte[] flipped = ciphertext.clone();
+        flipped[PayloadCipher.HEADER_SIZE + 10] ^= 1;
+        assertThrows(IOException.class, () -> cipher.decrypt(flipped), "篡改的密文应认证失败");
+
+        byte[] truncated = Arrays.copyOf(ciphertext, PayloadCipher.HEADER_SIZE + 2 * stride);
+        assertThrows(IOException.class, () -> cipher.decrypt(truncated), "在分块边界截断的密文应认证失败");
+
+        byte[] swapped = ciphertext.clone();
+        System.arraycopy(ciphertext, PayloadCipher.HEADER_SIZE + stride, swapped, PayloadCipher.HEADER_SIZE, stride);
+        System.arraycopy(ciphertext, PayloadCipher.HEADER_SIZE, swapped, PayloadCipher.HEADER_SIZE + stride, stride);
+        assertThrows(IOException.class, () -> cipher.decrypt(swapped), "调换顺序的分块应认证失败");
+
+        PayloadCipher otherKey = new PayloadCipher(PreSharedKey.generate(), CipherSuite.CHACHA20_POLY1305);
+        IOException e = assertThrows(IOException.class, () -> otherKey.decrypt(ciphertext));
+        assertTrue(e.getMessage().contains("密钥ID"), "密钥不同时应在解密前指出密钥ID不一致");
+    }
+
+    @Test
+    void testLoadKeyFileFormats(@TempDir Path dir) throws IOException {
+        PreSharedKey key = PreSharedKey.generate();
+        Path hexFile = dir.resolve("psk.hex");
+        key.save(hexFile);
+        assertEquals(key, PreSharedKey.load(hexFile));
+
+        byte[] raw = new byte[PreSharedKey.KEY_SIZE];
+        new Random(5).nextBytes(raw);
+        Path rawFile = Files.write(dir.resolve("psk.bin"), raw);
+        Path base64File = Files.write(dir.resolve("psk.b64"),
+                (Base64.getEncoder().encodeToString(raw) + "\n").getBytes(StandardCharsets.US_ASCII));
+        assertEquals(PreSharedKey.load(rawFile), PreSharedKey.load(base64File));
+
+        Path shortFile = Files.write(dir.resolve("short.key"), "abcd".getBytes(StandardCharsets.US_ASCII));
+        assertThrows(IOException.class, () -> PreSharedKey.load(shortFile), "长度不足的密钥应被拒绝");
+    }
+}
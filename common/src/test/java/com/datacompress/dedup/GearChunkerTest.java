@@ -0,0 +1,136 @@
+package com.datacompress.dedup;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 内容定义分块与去重负载单元测试
+ */
+class GearChunkerTest {
+    
+    private final GearChunker chunker = new GearChunker(2 * 1024, 8 * 1024, 32 * 1024);
+    
+    /**
+     * 测试分块连续覆盖全部数据且长度在限制范围内
+     */
+    @Test
+    void testChunksCoverData() {
+        byte[] data = randomData(1024 * 1024, 1);
+        List<Chunk> chunks = chunker.split(data);
+        
+        int expectedOffset = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk chunk = chunks.get(i);
+            assertEquals(expectedOffset, chunk.getOffset(), "分块应连续");
+            assertTrue(chunk.getLength() <= 32 * 1024, "分块不应超过最大长度");
+            if (i < chunks.size() - 1) {
+                assertTrue(chunk.getLength() >= 2 * 1024, "非末尾分块不应小于最小长度");
+            }
+            expectedOffset += chunk.getLength();
+        }
+        assertEquals(data.length, expectedOffset, "分块总长度应等于数据长度");
+    }
+    
+    /**
+     * 测试在数据头部插入内容后，绝大部分分块仍然可以复用
+     */
+    @Test
+    void testBoundariesResynchronizeAfterInsertion() {
+        byte[] original = randomData(1024 * 1024, 2);
+        byte[] modified = new byte[original.length + 100];
+        new Random(3).nextBytes(modified);
+        System.arraycopy(original, 0, modified, 100, original.length);
+        
+        Set<String> known = new HashSet<>();
+        for (Chunk chunk : chunker.split(original)) {
+            known.add(ChunkFingerprint.toHex(chunk.getFingerprint()));
+        }
+        
+        List<Chunk> chunks = chunker.split(modified);
+        long reused = chunks.stream().filter(c -> known.contains(ChunkFingerprint.toHex(c.getFingerprint()))).count();
+        assertTrue(reused >= chunks.size() - 3, "插入数据后应只有少数分块变化，复用: " + reused + "/" + chunks.size());
+    }
+    
+    /**
+     * 测试去重负载编解码：只内联缺失分块，重复分块只内联一次
+     */
+    @Test
+    void testPayloadRoundTrip() throws IOException {
+        byte[] block = randomData(64 * 1024, 4);
+        byte[] data = new byte[block.length * 3];
+        for (int i = 0; i < 3; i++) {
+            System.arraycopy(block, 0, data, i * block.length, block.length);
+        }
+        
+        List<Chunk> chunks = chunker.split(data);
+        BitSet missing = new BitSet();
+        missing.set(0, chunks.size());
+        
+        DedupPayload payload = DedupPayload.decode(DedupPayload.encode(data, chunks, missing));
+        assertEquals(chunks.size(), payload.getEntries().size());
+        assertEquals(data.length, payload.getTotalSize());
+        
+        long inlineBytes = payload.getEntries().stream().filter(DedupPayload.Entry::isInline)
+            .mapToLong(DedupPayload.Entry::getLength).sum();
+        assertTrue(inlineBytes < data.length, "重复分块不应重复内联");
+        
+        for (DedupPayload.Entry entry : payload.getEntries()) {
+            if (entry.isInline()) {
+                assertArrayEquals(entry.getFingerprint(),
+                    ChunkFingerprint.of(payload.getBuffer(), entry.getDataOffset(), entry.getLength()));
+            }
+        }
+    }
+    
+    /**
+     * 测试从文件顺序分块与内存分块的边界一致，按偏移编码的负载与内存编码相同
+     * 数据超过流式缓冲区，覆盖缓冲区滑动的情况
+     */
+    @Test
+    void testFileSourceMatchesInMemory(@TempDir Path dir) throws IOException {
+        byte[] data = randomData(3 * 1024 * 1024 + 123, 5);
+        Path file = dir.resolve("data.bin");
+        Files.write(file, data);
+        
+        List<Chunk> expected = chunker.split(data);
+        try (ChunkSource source = ChunkSource.open(file)) {
+            assertEquals(data.length, source.size());
+            
+            List<Chunk> chunks;
+            try (InputStream in = source.openStream()) {
+                chunks = chunker.split(in);
+            }
+            assertEquals(expected.size(), chunks.size(), "分块数应一致");
+            for (int i = 0; i < chunks.size(); i++) {
+                assertEquals(expected.get(i).getOffset(), chunks.get(i).getOffset(), "分块偏移应一致");
+                assertEquals(expected.get(i).getLength(), chunks.get(i).getLength(), "分块长度应一致");
+                assertArrayEquals(expected.get(i).getFingerprint(), chunks.get(i).getFingerprint(), "分块指纹应一致");
+            }
+            
+            BitSet missing = new BitSet();
+            for (int i = 0; i < chunks.size(); i += 2) {
+                missing.set(i);
+            }
+            assertArrayEquals(DedupPayload.encode(data, expected, missing),
+                DedupPayload.encode(source, chunks, missing), "按偏移读取编码的负载应与内存编码一致");
+        }
+    }
+    
+    private static byte[] randomData(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,47 @@
+package com.datacompress.delta;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Zstd增量编解码单元测试
+ */
+class ZstdDeltaCodecTest {
+    
+    /**
+     * 测试少量修改时增量远小于原文件且可以还原
+     */
+    @Test
+    void testSmallEditProducesSmallDelta() throws IOException {
+        byte[] reference = new byte[2 * 1024 * 1024];
+        new Random(1).nextBytes(reference);
+        byte[] target = reference.clone();
+        target[1000] ^= 1;
+        target[target.length / 2] ^= 1;
+        
+        byte[] delta = ZstdDeltaCodec.encode(reference, target, 3);
+        
+        assertTrue(delta.length < 4096, "增量应远小于原文件，实际: " + delta.length);
+        assertArrayEquals(target, ZstdDeltaCodec.decode(reference, delta), "还原数据应与新文件一致");
+    }
+    
+    /**
+     * 测试参考文件不一致时拒绝还原
+     */
+    @Test
+    void testRejectsMismatchedReference() throws IOException {
+        byte[] reference = new byte[64 * 1024];
+        new Random(2).nextBytes(reference);
+        byte[] delta = ZstdDeltaCodec.encode(reference, reference, 3);
+        
+        byte[] otherReference = reference.clone();
+        otherReference[0] ^= 1;
+        
+        assertThrows(IOException.class, () -> ZstdDeltaCodec.decode(otherReference, delta),
+                "参考文件不一致时应抛出异常");
+    }
+}
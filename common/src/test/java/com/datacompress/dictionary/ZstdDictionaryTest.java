@@ -0,0 +1,54 @@
+package com.datacompress.dictionary;
+
+import com.datacompress.algorithm.DecompressionGuard;
+import com.github.luben.zstd.Zstd;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Zstd字典测试
+ */
+class ZstdDictionaryTest {
+
+    @Test
+    void testDictionaryShrinksSmallPayloads(@TempDir Path dir) throws IOException {
+        Random random = new Random(11);
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            samples.add(reading(random));
+        }
+        ZstdDictionary dictionary = ZstdDictionary.train(samples, ZstdDictionary.DEFAULT_MAX_SIZE);
+
+        byte[] payload = reading(random);
+        byte[] compressed = dictionary.compress(payload, 3);
+        assertTrue(compressed.length < Zstd.compress(payload, 3).length, "同类小数据以字典压缩应更小");
+
+        // 另一端从文件加载的字典ID相同，可以还原
+        Path file = dir.resolve("sensor" + ZstdDictionary.FILE_SUFFIX);
+        dictionary.save(file);
+        ZstdDictionary loaded = ZstdDictionary.load(file);
+        assertEquals(dictionary.getId(), loaded.getId());
+        assertArrayEquals(payload, loaded.decompress(compressed, payload.length, DecompressionGuard.UNLIMITED));
+
+        assertThrows(IOException.class,
+                () -> loaded.decompress(compressed, payload.length - 1, DecompressionGuard.UNLIMITED),
+                "声明的原始大小不符时应失败");
+    }
+
+    private static byte[] reading(Random random) {
+        String json = String.format("{\"device\":\"sensor-%03d\",\"temperature\":%.2f,\"humidity\":%.1f,"
+                        + "\"pressure\":%d,\"status\":\"%s\"}",
+                random.nextInt(50), 15 + random.nextDouble() * 10, 30 + random.nextDouble() * 40,
+                990 + random.nextInt(40), random.nextBoolean() ? "OK" : "WARN");
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
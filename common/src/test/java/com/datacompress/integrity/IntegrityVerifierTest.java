@@ -0,0 +1,73 @@
+package com.datacompress.integrity;
+
+import com.datacompress.protocol.IntegrityStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 完整性校验单元测试
+ */
+class IntegrityVerifierTest {
+    
+    private static final int BLOCK_SIZE = 4096;
+    
+    /**
+     * 测试按任意大小分段送入数据时校验通过
+     */
+    @Test
+    void testVerifiesDataFedInPieces() throws IntegrityException {
+        byte[] data = randomData(10 * BLOCK_SIZE + 123);
+        IntegrityInfo info = IntegrityInfo.compute(data, BLOCK_SIZE);
+        assertEquals(11, info.getBlockCount(), "末尾不足一块的数据也应有校验和");
+        
+        IntegrityVerifier verifier = new IntegrityVerifier(info, data.length, true);
+        int offset = 0;
+        int piece = 1;
+        while (offset < data.length) {
+            int length = Math.min(piece, data.length - offset);
+            verifier.update(data, offset, length);
+            offset += length;
+            piece = piece * 3 + 7;
+        }
+        
+        assertEquals(info.getFileHash(), verifier.finish(), "计算的文件哈希应与期望一致");
+        assertEquals(IntegrityStatus.VERIFIED, verifier.getStatus(), "校验状态应为通过");
+        assertTrue(verifier.hasHashToReturn(), "请求返回哈希时应携带哈希");
+    }
+    
+    /**
+     * 测试损坏的数据块在送入时立即被发现
+     */
+    @Test
+    void testDetectsCorruptedBlock() {
+        byte[] data = randomData(4 * BLOCK_SIZE);
+        IntegrityInfo info = IntegrityInfo.compute(data, BLOCK_SIZE);
+        data[2 * BLOCK_SIZE + 10] ^= 1;
+        
+        IntegrityVerifier verifier = new IntegrityVerifier(info, data.length, false);
+        IntegrityException e = assertThrows(IntegrityException.class, () -> verifier.update(data),
+                "损坏的数据块应校验失败");
+        assertTrue(e.getMessage().contains("第 2 块"), "异常信息应指出损坏的块: " + e.getMessage());
+    }
+    
+    /**
+     * 测试数据被截断时校验失败
+     */
+    @Test
+    void testDetectsTruncatedData() throws IntegrityException {
+        byte[] data = randomData(3 * BLOCK_SIZE);
+        IntegrityVerifier verifier = new IntegrityVerifier(IntegrityInfo.compute(data, BLOCK_SIZE), data.length, false);
+        verifier.update(data, 0, data.length - 1);
+        
+        assertThrows(IntegrityException.class, verifier::finish, "数据不完整时应校验失败");
+    }
+    
+    private static byte[] randomData(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+}
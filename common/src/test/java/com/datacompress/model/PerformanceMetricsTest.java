@@ -62,6 +62,32 @@ class PerformanceMetricsTest {
         assertEquals(4000, metrics.getTotalRoundTripTime());
     }
     
+    @Test
+    void testReceiptSplitsNetworkAndServerTime() {
+        PerformanceMetrics metrics = new PerformanceMetrics();
+        metrics.setSendStartTime(1000);
+        metrics.setResponseReceivedTime(1900);
+        assertEquals(0, metrics.getNetworkRoundTripTime(), "未收到接收确认时无法区分");
+        assertEquals(0, metrics.getServerProcessingTime());
+        assertFalse(metrics.toString().contains("networkTime"));
+        
+        metrics.setReceiptReceivedTime(1300);
+        assertEquals(300, metrics.getNetworkRoundTripTime());
+        assertEquals(600, metrics.getServerProcessingTime());
+        assertTrue(metrics.toString().contains("networkTime=300ms, serverTime=600ms"));
+    }
+    
+    @Test
+    void testLevelTrajectorySummary() {
+        PerformanceMetrics metrics = new PerformanceMetrics();
+        assertEquals("", metrics.getLevelTrajectorySummary());
+        assertFalse(metrics.toString().contains("levels"));
+        
+        metrics.setLevelTrajectory(new int[]{3, 3, 4, 5, 5, 5, 4});
+        assertEquals("3x2 -> 4x1 -> 5x3 -> 4x1", metrics.getLevelTrajectorySummary());
+        assertTrue(metrics.toString().contains("levels=3x2"));
+    }
+    
     @Test
     void testToString() {
         PerformanceMetrics metrics = new PerformanceMetrics();
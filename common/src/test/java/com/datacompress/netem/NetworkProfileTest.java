@@ -0,0 +1,49 @@
+package com.datacompress.netem;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 链路条件解析测试
+ */
+class NetworkProfileTest {
+
+    @Test
+    void testParsePresets() {
+        assertSame(NetworkProfile.LAN, NetworkProfile.parse("lan"));
+        assertSame(NetworkProfile.MOBILE_4G, NetworkProfile.parse(" 4G "));
+        assertSame(NetworkProfile.SATELLITE, NetworkProfile.parse("Satellite"));
+        assertNull(NetworkProfile.parse(""), "空配置表示不模拟");
+        assertNull(NetworkProfile.parse(null));
+    }
+
+    @Test
+    void testParseOverrides() {
+        NetworkProfile profile = NetworkProfile.parse("wan, rtt=80, loss=0.5%");
+        assertEquals(80, profile.getRttMillis());
+        assertEquals(0.005, profile.getLossRate(), 1e-12);
+        assertEquals(NetworkProfile.WAN.getUplinkBitsPerSecond(), profile.getUplinkBitsPerSecond(), "未覆盖的项沿用预置值");
+        assertEquals(NetworkProfile.WAN.getJitterMillis(), profile.getJitterMillis());
+
+        NetworkProfile custom = NetworkProfile.parse("up=2.5,down=100,rtt=30,jitter=4,loss=1");
+        assertEquals(2_500_000, custom.getUplinkBitsPerSecond());
+        assertEquals(100_000_000, custom.getDownlinkBitsPerSecond());
+        assertEquals(30, custom.getRttMillis());
+        assertEquals(4, custom.getJitterMillis());
+        assertEquals(0.01, custom.getLossRate(), 1e-12);
+
+        NetworkProfile latencyOnly = NetworkProfile.parse("rtt=50");
+        assertEquals(0, latencyOnly.getUplinkBitsPerSecond(), "未指定带宽时不限速");
+        assertEquals(0, latencyOnly.getDownlinkBitsPerSecond());
+    }
+
+    @Test
+    void testRejectsInvalidSpec() {
+        assertThrows(IllegalArgumentException.class, () -> NetworkProfile.parse("dialup"), "未知的预置名称");
+        assertThrows(IllegalArgumentException.class, () -> NetworkProfile.parse("lan,mtu=1500"), "未知的配置项");
+        assertThrows(IllegalArgumentException.class, () -> NetworkProfile.parse("rtt=fast"), "非数字的值");
+        assertThrows(IllegalArgumentException.class, () -> NetworkProfile.parse("loss=100%"), "丢包率必须小于100%");
+        assertThrows(IllegalArgumentException.class, () -> NetworkProfile.parse("rtt=-1"));
+    }
+}
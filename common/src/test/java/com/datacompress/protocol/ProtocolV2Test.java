@@ -0,0 +1,413 @@
+package com.datacompress.protocol;
+
+import com.datacompress.integrity.IntegrityInfo;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * v2协议与握手协商单元测试
+ */
+class ProtocolV2Test {
+    
+    private static final HelloMessage FULL_HELLO =
+            new HelloMessage(ProtocolSession.V2, new byte[]{0, 1, 2, 7}, 1 << 20, ProtocolFeatures.ALL);
+    
+    /**
+     * 测试协商取版本较低者，算法与特性取交集，单帧上限取对端的值
+     */
+    @Test
+    void testNegotiation() {
+        HelloMessage remote = new HelloMessage(ProtocolSession.V2, new byte[]{1, 7, 9}, 4096,
+                ProtocolFeatures.INTEGRITY | ProtocolFeatures.DELTA);
+        ProtocolSession session = ProtocolSession.negotiate(FULL_HELLO, remote);
+        
+        assertEquals(ProtocolSession.V2, session.getVersion());
+        assertTrue(session.supportsAlgorithm((byte) 1));
+        assertTrue(session.supportsAlgorithm((byte) 7));
+        assertFalse(session.supportsAlgorithm((byte) 0), "对端不支持的算法不应保留");
+        assertFalse(session.supportsAlgorithm((byte) 9), "本端不支持的算法不应保留");
+        assertEquals(4096, session.getMaxFrameSize());
+        assertTrue(session.supportsFeature(ProtocolFeatures.DELTA));
+        assertFalse(session.supportsFeature(ProtocolFeatures.DEDUP));
+    }
+    
+    /**
+     * 测试各类消息以v2帧编码后能被统一解码器还原
+     */
+    @Test
+    void testRoundTripAllMessages() {
+        EmbeddedChannel sender = v2Channel(new HelloMessageEncoder(), new HeartbeatMessageEncoder(),
+                new ResponseMessageEncoder(), new ChunkQueryMessageEncoder(), new ChunkQueryResponseEncoder());
+        EmbeddedChannel receiver = new EmbeddedChannel(new UnifiedMessageDecoder());
+        
+        BitSet missing = new BitSet();
+        missing.set(3);
+        ResponseMessage response = new ResponseMessage(1, 2, 3, 1_700_000_000_000L, true, "完成");
+        response.setIntegrityStatus(IntegrityStatus.VERIFIED);
+        response.setFileHash(-42L);
+        response.setRequestId(300);
+        ChunkQueryMessage sentQuery = new ChunkQueryMessage(Collections.singletonList(new byte[32]));
+        sentQuery.setRequestId(Long.MAX_VALUE);
+        
+        sender.writeOutbound(FULL_HELLO, new HeartbeatMessage(123456789L), response,
+                sentQuery, new ChunkQueryResponse(5, missing));
+        forward(sender, receiver);
+        
+        HelloMessage hello = receiver.readInbound();
+        assertArrayEquals(FULL_HELLO.getAlgorithmIds(), hello.getAlgorithmIds());
+        assertEquals(FULL_HELLO.getMaxFrameSize(), hello.getMaxFrameSize());
+        assertEquals(ProtocolFeatures.ALL, hello.getFeatures());
+        
+        HeartbeatMessage heartbeat = receiver.readInbound();
+        assertEquals(123456789L, heartbeat.getTimestamp());
+        
+        ResponseMessage decodedResponse = receiver.readInbound();
+        assertEquals("完成", decodedResponse.getMessage());
+        assertEquals(1_700_000_000_000L, decodedResponse.getDecompressEndTime());
+        assertEquals(IntegrityStatus.VERIFIED, decodedResponse.getIntegrityStatus());
+        assertEquals(-42L, decodedResponse.getFileHash(), "负数哈希应按定长原样传输");
+        assertEquals(300, decodedResponse.getRequestId());
+        
+        ChunkQueryMessage query = receiver.readInbound();
+        assertEquals(1, query.getFingerprints().size());
+        assertEquals(Long.MAX_VALUE, query.getRequestId());
+        
+        ChunkQueryResponse result = receiver.readInbound();
+        assertEquals(5, result.getChunkCount());
+        assertEquals(0, result.getRequestId(), "未分配的请求ID应为0");
+        assertEquals(missing, result.getMissing());
+        assertFalse(receiver.finish());
+    }
+    
+    /**
+     * 测试v2传输消息保留全部字段，且同一条普通传输的消息头比v1更短
+     */
+    @Test
+    void testTransferIsSmallerThanV1() {
+        byte[] data = {9, 8, 7};
+        TransferMessage plain = new TransferMessage((byte) 7, 1000, data.length,
+                1_700_000_000_000L, 1_700_000_000_010L, 1_700_000_000_020L, 1_700_000_000_030L, "a.txt", data);
+        ByteBuf v1 = TransferMessageEncoderTest.encode(new EmbeddedChannel(new TransferMessageEncoder()), plain);
+        ByteBuf plainV2 = TransferMessageEncoderTest.encode(v2Channel(new TransferMessageEncoder()), plain);
+        assertTrue(plainV2.readableBytes() < v1.readableBytes(), "varint编码的v2消息头应更短");
+        v1.release();
+        plainV2.release();
+        
+        TransferMessage sent = new TransferMessage((byte) 7, 1000, data.length,
+                1_700_000_000_000L, 1_700_000_000_010L, 1_700_000_000_020L, 1_700_000_000_030L, "a.txt", data);
+        sent.setTransferMode(TransferMode.DELTA);
+        sent.setReferenceName("old.txt");
+        sent.setIntegrity(IntegrityInfo.compute(new byte[1000], 512));
+        sent.setRequestId(77);
+        ByteBuf v2 = TransferMessageEncoderTest.encode(v2Channel(new TransferMessageEncoder()), sent);
+        assertEquals(ProtocolV2.MAGIC_FIRST_BYTE, v2.getByte(0));
+        
+        EmbeddedChannel receiver = new EmbeddedChannel(new UnifiedMessageDecoder());
+        receiver.writeInbound(v2);
+        TransferMessage received = receiver.readInbound();
+        assertEquals(7, received.getAlgorithmId());
+        assertEquals(TransferMode.DELTA, received.getTransferMode());
+        assertEquals(1_700_000_000_030L, received.getSendEndTime());
+        assertEquals("old.txt", received.getReferenceName());
+        assertEquals(sent.getIntegrity().getFileHash(), received.getIntegrity().getFileHash());
+        assertArrayEquals(data, received.getCompressedData());
+        assertEquals(77, received.getRequestId());
+        received.release();
+        assertFalse(receiver.finish());
+    }
+    
+    /**
+     * 测试v1帧不携带请求ID，解码后为0（由客户端按发送顺序对应）
+     */
+    @Test
+    void testV1CarriesNoRequestId() {
+        ResponseMessage response = new ResponseMessage(1, 2, 3, 4, true, "完成");
+        response.setRequestId(99);
+        
+        EmbeddedChannel sender = new EmbeddedChannel(new ResponseMessageEncoder());
+        EmbeddedChannel receiver = new EmbeddedChannel(new UnifiedMessageDecoder());
+        sender.writeOutbound(response);
+        forward(sender, receiver);
+        
+        ResponseMessage decoded = receiver.readInbound();
+        assertEquals("完成", decoded.getMessage());
+        assertEquals(0, decoded.getRequestId());
+        assertFalse(receiver.finish());
+    }
+    
+    /**
+     * 测试条带传输分片的传输ID与偏移、以及分片已接收的响应标志能够往返
+     */
+    @Test
+    void testStripeChunkRoundTrip() {
+        byte[] data = new byte[100];
+        Arrays.fill(data, (byte) 5);
+        TransferMessage chunk = new TransferMessage();
+        chunk.setAlgorithmId((byte) 1);
+        chunk.setCompressedSize(1000);
+        chunk.setFileName("big.bin");
+        chunk.setTransferId(-1234567890123L);
+        chunk.setChunkOffset(900);
+        chunk.setPayload(Unpooled.wrappedBuffer(data));
+        
+        EmbeddedChannel receiver = new EmbeddedChannel(new UnifiedMessageDecoder());
+        receiver.writeInbound(TransferMessageEncoderTest.encode(v2Channel(new TransferMessageEncoder()), chunk));
+        TransferMessage received = receiver.readInbound();
+        assertTrue(received.isChunk());
+        assertEquals(-1234567890123L, received.getTransferId());
+        assertEquals(900, received.getChunkOffset());
+        assertEquals(1000, received.getCompressedSize());
+        assertArrayEquals(data, received.getCompressedData());
+        received.release();
+        
+        ResponseMessage partial = new ResponseMessage(1, 2, 0, 0, true, "分片已接收");
+        partial.setPartial(true);
+        EmbeddedChannel sender = v2Channel(new ResponseMessageEncoder());
+        sender.writeOutbound(partial);
+        forward(sender, receiver);
+        assertTrue(((ResponseMessage) receiver.readInbound()).isPartial());
+        assertFalse(receiver.finish());
+    }
+    
+    /**
+     * 测试超出压缩数据总长的分片被拒绝
+     */
+    @Test
+    void testRejectsChunkBeyondTotal() {
+        TransferMessage chunk = new TransferMessage();
+        chunk.setCompressedSize(10);
+        chunk.setTransferId(1);
+        chunk.setChunkOffset(5);
+        chunk.setPayload(Unpooled.wrappedBuffer(new byte[6]));
+        
+        ByteBuf frame = TransferMessageEncoderTest.encode(v2Channel(new TransferMessageEncoder()), chunk);
+        EmbeddedChannel receiver = new EmbeddedChannel(new UnifiedMessageDecoder());
+        assertThrows(DecoderException.class, () -> receiver.writeInbound(frame));
+        receiver.finishAndReleaseAll();
+    }
+    
+    /**
+     * 测试流式分片的流ID、序号与结束标志能够往返，且非流式帧上的结束标志被拒绝
+     */
+    @Test
+    void testStreamChunkRoundTrip() {
+        byte[] data = {1, 2, 3};
+        TransferMessage chunk = new TransferMessage((byte) 1, 10, data.length, 0, 0, 0, 0, "log.txt", data);
+        chunk.setTransferMode(TransferMode.STREAM);
+        chunk.setStreamId(-5L);
+        chunk.setStreamSequence(300);
+        chunk.setStreamEnd(true);
+
+        EmbeddedChannel receiver = new EmbeddedChannel(new UnifiedMessageDecoder());
+        receiver.writeInbound(TransferMessageEncoderTest.encode(v2Channel(new TransferMessageEncoder()), chunk));
+        TransferMessage received = receiver.readInbound();
+        assertEquals(TransferMode.STREAM, received.getTransferMode());
+        assertEquals(-5L, received.getStreamId());
+        assertEquals(300, received.getStreamSequence());
+        assertTrue(received.isStreamEnd());
+        assertArrayEquals(data, received.getCompressedData());
+        received.release();
+        assertFalse(receiver.finish());
+
+        chunk.setTransferMode(TransferMode.NORMAL);
+        ByteBuf frame = TransferMessageEncoderTest.encode(v2Channel(new TransferMessageEncoder()), chunk);
+        // 编码端只在STREAM模式下写出结束标志，手工置位模拟损坏的帧
+        frame.setByte(4, frame.getByte(4) | TransferFlags.STREAM_END);
+        EmbeddedChannel strict = new EmbeddedChannel(new UnifiedMessageDecoder());
+        assertThrows(DecoderException.class, () -> strict.writeInbound(frame));
+        strict.finishAndReleaseAll();
+    }
+
+    /**
+     * 测试加密标志随传输消息往返，解密计时随响应往返，未解密的响应不携带计时
+     */
+    @Test
+    void testEncryptedTransferAndDecryptTimings() {
+        byte[] data = {9, 8, 7};
+        TransferMessage transfer = new TransferMessage((byte) 7, 10, data.length, 0, 0, 0, 0, "secret.bin", data);
+        transfer.setEncrypted(true);
+        ResponseMessage decrypted = new ResponseMessage(1, 2, 5, 6, true, "解压成功");
+        decrypted.setDecryptStartTime(3);
+        decrypted.setDecryptEndTime(4);
+        ResponseMessage plain = new ResponseMessage(1, 2, 3, 4, true, "解压成功");
+        
+        EmbeddedChannel sender = v2Channel(new TransferMessageEncoder(), new ResponseMessageEncoder());
+        EmbeddedChannel receiver = new EmbeddedChannel(new UnifiedMessageDecoder());
+        sender.writeOutbound(transfer, decrypted, plain);
+        forward(sender, receiver);
+        
+        TransferMessage received = receiver.readInbound();
+        assertTrue(received.isEncrypted());
+        assertArrayEquals(data, received.getCompressedData());
+        received.release();
+        
+        ResponseMessage decodedDecrypted = receiver.readInbound();
+        assertTrue(decodedDecrypted.isDecrypted());
+        assertEquals(3, decodedDecrypted.getDecryptStartTime());
+        assertEquals(4, decodedDecrypted.getDecryptEndTime());
+        ResponseMessage decodedPlain = receiver.readInbound();
+        assertFalse(decodedPlain.isDecrypted());
+        assertFalse(receiver.finish());
+        
+        EmbeddedChannel v1 = new EmbeddedChannel(new TransferMessageEncoder());
+        assertThrows(io.netty.handler.codec.EncoderException.class, () -> v1.writeOutbound(transfer),
+                "v1协议不应发送加密传输");
+    }
+    
+    /**
+     * 测试续传进度查询与查询结果能够往返
+     */
+    @Test
+    void testResumeQueryRoundTrip() {
+        ResumeQueryMessage query = new ResumeQueryMessage(-77L);
+        query.setRequestId(12);
+        ResumeQueryResponse result = new ResumeQueryResponse(ResumeQueryResponse.RESUMABLE, 900, 5L << 32);
+        result.setRequestId(12);
+        
+        EmbeddedChannel sender = new EmbeddedChannel(new ResumeQueryMessageEncoder(), new ResumeQueryResponseEncoder());
+        EmbeddedChannel receiver = new EmbeddedChannel(new UnifiedMessageDecoder());
+        sender.writeOutbound(query, result);
+        forward(sender, receiver);
+        
+        ResumeQueryMessage decodedQuery = receiver.readInbound();
+        assertEquals(-77L, decodedQuery.getStreamId());
+        assertEquals(12, decodedQuery.getRequestId());
+        
+        ResumeQueryResponse decodedResult = receiver.readInbound();
+        assertEquals(ResumeQueryResponse.RESUMABLE, decodedResult.getState());
+        assertEquals(900, decodedResult.getNextSequence());
+        assertEquals(5L << 32, decodedResult.getWrittenBytes());
+        assertEquals(12, decodedResult.getRequestId());
+        assertFalse(receiver.finish());
+    }
+    
+    /**
+     * 测试接收确认能够往返，并与之后的最终响应按发送顺序到达
+     */
+    @Test
+    void testReceiptPrecedesResponse() {
+        ReceiptMessage receipt = new ReceiptMessage(9, 1_700_000_000_000L, 1_700_000_000_050L);
+        ResponseMessage response = new ResponseMessage(1_700_000_000_000L, 1_700_000_000_050L,
+                1_700_000_000_060L, 1_700_000_000_090L, true, "ok");
+        response.setRequestId(9);
+        
+        EmbeddedChannel sender = new EmbeddedChannel(new ReceiptMessageEncoder(), new ResponseMessageEncoder());
+        sender.attr(ProtocolSession.KEY).set(ProtocolSession.negotiate(FULL_HELLO, FULL_HELLO));
+        EmbeddedChannel receiver = new EmbeddedChannel(new UnifiedMessageDecoder());
+        sender.writeOutbound(receipt, response);
+        forward(sender, receiver);
+        
+        ReceiptMessage decodedReceipt = receiver.readInbound();
+        assertEquals(9, decodedReceipt.getRequestId());
+        assertEquals(1_700_000_000_000L, decodedReceipt.getReceiveStartTime());
+        assertEquals(1_700_000_000_050L, decodedReceipt.getReceiveEndTime());
+        
+        ResponseMessage decodedResponse = receiver.readInbound();
+        assertEquals(9, decodedResponse.getRequestId());
+        assertEquals(1_700_000_000_090L, decodedResponse.getDecompressEndTime());
+        assertFalse(receiver.finish());
+        
+        assertTrue(ProtocolSession.negotiate(FULL_HELLO, FULL_HELLO).supportsFeature(ProtocolFeatures.RECEIPT),
+                "双方都支持时应协商出接收确认");
+    }
+    
+    /**
+     * 测试大帧分段后心跳插在段之前，两个大帧按权重交错发送，接收端拼接后数据不变
+     */
+    @Test
+    void testFragmentedFramesInterleave() {
+        byte[] first = new byte[300 * 1024];
+        byte[] second = new byte[300 * 1024];
+        Arrays.fill(first, (byte) 1);
+        Arrays.fill(second, (byte) 2);
+        TransferMessage light = new TransferMessage((byte) 1, first.length, first.length, 0, 0, 0, 0, "a.bin", first);
+        light.setRequestId(1);
+        TransferMessage heavy = new TransferMessage((byte) 1, second.length, second.length, 0, 0, 0, 0, "b.bin", second);
+        heavy.setRequestId(2);
+        heavy.setWeight(2 * PriorityWriteScheduler.DEFAULT_WEIGHT);
+
+        EmbeddedChannel sender = v2Channel(new PriorityWriteScheduler(), new HeartbeatMessageEncoder(),
+                new TransferMessageEncoder());
+        sender.write(light);
+        sender.write(heavy);
+        sender.writeAndFlush(new HeartbeatMessage(42));
+
+        EmbeddedChannel receiver = new EmbeddedChannel(new UnifiedMessageDecoder());
+        ByteBuf heartbeat = sender.readOutbound();
+        assertEquals(MessageType.HEARTBEAT, heartbeat.getByte(3), "心跳应先于已排队的大帧发出");
+        receiver.writeInbound(heartbeat);
+
+        long beforeFragments = System.currentTimeMillis();
+        StringBuilder order = new StringBuilder();
+        ByteBuf fragment;
+        while ((fragment = sender.readOutbound()) != null) {
+            assertEquals(MessageType.FRAGMENT, fragment.getByte(3));
+            if (order.length() < 6) {
+                ByteBuf header = fragment.duplicate().skipBytes(4);
+                ProtocolV2.readVarint(header);
+                ProtocolV2.readVarint(header);
+                order.append(ProtocolV2.readVarint(header));
+            }
+            receiver.writeInbound(fragment);
+        }
+        assertEquals("011011", order.toString(), "权重加倍的大帧每轮应发送两段");
+
+        assertEquals(42, ((HeartbeatMessage) receiver.readInbound()).getTimestamp());
+        TransferMessage receivedHeavy = receiver.readInbound();
+        TransferMessage receivedLight = receiver.readInbound();
+        assertEquals("b.bin", receivedHeavy.getFileName());
+        assertArrayEquals(second, receivedHeavy.getCompressedData());
+        assertArrayEquals(first, receivedLight.getCompressedData());
+        assertTrue(receivedLight.getReceiveStartTime() >= beforeFragments, "拼接出的消息应记录第一段的到达时间");
+        receivedHeavy.release();
+        receivedLight.release();
+        assertFalse(receiver.finish());
+    }
+
+    /**
+     * 测试同一连接上v1与v2帧混合到达时都能解码（握手前后的过渡）
+     */
+    @Test
+    void testDecodesMixedVersions() {
+        EmbeddedChannel v1 = new EmbeddedChannel(new HeartbeatMessageEncoder());
+        EmbeddedChannel v2 = v2Channel(new HeartbeatMessageEncoder());
+        v1.writeOutbound(new HeartbeatMessage(1));
+        v2.writeOutbound(new HeartbeatMessage(2));
+        v1.writeOutbound(new HeartbeatMessage(3));
+        
+        EmbeddedChannel receiver = new EmbeddedChannel(new UnifiedMessageDecoder());
+        ByteBuf first = v1.readOutbound();
+        ByteBuf second = v2.readOutbound();
+        ByteBuf third = v1.readOutbound();
+        receiver.writeInbound(Unpooled.wrappedBuffer(first, second, third));
+        
+        long[] timestamps = new long[3];
+        for (int i = 0; i < 3; i++) {
+            timestamps[i] = ((HeartbeatMessage) receiver.readInbound()).getTimestamp();
+        }
+        assertEquals("[1, 2, 3]", Arrays.toString(timestamps));
+        assertFalse(receiver.finish());
+    }
+    
+    static EmbeddedChannel v2Channel(io.netty.channel.ChannelHandler... handlers) {
+        EmbeddedChannel channel = new EmbeddedChannel(handlers);
+        channel.attr(ProtocolSession.KEY).set(ProtocolSession.negotiate(FULL_HELLO, FULL_HELLO));
+        return channel;
+    }
+    
+    private static void forward(EmbeddedChannel from, EmbeddedChannel to) {
+        ByteBuf buf;
+        while ((buf = from.readOutbound()) != null) {
+            to.writeInbound(buf);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.datacompress.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.CorruptedFrameException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 遥测数据报编解码与接收窗口测试
+ */
+class TelemetryCodecTest {
+
+    @Test
+    void testDatagramRoundTrip() {
+        TelemetryDatagram datagram = new TelemetryDatagram();
+        datagram.setSessionId(0xCAFEBABE);
+        datagram.setSequence(300);
+        datagram.setAckRequested(true);
+        datagram.setSendTime(1_700_000_000_000L);
+        datagram.setAlgorithmId((byte) 7);
+        datagram.setDictionaryId(0x12345678);
+        datagram.setOriginalSize(512);
+        datagram.setName("传感器-1.json");
+        datagram.setPayload(new byte[]{1, 2, 3, 4, 5});
+
+        ByteBuf encoded = TelemetryCodec.encode(ByteBufAllocator.DEFAULT, datagram);
+        assertTrue(encoded.readableBytes() <= TelemetryCodec.maxEncodedSize(datagram), "长度上界不能小于实际长度");
+        TelemetryDatagram decoded = (TelemetryDatagram) TelemetryCodec.decode(encoded);
+        encoded.release();
+
+        assertEquals(datagram.getSessionId(), decoded.getSessionId());
+        assertEquals(300, decoded.getSequence());
+        assertTrue(decoded.isAckRequested());
+        assertEquals(datagram.getSendTime(), decoded.getSendTime());
+        assertEquals(7, decoded.getAlgorithmId());
+        assertTrue(decoded.isDictionary());
+        assertEquals(0x12345678, decoded.getDictionaryId());
+        assertEquals(512, decoded.getOriginalSize());
+        assertEquals("传感器-1.json", decoded.getName());
+        assertArrayEquals(datagram.getPayload(), decoded.getPayload());
+    }
+
+    /**
+     * 测试乱序与重复的序号，确认中的累计确认与区间经编解码后不变
+     */
+    @Test
+    void testSelectiveAckWindow() {
+        SelectiveAckWindow window = new SelectiveAckWindow();
+        for (long sequence : new long[]{0, 1, 3, 4, 7, 9, 10}) {
+            assertTrue(window.record(sequence));
+        }
+        assertFalse(window.record(1), "已累计确认的序号为重复");
+        assertFalse(window.record(7), "已记录的序号为重复");
+        assertEquals(2, window.getCumulative());
+
+        TelemetryAck ack = new TelemetryAck();
+        ack.setSessionId(42);
+        ack.setSequence(10);
+        ack.setSuccess(true);
+        ack.setMessage("解压成功");
+        window.fill(ack);
+        assertArrayEquals(new long[]{3, 5, 7, 8, 9, 11}, ack.getSackRanges());
+
+        ByteBuf encoded = TelemetryCodec.encode(ByteBufAllocator.DEFAULT, ack);
+        TelemetryAck decoded = (TelemetryAck) TelemetryCodec.decode(encoded);
+        encoded.release();
+        assertTrue(decoded.isSuccess());
+        assertEquals("解压成功", decoded.getMessage());
+        assertEquals(2, decoded.getCumulativeAck());
+        assertArrayEquals(ack.getSackRanges(), decoded.getSackRanges());
+        assertEquals(11, decoded.getHighestReceived());
+        assertTrue(decoded.isReceived(0));
+        assertTrue(decoded.isReceived(4));
+        assertFalse(decoded.isReceived(2));
+        assertFalse(decoded.isReceived(8));
+
+        // 补上间隙后累计确认推进
+        assertTrue(window.record(2));
+        assertEquals(5, window.getCumulative());
+    }
+
+    @Test
+    void testWindowKeepsMostRecentRanges() {
+        SelectiveAckWindow window = new SelectiveAckWindow();
+        // 只收到奇数序号，每个序号单独成为一个区间
+        for (long sequence = 1; sequence < 100; sequence += 2) {
+            window.record(sequence);
+        }
+        TelemetryAck ack = new TelemetryAck();
+        window.fill(ack);
+        long[] ranges = ack.getSackRanges();
+        assertEquals(SelectiveAckWindow.MAX_SACK_RANGES * 2, ranges.length);
+        assertEquals(100, ranges[ranges.length - 1], "应保留最近的区间");
+    }
+
+    @Test
+    void testRejectsForeignDatagram() {
+        assertThrows(CorruptedFrameException.class,
+                () -> TelemetryCodec.decode(Unpooled.wrappedBuffer(new byte[]{0x12, 0x34, 1, 1})));
+        assertThrows(CorruptedFrameException.class,
+                () -> TelemetryCodec.decode(Unpooled.wrappedBuffer(new byte[]{(byte) 0xDC, 0x5D, 1, 1, 0})));
+    }
+}
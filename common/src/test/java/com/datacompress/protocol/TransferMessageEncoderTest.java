@@ -0,0 +1,116 @@
+package com.datacompress.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.FileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 传输消息编码器单元测试
+ */
+class TransferMessageEncoderTest {
+    
+    /**
+     * 测试未分块写出时压缩数据被直接包装，而不是复制进输出缓冲区
+     */
+    @Test
+    void testWrapsPayloadWithoutCopy() {
+        byte[] data = randomData(10_000);
+        EmbeddedChannel channel = new EmbeddedChannel(new TransferMessageEncoder());
+        assertTrue(channel.writeOutbound(message(data)));
+        
+        ByteBuf encoded = channel.readOutbound();
+        assertTrue(encoded instanceof CompositeByteBuf, "应输出消息头与数据组合的缓冲区");
+        CompositeByteBuf composite = (CompositeByteBuf) encoded;
+        assertEquals(2, composite.numComponents());
+        ByteBuf payload = composite.component(1);
+        assertTrue(payload.hasArray(), "数据部分应为包装的字节数组");
+        assertSame(data, payload.array(), "数据部分应直接引用原字节数组");
+        encoded.release();
+        assertFalse(channel.finish());
+    }
+    
+    /**
+     * 测试管道中有ChunkedWriteHandler时数据按块写出，拼接后可被解码器还原
+     */
+    @Test
+    void testStreamsPayloadInChunks() {
+        byte[] data = randomData(3 * TransferMessageEncoder.CHUNK_SIZE + 17);
+        EmbeddedChannel channel = new EmbeddedChannel(new ChunkedWriteHandler(), new TransferMessageEncoder());
+        
+        ByteBuf encoded = encode(channel, message(data));
+        EmbeddedChannel decoder = new EmbeddedChannel(new UnifiedMessageDecoder());
+        decoder.writeInbound(encoded);
+        TransferMessage received = decoder.readInbound();
+        assertArrayEquals(data, received.getCompressedData(), "分块写出的数据应完整还原");
+        received.release();
+        assertFalse(decoder.finish());
+    }
+    
+    /**
+     * 测试数据在文件中的消息以消息头加FileRegion写出，拼接后可被解码器还原
+     */
+    @Test
+    void testWritesFileRegion(@TempDir Path dir) throws Exception {
+        byte[] data = randomData(200_000);
+        Path file = dir.resolve("stored.bin");
+        Files.write(file, data);
+        TransferMessage message = new TransferMessage((byte) 0, data.length, data.length, 0, 0, 0, 0, "stored.bin", null);
+        message.setPayloadFile(file);
+        
+        EmbeddedChannel channel = new EmbeddedChannel(new TransferMessageEncoder());
+        assertTrue(channel.writeOutbound(message));
+        ByteBuf header = channel.readOutbound();
+        FileRegion region = channel.readOutbound();
+        assertEquals(data.length, region.count(), "FileRegion应覆盖整个文件");
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        while (region.transferred() < region.count()) {
+            region.transferTo(Channels.newChannel(sent), region.transferred());
+        }
+        region.release();
+        assertFalse(channel.finish());
+        
+        EmbeddedChannel decoder = new EmbeddedChannel(new UnifiedMessageDecoder());
+        decoder.writeInbound(Unpooled.wrappedBuffer(header, Unpooled.wrappedBuffer(sent.toByteArray())));
+        TransferMessage received = decoder.readInbound();
+        assertArrayEquals(data, received.getCompressedData(), "文件数据应完整还原");
+        received.release();
+        assertFalse(decoder.finish());
+    }
+    
+    /**
+     * 写出消息并把全部输出拼接为一个缓冲区
+     */
+    static ByteBuf encode(EmbeddedChannel channel, TransferMessage message) {
+        assertTrue(channel.writeOutbound(message));
+        CompositeByteBuf encoded = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        ByteBuf part;
+        while ((part = channel.readOutbound()) != null) {
+            encoded.addComponent(true, part);
+        }
+        channel.finish();
+        return encoded;
+    }
+    
+    private static TransferMessage message(byte[] data) {
+        return new TransferMessage((byte) 1, data.length, data.length, 0, 0, 0, 0, "data.bin", data);
+    }
+    
+    private static byte[] randomData(int size) {
+        byte[] data = new byte[size];
+        new Random(33).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,243 @@
+package com.datacompress.protocol;
+
+import com.datacompress.integrity.IntegrityInfo;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.TooLongFrameException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 统一消息解码器单元测试
+ */
+class UnifiedMessageDecoderTest {
+    
+    /**
+     * 测试消息被拆成小段到达时，解码出的传输消息与发送内容一致，且数据以切片交付
+     */
+    @Test
+    void testDecodesTransferArrivingInPieces() {
+        byte[] data = new byte[100_000];
+        new Random(32).nextBytes(data);
+        TransferMessage sent = new TransferMessage((byte) 3, 200_000, data.length,
+                1, 2, 3, 4, "文件.bin", data);
+        
+        ByteBuf encoded = encode(sent);
+        EmbeddedChannel channel = new EmbeddedChannel(new UnifiedMessageDecoder());
+        int piece = 1;
+        while (encoded.isReadable()) {
+            int length = Math.min(piece, encoded.readableBytes());
+            channel.writeInbound(encoded.readRetainedSlice(length));
+            piece = piece * 2 + 3;
+        }
+        encoded.release();
+        
+        TransferMessage received = channel.readInbound();
+        assertNotNull(received, "完整到达后应解码出一条消息");
+        assertNull(channel.readInbound(), "只应解码出一条消息");
+        assertEquals(sent.getAlgorithmId(), received.getAlgorithmId());
+        assertEquals(TransferMode.NORMAL, received.getTransferMode());
+        assertEquals("文件.bin", received.getFileName());
+        
+        assertNotNull(received.getPayload(), "压缩数据应以ByteBuf切片交付");
+        assertEquals(data.length, received.getDataLength());
+        assertArrayEquals(data, received.getCompressedData(), "压缩数据应与发送一致");
+        
+        ByteBuf payload = received.getPayload();
+        received.release();
+        assertEquals(0, payload.refCnt(), "释放后切片不应再持有引用");
+        assertFalse(channel.finish());
+    }
+    
+    /**
+     * 测试v2帧被拆成小段到达时，传输模式等只在v2中携带的字段都能还原
+     */
+    @Test
+    void testDecodesV2TransferArrivingInPieces() {
+        byte[] data = new byte[100_000];
+        new Random(34).nextBytes(data);
+        TransferMessage sent = new TransferMessage((byte) 3, 200_000, data.length,
+                1, 2, 3, 4, "文件.bin", data);
+        sent.setTransferMode(TransferMode.DELTA);
+        sent.setReferenceName("旧版本.bin");
+        sent.setIntegrity(IntegrityInfo.compute(data, 4096));
+        sent.setHashRequested(true);
+        
+        ByteBuf encoded = TransferMessageEncoderTest.encode(ProtocolV2Test.v2Channel(new TransferMessageEncoder()), sent);
+        EmbeddedChannel channel = new EmbeddedChannel(new UnifiedMessageDecoder());
+        int piece = 1;
+        while (encoded.isReadable()) {
+            int length = Math.min(piece, encoded.readableBytes());
+            channel.writeInbound(encoded.readRetainedSlice(length));
+            piece = piece * 2 + 3;
+        }
+        encoded.release();
+        
+        TransferMessage received = channel.readInbound();
+        assertNotNull(received, "完整到达后应解码出一条消息");
+        assertEquals(TransferMode.DELTA, received.getTransferMode());
+        assertEquals("旧版本.bin", received.getReferenceName());
+        assertEquals(sent.getIntegrity().getFileHash(), received.getIntegrity().getFileHash());
+        assertTrue(received.isHashRequested());
+        assertArrayEquals(data, received.getCompressedData(), "压缩数据应与发送一致");
+        received.release();
+        assertFalse(channel.finish());
+    }
+    
+    /**
+     * 测试按基线格式手工拼出的传输帧与响应帧都能解码，未握手的旧客户端与旧服务端不会等不到消息
+     */
+    @Test
+    void testDecodesBaselineFrames() {
+        byte[] data = {5, 4, 3, 2, 1};
+        EmbeddedChannel channel = new EmbeddedChannel(new UnifiedMessageDecoder());
+        channel.writeInbound(baselineTransfer((byte) 7, 100, data.length, 1, 2, 3, 4, "旧客户端.txt", data));
+        
+        TransferMessage transfer = channel.readInbound();
+        assertNotNull(transfer, "基线格式的传输帧应解码出消息");
+        assertEquals(7, transfer.getAlgorithmId());
+        assertEquals(100, transfer.getOriginalSize());
+        assertEquals(4, transfer.getSendEndTime());
+        assertEquals("旧客户端.txt", transfer.getFileName());
+        assertEquals(TransferMode.NORMAL, transfer.getTransferMode());
+        assertNull(transfer.getIntegrity());
+        assertArrayEquals(data, transfer.getCompressedData());
+        transfer.release();
+        
+        ByteBuf response = Unpooled.buffer();
+        byte[] message = "完成".getBytes(StandardCharsets.UTF_8);
+        response.writeByte(MessageType.RESPONSE);
+        response.writeLong(11).writeLong(12).writeLong(13).writeLong(14);
+        response.writeBoolean(true);
+        response.writeInt(message.length).writeBytes(message);
+        channel.writeInbound(response);
+        
+        ResponseMessage decoded = channel.readInbound();
+        assertNotNull(decoded, "基线格式的响应帧应解码出消息");
+        assertEquals(11, decoded.getReceiveStartTime());
+        assertEquals(14, decoded.getDecompressEndTime());
+        assertTrue(decoded.isSuccess());
+        assertEquals("完成", decoded.getMessage());
+        assertFalse(channel.finish());
+    }
+    
+    /**
+     * 测试v1编码器输出的传输帧与基线格式逐字节一致
+     */
+    @Test
+    void testV1EncoderWritesBaselineLayout() {
+        byte[] data = {5, 4, 3, 2, 1};
+        ByteBuf encoded = encode(new TransferMessage((byte) 7, 100, data.length, 1, 2, 3, 4, "旧客户端.txt", data));
+        ByteBuf expected = baselineTransfer((byte) 7, 100, data.length, 1, 2, 3, 4, "旧客户端.txt", data);
+        assertEquals(ByteBufUtil.hexDump(expected), ByteBufUtil.hexDump(encoded));
+        encoded.release();
+        expected.release();
+    }
+    
+    /**
+     * 测试需要基线格式以外字段的消息不能按v1发送
+     */
+    @Test
+    void testV1RejectsFieldsOutsideBaseline() {
+        TransferMessage delta = new TransferMessage((byte) 7, 3, 3, 0, 0, 0, 0, "a", new byte[3]);
+        delta.setTransferMode(TransferMode.DELTA);
+        TransferMessage reference = new TransferMessage((byte) 7, 3, 3, 0, 0, 0, 0, "a", new byte[3]);
+        reference.setReferenceName("old");
+        TransferMessage checksums = new TransferMessage((byte) 7, 3, 3, 0, 0, 0, 0, "a", new byte[3]);
+        checksums.setIntegrity(IntegrityInfo.compute(new byte[3]));
+        
+        for (TransferMessage message : new TransferMessage[]{delta, reference, checksums}) {
+            EmbeddedChannel channel = new EmbeddedChannel(new TransferMessageEncoder());
+            assertThrows(EncoderException.class, () -> channel.writeOutbound(message));
+            channel.finishAndReleaseAll();
+        }
+    }
+    
+    /**
+     * 测试接收开始时间在消息头解析时记录，而不是在数据到齐交付时
+     */
+    @Test
+    void testStampsReceiveStartAtHeader() throws Exception {
+        byte[] data = new byte[10_000];
+        ByteBuf encoded = encode(new TransferMessage((byte) 1, data.length, data.length, 0, 0, 0, 0, "a", data));
+        EmbeddedChannel channel = new EmbeddedChannel(new UnifiedMessageDecoder());
+        
+        long beforeHeader = System.currentTimeMillis();
+        channel.writeInbound(encoded.readRetainedSlice(encoded.readableBytes() - data.length / 2));
+        Thread.sleep(50);
+        long beforeRest = System.currentTimeMillis();
+        channel.writeInbound(encoded);
+        
+        TransferMessage received = channel.readInbound();
+        assertTrue(received.getReceiveStartTime() >= beforeHeader && received.getReceiveStartTime() < beforeRest,
+                "接收开始时间应为消息头到达时，而不是数据到齐时");
+        received.release();
+        assertFalse(channel.finish());
+    }
+    
+    /**
+     * 测试连续到达的多条消息都能解码
+     */
+    @Test
+    void testDecodesBackToBackMessages() {
+        EmbeddedChannel channel = new EmbeddedChannel(new UnifiedMessageDecoder());
+        ByteBuf first = encode(new TransferMessage((byte) 1, 3, 3, 0, 0, 0, 0, "a", new byte[]{1, 2, 3}));
+        ByteBuf second = encode(new TransferMessage((byte) 2, 0, 0, 0, 0, 0, 0, "b", new byte[0]));
+        channel.writeInbound(first, second);
+        
+        TransferMessage a = channel.readInbound();
+        TransferMessage b = channel.readInbound();
+        assertEquals("a", a.getFileName());
+        assertArrayEquals(new byte[]{1, 2, 3}, a.getCompressedData());
+        assertEquals("b", b.getFileName());
+        assertEquals(0, b.getDataLength());
+        a.release();
+        b.release();
+        assertFalse(channel.finish());
+    }
+    
+    /**
+     * 测试超过单帧上限的消息在数据到达前即被拒绝
+     */
+    @Test
+    void testRejectsFrameAboveLimit() {
+        TransferMessage sent = new TransferMessage((byte) 1, 4096, 4096, 0, 0, 0, 0, "big", new byte[4096]);
+        ByteBuf encoded = encode(sent);
+        EmbeddedChannel channel = new EmbeddedChannel(new UnifiedMessageDecoder(1024));
+        
+        // 只送入消息头，数据尚未到达时就应根据声明的长度拒绝
+        ByteBuf header = encoded.readRetainedSlice(encoded.readableBytes() - 4096);
+        encoded.release();
+        assertThrows(TooLongFrameException.class, () -> channel.writeInbound(header));
+        channel.finishAndReleaseAll();
+    }
+    
+    /**
+     * 按基线版本TransferMessageEncoder的字段顺序拼出传输帧
+     */
+    private static ByteBuf baselineTransfer(byte algorithmId, long originalSize, long compressedSize,
+                                            long compressStartTime, long compressEndTime,
+                                            long sendStartTime, long sendEndTime, String fileName, byte[] data) {
+        byte[] fileNameBytes = fileName.getBytes(StandardCharsets.UTF_8);
+        ByteBuf frame = Unpooled.buffer();
+        frame.writeByte(MessageType.TRANSFER);
+        frame.writeByte(algorithmId);
+        frame.writeLong(originalSize).writeLong(compressedSize);
+        frame.writeLong(compressStartTime).writeLong(compressEndTime);
+        frame.writeLong(sendStartTime).writeLong(sendEndTime);
+        frame.writeInt(fileNameBytes.length).writeBytes(fileNameBytes);
+        frame.writeInt(data.length).writeBytes(data);
+        return frame;
+    }
+    
+    private static ByteBuf encode(TransferMessage message) {
+        return TransferMessageEncoderTest.encode(new EmbeddedChannel(new TransferMessageEncoder()), message);
+    }
+}
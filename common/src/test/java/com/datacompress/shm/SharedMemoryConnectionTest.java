@@ -0,0 +1,115 @@
+package com.datacompress.shm;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 共享内存连接单元测试
+ */
+class SharedMemoryConnectionTest {
+
+    /**
+     * 测试服务端接入后两个方向各自收发，已接入的文件不会被再次接入
+     */
+    @Test
+    void testAttachAndExchange(@TempDir Path dir) throws Exception {
+        SharedMemoryConnection client = SharedMemoryConnection.create(dir, SharedMemoryConnection.MIN_RING_CAPACITY);
+        assertFalse(client.awaitAttached(10, TimeUnit.MILLISECONDS, WaitStrategy.PARK), "服务端尚未接入");
+
+        SharedMemoryConnection server = SharedMemoryConnection.attach(client.getFile());
+        assertNotNull(server);
+        assertNull(SharedMemoryConnection.attach(client.getFile()), "同一连接文件只能接入一次");
+        assertTrue(client.awaitAttached(10, TimeUnit.MILLISECONDS, WaitStrategy.PARK));
+
+        assertTrue(client.write(Unpooled.wrappedBuffer(new byte[]{1, 2, 3}), WaitStrategy.PARK));
+        assertTrue(server.write(Unpooled.wrappedBuffer(new byte[]{9}), WaitStrategy.PARK));
+        assertEquals(3, server.available());
+        ByteBuf received = Unpooled.buffer();
+        assertEquals(3, server.read(received, 100));
+        assertArrayEquals(new byte[]{1, 2, 3}, bytes(received));
+        assertEquals(1, client.read(received, 100));
+        assertEquals(9, received.readByte());
+        assertEquals(0, client.available());
+
+        client.close();
+        assertTrue(server.isPeerClosed());
+        assertFalse(Files.exists(client.getFile()), "客户端关闭时应删除连接文件");
+        assertFalse(server.write(Unpooled.wrappedBuffer(new byte[4096 * 2]), WaitStrategy.PARK),
+                "对端关闭后环形缓冲区写满时应放弃写入");
+        server.close();
+    }
+
+    /**
+     * 测试超过环形缓冲区容量的数据在读写并发时跨越边界完整传递
+     */
+    @Test
+    void testStreamsAcrossWrapAround(@TempDir Path dir) throws Exception {
+        int capacity = SharedMemoryConnection.MIN_RING_CAPACITY;
+        SharedMemoryConnection client = SharedMemoryConnection.create(dir, capacity);
+        SharedMemoryConnection server = SharedMemoryConnection.attach(client.getFile());
+        assertNotNull(server);
+
+        byte[] data = new byte[1_000_003];
+        new Random(7).nextBytes(data);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                // 写入长度不与容量对齐，覆盖各种跨越边界的情况
+                for (int offset = 0; offset < data.length; offset += 1777) {
+                    ByteBuf piece = Unpooled.wrappedBuffer(data, offset, Math.min(1777, data.length - offset));
+                    assertTrue(client.write(piece, WaitStrategy.BUSY_SPIN));
+                }
+                client.close();
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        writer.start();
+
+        ByteBuf received = Unpooled.buffer(data.length);
+        int attempt = 0;
+        while (true) {
+            boolean closed = server.isPeerClosed();
+            if (server.read(received, 3000) > 0) {
+                attempt = 0;
+            } else if (closed) {
+                break;
+            } else {
+                WaitStrategy.PARK.idle(attempt++);
+            }
+        }
+        writer.join();
+        assertNull(failure.get());
+        assertArrayEquals(data, bytes(received), "数据应按写入顺序完整到达");
+        server.close();
+    }
+
+    /**
+     * 测试文件头不完整或容量无效的文件不会被接入
+     */
+    @Test
+    void testIgnoresIncompleteFile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("partial" + SharedMemoryConnection.FILE_SUFFIX);
+        Files.write(file, new byte[16]);
+        assertNull(SharedMemoryConnection.attach(file));
+        Files.write(file, new byte[8192]);
+        assertNull(SharedMemoryConnection.attach(file));
+        assertThrows(IllegalArgumentException.class, () -> SharedMemoryConnection.create(dir, 5000));
+    }
+
+    private static byte[] bytes(ByteBuf buf) {
+        byte[] result = new byte[buf.readableBytes()];
+        buf.readBytes(result);
+        return result;
+    }
+}
@@ -0,0 +1,295 @@
+package com.datacompress.harness;
+
+import com.datacompress.algorithm.CompressionAlgorithm;
+import com.datacompress.algorithm.CompressionFactory;
+import com.datacompress.client.CompressionClient;
+import com.datacompress.model.PerformanceMetrics;
+import com.datacompress.netem.NetworkProfile;
+import com.datacompress.protocol.ProtocolSession;
+import com.datacompress.server.ServerInitializer;
+import com.datacompress.server.config.FileStorageConfig;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进程内传输测试工具
+ * 在同一JVM中运行服务端（ServerInitializer的处理器链）与客户端，两端经Netty LocalChannel连接：
+ * 数据不经过套接字与内核，测得的时间只包含压缩、编解码、处理器链与解压，不受网络抖动影响，
+ * 可用于测量协议栈本身的开销，也可供自动化吞吐测试确定性地走完整个协议。
+ * 服务端配置照常从类路径上的server.properties读取，保存目录可按实例指定。
+ */
+public class LocalTransferHarness implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalTransferHarness.class);
+
+    // 同一进程中可同时存在多个实例，各自绑定不同的地址
+    private static final AtomicInteger INSTANCE_INDEX = new AtomicInteger();
+
+    private final EventLoopGroup serverGroup;
+    private final FileStorageConfig storageConfig;
+    private final ServerInitializer initializer;
+    private final Channel serverChannel;
+    // 服务端已接受的连接，关闭后自动移除
+    private final ChannelGroup acceptedChannels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+    private final CompressionClient client;
+    // 经回环TCP连接的服务端与客户端，首次需要时创建
+    private EventLoopGroup socketGroup;
+    private final List<Channel> socketServerChannels = new ArrayList<>();
+    private final List<CompressionClient> loopbackClients = new ArrayList<>();
+
+    /**
+     * 启动进程内服务端并以当前协议版本连接
+     */
+    public LocalTransferHarness() throws IOException, InterruptedException {
+        this(ProtocolSession.CURRENT);
+    }
+
+    /**
+     * 启动进程内服务端并以指定的协议版本连接
+     * @param protocolVersion 客户端申请的最高协议版本
+     * @throws IOException 连接或握手失败时抛出
+     */
+    public LocalTransferHarness(int protocolVersion) throws IOException, InterruptedException {
+        this(protocolVersion, null);
+    }
+
+    /**
+     * 启动进程内服务端，以指定的协议版本和模拟的链路条件连接
+     * 链路模拟安装在客户端一侧，两个方向的带宽、时延与丢包停顿都由客户端模拟，
+     * 可在同一台机器上确定性地比较各压缩算法在不同网络下的表现
+     * @param protocolVersion 客户端申请的最高协议版本
+     * @param networkProfile 模拟的链路条件，为null时不模拟
+     * @throws IOException 连接或握手失败时抛出
+     */
+    public LocalTransferHarness(int protocolVersion, NetworkProfile networkProfile)
+            throws IOException, InterruptedException {
+        this(protocolVersion, networkProfile, null);
+    }
+
+    /**
+     * 启动进程内服务端，接收的文件、分块仓库与续传记录保存在指定目录下，不与其他实例共享
+     * @param protocolVersion 客户端申请的最高协议版本
+     * @param networkProfile 模拟的链路条件，为null时不模拟
+     * @param storageDirectory 服务端的保存目录，为null时使用server.properties中的目录
+     * @throws IOException 连接或握手失败时抛出
+     */
+    public LocalTransferHarness(int protocolVersion, NetworkProfile networkProfile, Path storageDirectory)
+            throws IOException, InterruptedException {
+        LocalAddress address = new LocalAddress("compression-harness-" + INSTANCE_INDEX.incrementAndGet());
+        serverGroup = new DefaultEventLoopGroup();
+        storageConfig = new FileStorageConfig(storageDirectory);
+        initializer = new ServerInitializer(storageConfig);
+        boolean started = false;
+        try {
+            serverChannel = new ServerBootstrap()
+                    .group(serverGroup)
+                    .channel(LocalServerChannel.class)
+                    .childHandler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            acceptedChannels.add(ch);
+                            ch.pipeline().addLast(initializer);
+                        }
+                    })
+                    .bind(address).sync().channel();
+
+            client = new CompressionClient(address);
+            client.setProtocolVersion(protocolVersion);
+            client.setNetworkProfile(networkProfile);
+            if (!await(client.connect())) {
+                throw new IOException("无法连接进程内服务端: " + address);
+            }
+            started = true;
+            logger.info("进程内传输测试工具已启动: {}，链路模拟: {}", address,
+                    networkProfile != null ? networkProfile : "未启用");
+        } finally {
+            if (!started) {
+                serverGroup.shutdownGracefully();
+                initializer.shutdown();
+            }
+        }
+    }
+
+    /**
+     * 以算法的默认级别压缩并传输文件
+     * @param file 要传输的文件
+     * @param algorithmName 压缩算法名称
+     * @return 本次传输的性能指标
+     * @throws IOException 读取文件、传输或服务端处理失败时抛出
+     */
+    public PerformanceMetrics transfer(File file, String algorithmName) throws IOException, InterruptedException {
+        CompressionAlgorithm algorithm = CompressionFactory.getAlgorithm(algorithmName);
+        if (algorithm == null) {
+            throw new IllegalArgumentException("不支持的压缩算法: " + algorithmName);
+        }
+        return transfer(file, algorithmName, algorithm.getDefaultLevel());
+    }
+
+    /**
+     * 以指定级别压缩并传输文件
+     * @param file 要传输的文件
+     * @param algorithmName 压缩算法名称
+     * @param compressionLevel 压缩级别
+     * @return 本次传输的性能指标
+     * @throws IOException 读取文件、传输或服务端处理失败时抛出
+     */
+    public PerformanceMetrics transfer(File file, String algorithmName, int compressionLevel)
+            throws IOException, InterruptedException {
+        return transfer(Files.readAllBytes(file.toPath()), file.getName(), algorithmName, compressionLevel);
+    }
+
+    /**
+     * 以指定级别压缩并传输内存中的数据
+     * @param data 原始数据
+     * @param fileName 服务端保存的文件名
+     * @param algorithmName 压缩算法名称
+     * @param compressionLevel 压缩级别
+     * @return 本次传输的性能指标
+     * @throws IOException 传输或服务端处理失败时抛出
+     */
+    public PerformanceMetrics transfer(byte[] data, String fileName, String algorithmName, int compressionLevel)
+            throws IOException, InterruptedException {
+        return await(client.sendFile(data, fileName, algorithmName, compressionLevel, null));
+    }
+
+    /**
+     * 获取服务端保存接收文件的目录
+     */
+    public Path getStorageDirectory() {
+        return storageConfig.getStorageDirectory();
+    }
+
+    /**
+     * 获取已连接的客户端，可用于调整传输选项或使用去重、流式等其他传输方式
+     */
+    public CompressionClient getClient() {
+        return client;
+    }
+
+    /**
+     * 由服务端关闭当前已接受的全部连接，模拟传输途中断线，客户端可据此验证断点续传
+     * 只发起关闭，不等待完成，可在客户端的I/O线程（如进度回调）中调用
+     * @return 关闭的连接数
+     */
+    public int dropConnections() {
+        int count = acceptedChannels.size();
+        acceptedChannels.close();
+        logger.info("已由服务端关闭 {} 个连接", count);
+        return count;
+    }
+
+    /**
+     * 在本机回环地址上以相同的服务端处理器链监听TCP，并返回一个已连接的新客户端
+     * LocalChannel把写出的对象原样交给对端，零拷贝发送（FileRegion）需经真实的套接字；
+     * 客户端与监听都在关闭测试工具时关闭
+     * @return 以当前协议版本连接的客户端
+     * @throws IOException 连接或握手失败时抛出
+     */
+    public synchronized CompressionClient connectOverLoopback() throws IOException, InterruptedException {
+        InetSocketAddress address = bindLoopback(initializer);
+        CompressionClient loopbackClient = new CompressionClient(address.getHostString(), address.getPort());
+        if (!await(loopbackClient.connect())) {
+            throw new IOException("无法经回环地址连接服务端: " + address);
+        }
+        loopbackClients.add(loopbackClient);
+        return loopbackClient;
+    }
+
+    /**
+     * 在本机回环地址上启动HTTP上传监听，与进程内服务端共用存储配置与传输处理线程池
+     * @return 监听地址，可直接以HTTP客户端POST上传
+     */
+    public synchronized InetSocketAddress startHttp() throws InterruptedException {
+        return bindLoopback(initializer.newHttpInitializer());
+    }
+
+    private InetSocketAddress bindLoopback(ChannelInitializer<Channel> childHandler) throws InterruptedException {
+        if (socketGroup == null) {
+            socketGroup = new NioEventLoopGroup(1);
+        }
+        Channel channel = new ServerBootstrap()
+                .group(socketGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(childHandler)
+                .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)).sync().channel();
+        socketServerChannels.add(channel);
+        return (InetSocketAddress) channel.localAddress();
+    }
+
+    /**
+     * 断开客户端并关闭进程内服务端
+     */
+    @Override
+    public synchronized void close() {
+        client.disconnect();
+        loopbackClients.forEach(CompressionClient::disconnect);
+        serverChannel.close().awaitUninterruptibly();
+        socketServerChannels.forEach(channel -> channel.close().awaitUninterruptibly());
+        serverGroup.shutdownGracefully();
+        if (socketGroup != null) {
+            socketGroup.shutdownGracefully();
+        }
+        initializer.shutdown();
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * 命令行入口：在进程内传输指定文件并输出各项指标
+     * 用法: LocalTransferHarness 文件 算法 [级别] [次数] [网络配置]
+     * 网络配置同 {@link NetworkProfile#parse}，如 4g 或 wan,rtt=80
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("用法: LocalTransferHarness <文件> <算法> [级别] [次数] [网络配置]");
+            System.exit(1);
+        }
+        File file = new File(args[0]);
+        String algorithmName = args[1];
+        int repeat = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        NetworkProfile networkProfile = args.length > 4 ? NetworkProfile.parse(args[4]) : null;
+
+        try (LocalTransferHarness harness = new LocalTransferHarness(ProtocolSession.CURRENT, networkProfile)) {
+            for (int i = 0; i < repeat; i++) {
+                PerformanceMetrics metrics = args.length > 2
+                        ? harness.transfer(file, algorithmName, Integer.parseInt(args[2]))
+                        : harness.transfer(file, algorithmName);
+                System.out.println(metrics);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.datacompress.harness;
+
+import com.datacompress.algorithm.CompressionFactory;
+import com.datacompress.client.CompressionClient;
+import com.datacompress.model.PerformanceMetrics;
+import com.datacompress.protocol.MessageType;
+import com.datacompress.protocol.ResponseMessage;
+import com.datacompress.protocol.ResponseMessageEncoder;
+import com.datacompress.protocol.TransferMessage;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * v2客户端连接只懂基线格式的旧服务端的兼容性测试
+ * 旧服务端不回复握手，客户端须关闭发过握手消息的连接并按v1重新连接，之后的传输不能错位
+ */
+class BaselineServerCompatibilityTest {
+
+    /**
+     * 测试握手超时后按v1重新连接，旧服务端完整解析出唯一一条传输消息
+     */
+    @Test
+    void testFallsBackToV1OnFreshConnection() throws Exception {
+        List<TransferMessage> received = new CopyOnWriteArrayList<>();
+        AtomicInteger connections = new AtomicInteger();
+        EventLoopGroup group = new DefaultEventLoopGroup();
+        LocalAddress address = new LocalAddress("baseline-server-" + System.nanoTime());
+        Channel server = new ServerBootstrap()
+            .group(group)
+            .channel(LocalServerChannel.class)
+            .childHandler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    connections.incrementAndGet();
+                    ch.pipeline().addLast(new BaselineDecoder(), new ResponseMessageEncoder(),
+                        new SimpleChannelInboundHandler<TransferMessage>() {
+                            @Override
+                            protected void channelRead0(ChannelHandlerContext ctx, TransferMessage msg) {
+                                received.add(msg);
+                                long now = System.currentTimeMillis();
+                                ctx.writeAndFlush(new ResponseMessage(now, now, now, now, true, "ok"));
+                            }
+                        });
+                }
+            })
+            .bind(address).sync().channel();
+
+        CompressionClient client = new CompressionClient(address);
+        try {
+            assertTrue(client.connect().get(), "握手超时后应按v1连接成功");
+            assertEquals(2, connections.get(), "发过握手消息的连接应被关闭并重新连接");
+
+            byte[] data = new byte[100_000];
+            new Random(7).nextBytes(data);
+            PerformanceMetrics metrics = client.sendFile(data, "baseline.bin", "Zstd", 3, null).get();
+            assertEquals(data.length, metrics.getOriginalSize());
+
+            assertEquals(1, received.size(), "旧服务端应只解析出一条传输消息: " + received);
+            TransferMessage transfer = received.get(0);
+            assertEquals("baseline.bin", transfer.getFileName());
+            assertEquals(data.length, transfer.getOriginalSize());
+            assertArrayEquals(data, CompressionFactory.getAlgorithm("Zstd").decompress(transfer.getCompressedData()),
+                "旧服务端收到的压缩数据应可还原");
+        } finally {
+            client.disconnect();
+            server.close().sync();
+            group.shutdownGracefully();
+        }
+    }
+
+    /**
+     * 与基线版本的UnifiedMessageDecoder相同：按类型字节分发，未知类型只跳过一个字节，
+     * 传输消息为 算法ID + 6个long + 文件名长度与文件名 + 数据长度与数据
+     */
+    private static final class BaselineDecoder extends ByteToMessageDecoder {
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+            in.markReaderIndex();
+            if (in.readByte() != MessageType.TRANSFER) {
+                return;
+            }
+            if (in.readableBytes() < 57) {
+                in.resetReaderIndex();
+                return;
+            }
+            byte algorithmId = in.readByte();
+            long[] fields = new long[6];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = in.readLong();
+            }
+            int fileNameLength = in.readInt();
+            if (fileNameLength < 0 || in.readableBytes() < (long) fileNameLength + 4) {
+                in.resetReaderIndex();
+                return;
+            }
+            String fileName = in.readCharSequence(fileNameLength, StandardCharsets.UTF_8).toString();
+            int dataLength = in.readInt();
+            if (dataLength < 0 || in.readableBytes() < dataLength) {
+                in.resetReaderIndex();
+                return;
+            }
+            byte[] data = new byte[dataLength];
+            in.readBytes(data);
+            out.add(new TransferMessage(algorithmId, fields[0], fields[1], fields[2], fields[3], fields[4], fields[5],
+                fileName, data));
+        }
+    }
+}
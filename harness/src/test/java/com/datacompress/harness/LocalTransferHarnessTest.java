@@ -0,0 +1,397 @@
+package com.datacompress.harness;
+
+import com.datacompress.algorithm.CompressionFactory;
+import com.datacompress.client.CompressionClient;
+import com.datacompress.crypto.CipherSuite;
+import com.datacompress.crypto.PayloadCipher;
+import com.datacompress.crypto.PreSharedKey;
+import com.datacompress.model.PerformanceMetrics;
+import com.datacompress.netem.NetworkProfile;
+import com.datacompress.protocol.IntegrityStatus;
+import com.datacompress.protocol.ProtocolSession;
+import com.datacompress.protocol.UnifiedMessageDecoder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 进程内传输测试工具单元测试
+ */
+class LocalTransferHarnessTest {
+    
+    // 输入文件与服务端保存目录都位于每个测试独有的临时目录中，测试之间、多次运行之间互不影响
+    @TempDir
+    Path dir;
+    
+    /**
+     * 测试v2协议下文件经完整的客户端与服务端处理器链传输，服务端校验通过
+     */
+    @Test
+    void testTransfersFileOverLocalChannel() throws Exception {
+        Path file = writeSample(2_000_000);
+        
+        try (LocalTransferHarness harness = newHarness()) {
+            for (String algorithm : new String[]{"Zstd", "LZ4", "GZIP"}) {
+                PerformanceMetrics metrics = harness.transfer(file.toFile(), algorithm);
+                assertEquals(2_000_000, metrics.getOriginalSize());
+                assertTrue(metrics.getCompressedSize() < metrics.getOriginalSize(), algorithm + " 应压缩样本数据");
+                assertEquals(IntegrityStatus.VERIFIED, metrics.getIntegrityStatus(), algorithm + " 应通过服务端校验");
+                assertTrue(metrics.getResponseReceivedTime() >= metrics.getSendStartTime());
+                assertTrue(metrics.isReceiptReceived(), algorithm + " 应在最终响应前收到接收确认");
+                assertTrue(metrics.getReceiptReceivedTime() <= metrics.getResponseReceivedTime());
+            }
+        }
+    }
+    
+    /**
+     * 测试以v1协议连接时同样可以传输
+     */
+    @Test
+    void testTransfersWithProtocolV1() throws Exception {
+        Path file = writeSample(300_000);
+        
+        try (LocalTransferHarness harness = new LocalTransferHarness(ProtocolSession.V1, null, storage())) {
+            PerformanceMetrics metrics = harness.transfer(file.toFile(), "DEFLATE", 6);
+            assertEquals(300_000, metrics.getOriginalSize());
+            assertTrue(metrics.getCompressedSize() > 0);
+        }
+    }
+    
+    /**
+     * 测试不支持的算法直接报错
+     */
+    @Test
+    void testRejectsUnknownAlgorithm() throws Exception {
+        Path file = writeSample(1000);
+        
+        try (LocalTransferHarness harness = newHarness()) {
+            assertThrows(IllegalArgumentException.class, () -> harness.transfer(file.toFile(), "NoSuchAlgorithm"));
+        }
+    }
+    
+    /**
+     * 测试模拟链路的带宽与时延计入传输时间
+     */
+    @Test
+    void testNetworkProfileSlowsTransfer() throws Exception {
+        Path file = writeSample(500_000);
+        // 上行8Mbit/s即每秒1MB，不压缩的500KB至少需要0.5秒，另加一个往返
+        NetworkProfile profile = NetworkProfile.parse("up=8,down=8,rtt=100");
+        
+        try (LocalTransferHarness harness = new LocalTransferHarness(ProtocolSession.CURRENT, profile, storage())) {
+            PerformanceMetrics metrics = harness.transfer(file.toFile(), "NONE", 0);
+            assertEquals(IntegrityStatus.VERIFIED, metrics.getIntegrityStatus());
+            long elapsed = metrics.getResponseReceivedTime() - metrics.getSendStartTime();
+            assertTrue(elapsed >= 500, "传输时间应受模拟带宽限制，实际 " + elapsed + "ms");
+        }
+    }
+    
+    /**
+     * 测试连接级压缩上下文：同一连接上相继传输的文件都按原样保存，后一个文件复用前一个的压缩历史
+     */
+    @Test
+    void testContextTransfersKeepStoredBytes() throws Exception {
+        byte[] first = Files.readAllBytes(writeSample(200_000));
+        byte[] second = first.clone();
+        second[1000] ^= 1;
+        
+        try (LocalTransferHarness harness = newHarness()) {
+            CompressionClient client = harness.getClient();
+            PerformanceMetrics firstMetrics = roundTrip(harness, client, "context-1.csv", first,
+                (c, name) -> c.sendFileContext(first, name, "Zstd", 3, null));
+            PerformanceMetrics secondMetrics = roundTrip(harness, client, "context-2.csv", second,
+                (c, name) -> c.sendFileContext(second, name, "Zstd", 3, null));
+            
+            assertEquals(IntegrityStatus.VERIFIED, secondMetrics.getIntegrityStatus(), "上下文传输应通过服务端校验");
+            assertTrue(secondMetrics.getCompressedSize() < firstMetrics.getCompressedSize() / 2,
+                "相似的后续文件应借助压缩历史明显变小");
+        }
+    }
+    
+    /**
+     * 测试条带传输：压缩数据切分后经连接池中的多个连接并行发送，服务端重组后按原样保存
+     */
+    @Test
+    void testStripedTransferKeepsStoredBytes() throws Exception {
+        byte[] data = Files.readAllBytes(writeSample(2_000_000));
+        
+        try (LocalTransferHarness harness = newHarness()) {
+            CompressionClient client = harness.getClient();
+            client.disconnect();
+            client.setPoolSize(3);
+            client.setStripeChunkSize(64 * 1024);
+            assertTrue(client.connect().get(), "应以连接池重新连接");
+            
+            PerformanceMetrics metrics = roundTrip(harness, client, "striped.csv", data,
+                (c, name) -> c.sendFile(data, name, "LZ4", 1, null));
+            assertTrue(metrics.getCompressedSize() > 3 * 64 * 1024, "压缩数据应足以切分到各个连接");
+            assertEquals(IntegrityStatus.VERIFIED, metrics.getIntegrityStatus(), "重组后的数据应通过服务端校验");
+        }
+    }
+    
+    /**
+     * 测试流式传输：文件按分片边读边压缩发送，服务端逐片解压追加，保存的文件与原文件一致
+     */
+    @Test
+    void testStreamingTransferKeepsStoredBytes() throws Exception {
+        Path file = writeSample("stream.csv", 1_000_000);
+        
+        try (LocalTransferHarness harness = newHarness()) {
+            harness.getClient().setStreamChunkSize(64 * 1024);
+            PerformanceMetrics metrics = roundTrip(harness, file,
+                (c, name) -> c.sendFileStreaming(file.toFile(), "Zstd", 3, null));
+            assertEquals(1_000_000, metrics.getOriginalSize());
+            assertEquals(IntegrityStatus.VERIFIED, metrics.getIntegrityStatus(), "最后一个分片的响应应通过服务端校验");
+        }
+    }
+    
+    /**
+     * 测试断点续传：服务端确认首个分片后断开连接，客户端在新连接上查询进度并续传，保存的文件与原文件一致
+     */
+    @Test
+    void testStreamingTransferResumesAfterDrop() throws Exception {
+        Path file = writeSample("resume.csv", 1_000_000);
+        
+        try (LocalTransferHarness harness = newHarness()) {
+            harness.getClient().setStreamChunkSize(64 * 1024);
+            AtomicInteger dropped = new AtomicInteger();
+            CompressionClient.ProgressCallback dropOnce = (progress, message) -> {
+                if (message.startsWith("已写入") && dropped.get() == 0) {
+                    dropped.set(harness.dropConnections());
+                }
+            };
+            
+            PerformanceMetrics metrics = roundTrip(harness, file,
+                (c, name) -> c.sendFileStreaming(file.toFile(), "Zstd", 3, dropOnce));
+            assertTrue(dropped.get() > 0, "传输途中应断开过连接");
+            assertEquals(1_000_000, metrics.getOriginalSize());
+        }
+    }
+    
+    /**
+     * 测试不压缩的存储传输：压缩数据原样写入存储文件，保存的内容与原文件一致
+     */
+    @Test
+    void testStoredTransferKeepsStoredBytes() throws Exception {
+        byte[] data = Files.readAllBytes(writeSample(300_000));
+        
+        try (LocalTransferHarness harness = newHarness()) {
+            PerformanceMetrics metrics = roundTrip(harness, harness.getClient(), "stored.csv", data,
+                (c, name) -> CompletableFuture.completedFuture(harness.transfer(data, name, "NONE", 0)));
+            assertEquals(data.length, metrics.getCompressedSize(), "存储传输不应改变数据大小");
+            assertEquals(IntegrityStatus.VERIFIED, metrics.getIntegrityStatus(), "存储的数据应通过服务端校验");
+        }
+    }
+    
+    /**
+     * 测试零拷贝发送：经回环TCP连接以FileRegion发送磁盘文件与预压缩文件，服务端保存的内容与原文件一致
+     */
+    @Test
+    void testZeroCopyTransfersKeepStoredBytes() throws Exception {
+        Path file = writeSample("zerocopy.csv", 500_000);
+        byte[] data = Files.readAllBytes(file);
+        Path compressed = dir.resolve("sample.zst");
+        Files.write(compressed, CompressionFactory.getAlgorithm("Zstd").compress(data, 3));
+        
+        try (LocalTransferHarness harness = newHarness()) {
+            CompressionClient client = harness.connectOverLoopback();
+            
+            PerformanceMetrics metrics = roundTrip(harness, client, "zerocopy.csv", data,
+                (c, name) -> c.sendFileZeroCopy(file.toFile(), null));
+            assertEquals(data.length, metrics.getCompressedSize());
+            roundTrip(harness, client, "precompressed.csv", data,
+                (c, name) -> c.sendPrecompressedFile(compressed.toFile(), name, "Zstd", data.length, null));
+        }
+    }
+    
+    /**
+     * 测试零拷贝发送超过服务端单帧上限的文件时在发送前报错，服务端不保存任何文件
+     */
+    @Test
+    void testZeroCopyRejectsFileOverFrameLimit() throws Exception {
+        // 稀疏文件，不实际占用磁盘
+        Path file = dir.resolve("oversized.bin");
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(UnifiedMessageDecoder.DEFAULT_MAX_FRAME_SIZE + 1L);
+        }
+        
+        try (LocalTransferHarness harness = newHarness()) {
+            CompressionClient client = harness.connectOverLoopback();
+            ExecutionException e = assertThrows(ExecutionException.class,
+                () -> client.sendFileZeroCopy(file.toFile(), null).get());
+            assertTrue(e.getCause() instanceof IOException, "超过单帧上限时应在发送前报错: " + e.getCause());
+            assertTrue(client.isConnected(), "未发送的文件不应导致连接断开");
+            try (Stream<Path> files = Files.list(harness.getStorageDirectory())) {
+                assertFalse(files.anyMatch(f -> f.getFileName().toString().endsWith("_oversized.bin")));
+            }
+        }
+    }
+    
+    /**
+     * 测试HTTP上传：gzip与zstd编码的请求体边接收边解压写入存储，响应状态为200且保存的内容与原文件一致
+     */
+    @Test
+    void testHttpUploadKeepsStoredBytes() throws Exception {
+        byte[] data = Files.readAllBytes(writeSample(400_000));
+        
+        try (LocalTransferHarness harness = newHarness()) {
+            InetSocketAddress address = harness.startHttp();
+            HttpClient http = HttpClient.newHttpClient();
+            
+            for (String[] encoding : new String[][]{{"gzip", "GZIP"}, {"zstd", "Zstd"}}) {
+                String name = "http-" + encoding[0] + ".csv";
+                byte[] body = CompressionFactory.getAlgorithm(encoding[1]).compress(data, 3);
+                HttpRequest request = HttpRequest.newBuilder(
+                        URI.create("http://" + address.getHostString() + ":" + address.getPort() + "/upload/" + name))
+                    .header("Content-Encoding", encoding[0])
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                    .build();
+                
+                HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                assertEquals(200, response.statusCode(), encoding[0] + " 上传应成功: " + response.body());
+                assertEquals(String.valueOf(data.length), response.headers().firstValue("X-Original-Size").orElse(null));
+                assertStored(harness, name, data);
+            }
+        }
+    }
+    
+    /**
+     * 测试加密传输：压缩后以预共享密钥加密，服务端先解密再解压，保存的内容与原文件一致；
+     * 两种算法都可用，密钥不一致时服务端拒绝
+     */
+    @Test
+    void testEncryptedTransfersKeepStoredBytes() throws Exception {
+        byte[] data = Files.readAllBytes(writeSample(500_000));
+        PreSharedKey key = PreSharedKey.load(Paths.get("src/test/resources/harness.psk"));
+        
+        try (LocalTransferHarness harness = newHarness()) {
+            CompressionClient client = harness.getClient();
+            for (CipherSuite suite : CipherSuite.values()) {
+                client.disconnect();
+                client.setEncryption(new PayloadCipher(key, suite));
+                assertTrue(client.connect().get(), "应以加密选项重新连接");
+                
+                PerformanceMetrics metrics = roundTrip(harness, client, "encrypted-" + suite + ".csv", data,
+                    (c, name) -> c.sendFile(data, name, "Zstd", 3, null));
+                assertTrue(metrics.isEncrypted(), suite + " 传输应已加密");
+                assertTrue(metrics.getDecryptEndTime() >= metrics.getDecryptStartTime());
+                assertEquals(IntegrityStatus.VERIFIED, metrics.getIntegrityStatus(), suite + " 解密解压后应通过服务端校验");
+            }
+            
+            client.disconnect();
+            client.setEncryption(new PayloadCipher(PreSharedKey.generate(), CipherSuite.AES_GCM));
+            assertTrue(client.connect().get());
+            ExecutionException e = assertThrows(ExecutionException.class,
+                () -> client.sendFile(data, "wrong-key.csv", "Zstd", 3, null).get());
+            assertTrue(e.getCause() instanceof IOException, "密钥不一致时服务端应拒绝: " + e.getCause());
+        }
+    }
+    
+    /**
+     * 测试按文件去重传输：首次发送全部分块，修改少量内容后再次发送只传输变化的分块，
+     * 两次服务端重组保存的内容都与原文件一致
+     */
+    @Test
+    void testDedupTransfersKeepStoredBytes() throws Exception {
+        Path first = writeSample("dedup-1.csv", 1_000_000);
+        byte[] modified = Files.readAllBytes(first);
+        modified[500_000] ^= 1;
+        Path second = Files.write(dir.resolve("dedup-2.csv"), modified);
+        
+        // 分块仓库位于本测试独有的保存目录中，首次发送时服务端没有任何分块
+        try (LocalTransferHarness harness = newHarness()) {
+            PerformanceMetrics firstMetrics = roundTrip(harness, first,
+                (c, name) -> c.sendFileDedup(first.toFile(), "Zstd", 3, null));
+            PerformanceMetrics secondMetrics = roundTrip(harness, second,
+                (c, name) -> c.sendFileDedup(second.toFile(), "Zstd", 3, null));
+            
+            assertEquals(IntegrityStatus.VERIFIED, secondMetrics.getIntegrityStatus(), "重组后的数据应通过服务端校验");
+            assertTrue(secondMetrics.getCompressedSize() < firstMetrics.getCompressedSize() / 4,
+                "再次发送时应只传输变化的分块");
+        }
+    }
+    
+    /**
+     * 一种传输方式：由客户端发送，服务端以name保存
+     */
+    @FunctionalInterface
+    private interface Transfer {
+        CompletableFuture<PerformanceMetrics> send(CompressionClient client, String name) throws Exception;
+    }
+    
+    /**
+     * 以指定的传输方式发送一次，检查服务端保存的内容与原数据一致
+     * @return 本次传输的性能指标
+     */
+    private static PerformanceMetrics roundTrip(LocalTransferHarness harness, CompressionClient client, String name,
+                                                byte[] expected, Transfer transfer) throws Exception {
+        PerformanceMetrics metrics = transfer.send(client, name).get();
+        assertStored(harness, name, expected);
+        return metrics;
+    }
+    
+    /**
+     * 以测试工具的客户端发送磁盘文件，服务端以原文件名保存
+     */
+    private static PerformanceMetrics roundTrip(LocalTransferHarness harness, Path file, Transfer transfer)
+            throws Exception {
+        return roundTrip(harness, harness.getClient(), file.getFileName().toString(), Files.readAllBytes(file),
+            transfer);
+    }
+    
+    /**
+     * 服务端按接收时间戳前缀保存文件，保存目录中应恰有一个以该文件名结尾的文件且内容与原数据一致
+     */
+    private static void assertStored(LocalTransferHarness harness, String name, byte[] expected) throws IOException {
+        try (Stream<Path> files = Files.list(harness.getStorageDirectory())) {
+            List<Path> matches = files.filter(f -> f.getFileName().toString().endsWith("_" + name))
+                .collect(Collectors.toList());
+            assertEquals(1, matches.size(), "服务端应保存且只保存一个文件: " + name);
+            assertArrayEquals(expected, Files.readAllBytes(matches.get(0)), name + " 服务端保存的内容应与原数据一致");
+        }
+    }
+    
+    private Path storage() {
+        return dir.resolve("server");
+    }
+    
+    private LocalTransferHarness newHarness() throws IOException, InterruptedException {
+        return new LocalTransferHarness(ProtocolSession.CURRENT, null, storage());
+    }
+    
+    private Path writeSample(int size) throws IOException {
+        return writeSample("sample.csv", size);
+    }
+    
+    private Path writeSample(String name, int size) throws IOException {
+        // 文本记录，各算法都能压缩
+        StringBuilder text = new StringBuilder(size + 64);
+        Random random = new Random(42);
+        while (text.length() < size) {
+            text.append("sensor-").append(random.nextInt(16)).append(",value=").append(random.nextInt(100000)).append('\n');
+        }
+        Path file = dir.resolve(name);
+        Files.write(file, text.substring(0, size).getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+}
@@ -1,17 +1,48 @@
 package com.datacompress.server;
 
+import com.datacompress.dictionary.ZstdDictionary;
+import com.datacompress.protocol.TelemetryCodec;
+import com.datacompress.server.config.TransportConfig;
+import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.channel.ChannelFuture;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * 数据压缩测试系统 - 服务端
  * 使用Netty实现高性能的网络服务
+ * 在Linux上默认使用原生epoll传输，不可用时回退到NIO；使用epoll时可通过SO_REUSEPORT在同一端口上
+ * 绑定多个监听套接字，由内核把新连接分散到各监听线程。使用epoll时还可在配置的路径上额外监听Unix域套接字，
+ * 供同一主机上的客户端绕过TCP回环协议栈连接；配置共享目录后还接入经内存映射文件通信的共享内存连接。
+ * 启用遥测数据报后在UDP端口上接收压缩后能放入一个数据报的小数据（见TelemetryServerHandler）。
+ * 启用HTTP上传后在单独的端口上接收以Content-Encoding声明压缩算法的POST/PUT请求（见HttpIngestHandler）。
+ * 传输相关参数见TransportConfig。
  */
 public class CompressionServer {
     
@@ -20,6 +51,8 @@ public class CompressionServer {
     private final int port;
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
+    private ServerInitializer initializer;
+    private SharedMemoryAcceptor sharedMemoryAcceptor;
     
     public CompressionServer(int port) {
         this.port = port;
@@ -29,45 +62,256 @@ public class CompressionServer {
      * 启动服务器
      */
     public void start() throws InterruptedException {
-        // Boss线程组用于接受连接
-        bossGroup = new NioEventLoopGroup(1);
+        TransportConfig config = new TransportConfig();
+        boolean epoll = useEpoll(config.getTransport());
+        // 只有epoll支持SO_REUSEPORT，NIO下只绑定一个监听套接字
+        int acceptors = epoll ? config.getAcceptors() : 1;
+        if (!epoll && config.getAcceptors() > 1) {
+            logger.warn("NIO传输不支持SO_REUSEPORT，只使用一个监听线程");
+        }
+        
+        // Boss线程组用于接受连接，每个监听套接字一个线程
         // Worker线程组用于处理I/O
-        workerGroup = new NioEventLoopGroup();
+        if (epoll) {
+            bossGroup = new EpollEventLoopGroup(acceptors);
+            workerGroup = new EpollEventLoopGroup(config.getIoThreads());
+        } else {
+            bossGroup = new NioEventLoopGroup(acceptors);
+            workerGroup = new NioEventLoopGroup(config.getIoThreads());
+        }
+        initializer = new ServerInitializer();
+        ByteBufAllocator allocator = config.isPooledAllocator()
+                ? PooledByteBufAllocator.DEFAULT : UnpooledByteBufAllocator.DEFAULT;
         
         try {
             ServerBootstrap bootstrap = new ServerBootstrap();
             bootstrap.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
-                    .childHandler(new ServerInitializer())
-                    .option(ChannelOption.SO_BACKLOG, 128)
-                    .childOption(ChannelOption.SO_KEEPALIVE, true);
+                    .channel(epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class)
+                    .childHandler(initializer)
+                    .option(ChannelOption.SO_BACKLOG, config.getBacklog())
+                    .option(ChannelOption.ALLOCATOR, allocator)
+                    .childOption(ChannelOption.SO_KEEPALIVE, true)
+                    .childOption(ChannelOption.TCP_NODELAY, config.isTcpNoDelay())
+                    .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, config.getWriteBufferWaterMark())
+                    .childOption(ChannelOption.ALLOCATOR, allocator);
+            if (config.getReceiveBufferSize() > 0) {
+                // 在监听套接字上设置，accept出的连接继承该值，大于64KB时窗口缩放在握手时即可生效
+                bootstrap.option(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize());
+                bootstrap.childOption(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize());
+            }
+            if (config.getSendBufferSize() > 0) {
+                bootstrap.childOption(ChannelOption.SO_SNDBUF, config.getSendBufferSize());
+            }
+            if (acceptors > 1) {
+                bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+            }
             
-            logger.info("服务器启动中，监听端口: {}", port);
+            logger.info("服务器启动中，监听端口: {}，传输: {}，监听线程数: {}",
+                    port, epoll ? "epoll" : "NIO", acceptors);
             
-            // 绑定端口并启动服务器
-            ChannelFuture future = bootstrap.bind(port).sync();
+            // 绑定端口并启动服务器，每次绑定在Boss线程组的下一个线程上创建一个监听套接字
+            List<Channel> serverChannels = new ArrayList<>(acceptors + 1);
+            for (int i = 0; i < acceptors; i++) {
+                serverChannels.add(bootstrap.bind(port).sync().channel());
+            }
+            
+            Path socketPath = config.getUnixSocketPath();
+            if (socketPath != null) {
+                if (epoll) {
+                    Channel domainChannel = bindDomainSocket(config, allocator, socketPath);
+                    if (domainChannel != null) {
+                        serverChannels.add(domainChannel);
+                    }
+                } else {
+                    logger.warn("Unix域套接字需要epoll传输，未在 {} 上监听", socketPath);
+                }
+            }
+            
+            if (config.isUdpEnabled()) {
+                serverChannels.add(bindDatagram(config, allocator, epoll));
+            }
+            
+            if (config.isHttpEnabled()) {
+                serverChannels.add(bindHttp(config, allocator, epoll));
+            }
+            
+            Path shmDirectory = config.getSharedMemoryDirectory();
+            if (shmDirectory != null) {
+                sharedMemoryAcceptor = new SharedMemoryAcceptor(shmDirectory, config.getSharedMemoryWaitStrategy(),
+                        workerGroup, initializer);
+                try {
+                    sharedMemoryAcceptor.start();
+                } catch (IOException e) {
+                    logger.error("无法在共享目录 {} 上接入共享内存连接", shmDirectory, e);
+                    sharedMemoryAcceptor = null;
+                }
+            }
             
             logger.info("服务器已启动，等待客户端连接...");
             
-            // 等待服务器socket关闭
-            future.channel().closeFuture().sync();
+            // 等待所有服务器socket关闭
+            for (Channel channel : serverChannels) {
+                channel.closeFuture().sync();
+            }
             
         } finally {
             shutdown();
         }
     }
     
+    /**
+     * 在Unix域套接字上监听，与TCP监听共用线程组和处理器链
+     * 域套接字没有TCP相关的选项，只设置连接队列、分配器、写缓冲水位与套接字缓冲区
+     * @return 监听的Channel，套接字路径被其他文件占用或无法创建时返回null
+     */
+    private Channel bindDomainSocket(TransportConfig config, ByteBufAllocator allocator, Path socketPath)
+            throws InterruptedException {
+        try {
+            if (Files.isRegularFile(socketPath) || Files.isDirectory(socketPath)) {
+                logger.error("Unix域套接字路径 {} 已被其他文件占用，未在该路径上监听", socketPath);
+                return null;
+            }
+            // 上次运行异常退出时遗留的套接字文件会导致绑定失败
+            Files.deleteIfExists(socketPath);
+            Path parent = socketPath.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+        } catch (IOException e) {
+            logger.error("准备Unix域套接字路径 {} 失败", socketPath, e);
+            return null;
+        }
+        
+        ServerBootstrap bootstrap = new ServerBootstrap();
+        bootstrap.group(bossGroup, workerGroup)
+                .channel(EpollServerDomainSocketChannel.class)
+                .childHandler(initializer)
+                .option(ChannelOption.SO_BACKLOG, config.getBacklog())
+                .option(ChannelOption.ALLOCATOR, allocator)
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, config.getWriteBufferWaterMark())
+                .childOption(ChannelOption.ALLOCATOR, allocator);
+        if (config.getReceiveBufferSize() > 0) {
+            bootstrap.childOption(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize());
+        }
+        if (config.getSendBufferSize() > 0) {
+            bootstrap.childOption(ChannelOption.SO_SNDBUF, config.getSendBufferSize());
+        }
+        
+        Channel channel = bootstrap.bind(new DomainSocketAddress(socketPath.toFile())).sync().channel();
+        logger.info("服务器已在Unix域套接字 {} 上监听", socketPath);
+        return channel;
+    }
+    
+    /**
+     * 在HTTP端口上接收上传请求，与TCP监听共用线程组，连接选项与TCP监听相同
+     */
+    private Channel bindHttp(TransportConfig config, ByteBufAllocator allocator, boolean epoll)
+            throws InterruptedException {
+        ServerBootstrap bootstrap = new ServerBootstrap();
+        bootstrap.group(bossGroup, workerGroup)
+                .channel(epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class)
+                .childHandler(initializer.newHttpInitializer())
+                .option(ChannelOption.SO_BACKLOG, config.getBacklog())
+                .option(ChannelOption.ALLOCATOR, allocator)
+                .childOption(ChannelOption.SO_KEEPALIVE, true)
+                .childOption(ChannelOption.TCP_NODELAY, config.isTcpNoDelay())
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, config.getWriteBufferWaterMark())
+                .childOption(ChannelOption.ALLOCATOR, allocator);
+        if (config.getReceiveBufferSize() > 0) {
+            bootstrap.option(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize());
+            bootstrap.childOption(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize());
+        }
+        if (config.getSendBufferSize() > 0) {
+            bootstrap.childOption(ChannelOption.SO_SNDBUF, config.getSendBufferSize());
+        }
+        
+        Channel channel = bootstrap.bind(config.getHttpPort()).sync().channel();
+        logger.info("服务器已在HTTP端口 {} 上接收上传请求", config.getHttpPort());
+        return channel;
+    }
+    
+    /**
+     * 在UDP端口上接收遥测数据报，与TCP连接共用Worker线程组中的一个线程
+     * 接收缓冲区按数据报的最大长度分配，较大的数据报不会被截断
+     */
+    private Channel bindDatagram(TransportConfig config, ByteBufAllocator allocator, boolean epoll)
+            throws InterruptedException {
+        int udpPort = config.getUdpPort() != 0 ? config.getUdpPort() : port;
+        Bootstrap bootstrap = new Bootstrap();
+        bootstrap.group(workerGroup)
+                .channel(epoll ? EpollDatagramChannel.class : NioDatagramChannel.class)
+                .handler(initializer.newTelemetryHandler(loadDictionaries(config.getUdpDictionaryDirectory())))
+                .option(ChannelOption.ALLOCATOR, allocator)
+                .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(TelemetryCodec.MAX_DATAGRAM_SIZE));
+        if (config.getUdpReceiveBufferSize() > 0) {
+            bootstrap.option(ChannelOption.SO_RCVBUF, config.getUdpReceiveBufferSize());
+        }
+        
+        Channel channel = bootstrap.bind(udpPort).sync().channel();
+        logger.info("服务器已在UDP端口 {} 上接收遥测数据报", udpPort);
+        return channel;
+    }
+    
+    /**
+     * 加载字典目录中的*.dict文件，无法读取的文件跳过
+     * @return 按字典ID索引的字典，未配置目录时为空
+     */
+    private static Map<Integer, ZstdDictionary> loadDictionaries(Path directory) {
+        Map<Integer, ZstdDictionary> dictionaries = new HashMap<>();
+        if (directory == null) {
+            return dictionaries;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + ZstdDictionary.FILE_SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    ZstdDictionary dictionary = ZstdDictionary.load(file);
+                    dictionaries.put(dictionary.getId(), dictionary);
+                    logger.info("已加载遥测字典 {}: {}", file.getFileName(), dictionary);
+                } catch (IOException | IllegalArgumentException e) {
+                    logger.warn("加载遥测字典 {} 失败", file, e);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("读取遥测字典目录 {} 失败", directory, e);
+        }
+        return dictionaries;
+    }
+    
+    /**
+     * 根据配置与平台决定是否使用epoll传输
+     */
+    private static boolean useEpoll(TransportConfig.Transport transport) {
+        if (transport == TransportConfig.Transport.NIO) {
+            return false;
+        }
+        if (Epoll.isAvailable()) {
+            return true;
+        }
+        if (transport == TransportConfig.Transport.EPOLL) {
+            logger.warn("epoll传输不可用，回退到NIO: {}", String.valueOf(Epoll.unavailabilityCause()));
+        } else {
+            logger.debug("epoll传输不可用，使用NIO", Epoll.unavailabilityCause());
+        }
+        return false;
+    }
+    
     /**
      * 优雅关闭服务器
      */
     public void shutdown() {
         logger.info("正在关闭服务器...");
+        if (sharedMemoryAcceptor != null) {
+            sharedMemoryAcceptor.stop();
+        }
         if (workerGroup != null) {
             workerGroup.shutdownGracefully();
         }
         if (bossGroup != null) {
             bossGroup.shutdownGracefully();
         }
+        if (initializer != null) {
+            initializer.shutdown();
+        }
         logger.info("服务器已关闭");
     }
     
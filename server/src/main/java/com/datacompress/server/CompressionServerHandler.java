@@ -2,28 +2,105 @@ package com.datacompress.server;
 
 import com.datacompress.algorithm.CompressionAlgorithm;
 import com.datacompress.algorithm.CompressionFactory;
+import com.datacompress.algorithm.DecompressionGuard;
+import com.datacompress.algorithm.DecompressionLimitException;
+import com.datacompress.algorithm.archive.ParallelZipArchiver;
+import com.datacompress.algorithm.impl.NoCompression;
+import com.datacompress.algorithm.impl.ZipCompression;
+import com.datacompress.algorithm.impl.ZstdCompression;
+import com.datacompress.context.StreamingContexts;
+import com.datacompress.context.StreamingDecompressor;
+import com.datacompress.crypto.PayloadCipher;
+import com.datacompress.dedup.DedupPayload;
+import com.datacompress.delta.ZstdDeltaCodec;
+import com.datacompress.integrity.IntegrityException;
+import com.datacompress.integrity.IntegrityVerifier;
+import com.datacompress.protocol.ChunkQueryMessage;
+import com.datacompress.protocol.ChunkQueryResponse;
+import com.datacompress.protocol.HelloMessage;
+import com.datacompress.protocol.IntegrityStatus;
+import com.datacompress.protocol.ProtocolFeatures;
+import com.datacompress.protocol.ProtocolSession;
+import com.datacompress.protocol.ReceiptMessage;
 import com.datacompress.protocol.ResponseMessage;
+import com.datacompress.protocol.ResumeQueryMessage;
+import com.datacompress.protocol.ResumeQueryResponse;
 import com.datacompress.protocol.TransferMessage;
+import com.datacompress.protocol.TransferMode;
 import com.datacompress.server.config.FileStorageConfig;
+import com.datacompress.server.store.ChunkStore;
+import com.datacompress.server.store.PartialTransferStore;
+import com.datacompress.server.store.StreamWriter;
+import com.datacompress.server.store.StripeAssembler;
 import com.datacompress.server.util.FileUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.TooLongFrameException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Netty业务处理器
  * 处理客户端发送的压缩数据，进行解压并返回响应
+ * 传输在共享的处理线程池中执行，v2连接上的普通传输并发处理并可乱序应答（按请求ID对应）；
+ * v1连接以及上下文、流式模式的传输依赖顺序，按到达顺序串行处理。
+ * 协商了RECEIPT特性的连接上，传输帧到达后先在I/O线程上回复接收确认，再交给处理线程池
  */
 public class CompressionServerHandler extends ChannelInboundHandlerAdapter {
     
     private static final Logger logger = LoggerFactory.getLogger(CompressionServerHandler.class);
     private final FileStorageConfig fileStorageConfig;
+    private final ChunkStore chunkStore;
+    private final StripeAssembler stripeAssembler;
+    private final PartialTransferStore partialStore;
+    private final DecompressionGuard decompressionGuard;
+    private final HelloMessage serverHello;
+    private final Executor transferExecutor;
+    private final int maxInFlight;
+    private final PayloadCipher payloadCipher;  // 未配置预共享密钥时为null
+    private final boolean encryptionRequired;
+    private final ParallelZipArchiver zipArchiver = new ParallelZipArchiver();
     
-    public CompressionServerHandler() {
-        this.fileStorageConfig = new FileStorageConfig();
+    // 每个连接一个处理器实例，按算法ID保存该连接的流式解压上下文（只在串行链上访问）
+    private final Map<Byte, StreamingDecompressor> decompressionContexts = new ConcurrentHashMap<>();
+    // 该连接上进行中的流式传输，按流ID保存（只在串行链上访问）
+    private final Map<Long, StreamWriter> streams = new ConcurrentHashMap<>();
+    // 需要按序处理的请求串成一条链，只在EventLoop线程上追加
+    private CompletableFuture<Void> serialTail = CompletableFuture.completedFuture(null);
+    // 已接收但尚未应答的请求数
+    private final AtomicInteger inFlight = new AtomicInteger();
+    
+    public CompressionServerHandler(FileStorageConfig fileStorageConfig, ChunkStore chunkStore,
+                                    StripeAssembler stripeAssembler, PartialTransferStore partialStore,
+                                    DecompressionGuard decompressionGuard, HelloMessage serverHello,
+                                    Executor transferExecutor, int maxInFlight,
+                                    PayloadCipher payloadCipher, boolean encryptionRequired) {
+        this.fileStorageConfig = fileStorageConfig;
+        this.chunkStore = chunkStore;
+        this.stripeAssembler = stripeAssembler;
+        this.partialStore = partialStore;
+        this.decompressionGuard = decompressionGuard;
+        this.serverHello = serverHello;
+        this.transferExecutor = transferExecutor;
+        this.maxInFlight = maxInFlight;
+        this.payloadCipher = payloadCipher;
+        this.encryptionRequired = encryptionRequired;
     }
     
     @Override
@@ -35,14 +112,24 @@ public class CompressionServerHandler extends ChannelInboundHandlerAdapter {
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         logger.info("客户端已断开: {}", ctx.channel().remoteAddress());
+        // 等串行链上仍在使用上下文的传输结束后再关闭，未完成的流保留续传记录
+        serialTail.whenComplete((ignored, error) -> {
+            for (StreamingDecompressor decompressor : decompressionContexts.values()) {
+                try {
+                    decompressor.close();
+                } catch (IOException e) {
+                    logger.warn("关闭解压上下文失败", e);
+                }
+            }
+            decompressionContexts.clear();
+            streams.values().forEach(StreamWriter::suspend);
+            streams.clear();
+        });
         super.channelInactive(ctx);
     }
     
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-        // 立即记录接收时间（在处理任何消息之前）
-        long receiveStartTime = System.currentTimeMillis();
-        
         // 处理心跳消息
         if (msg instanceof com.datacompress.protocol.HeartbeatMessage) {
             com.datacompress.protocol.HeartbeatMessage heartbeat = (com.datacompress.protocol.HeartbeatMessage) msg;
@@ -52,6 +139,27 @@ public class CompressionServerHandler extends ChannelInboundHandlerAdapter {
             return;
         }
         
+        // 处理协议握手
+        if (msg instanceof HelloMessage) {
+            handleHello(ctx, (HelloMessage) msg);
+            return;
+        }
+        
+        // 处理去重分块查询，每个指纹都要检查分块文件，在处理线程池中执行；v1连接上须排在之前的传输之后应答
+        if (msg instanceof ChunkQueryMessage) {
+            ChunkQueryMessage query = (ChunkQueryMessage) msg;
+            boolean ordered = ProtocolSession.versionOf(ctx.channel()) < ProtocolSession.V2;
+            submit(ctx, ordered, () -> handleChunkQuery(ctx, query));
+            return;
+        }
+        
+        // 处理续传进度查询，涉及文件读取，在处理线程池中执行
+        if (msg instanceof ResumeQueryMessage) {
+            ResumeQueryMessage query = (ResumeQueryMessage) msg;
+            submit(ctx, false, () -> handleResumeQuery(ctx, query));
+            return;
+        }
+        
         if (!(msg instanceof TransferMessage)) {
             logger.warn("收到未知类型的消息: {}", msg.getClass().getName());
             return;
@@ -59,6 +167,10 @@ public class CompressionServerHandler extends ChannelInboundHandlerAdapter {
         
         TransferMessage transferMsg = (TransferMessage) msg;
         
+        // 接收开始时间由解码器在解析出消息头（分段帧为第一段）时记录，此时数据尚未到齐
+        long receiveStartTime = transferMsg.getReceiveStartTime() != 0
+                ? transferMsg.getReceiveStartTime() : System.currentTimeMillis();
+        
         logger.info("收到传输消息 - 算法ID: {}, 原始大小: {} bytes, 压缩后大小: {} bytes",
                 transferMsg.getAlgorithmId(),
                 transferMsg.getOriginalSize(),
@@ -72,9 +184,115 @@ public class CompressionServerHandler extends ChannelInboundHandlerAdapter {
         logger.info("传播时延: {} ms (接收时间: {}, 发送结束时间: {})", 
                     propagationDelay, receiveStartTime, transferMsg.getSendEndTime());
         
+        // 协商了接收确认时先告知客户端帧已完整到达，处理结果随后在响应中返回
+        ProtocolSession session = ProtocolSession.get(ctx.channel());
+        if (session != null && session.supportsFeature(ProtocolFeatures.RECEIPT) && transferMsg.getRequestId() != 0) {
+            ctx.writeAndFlush(new ReceiptMessage(transferMsg.getRequestId(), receiveStartTime, receiveEndTime));
+        }
+        
+        boolean ordered = ProtocolSession.versionOf(ctx.channel()) < ProtocolSession.V2
+                || transferMsg.getTransferMode() == TransferMode.CONTEXT
+                || transferMsg.getTransferMode() == TransferMode.STREAM;
+        submit(ctx, ordered, () -> {
+            ResponseMessage response = transferMsg.isChunk()
+                    ? processChunk(ctx, transferMsg, receiveStartTime, receiveEndTime)
+                    : processTransfer(ctx, transferMsg, receiveStartTime, receiveEndTime);
+            response.setRequestId(transferMsg.getRequestId());
+            
+            // 发送响应
+            ctx.writeAndFlush(response).addListener(future -> {
+                if (future.isSuccess()) {
+                    logger.info("响应已发送");
+                } else {
+                    logger.error("发送响应失败", future.cause());
+                }
+            });
+        });
+    }
+    
+    /**
+     * 在处理线程池中执行请求
+     * 按序请求追加到串行链末尾，其余请求直接并发执行；未完成请求达到上限时暂停读取，直到有请求完成
+     * 任务抛出的任何异常（包括Error）都在这里记录，串行链总是正常完成，之后的按序请求不会被跳过
+     * @param ordered 是否必须在之前的按序请求完成后执行
+     */
+    private void submit(ChannelHandlerContext ctx, boolean ordered, Runnable task) {
+        if (inFlight.incrementAndGet() >= maxInFlight) {
+            ctx.channel().config().setAutoRead(false);
+        }
+        Runnable tracked = () -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.error("处理请求时发生错误", e);
+            } finally {
+                if (inFlight.decrementAndGet() < maxInFlight && !ctx.channel().config().isAutoRead()) {
+                    ctx.channel().eventLoop().execute(() -> ctx.channel().config().setAutoRead(true));
+                }
+            }
+        };
+        if (ordered) {
+            serialTail = serialTail.thenRunAsync(tracked, transferExecutor);
+        } else {
+            transferExecutor.execute(tracked);
+        }
+    }
+    
+    /**
+     * 处理条带传输的分片：交给共享的重组器，最后一个分片到达时处理重组后的完整传输
+     * 其余分片只回复已接收，完整传输的结果在最后到达的分片的响应中返回
+     */
+    private ResponseMessage processChunk(ChannelHandlerContext ctx, TransferMessage chunk,
+                                         long receiveStartTime, long receiveEndTime) {
+        StripeAssembler.Assembled assembled;
+        try {
+            ProtocolSession session = ProtocolSession.get(ctx.channel());
+            if (session == null || !session.supportsFeature(ProtocolFeatures.STRIPED)) {
+                throw new IOException("连接未协商条带传输");
+            }
+            assembled = stripeAssembler.add(chunk, receiveStartTime);
+        } catch (IOException e) {
+            logger.warn("拒绝条带传输分片: {}", e.getMessage());
+            return new ResponseMessage(receiveStartTime, System.currentTimeMillis(), 0, 0, false,
+                    "分片被拒绝: " + e.getMessage());
+        } finally {
+            chunk.release();
+        }
+        
+        if (assembled == null) {
+            ResponseMessage response = new ResponseMessage(receiveStartTime, receiveEndTime, 0, 0, true, "分片已接收");
+            response.setPartial(true);
+            return response;
+        }
+        
+        logger.info("条带传输重组完成 - 分片数: {}, 压缩数据: {} bytes",
+                assembled.getChunkCount(), assembled.getMessage().getCompressedSize());
+        return processTransfer(ctx, assembled.getMessage(), assembled.getReceiveStartTime(), receiveEndTime);
+    }
+    
+    /**
+     * 解密（加密传输时）、解压、校验并保存传输的数据，失败时返回失败响应
+     * 处理结束后释放解码器交付的数据切片
+     */
+    private ResponseMessage processTransfer(ChannelHandlerContext ctx, TransferMessage transferMsg,
+                                            long receiveStartTime, long receiveEndTime) {
         ResponseMessage response;
         
         try {
+            long decryptStartTime = 0;
+            long decryptEndTime = 0;
+            if (transferMsg.isEncrypted() || encryptionRequired) {
+                try {
+                    decryptStartTime = System.currentTimeMillis();
+                    decrypt(ctx, transferMsg);
+                    decryptEndTime = System.currentTimeMillis();
+                } catch (IOException e) {
+                    logger.warn("解密失败: {}", e.getMessage());
+                    return new ResponseMessage(receiveStartTime, System.currentTimeMillis(), 0, 0, false,
+                            "解密失败: " + e.getMessage());
+                }
+            }
+            
             // 获取对应的压缩算法
             CompressionAlgorithm algorithm = CompressionFactory.getAlgorithm(transferMsg.getAlgorithmId());
             
@@ -84,37 +302,54 @@ public class CompressionServerHandler extends ChannelInboundHandlerAdapter {
             
             logger.info("使用算法: {}", algorithm.getName());
             
-            // 记录解压开始时间
-            long decompressStartTime = System.currentTimeMillis();
+            // 解压输出按顺序送入校验器，未携带校验信息时校验器不做任何处理
+            IntegrityVerifier verifier = new IntegrityVerifier(transferMsg.getIntegrity(),
+                    transferMsg.getOriginalSize(), transferMsg.isHashRequested());
             
-            // 解压数据
-            byte[] decompressedData = algorithm.decompress(transferMsg.getCompressedData());
-            
-            // 记录解压结束时间
-            long decompressEndTime = System.currentTimeMillis();
+            if (transferMsg.getTransferMode() == TransferMode.ARCHIVE) {
+                response = handleArchive(transferMsg, algorithm, receiveStartTime, receiveEndTime);
+            } else if (transferMsg.getTransferMode() == TransferMode.DEDUP) {
+                response = handleDedup(transferMsg, algorithm, verifier, receiveStartTime, receiveEndTime);
+            } else if (transferMsg.getTransferMode() == TransferMode.DELTA) {
+                response = handleDelta(transferMsg, algorithm, verifier, receiveStartTime, receiveEndTime);
+            } else if (transferMsg.getTransferMode() == TransferMode.CONTEXT) {
+                response = handleContext(transferMsg, algorithm, verifier, receiveStartTime, receiveEndTime);
+            } else if (transferMsg.getTransferMode() == TransferMode.STREAM) {
+                response = handleStream(ctx, transferMsg, algorithm, verifier, receiveStartTime, receiveEndTime);
+            } else {
+                response = handleSingleFile(transferMsg, algorithm, verifier, receiveStartTime, receiveEndTime);
+            }
             
-            // 验证解压后的数据大小是否匹配
-            if (decompressedData.length != transferMsg.getOriginalSize()) {
-                logger.warn("警告: 解压后大小({}) 与原始大小({}) 不匹配",
-                        decompressedData.length, transferMsg.getOriginalSize());
+            response.setIntegrityStatus(verifier.getStatus());
+            if (verifier.hasHashToReturn()) {
+                response.setFileHash(verifier.getComputedHash());
             }
+            response.setDecryptStartTime(decryptStartTime);
+            response.setDecryptEndTime(decryptEndTime);
             
-            logger.info("解压成功 - 解压后大小: {} bytes, 解压耗时: {} ms",
-                    decompressedData.length,
-                    decompressEndTime - decompressStartTime);
+        } catch (IntegrityException e) {
+            logger.error("完整性校验失败: {}", e.getMessage());
             
-            // 保存解压后的文件到磁盘（使用原始文件名）
-            saveDecompressedFile(decompressedData, transferMsg.getFileName(), 
-                                algorithm.getName(), receiveStartTime);
+            response = new ResponseMessage(
+                    receiveStartTime,
+                    System.currentTimeMillis(),
+                    0,
+                    0,
+                    false,
+                    "完整性校验失败: " + e.getMessage()
+            );
+            response.setIntegrityStatus(IntegrityStatus.FAILED);
+            
+        } catch (DecompressionLimitException e) {
+            logger.warn("解压超出限制，已中止: {}", e.getMessage());
             
-            // 创建成功响应
             response = new ResponseMessage(
                     receiveStartTime,
-                    receiveEndTime,
-                    decompressStartTime,
-                    decompressEndTime,
-                    true,
-                    "解压成功"
+                    System.currentTimeMillis(),
+                    0,
+                    0,
+                    false,
+                    "解压被拒绝: " + e.getMessage()
             );
             
         } catch (Exception e) {
@@ -129,24 +364,473 @@ public class CompressionServerHandler extends ChannelInboundHandlerAdapter {
                     false,
                     "解压失败: " + e.getMessage()
             );
+        } finally {
+            // 归还解码器交付的数据切片
+            transferMsg.release();
         }
         
-        // 发送响应
-        ctx.writeAndFlush(response).addListener(future -> {
-            if (future.isSuccess()) {
-                logger.info("响应已发送");
-            } else {
-                logger.error("发送响应失败", future.cause());
-            }
-        });
+        return response;
+    }
+    
+    /**
+     * 以预共享密钥解密并逐块认证，明文（压缩数据）替换消息中的密文，之后的处理与未加密的传输相同
+     * @throws IOException 连接未协商加密、传输未加密但服务端要求加密，或解密失败
+     */
+    private void decrypt(ChannelHandlerContext ctx, TransferMessage transferMsg) throws IOException {
+        if (!transferMsg.isEncrypted()) {
+            throw new IOException("服务端要求加密传输");
+        }
+        ProtocolSession session = ProtocolSession.get(ctx.channel());
+        if (payloadCipher == null || session == null || !session.supportsFeature(ProtocolFeatures.ENCRYPTION)) {
+            throw new IOException("连接未协商加密传输");
+        }
+        ByteBuf payload = transferMsg.getPayload();
+        int ciphertextLength = transferMsg.getDataLength();
+        byte[] plaintext = payloadCipher.decrypt(payload != null
+                ? payload.nioBuffer() : ByteBuffer.wrap(transferMsg.getCompressedData()));
+        transferMsg.release();
+        transferMsg.setCompressedData(plaintext);
+        transferMsg.setCompressedSize(plaintext.length);
+        logger.debug("解密完成 - 密文: {} bytes, 压缩数据: {} bytes", ciphertextLength, plaintext.length);
     }
     
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        if (cause instanceof TooLongFrameException) {
+            // 超长帧无法再与后续消息对齐，回复原因后关闭连接
+            logger.warn("拒绝超长消息: {}", cause.getMessage());
+            long now = System.currentTimeMillis();
+            ResponseMessage response = new ResponseMessage(now, now, 0, 0, false,
+                    "消息被拒绝: " + cause.getMessage());
+            ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+            return;
+        }
         logger.error("发生异常: {}", cause.getMessage(), cause);
         ctx.close();
     }
     
+    /**
+     * 处理协议握手：协商会话参数并以服务端能力回复
+     * 先保存协商结果再回复，回复之后的所有消息都按协商的版本编码
+     */
+    private void handleHello(ChannelHandlerContext ctx, HelloMessage clientHello) {
+        ProtocolSession session = ProtocolSession.negotiate(serverHello, clientHello);
+        ctx.channel().attr(ProtocolSession.KEY).set(session);
+        logger.info("协议握手完成: {}", session);
+        
+        ctx.writeAndFlush(new HelloMessage(session.getVersion(), serverHello.getAlgorithmIds(),
+                serverHello.getMaxFrameSize(), serverHello.getFeatures()));
+    }
+    
+    /**
+     * 处理单文件传输：解压数据并保存为文件
+     */
+    private ResponseMessage handleSingleFile(TransferMessage transferMsg, CompressionAlgorithm algorithm,
+                                             IntegrityVerifier verifier,
+                                             long receiveStartTime, long receiveEndTime) throws Exception {
+        if (algorithm instanceof NoCompression && !verifier.isActive() && transferMsg.getPayload() != null) {
+            return handleStoredFile(transferMsg, algorithm, receiveStartTime, receiveEndTime);
+        }
+        
+        // 记录解压开始时间
+        long decompressStartTime = System.currentTimeMillis();
+        
+        // 解压数据
+        byte[] decompressedData = algorithm.decompress(transferMsg.getCompressedData(), decompressionGuard);
+        
+        // 记录解压结束时间
+        long decompressEndTime = System.currentTimeMillis();
+        
+        // 验证解压后的数据
+        verifyDecompressed(verifier, decompressedData, transferMsg.getOriginalSize());
+        
+        logger.info("解压成功 - 解压后大小: {} bytes, 解压耗时: {} ms",
+                decompressedData.length,
+                decompressEndTime - decompressStartTime);
+        
+        // 保存解压后的文件到磁盘（使用原始文件名）
+        saveDecompressedFile(decompressedData, transferMsg.getFileName(), 
+                            algorithm.getName(), receiveStartTime);
+        
+        // 创建成功响应
+        return new ResponseMessage(
+                receiveStartTime,
+                receiveEndTime,
+                decompressStartTime,
+                decompressEndTime,
+                true,
+                "解压成功"
+        );
+    }
+    
+    /**
+     * 处理未压缩且无需校验的单文件传输：解码器交付的数据切片直接写入存储文件，不复制为字节数组
+     * 切片由接收时分配的直接内存组成，写文件时数据不经过堆
+     */
+    private ResponseMessage handleStoredFile(TransferMessage transferMsg, CompressionAlgorithm algorithm,
+                                             long receiveStartTime, long receiveEndTime) throws Exception {
+        ByteBuf payload = transferMsg.getPayload();
+        decompressionGuard.checkDeclaredSize(payload.readableBytes(), payload.readableBytes());
+        if (payload.readableBytes() != transferMsg.getOriginalSize()) {
+            logger.warn("警告: 数据大小({}) 与原始大小({}) 不匹配", payload.readableBytes(), transferMsg.getOriginalSize());
+        }
+        
+        long writeStartTime = System.currentTimeMillis();
+        if (fileStorageConfig.isSaveEnabled()) {
+            String fileName = FileUtils.generateFileName(transferMsg.getFileName(), algorithm.getName(), receiveStartTime);
+            Path savedPath = FileUtils.saveFile(fileStorageConfig.getStorageDirectory(), fileName, payload);
+            if (savedPath == null) {
+                throw new IOException("保存文件失败: " + fileName);
+            }
+        }
+        long writeEndTime = System.currentTimeMillis();
+        
+        logger.info("未压缩数据已直接写入 - 大小: {} bytes, 写入耗时: {} ms",
+                payload.readableBytes(), writeEndTime - writeStartTime);
+        
+        return new ResponseMessage(
+                receiveStartTime,
+                receiveEndTime,
+                writeStartTime,
+                writeEndTime,
+                true,
+                "接收成功（未压缩，直接写入）"
+        );
+    }
+    
+    /**
+     * 处理目录归档传输：通过中央目录并行解压各条目到存储目录
+     */
+    private ResponseMessage handleArchive(TransferMessage transferMsg, CompressionAlgorithm algorithm,
+                                          long receiveStartTime, long receiveEndTime) throws Exception {
+        if (!(algorithm instanceof ZipCompression)) {
+            throw new IllegalArgumentException("目录归档模式仅支持ZIP算法，收到: " + algorithm.getName());
+        }
+        
+        Path targetDirectory = null;
+        if (fileStorageConfig.isSaveEnabled()) {
+            String dirName = FileUtils.generateFileName(transferMsg.getFileName(), algorithm.getName(), receiveStartTime);
+            targetDirectory = fileStorageConfig.getStorageDirectory().resolve(dirName);
+        }
+        
+        long decompressStartTime = System.currentTimeMillis();
+        ParallelZipArchiver.ExtractResult result = zipArchiver.extract(transferMsg.getCompressedData(), targetDirectory,
+                decompressionGuard);
+        long decompressEndTime = System.currentTimeMillis();
+        
+        if (result.getTotalSize() != transferMsg.getOriginalSize()) {
+            logger.warn("警告: 解压后总大小({}) 与原始大小({}) 不匹配",
+                    result.getTotalSize(), transferMsg.getOriginalSize());
+        }
+        
+        logger.info("归档解压成功 - 文件数: {}, 解压后大小: {} bytes, 解压耗时: {} ms{}",
+                result.getFileCount(), result.getTotalSize(), decompressEndTime - decompressStartTime,
+                targetDirectory != null ? ", 目录: " + targetDirectory.toAbsolutePath() : "");
+        
+        return new ResponseMessage(
+                receiveStartTime,
+                receiveEndTime,
+                decompressStartTime,
+                decompressEndTime,
+                true,
+                "归档解压成功，共 " + result.getFileCount() + " 个文件"
+        );
+    }
+    
+    /**
+     * 处理分块查询：返回分块仓库中缺失的分块索引
+     */
+    private void handleChunkQuery(ChannelHandlerContext ctx, ChunkQueryMessage query) {
+        List<byte[]> fingerprints = query.getFingerprints();
+        BitSet missing = new BitSet(fingerprints.size());
+        for (int i = 0; i < fingerprints.size(); i++) {
+            if (!chunkStore.contains(fingerprints.get(i))) {
+                missing.set(i);
+            }
+        }
+        
+        logger.info("分块查询 - 分块数: {}, 缺失: {}", fingerprints.size(), missing.cardinality());
+        
+        ChunkQueryResponse response = new ChunkQueryResponse(fingerprints.size(), missing);
+        response.setRequestId(query.getRequestId());
+        ctx.writeAndFlush(response).addListener(future -> {
+            if (!future.isSuccess()) {
+                logger.error("发送分块查询响应失败", future.cause());
+            }
+        });
+    }
+    
+    /**
+     * 处理去重传输：按分块清单顺序一次写出文件，新分块同时写入分块仓库，
+     * 已有分块从分块仓库直接复制到输出文件，内存中只有受解压限制约束的缺失分块
+     */
+    private ResponseMessage handleDedup(TransferMessage transferMsg, CompressionAlgorithm algorithm,
+                                        IntegrityVerifier verifier,
+                                        long receiveStartTime, long receiveEndTime) throws Exception {
+        long decompressStartTime = System.currentTimeMillis();
+        
+        DedupPayload payload = DedupPayload.decode(algorithm.decompress(transferMsg.getCompressedData(), decompressionGuard));
+        if (payload.getTotalSize() != transferMsg.getOriginalSize()) {
+            throw new IOException("分块清单总大小(" + payload.getTotalSize()
+                    + ") 与原始大小(" + transferMsg.getOriginalSize() + ") 不匹配");
+        }
+        
+        int[] counts = new int[2];
+        Path savedPath = null;
+        if (fileStorageConfig.isSaveEnabled()) {
+            String fileName = FileUtils.generateFileName(transferMsg.getFileName(), algorithm.getName(), receiveStartTime);
+            savedPath = fileStorageConfig.getStorageDirectory().resolve(fileName);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(savedPath))) {
+                // 重组时边写边校验
+                reassemble(payload, verifier.wrap(out), counts);
+                verifier.finish();
+            } catch (Exception e) {
+                // 校验失败或分块缺失时删除已写出的部分文件
+                Files.deleteIfExists(savedPath);
+                throw e;
+            }
+        } else {
+            reassemble(payload, verifier.wrap(OutputStream.nullOutputStream()), counts);
+            verifier.finish();
+        }
+        
+        long decompressEndTime = System.currentTimeMillis();
+        
+        int inlined = counts[0];
+        logger.info("去重传输重组成功 - 分块数: {}, 传输分块: {}, 新入库: {}, 文件大小: {} bytes, 耗时: {} ms{}",
+                payload.getEntries().size(), inlined, counts[1], payload.getTotalSize(),
+                decompressEndTime - decompressStartTime,
+                savedPath != null ? ", 文件: " + savedPath.toAbsolutePath() : "");
+        
+        return new ResponseMessage(
+                receiveStartTime,
+                receiveEndTime,
+                decompressStartTime,
+                decompressEndTime,
+                true,
+                String.format("去重传输成功，传输分块 %d/%d", inlined, payload.getEntries().size())
+        );
+    }
+    
+    /**
+     * 按分块清单顺序写出文件内容，随附的分块在写出时入库
+     * @param counts 返回随附分块数与新入库分块数
+     */
+    private void reassemble(DedupPayload payload, OutputStream out, int[] counts) throws IOException {
+        for (DedupPayload.Entry entry : payload.getEntries()) {
+            if (entry.isInline()) {
+                counts[0]++;
+                if (chunkStore.put(entry.getFingerprint(), payload.getBuffer(), entry.getDataOffset(), entry.getLength())) {
+                    counts[1]++;
+                }
+                out.write(payload.getBuffer(), entry.getDataOffset(), entry.getLength());
+            } else {
+                chunkStore.copyTo(entry.getFingerprint(), out);
+            }
+        }
+    }
+    
+    /**
+     * 处理增量传输：加载服务端保存的参考文件，应用Zstd增量还原新文件
+     */
+    private ResponseMessage handleDelta(TransferMessage transferMsg, CompressionAlgorithm algorithm,
+                                        IntegrityVerifier verifier,
+                                        long receiveStartTime, long receiveEndTime) throws Exception {
+        if (!(algorithm instanceof ZstdCompression)) {
+            throw new IllegalArgumentException("增量模式仅支持Zstd算法，收到: " + algorithm.getName());
+        }
+        
+        Path referencePath = FileUtils.findLatestVersion(
+                fileStorageConfig.getStorageDirectory(), transferMsg.getReferenceName());
+        if (referencePath == null) {
+            throw new IOException("服务端不存在参考文件: " + transferMsg.getReferenceName());
+        }
+        
+        long decompressStartTime = System.currentTimeMillis();
+        
+        byte[] reference = Files.readAllBytes(referencePath);
+        byte[] decompressedData = ZstdDeltaCodec.decode(reference, transferMsg.getCompressedData(), decompressionGuard);
+        
+        long decompressEndTime = System.currentTimeMillis();
+        
+        verifyDecompressed(verifier, decompressedData, transferMsg.getOriginalSize());
+        
+        logger.info("增量还原成功 - 参考文件: {}, 还原后大小: {} bytes, 耗时: {} ms",
+                referencePath.getFileName(), decompressedData.length, decompressEndTime - decompressStartTime);
+        
+        // 保存后即成为下一次增量传输的参考版本
+        saveDecompressedFile(decompressedData, transferMsg.getFileName(), 
+                            algorithm.getName(), receiveStartTime);
+        
+        return new ResponseMessage(
+                receiveStartTime,
+                receiveEndTime,
+                decompressStartTime,
+                decompressEndTime,
+                true,
+                "增量还原成功，参考文件: " + referencePath.getFileName()
+        );
+    }
+    
+    /**
+     * 处理上下文传输：在连接级解压上下文中解压片段
+     * 片段序号为0时新建上下文；解压失败后丢弃上下文，等待客户端从序号0重新开始
+     */
+    private ResponseMessage handleContext(TransferMessage transferMsg, CompressionAlgorithm algorithm,
+                                          IntegrityVerifier verifier,
+                                          long receiveStartTime, long receiveEndTime) throws Exception {
+        if (!StreamingContexts.supports(algorithm)) {
+            throw new IllegalArgumentException("上下文模式不支持算法: " + algorithm.getName());
+        }
+        
+        byte[] payload = transferMsg.getCompressedData();
+        // 片段输出按声明的原始大小一次分配，分配前先检查
+        decompressionGuard.checkDeclaredSize(transferMsg.getOriginalSize(), payload.length);
+        
+        StreamingDecompressor decompressor = decompressionContexts.get(algorithm.getAlgorithmId());
+        if (StreamingDecompressor.sequenceOf(payload) == 0) {
+            if (decompressor != null) {
+                decompressor.close();
+            }
+            decompressor = StreamingContexts.newDecompressor(algorithm);
+            decompressionContexts.put(algorithm.getAlgorithmId(), decompressor);
+        } else if (decompressor == null) {
+            throw new IOException("连接上不存在 " + algorithm.getName() + " 压缩上下文");
+        }
+        
+        long decompressStartTime = System.currentTimeMillis();
+        
+        byte[] decompressedData;
+        try {
+            decompressedData = decompressor.decompress(payload, transferMsg.getOriginalSize());
+        } catch (IOException e) {
+            decompressionContexts.remove(algorithm.getAlgorithmId());
+            decompressor.close();
+            throw e;
+        }
+        
+        long decompressEndTime = System.currentTimeMillis();
+        
+        // 片段已正确解压，校验失败不影响压缩上下文
+        verifyDecompressed(verifier, decompressedData, transferMsg.getOriginalSize());
+        
+        logger.info("上下文解压成功 - 片段序号: {}, 解压后大小: {} bytes, 解压耗时: {} ms",
+                StreamingDecompressor.sequenceOf(payload), decompressedData.length,
+                decompressEndTime - decompressStartTime);
+        
+        saveDecompressedFile(decompressedData, transferMsg.getFileName(), 
+                            algorithm.getName(), receiveStartTime);
+        
+        return new ResponseMessage(
+                receiveStartTime,
+                receiveEndTime,
+                decompressStartTime,
+                decompressEndTime,
+                true,
+                "上下文解压成功"
+        );
+    }
+    
+    /**
+     * 处理流式传输的一个分片：解压后立即追加到目标文件，不等待后续分片
+     * 序号为0时打开新流，连接上没有的流从续传记录恢复；中间分片回复已写入，最后一个分片的响应汇总整个流；
+     * 任一分片失败时丢弃整个流
+     */
+    private ResponseMessage handleStream(ChannelHandlerContext ctx, TransferMessage transferMsg,
+                                         CompressionAlgorithm algorithm,
+                                         IntegrityVerifier verifier,
+                                         long receiveStartTime, long receiveEndTime) throws Exception {
+        long streamId = transferMsg.getStreamId();
+        StreamWriter stream = streams.get(streamId);
+        if (transferMsg.getStreamSequence() == 0) {
+            if (stream != null) {
+                stream.abort();
+            }
+            Path target = null;
+            if (fileStorageConfig.isSaveEnabled()) {
+                String fileName = FileUtils.generateFileName(transferMsg.getFileName(), algorithm.getName(),
+                        receiveStartTime);
+                target = fileStorageConfig.getStorageDirectory().resolve(fileName);
+            }
+            stream = partialStore.create(streamId, target, receiveStartTime, ctx.channel()::close);
+            streams.put(streamId, stream);
+        } else if (stream == null) {
+            stream = partialStore.resume(streamId, receiveStartTime, ctx.channel()::close);
+            streams.put(streamId, stream);
+        }
+        
+        long decompressStartTime;
+        long decompressEndTime;
+        try {
+            stream.checkSequence(transferMsg.getStreamSequence());
+            
+            decompressStartTime = System.currentTimeMillis();
+            byte[] decompressedData = algorithm.decompress(transferMsg.getCompressedData(), decompressionGuard);
+            decompressEndTime = System.currentTimeMillis();
+            
+            verifyDecompressed(verifier, decompressedData, transferMsg.getOriginalSize());
+            stream.write(decompressedData, decompressStartTime);
+        } catch (Exception e) {
+            streams.remove(streamId, stream);
+            stream.abort();
+            throw e;
+        }
+        
+        if (!transferMsg.isStreamEnd()) {
+            ResponseMessage response = new ResponseMessage(receiveStartTime, receiveEndTime,
+                    decompressStartTime, decompressEndTime, true, "分片已写入");
+            response.setPartial(true);
+            return response;
+        }
+        
+        streams.remove(streamId, stream);
+        Path savedPath = stream.finish();
+        logger.info("流式传输完成 - 分片数: {}, 解压后大小: {} bytes{}", stream.getChunkCount(),
+                stream.getWrittenBytes(), savedPath != null ? ", 文件: " + savedPath.toAbsolutePath() : "");
+        
+        return new ResponseMessage(
+                stream.getReceiveStartTime(),
+                receiveEndTime,
+                stream.getDecompressStartTime(),
+                decompressEndTime,
+                true,
+                "流式传输完成，共 " + stream.getChunkCount() + " 个分片"
+        );
+    }
+    
+    /**
+     * 处理续传进度查询：返回流的确认进度，客户端据此在本连接上续传
+     */
+    private void handleResumeQuery(ChannelHandlerContext ctx, ResumeQueryMessage query) {
+        ResumeQueryResponse result;
+        try {
+            result = partialStore.query(query.getStreamId());
+        } catch (IOException e) {
+            logger.error("读取续传记录失败", e);
+            result = new ResumeQueryResponse(ResumeQueryResponse.UNKNOWN, 0, 0);
+        }
+        logger.info("续传查询 - 流: {}, 状态: {}, 已确认分片: {}", String.format("%016x", query.getStreamId()),
+                result.getState(), result.getNextSequence());
+        result.setRequestId(query.getRequestId());
+        ctx.writeAndFlush(result);
+    }
+    
+    /**
+     * 校验解压结果，未携带校验信息时只检查大小
+     */
+    private void verifyDecompressed(IntegrityVerifier verifier, byte[] data, long originalSize)
+            throws IntegrityException {
+        if (verifier.isActive()) {
+            long verifyStartTime = System.nanoTime();
+            verifier.update(data);
+            verifier.finish();
+            logger.info("完整性校验完成 - 大小: {} bytes, 耗时: {} us",
+                    data.length, (System.nanoTime() - verifyStartTime) / 1000);
+        } else if (data.length != originalSize) {
+            logger.warn("警告: 解压后大小({}) 与原始大小({}) 不匹配", data.length, originalSize);
+        }
+    }
+    
     /**
      * 保存解压后的文件
      * 
@@ -1,29 +1,149 @@
 package com.datacompress.server;
 
+import com.datacompress.algorithm.CompressionFactory;
+import com.datacompress.algorithm.DecompressionGuard;
+import com.datacompress.crypto.PayloadCipher;
+import com.datacompress.dictionary.ZstdDictionary;
+import com.datacompress.netem.NetworkEmulationHandler;
+import com.datacompress.netem.NetworkProfile;
 import com.datacompress.protocol.*;
+import com.datacompress.server.config.DecompressionConfig;
+import com.datacompress.server.config.EncryptionConfig;
+import com.datacompress.server.config.FileStorageConfig;
+import com.datacompress.server.config.NetworkEmulationConfig;
+import com.datacompress.server.config.ProtocolConfig;
+import com.datacompress.server.http.HttpIngestHandler;
+import com.datacompress.server.store.ChunkStore;
+import com.datacompress.server.store.PartialTransferStore;
+import com.datacompress.server.store.StripeAssembler;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
-import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerExpectContinueHandler;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Netty Channel初始化器
- * 配置处理器链（Pipeline）
+ * 配置处理器链（Pipeline），TCP连接与Unix域套接字连接使用相同的处理器链
  */
-public class ServerInitializer extends ChannelInitializer<SocketChannel> {
+public class ServerInitializer extends ChannelInitializer<Channel> {
+    
+    // 所有连接共享存储配置、分块仓库、条带重组器、续传记录、解压保护和单帧上限
+    private final FileStorageConfig fileStorageConfig;
+    private final ChunkStore chunkStore;
+    private final StripeAssembler stripeAssembler;
+    private final PartialTransferStore partialStore;
+    private final DecompressionGuard decompressionGuard;
+    private final int maxFrameBytes;
+    private final int maxInFlight;
+    private final HelloMessage serverHello;  // 握手时回复给客户端的服务端能力
+    private final ExecutorService transferExecutor;  // 解压等耗时处理不占用I/O线程
+    private final PayloadCipher payloadCipher;  // 以预共享密钥解密，未配置密钥时为null
+    private final boolean encryptionRequired;
+    private final NetworkProfile networkProfile;  // 模拟的链路条件，未配置时为null
+    
+    public ServerInitializer() {
+        this(new FileStorageConfig());
+    }
+    
+    /**
+     * @param fileStorageConfig 存储配置，分块仓库与续传记录位于其目录下
+     */
+    public ServerInitializer(FileStorageConfig fileStorageConfig) {
+        this.fileStorageConfig = fileStorageConfig;
+        this.chunkStore = ChunkStore.open(fileStorageConfig.getChunkStoreDirectory());
+        this.partialStore = PartialTransferStore.open(fileStorageConfig.getPartialDirectory(),
+                TimeUnit.HOURS.toMillis(fileStorageConfig.getPartialRetentionHours()));
+        this.decompressionGuard = new DecompressionConfig().getGuard();
+        ProtocolConfig protocolConfig = new ProtocolConfig();
+        this.maxFrameBytes = protocolConfig.getMaxFrameBytes();
+        this.maxInFlight = protocolConfig.getMaxInFlight();
+        this.transferExecutor = newTransferExecutor(protocolConfig.getWorkerThreads());
+        this.stripeAssembler = new StripeAssembler(maxFrameBytes, protocolConfig.getStripeMaxPendingBytes(),
+                TimeUnit.SECONDS.toMillis(protocolConfig.getStripeTimeoutSeconds()));
+        EncryptionConfig encryptionConfig = new EncryptionConfig();
+        this.payloadCipher = encryptionConfig.getCipher();
+        this.encryptionRequired = encryptionConfig.isRequired();
+        this.networkProfile = new NetworkEmulationConfig().getProfile();
+        int features = payloadCipher != null ? ProtocolFeatures.ALL | ProtocolFeatures.ENCRYPTION : ProtocolFeatures.ALL;
+        this.serverHello = new HelloMessage(ProtocolSession.CURRENT, CompressionFactory.getAllAlgorithmIds(),
+                maxFrameBytes, features);
+    }
     
     @Override
-    protected void initChannel(SocketChannel ch) throws Exception {
+    protected void initChannel(Channel ch) throws Exception {
         ChannelPipeline pipeline = ch.pipeline();
         
         // 使用统一消息解码器（处理所有类型的消息）
-        pipeline.addLast("unifiedDecoder", new UnifiedMessageDecoder());
+        pipeline.addLast("unifiedDecoder", new UnifiedMessageDecoder(maxFrameBytes));
         
         // 添加编码器
+        pipeline.addLast("helloEncoder", new HelloMessageEncoder());
         pipeline.addLast("heartbeatEncoder", new HeartbeatMessageEncoder());
         pipeline.addLast("responseMessageEncoder", new ResponseMessageEncoder());
+        pipeline.addLast("receiptEncoder", new ReceiptMessageEncoder());
+        pipeline.addLast("chunkQueryResponseEncoder", new ChunkQueryResponseEncoder());
+        pipeline.addLast("resumeQueryResponseEncoder", new ResumeQueryResponseEncoder());
         
         // 添加业务处理器
-        pipeline.addLast("serverHandler", new CompressionServerHandler());
+        pipeline.addLast("serverHandler", new CompressionServerHandler(fileStorageConfig, chunkStore, stripeAssembler,
+                partialStore, decompressionGuard, serverHello, transferExecutor, maxInFlight, payloadCipher,
+                encryptionRequired));
+        
+        // 链路模拟位于最靠近网络的一侧
+        if (networkProfile != null) {
+            NetworkEmulationHandler.install(pipeline, networkProfile, true);
+        }
+    }
+    
+    /**
+     * 创建遥测数据报的处理器，与TCP连接共用存储配置、解压保护和传输处理线程池
+     * @param dictionaries 按字典ID索引的Zstd字典
+     */
+    public TelemetryServerHandler newTelemetryHandler(Map<Integer, ZstdDictionary> dictionaries) {
+        return new TelemetryServerHandler(fileStorageConfig, decompressionGuard, transferExecutor, dictionaries);
+    }
+    
+    /**
+     * 创建HTTP上传连接的初始化器，与TCP连接共用存储配置、解压保护、传输处理线程池和链路模拟，
+     * 请求体大小上限沿用协议的帧大小上限
+     */
+    public ChannelInitializer<Channel> newHttpInitializer() {
+        return new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) {
+                ChannelPipeline pipeline = ch.pipeline();
+                pipeline.addLast("httpCodec", new HttpServerCodec(4096, 8192, 64 * 1024));
+                pipeline.addLast("expectContinue", new HttpServerExpectContinueHandler());
+                pipeline.addLast("httpIngest", new HttpIngestHandler(fileStorageConfig, decompressionGuard,
+                        transferExecutor, maxFrameBytes));
+                if (networkProfile != null) {
+                    NetworkEmulationHandler.install(pipeline, networkProfile, true);
+                }
+            }
+        };
+    }
+    
+    /**
+     * 关闭传输处理线程池，服务器关闭时调用
+     */
+    public void shutdown() {
+        transferExecutor.shutdown();
+    }
+    
+    private static ExecutorService newTransferExecutor(int threads) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "transfer-worker-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 }
 
@@ -0,0 +1,149 @@
+package com.datacompress.server;
+
+import com.datacompress.shm.SharedMemoryBridge;
+import com.datacompress.shm.SharedMemoryConnection;
+import com.datacompress.shm.WaitStrategy;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 共享内存连接的接入
+ * 定期扫描共享目录，接入客户端新创建的连接文件；每个连接经一对LocalChannel接到与TCP连接相同的处理器链上，
+ * 共享内存与LocalChannel之间由SharedMemoryBridge转发字节。
+ * 所有共享内存连接的LocalChannel对都在同一个I/O线程上，LocalChannel直接把数据交给对端而不切换线程；
+ * 解压等耗时处理仍在传输处理线程池中执行。
+ */
+public class SharedMemoryAcceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedMemoryAcceptor.class);
+
+    // 扫描共享目录的间隔，决定建立连接的延迟，不影响已建立连接的收发
+    private static final long SCAN_INTERVAL_MS = 10;
+
+    private final Path directory;
+    private final WaitStrategy waitStrategy;
+    private final EventLoop eventLoop;
+    private final ServerInitializer initializer;
+    private final LocalAddress localAddress;
+    // 已接入的连接文件，文件被客户端删除后移除
+    private final Set<Path> attached = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService scanner;
+    private Channel serverChannel;
+
+    /**
+     * @param directory 共享目录
+     * @param waitStrategy 读写等待方式
+     * @param group 运行处理器链的线程组，从中取一个线程
+     * @param initializer 处理器链初始化器，与TCP连接共用
+     */
+    public SharedMemoryAcceptor(Path directory, WaitStrategy waitStrategy, EventLoopGroup group,
+                                ServerInitializer initializer) {
+        this.directory = directory;
+        this.waitStrategy = waitStrategy;
+        this.eventLoop = group.next();
+        this.initializer = initializer;
+        this.localAddress = new LocalAddress("compression-server-shm-" + System.identityHashCode(this));
+    }
+
+    /**
+     * 开始接入共享内存连接
+     */
+    public void start() throws IOException, InterruptedException {
+        Files.createDirectories(directory);
+        serverChannel = new ServerBootstrap()
+                .group(eventLoop)
+                .channel(LocalServerChannel.class)
+                .childHandler(initializer)
+                .bind(localAddress).sync().channel();
+
+        scanner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "shm-acceptor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scanner.scheduleWithFixedDelay(this::scan, 0, SCAN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        logger.info("服务器已在共享目录 {} 上接入共享内存连接，等待方式: {}", directory, waitStrategy);
+    }
+
+    /**
+     * 停止接入，已建立的连接随线程组关闭
+     */
+    public void stop() {
+        if (scanner != null) {
+            scanner.shutdownNow();
+        }
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+    }
+
+    private void scan() {
+        Set<Path> present = new HashSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SharedMemoryConnection.FILE_SUFFIX)) {
+            for (Path file : files) {
+                present.add(file);
+                if (!attached.contains(file)) {
+                    tryAttach(file);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("扫描共享目录 {} 失败", directory, e);
+        }
+        attached.retainAll(present);
+    }
+
+    private void tryAttach(Path file) {
+        SharedMemoryConnection connection;
+        try {
+            connection = SharedMemoryConnection.attach(file);
+        } catch (IOException e) {
+            // 客户端可能恰好删除了文件
+            logger.debug("接入共享内存连接 {} 失败", file, e);
+            return;
+        }
+        if (connection == null) {
+            return;
+        }
+        attached.add(file);
+
+        new Bootstrap()
+                .group(eventLoop)
+                .channel(LocalChannel.class)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast("shmBridge", new SharedMemoryBridge(connection, waitStrategy));
+                    }
+                })
+                .connect(localAddress)
+                .addListener((ChannelFutureListener) future -> {
+                    if (future.isSuccess()) {
+                        logger.info("已接入共享内存连接: {}", file);
+                    } else {
+                        logger.error("接入共享内存连接 {} 失败", file, future.cause());
+                        connection.close();
+                    }
+                });
+    }
+}
@@ -0,0 +1,216 @@
+package com.datacompress.server;
+
+import com.datacompress.algorithm.CompressionAlgorithm;
+import com.datacompress.algorithm.CompressionFactory;
+import com.datacompress.algorithm.DecompressionGuard;
+import com.datacompress.dictionary.ZstdDictionary;
+import com.datacompress.protocol.SelectiveAckWindow;
+import com.datacompress.protocol.TelemetryAck;
+import com.datacompress.protocol.TelemetryCodec;
+import com.datacompress.protocol.TelemetryDatagram;
+import com.datacompress.server.config.FileStorageConfig;
+import com.datacompress.server.util.FileUtils;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 遥测数据报处理器
+ * 每个数据报独立解码、解压并保存，不经过TCP连接的握手与帧拼接；请求了确认的数据报处理完成后回复确认，
+ * 确认中附带该会话接收窗口的选择性确认区间。重复的数据报不再处理，只重新确认。
+ * 解码与去重在I/O线程上完成，解压与保存在与TCP连接共用的传输处理线程池中执行。
+ */
+public class TelemetryServerHandler extends SimpleChannelInboundHandler<DatagramPacket> {
+
+    private static final Logger logger = LoggerFactory.getLogger(TelemetryServerHandler.class);
+
+    // 会话超过该时间没有数据报时丢弃其接收窗口
+    private static final long SESSION_IDLE_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final String DEFAULT_NAME = "telemetry.dat";
+
+    private final FileStorageConfig fileStorageConfig;
+    private final DecompressionGuard decompressionGuard;
+    private final ExecutorService transferExecutor;
+    private final Map<Integer, ZstdDictionary> dictionaries;
+    private final Map<InetSocketAddress, Session> sessions = new ConcurrentHashMap<>();
+    private ScheduledFuture<?> sweepFuture;
+
+    /**
+     * @param dictionaries 按字典ID索引的Zstd字典
+     */
+    public TelemetryServerHandler(FileStorageConfig fileStorageConfig, DecompressionGuard decompressionGuard,
+                                  ExecutorService transferExecutor, Map<Integer, ZstdDictionary> dictionaries) {
+        this.fileStorageConfig = fileStorageConfig;
+        this.decompressionGuard = decompressionGuard;
+        this.transferExecutor = transferExecutor;
+        this.dictionaries = dictionaries;
+    }
+
+    /**
+     * 一个客户端会话的接收状态
+     */
+    private static final class Session {
+        final int id;
+        final SelectiveAckWindow window = new SelectiveAckWindow();
+        volatile long lastSeen;
+
+        Session(int id) {
+            this.id = id;
+        }
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        sweepFuture = ctx.executor().scheduleWithFixedDelay(this::sweepSessions,
+                SESSION_IDLE_MS, SESSION_IDLE_MS, TimeUnit.MILLISECONDS);
+        ctx.fireChannelActive();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (sweepFuture != null) {
+            sweepFuture.cancel(false);
+        }
+        sessions.clear();
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket packet) {
+        long receiveTime = System.currentTimeMillis();
+        Object message;
+        try {
+            message = TelemetryCodec.decode(packet.content());
+        } catch (CorruptedFrameException e) {
+            logger.debug("丢弃来自 {} 的无效数据报: {}", packet.sender(), e.getMessage());
+            return;
+        }
+        if (!(message instanceof TelemetryDatagram)) {
+            logger.debug("丢弃来自 {} 的非数据数据报", packet.sender());
+            return;
+        }
+        TelemetryDatagram datagram = (TelemetryDatagram) message;
+        InetSocketAddress sender = packet.sender();
+
+        // 客户端重新创建后换用新会话ID，此时重置接收窗口
+        Session session = sessions.compute(sender, (address, existing) ->
+                existing != null && existing.id == datagram.getSessionId()
+                        ? existing : new Session(datagram.getSessionId()));
+        session.lastSeen = receiveTime;
+
+        if (!session.window.record(datagram.getSequence())) {
+            logger.debug("收到重复的数据报 - 来源: {}, 序号: {}", sender, datagram.getSequence());
+            if (datagram.isAckRequested()) {
+                TelemetryAck ack = newAck(datagram, receiveTime);
+                ack.setSuccess(true);
+                ack.setMessage("重复的数据报，已忽略");
+                sendAck(ctx.channel(), sender, session, ack);
+            }
+            return;
+        }
+
+        Channel channel = ctx.channel();
+        try {
+            transferExecutor.execute(() -> process(channel, sender, session, datagram, receiveTime));
+        } catch (RejectedExecutionException e) {
+            logger.debug("服务器正在关闭，丢弃数据报 - 来源: {}, 序号: {}", sender, datagram.getSequence());
+        }
+    }
+
+    private void process(Channel channel, InetSocketAddress sender, Session session,
+                         TelemetryDatagram datagram, long receiveTime) {
+        TelemetryAck ack = newAck(datagram, receiveTime);
+        try {
+            CompressionAlgorithm algorithm = CompressionFactory.getAlgorithm(datagram.getAlgorithmId());
+            if (algorithm == null) {
+                throw new IOException("不支持的压缩算法ID: " + datagram.getAlgorithmId());
+            }
+            ack.setDecompressStartTime(System.currentTimeMillis());
+            byte[] data = decompress(datagram, algorithm);
+            ack.setDecompressEndTime(System.currentTimeMillis());
+            save(datagram, algorithm, data, receiveTime);
+            ack.setSuccess(true);
+            ack.setMessage("解压成功");
+            logger.debug("遥测数据报处理成功 - 来源: {}, 序号: {}, 压缩后: {} bytes, 解压后: {} bytes",
+                    sender, datagram.getSequence(), datagram.getPayload().length, data.length);
+        } catch (Exception e) {
+            logger.warn("遥测数据报处理失败 - 来源: {}, 序号: {}: {}", sender, datagram.getSequence(), e.getMessage());
+            ack.setSuccess(false);
+            ack.setMessage("处理失败: " + e.getMessage());
+        }
+        if (datagram.isAckRequested()) {
+            sendAck(channel, sender, session, ack);
+        }
+    }
+
+    private byte[] decompress(TelemetryDatagram datagram, CompressionAlgorithm algorithm) throws IOException {
+        if (!datagram.isDictionary()) {
+            byte[] data = algorithm.decompress(datagram.getPayload(), decompressionGuard);
+            if (data.length != datagram.getOriginalSize()) {
+                throw new IOException("解压后大小(" + data.length + ")与原始大小(" + datagram.getOriginalSize() + ")不一致");
+            }
+            return data;
+        }
+        ZstdDictionary dictionary = dictionaries.get(datagram.getDictionaryId());
+        if (dictionary == null) {
+            throw new IOException(String.format("服务端没有ID为 %08x 的字典", datagram.getDictionaryId()));
+        }
+        return dictionary.decompress(datagram.getPayload(), datagram.getOriginalSize(), decompressionGuard);
+    }
+
+    private void save(TelemetryDatagram datagram, CompressionAlgorithm algorithm, byte[] data, long receiveTime)
+            throws IOException {
+        if (!fileStorageConfig.isSaveEnabled()) {
+            return;
+        }
+        // 数据报不经认证，只取名称的最后一段，避免写到存储目录之外
+        String name = datagram.getName();
+        Path namePath = name == null || name.trim().isEmpty() ? null : Path.of(name).getFileName();
+        String baseName = namePath != null ? namePath.toString() : DEFAULT_NAME;
+        // 同一毫秒内可能收到多条同名数据，以序号区分
+        String fileName = FileUtils.generateFileName(datagram.getSequence() + "_" + baseName,
+                algorithm.getName(), receiveTime);
+        if (FileUtils.saveFile(fileStorageConfig.getStorageDirectory(), fileName, data) == null) {
+            throw new IOException("保存文件失败: " + fileName);
+        }
+    }
+
+    private static TelemetryAck newAck(TelemetryDatagram datagram, long receiveTime) {
+        TelemetryAck ack = new TelemetryAck();
+        ack.setSessionId(datagram.getSessionId());
+        ack.setSequence(datagram.getSequence());
+        ack.setSendTime(datagram.getSendTime());
+        ack.setReceiveTime(receiveTime);
+        return ack;
+    }
+
+    private static void sendAck(Channel channel, InetSocketAddress recipient, Session session, TelemetryAck ack) {
+        session.window.fill(ack);
+        channel.writeAndFlush(new DatagramPacket(TelemetryCodec.encode(channel.alloc(), ack), recipient));
+    }
+
+    private void sweepSessions() {
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(session -> now - session.lastSeen > SESSION_IDLE_MS);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        // 数据报套接字上的异常（如ICMP端口不可达）不影响其他客户端，不关闭Channel
+        logger.warn("遥测数据报处理器发生异常", cause);
+    }
+}
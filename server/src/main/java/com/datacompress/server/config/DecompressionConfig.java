@@ -0,0 +1,89 @@
+package com.datacompress.server.config;
+
+import com.datacompress.algorithm.DecompressionGuard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * 解压保护配置类
+ * 负责加载单次解压的输出上限、压缩比上限和解压步长
+ */
+public class DecompressionConfig {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DecompressionConfig.class);
+    
+    // 默认配置值
+    private static final long DEFAULT_MAX_OUTPUT_BYTES = 512L * 1024 * 1024;
+    private static final int DEFAULT_MAX_RATIO = 10000;
+    private static final int DEFAULT_STEP_BYTES = DecompressionGuard.DEFAULT_STEP_SIZE;
+    
+    // 配置文件路径
+    private static final String CONFIG_FILE = "server.properties";
+    
+    // 配置键
+    private static final String KEY_MAX_OUTPUT_BYTES = "decompression.max.output.bytes";
+    private static final String KEY_MAX_RATIO = "decompression.max.ratio";
+    private static final String KEY_STEP_BYTES = "decompression.step.bytes";
+    
+    private DecompressionGuard guard;
+    
+    /**
+     * 构造函数，加载配置
+     */
+    public DecompressionConfig() {
+        loadConfiguration();
+    }
+    
+    /**
+     * 从配置文件加载配置
+     */
+    private void loadConfiguration() {
+        Properties properties = new Properties();
+        
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream(CONFIG_FILE)) {
+            if (input != null) {
+                properties.load(input);
+            }
+        } catch (IOException e) {
+            logger.error("读取配置文件失败，使用默认解压限制", e);
+        }
+        
+        long maxOutputBytes = parseLong(properties, KEY_MAX_OUTPUT_BYTES, DEFAULT_MAX_OUTPUT_BYTES);
+        int maxRatio = (int) parseLong(properties, KEY_MAX_RATIO, DEFAULT_MAX_RATIO);
+        int stepBytes = (int) parseLong(properties, KEY_STEP_BYTES, DEFAULT_STEP_BYTES);
+        
+        try {
+            guard = new DecompressionGuard(maxOutputBytes, maxRatio, stepBytes);
+        } catch (IllegalArgumentException e) {
+            logger.error("解压限制配置非法，使用默认配置", e);
+            guard = new DecompressionGuard(DEFAULT_MAX_OUTPUT_BYTES, DEFAULT_MAX_RATIO, DEFAULT_STEP_BYTES);
+        }
+        
+        logger.info("解压保护配置 - 最大输出: {} bytes, 最大压缩比: {}, 解压步长: {} bytes",
+                    guard.getMaxOutputSize(), guard.getMaxRatio(), guard.getStepSize());
+    }
+    
+    private static long parseLong(Properties properties, String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("配置项 {} 的值 {} 不是有效的数字，使用默认值 {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+    
+    /**
+     * 获取解压保护
+     */
+    public DecompressionGuard getGuard() {
+        return guard;
+    }
+}
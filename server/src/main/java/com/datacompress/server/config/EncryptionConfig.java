@@ -0,0 +1,87 @@
+package com.datacompress.server.config;
+
+import com.datacompress.crypto.CipherSuite;
+import com.datacompress.crypto.PayloadCipher;
+import com.datacompress.crypto.PreSharedKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * 加密传输配置类
+ * 负责加载预共享密钥文件和是否强制加密；配置了密钥时服务端在握手中声明ENCRYPTION特性
+ */
+public class EncryptionConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(EncryptionConfig.class);
+
+    // 配置文件路径
+    private static final String CONFIG_FILE = "server.properties";
+
+    // 配置键
+    private static final String KEY_PSK_FILE = "encryption.psk.file";
+    private static final String KEY_REQUIRED = "encryption.required";
+
+    private PayloadCipher cipher;
+    private boolean required;
+
+    /**
+     * 构造函数，加载配置
+     */
+    public EncryptionConfig() {
+        loadConfiguration();
+    }
+
+    /**
+     * 从配置文件加载配置
+     */
+    private void loadConfiguration() {
+        Properties properties = new Properties();
+
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream(CONFIG_FILE)) {
+            if (input != null) {
+                properties.load(input);
+            }
+        } catch (IOException e) {
+            logger.error("读取配置文件失败，不启用加密传输", e);
+        }
+
+        String keyFile = properties.getProperty(KEY_PSK_FILE, "").trim();
+        required = Boolean.parseBoolean(properties.getProperty(KEY_REQUIRED, "false").trim());
+        if (!keyFile.isEmpty()) {
+            Path path = Paths.get(keyFile);
+            try {
+                // 解密算法取自密文头，这里的算法只是占位
+                cipher = new PayloadCipher(PreSharedKey.load(path), CipherSuite.AES_GCM);
+            } catch (IOException e) {
+                logger.error("加载预共享密钥 {} 失败，不接受加密传输", path.toAbsolutePath(), e);
+            }
+        }
+
+        if (required && cipher == null) {
+            logger.warn("已要求加密传输但没有可用的预共享密钥，所有传输都将被拒绝");
+        }
+        logger.info("加密传输配置 - 预共享密钥: {}, 强制加密: {}",
+                cipher != null ? cipher.getKey() : "未配置", required);
+    }
+
+    /**
+     * 获取以预共享密钥解密的加密器
+     * @return 未配置密钥或密钥无法加载时返回null
+     */
+    public PayloadCipher getCipher() {
+        return cipher;
+    }
+
+    /**
+     * 是否拒绝未加密的传输
+     */
+    public boolean isRequired() {
+        return required;
+    }
+}
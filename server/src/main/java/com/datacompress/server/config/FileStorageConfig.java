@@ -21,6 +21,9 @@ public class FileStorageConfig {
     // 默认配置值
     private static final String DEFAULT_DIRECTORY = "decompressed_files";
     private static final boolean DEFAULT_SAVE_ENABLED = true;
+    private static final String DEFAULT_CHUNK_DIRECTORY = ".chunks";
+    private static final String DEFAULT_PARTIAL_DIRECTORY = ".partial";
+    private static final long DEFAULT_PARTIAL_RETENTION_HOURS = 24;
     
     // 配置文件路径
     private static final String CONFIG_FILE = "server.properties";
@@ -28,15 +31,30 @@ public class FileStorageConfig {
     // 配置键
     private static final String KEY_DIRECTORY = "decompressed.files.directory";
     private static final String KEY_SAVE_ENABLED = "decompressed.files.save.enabled";
+    private static final String KEY_CHUNK_DIRECTORY = "dedup.chunk.directory";
+    private static final String KEY_PARTIAL_DIRECTORY = "stream.partial.directory";
+    private static final String KEY_PARTIAL_RETENTION_HOURS = "stream.partial.retention.hours";
     
     private Path storageDirectory;
     private boolean saveEnabled;
+    private Path chunkStoreDirectory;
+    private Path partialDirectory;
+    private long partialRetentionHours;
     
     /**
      * 构造函数，加载配置
      */
     public FileStorageConfig() {
-        loadConfiguration();
+        this(null);
+    }
+    
+    /**
+     * 构造函数，加载配置并以指定目录代替配置的保存目录
+     * 分块仓库与续传记录的相对路径基于该目录，用于让各个进程内服务端互不共享已保存的文件和分块
+     * @param storageDirectory 保存目录，为null时使用配置文件中的目录
+     */
+    public FileStorageConfig(Path storageDirectory) {
+        loadConfiguration(storageDirectory);
         if (saveEnabled) {
             ensureDirectoryExists();
         }
@@ -45,7 +63,7 @@ public class FileStorageConfig {
     /**
      * 从配置文件加载配置
      */
-    private void loadConfiguration() {
+    private void loadConfiguration(Path directoryOverride) {
         Properties properties = new Properties();
         
         try (InputStream input = getClass().getClassLoader().getResourceAsStream(CONFIG_FILE)) {
@@ -61,15 +79,36 @@ public class FileStorageConfig {
         
         // 读取保存目录配置
         String directoryPath = properties.getProperty(KEY_DIRECTORY, DEFAULT_DIRECTORY);
-        storageDirectory = Paths.get(directoryPath);
+        storageDirectory = directoryOverride != null ? directoryOverride : Paths.get(directoryPath);
         
         // 读取是否启用保存功能
         saveEnabled = Boolean.parseBoolean(
             properties.getProperty(KEY_SAVE_ENABLED, String.valueOf(DEFAULT_SAVE_ENABLED))
         );
         
-        logger.info("文件存储配置 - 保存目录: {}, 启用状态: {}", 
-                    storageDirectory.toAbsolutePath(), saveEnabled);
+        // 读取去重分块仓库目录（相对路径基于保存目录）
+        chunkStoreDirectory = storageDirectory.resolve(
+            properties.getProperty(KEY_CHUNK_DIRECTORY, DEFAULT_CHUNK_DIRECTORY)
+        );
+        
+        // 读取流式传输续传记录目录（相对路径基于保存目录）及保留时长
+        partialDirectory = storageDirectory.resolve(
+            properties.getProperty(KEY_PARTIAL_DIRECTORY, DEFAULT_PARTIAL_DIRECTORY)
+        );
+        String retention = properties.getProperty(KEY_PARTIAL_RETENTION_HOURS);
+        partialRetentionHours = DEFAULT_PARTIAL_RETENTION_HOURS;
+        if (retention != null) {
+            try {
+                partialRetentionHours = Long.parseLong(retention.trim());
+            } catch (NumberFormatException e) {
+                logger.warn("配置项 {} 的值无效: {}，使用默认值 {}", KEY_PARTIAL_RETENTION_HOURS, retention,
+                        DEFAULT_PARTIAL_RETENTION_HOURS);
+            }
+        }
+        
+        logger.info("文件存储配置 - 保存目录: {}, 启用状态: {}, 分块仓库: {}, 续传记录: {}", 
+                    storageDirectory.toAbsolutePath(), saveEnabled, chunkStoreDirectory.toAbsolutePath(),
+                    partialDirectory.toAbsolutePath());
     }
     
     /**
@@ -96,6 +135,27 @@ public class FileStorageConfig {
         return storageDirectory;
     }
     
+    /**
+     * 获取去重分块仓库目录
+     */
+    public Path getChunkStoreDirectory() {
+        return chunkStoreDirectory;
+    }
+    
+    /**
+     * 获取流式传输续传记录目录
+     */
+    public Path getPartialDirectory() {
+        return partialDirectory;
+    }
+    
+    /**
+     * 获取未完成流式传输的保留时长（小时），超过后删除其续传记录
+     */
+    public long getPartialRetentionHours() {
+        return partialRetentionHours;
+    }
+    
     /**
      * 检查是否启用文件保存
      */
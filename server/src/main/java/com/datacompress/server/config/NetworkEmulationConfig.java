@@ -0,0 +1,66 @@
+package com.datacompress.server.config;
+
+import com.datacompress.netem.NetworkProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * 网络模拟配置类
+ * 负责加载模拟的链路条件，配置后服务端的每个连接都按该条件限速并推迟收发的数据
+ */
+public class NetworkEmulationConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(NetworkEmulationConfig.class);
+
+    // 配置文件路径
+    private static final String CONFIG_FILE = "server.properties";
+
+    // 配置键
+    private static final String KEY_PROFILE = "netem.profile";
+
+    private NetworkProfile profile;
+
+    /**
+     * 构造函数，加载配置
+     */
+    public NetworkEmulationConfig() {
+        loadConfiguration();
+    }
+
+    /**
+     * 从配置文件加载配置
+     */
+    private void loadConfiguration() {
+        Properties properties = new Properties();
+
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream(CONFIG_FILE)) {
+            if (input != null) {
+                properties.load(input);
+            }
+        } catch (IOException e) {
+            logger.error("读取配置文件失败，不启用网络模拟", e);
+        }
+
+        String spec = properties.getProperty(KEY_PROFILE, "");
+        try {
+            profile = NetworkProfile.parse(spec);
+        } catch (IllegalArgumentException e) {
+            logger.warn("配置项 {} 的值 {} 无效，不启用网络模拟: {}", KEY_PROFILE, spec, e.getMessage());
+        }
+        if (profile != null) {
+            logger.info("网络模拟配置 - 链路条件: {}", profile);
+        }
+    }
+
+    /**
+     * 获取模拟的链路条件
+     * @return 未配置或配置无效时返回null
+     */
+    public NetworkProfile getProfile() {
+        return profile;
+    }
+}
@@ -0,0 +1,126 @@
+package com.datacompress.server.config;
+
+import com.datacompress.protocol.UnifiedMessageDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * 协议配置类
+ * 负责加载解码器允许的单帧最大字节数、传输处理线程数、单连接未完成请求上限以及条带传输的重组限制
+ */
+public class ProtocolConfig {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ProtocolConfig.class);
+    
+    // 默认配置值
+    private static final int DEFAULT_MAX_FRAME_BYTES = UnifiedMessageDecoder.DEFAULT_MAX_FRAME_SIZE;
+    private static final int DEFAULT_WORKER_THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_MAX_IN_FLIGHT = 256;
+    private static final int DEFAULT_STRIPE_MAX_PENDING_BYTES = 1024 * 1024 * 1024;
+    private static final int DEFAULT_STRIPE_TIMEOUT_SECONDS = 60;
+    
+    // 配置文件路径
+    private static final String CONFIG_FILE = "server.properties";
+    
+    // 配置键
+    private static final String KEY_MAX_FRAME_BYTES = "protocol.max.frame.bytes";
+    private static final String KEY_WORKER_THREADS = "protocol.worker.threads";
+    private static final String KEY_MAX_IN_FLIGHT = "protocol.max.inflight.requests";
+    private static final String KEY_STRIPE_MAX_PENDING_BYTES = "protocol.stripe.max.pending.bytes";
+    private static final String KEY_STRIPE_TIMEOUT_SECONDS = "protocol.stripe.timeout.seconds";
+    
+    private int maxFrameBytes;
+    private int workerThreads;
+    private int maxInFlight;
+    private int stripeMaxPendingBytes;
+    private int stripeTimeoutSeconds;
+    
+    /**
+     * 构造函数，加载配置
+     */
+    public ProtocolConfig() {
+        loadConfiguration();
+    }
+    
+    /**
+     * 从配置文件加载配置
+     */
+    private void loadConfiguration() {
+        Properties properties = new Properties();
+        
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream(CONFIG_FILE)) {
+            if (input != null) {
+                properties.load(input);
+            }
+        } catch (IOException e) {
+            logger.error("读取配置文件失败，使用默认协议配置", e);
+        }
+        
+        maxFrameBytes = readPositiveInt(properties, KEY_MAX_FRAME_BYTES, DEFAULT_MAX_FRAME_BYTES);
+        workerThreads = readPositiveInt(properties, KEY_WORKER_THREADS, DEFAULT_WORKER_THREADS);
+        maxInFlight = readPositiveInt(properties, KEY_MAX_IN_FLIGHT, DEFAULT_MAX_IN_FLIGHT);
+        stripeMaxPendingBytes = readPositiveInt(properties, KEY_STRIPE_MAX_PENDING_BYTES,
+                DEFAULT_STRIPE_MAX_PENDING_BYTES);
+        stripeTimeoutSeconds = readPositiveInt(properties, KEY_STRIPE_TIMEOUT_SECONDS, DEFAULT_STRIPE_TIMEOUT_SECONDS);
+        
+        logger.info("协议配置 - 单帧上限: {} bytes, 处理线程数: {}, 单连接未完成请求上限: {}, "
+                        + "条带重组缓冲上限: {} bytes, 条带超时: {} s",
+                maxFrameBytes, workerThreads, maxInFlight, stripeMaxPendingBytes, stripeTimeoutSeconds);
+    }
+    
+    private static int readPositiveInt(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed > 0) {
+                return parsed;
+            }
+            logger.warn("配置项 {} 必须为正数，使用默认值 {}", key, defaultValue);
+        } catch (NumberFormatException e) {
+            logger.warn("配置项 {} 的值 {} 不是有效的数字，使用默认值 {}", key, value, defaultValue);
+        }
+        return defaultValue;
+    }
+    
+    /**
+     * 获取单帧最大字节数
+     */
+    public int getMaxFrameBytes() {
+        return maxFrameBytes;
+    }
+    
+    /**
+     * 获取传输处理线程数（解压、校验与保存在这些线程中执行）
+     */
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+    
+    /**
+     * 获取单个连接上同时处理的最大请求数，达到上限时暂停读取该连接
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+    
+    /**
+     * 获取所有未完成的条带传输可占用的重组缓冲区总字节数
+     */
+    public int getStripeMaxPendingBytes() {
+        return stripeMaxPendingBytes;
+    }
+    
+    /**
+     * 获取条带传输的超时秒数，超过该时间没有新分片到达时丢弃已收到的分片
+     */
+    public int getStripeTimeoutSeconds() {
+        return stripeTimeoutSeconds;
+    }
+}
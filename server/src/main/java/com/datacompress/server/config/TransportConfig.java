@@ -0,0 +1,354 @@
+package com.datacompress.server.config;
+
+import com.datacompress.shm.WaitStrategy;
+import io.netty.channel.WriteBufferWaterMark;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * 网络传输配置类
+ * 负责加载传输实现（epoll/NIO）、监听线程数、I/O线程数、连接队列长度、套接字缓冲区、
+ * TCP_NODELAY、写缓冲区水位、缓冲区分配器、Unix域套接字路径、共享内存连接的目录与等待方式，
+ * 遥测数据报（UDP）的端口、接收缓冲区与字典目录，以及HTTP上传端口
+ */
+public class TransportConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransportConfig.class);
+
+    /**
+     * 传输实现
+     */
+    public enum Transport {
+        /** 可用时使用epoll，否则使用NIO */
+        AUTO,
+        /** Linux原生epoll，不可用时回退到NIO */
+        EPOLL,
+        /** JDK NIO */
+        NIO
+    }
+
+    // 默认配置值
+    private static final Transport DEFAULT_TRANSPORT = Transport.AUTO;
+    private static final int DEFAULT_ACCEPTORS = 1;
+    private static final int DEFAULT_IO_THREADS = 0;
+    private static final int DEFAULT_BACKLOG = 1024;
+    private static final int DEFAULT_SO_RCVBUF = 0;
+    private static final int DEFAULT_SO_SNDBUF = 0;
+    private static final boolean DEFAULT_TCP_NODELAY = true;
+    private static final int DEFAULT_WRITE_LOW_WATER_MARK = WriteBufferWaterMark.DEFAULT.low();
+    private static final int DEFAULT_WRITE_HIGH_WATER_MARK = WriteBufferWaterMark.DEFAULT.high();
+    private static final boolean DEFAULT_POOLED_ALLOCATOR = true;
+    private static final WaitStrategy DEFAULT_SHM_WAIT_STRATEGY = WaitStrategy.PARK;
+    private static final boolean DEFAULT_UDP_ENABLED = false;
+    private static final int DEFAULT_UDP_PORT = 0;
+    private static final int DEFAULT_UDP_RCVBUF = 0;
+    private static final boolean DEFAULT_HTTP_ENABLED = false;
+    private static final int DEFAULT_HTTP_PORT = 8080;
+
+    // 配置文件路径
+    private static final String CONFIG_FILE = "server.properties";
+
+    // 配置键
+    private static final String KEY_TRANSPORT = "server.transport";
+    private static final String KEY_ACCEPTORS = "server.acceptor.threads";
+    private static final String KEY_IO_THREADS = "server.io.threads";
+    private static final String KEY_BACKLOG = "server.so.backlog";
+    private static final String KEY_SO_RCVBUF = "server.so.rcvbuf";
+    private static final String KEY_SO_SNDBUF = "server.so.sndbuf";
+    private static final String KEY_TCP_NODELAY = "server.tcp.nodelay";
+    private static final String KEY_WRITE_LOW_WATER_MARK = "server.write.buffer.low.water.mark";
+    private static final String KEY_WRITE_HIGH_WATER_MARK = "server.write.buffer.high.water.mark";
+    private static final String KEY_POOLED_ALLOCATOR = "server.allocator.pooled";
+    private static final String KEY_UNIX_SOCKET_PATH = "server.unix.socket.path";
+    private static final String KEY_SHM_DIRECTORY = "server.shm.directory";
+    private static final String KEY_SHM_WAIT_STRATEGY = "server.shm.wait.strategy";
+    private static final String KEY_UDP_ENABLED = "server.udp.enabled";
+    private static final String KEY_UDP_PORT = "server.udp.port";
+    private static final String KEY_UDP_RCVBUF = "server.udp.so.rcvbuf";
+    private static final String KEY_UDP_DICTIONARY_DIRECTORY = "server.udp.dictionary.directory";
+    private static final String KEY_HTTP_ENABLED = "server.http.enabled";
+    private static final String KEY_HTTP_PORT = "server.http.port";
+
+    private Transport transport;
+    private int acceptors;
+    private int ioThreads;
+    private int backlog;
+    private int receiveBufferSize;
+    private int sendBufferSize;
+    private boolean tcpNoDelay;
+    private WriteBufferWaterMark writeBufferWaterMark;
+    private boolean pooledAllocator;
+    private Path unixSocketPath;
+    private Path sharedMemoryDirectory;
+    private WaitStrategy sharedMemoryWaitStrategy;
+    private boolean udpEnabled;
+    private int udpPort;
+    private int udpReceiveBufferSize;
+    private Path udpDictionaryDirectory;
+    private boolean httpEnabled;
+    private int httpPort;
+
+    /**
+     * 构造函数，加载配置
+     */
+    public TransportConfig() {
+        loadConfiguration();
+    }
+
+    /**
+     * 从配置文件加载配置
+     */
+    private void loadConfiguration() {
+        Properties properties = new Properties();
+
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream(CONFIG_FILE)) {
+            if (input != null) {
+                properties.load(input);
+            }
+        } catch (IOException e) {
+            logger.error("读取配置文件失败，使用默认传输配置", e);
+        }
+
+        transport = readTransport(properties);
+        acceptors = readInt(properties, KEY_ACCEPTORS, DEFAULT_ACCEPTORS, 1);
+        ioThreads = readInt(properties, KEY_IO_THREADS, DEFAULT_IO_THREADS, 0);
+        backlog = readInt(properties, KEY_BACKLOG, DEFAULT_BACKLOG, 1);
+        receiveBufferSize = readInt(properties, KEY_SO_RCVBUF, DEFAULT_SO_RCVBUF, 0);
+        sendBufferSize = readInt(properties, KEY_SO_SNDBUF, DEFAULT_SO_SNDBUF, 0);
+        tcpNoDelay = Boolean.parseBoolean(
+            properties.getProperty(KEY_TCP_NODELAY, String.valueOf(DEFAULT_TCP_NODELAY)).trim()
+        );
+        pooledAllocator = Boolean.parseBoolean(
+            properties.getProperty(KEY_POOLED_ALLOCATOR, String.valueOf(DEFAULT_POOLED_ALLOCATOR)).trim()
+        );
+
+        int low = readInt(properties, KEY_WRITE_LOW_WATER_MARK, DEFAULT_WRITE_LOW_WATER_MARK, 1);
+        int high = readInt(properties, KEY_WRITE_HIGH_WATER_MARK, DEFAULT_WRITE_HIGH_WATER_MARK, 1);
+        if (low > high) {
+            logger.warn("写缓冲区低水位 {} 高于高水位 {}，使用默认水位", low, high);
+            low = DEFAULT_WRITE_LOW_WATER_MARK;
+            high = DEFAULT_WRITE_HIGH_WATER_MARK;
+        }
+        writeBufferWaterMark = new WriteBufferWaterMark(low, high);
+
+        String socketPath = properties.getProperty(KEY_UNIX_SOCKET_PATH, "").trim();
+        unixSocketPath = socketPath.isEmpty() ? null : Paths.get(socketPath);
+        String shmDirectory = properties.getProperty(KEY_SHM_DIRECTORY, "").trim();
+        sharedMemoryDirectory = shmDirectory.isEmpty() ? null : Paths.get(shmDirectory);
+        sharedMemoryWaitStrategy = readWaitStrategy(properties);
+
+        udpEnabled = Boolean.parseBoolean(
+            properties.getProperty(KEY_UDP_ENABLED, String.valueOf(DEFAULT_UDP_ENABLED)).trim()
+        );
+        udpPort = readInt(properties, KEY_UDP_PORT, DEFAULT_UDP_PORT, 0);
+        if (udpPort > 65535) {
+            logger.warn("配置项 {} 的值 {} 不是有效的端口，使用与TCP相同的端口", KEY_UDP_PORT, udpPort);
+            udpPort = DEFAULT_UDP_PORT;
+        }
+        udpReceiveBufferSize = readInt(properties, KEY_UDP_RCVBUF, DEFAULT_UDP_RCVBUF, 0);
+        String dictionaryDirectory = properties.getProperty(KEY_UDP_DICTIONARY_DIRECTORY, "").trim();
+        udpDictionaryDirectory = dictionaryDirectory.isEmpty() ? null : Paths.get(dictionaryDirectory);
+        httpEnabled = Boolean.parseBoolean(
+            properties.getProperty(KEY_HTTP_ENABLED, String.valueOf(DEFAULT_HTTP_ENABLED)).trim()
+        );
+        httpPort = readInt(properties, KEY_HTTP_PORT, DEFAULT_HTTP_PORT, 1);
+        if (httpPort > 65535) {
+            logger.warn("配置项 {} 的值 {} 不是有效的端口，使用默认值 {}", KEY_HTTP_PORT, httpPort, DEFAULT_HTTP_PORT);
+            httpPort = DEFAULT_HTTP_PORT;
+        }
+
+        logger.info("传输配置 - 传输实现: {}, 监听线程数: {}, I/O线程数: {}, 连接队列: {}, "
+                        + "SO_RCVBUF: {}, SO_SNDBUF: {}, TCP_NODELAY: {}, 写缓冲水位: {}, 池化分配器: {}, "
+                        + "Unix域套接字: {}, 共享内存目录: {}, 遥测数据报: {}, HTTP上传: {}",
+                transport, acceptors, ioThreads == 0 ? "默认" : ioThreads, backlog,
+                receiveBufferSize == 0 ? "系统默认" : receiveBufferSize,
+                sendBufferSize == 0 ? "系统默认" : sendBufferSize,
+                tcpNoDelay, writeBufferWaterMark, pooledAllocator,
+                unixSocketPath != null ? unixSocketPath : "未启用",
+                sharedMemoryDirectory != null ? sharedMemoryDirectory + " (" + sharedMemoryWaitStrategy + ")" : "未启用",
+                udpEnabled ? "端口 " + (udpPort == 0 ? "同TCP" : String.valueOf(udpPort)) : "未启用",
+                httpEnabled ? "端口 " + httpPort : "未启用");
+    }
+
+    private static Transport readTransport(Properties properties) {
+        String value = properties.getProperty(KEY_TRANSPORT);
+        if (value == null || value.trim().isEmpty()) {
+            return DEFAULT_TRANSPORT;
+        }
+        try {
+            return Transport.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.warn("配置项 {} 的值 {} 无效（可选 auto、epoll、nio），使用默认值 {}",
+                    KEY_TRANSPORT, value, DEFAULT_TRANSPORT);
+            return DEFAULT_TRANSPORT;
+        }
+    }
+
+    private static WaitStrategy readWaitStrategy(Properties properties) {
+        String value = properties.getProperty(KEY_SHM_WAIT_STRATEGY);
+        if (value == null || value.trim().isEmpty()) {
+            return DEFAULT_SHM_WAIT_STRATEGY;
+        }
+        try {
+            return WaitStrategy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.warn("配置项 {} 的值 {} 无效（可选 park、busy_spin），使用默认值 {}",
+                    KEY_SHM_WAIT_STRATEGY, value, DEFAULT_SHM_WAIT_STRATEGY);
+            return DEFAULT_SHM_WAIT_STRATEGY;
+        }
+    }
+
+    private static int readInt(Properties properties, String key, int defaultValue, int min) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed >= min) {
+                return parsed;
+            }
+            logger.warn("配置项 {} 不能小于 {}，使用默认值 {}", key, min, defaultValue);
+        } catch (NumberFormatException e) {
+            logger.warn("配置项 {} 的值 {} 不是有效的数字，使用默认值 {}", key, value, defaultValue);
+        }
+        return defaultValue;
+    }
+
+    /**
+     * 获取配置的传输实现
+     */
+    public Transport getTransport() {
+        return transport;
+    }
+
+    /**
+     * 获取监听线程数，大于1且使用epoll时以SO_REUSEPORT在同一端口上绑定多个监听套接字
+     */
+    public int getAcceptors() {
+        return acceptors;
+    }
+
+    /**
+     * 获取I/O线程数，0表示使用Netty默认值（CPU核数的2倍）
+     */
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    /**
+     * 获取监听套接字的连接队列长度
+     */
+    public int getBacklog() {
+        return backlog;
+    }
+
+    /**
+     * 获取连接的接收缓冲区字节数，0表示使用系统默认值（Linux下由内核自动调整）
+     */
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    /**
+     * 获取连接的发送缓冲区字节数，0表示使用系统默认值
+     */
+    public int getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    /**
+     * 是否禁用Nagle算法
+     */
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    /**
+     * 获取连接的写缓冲区水位，出站数据超过高水位时连接变为不可写，降到低水位以下时恢复
+     */
+    public WriteBufferWaterMark getWriteBufferWaterMark() {
+        return writeBufferWaterMark;
+    }
+
+    /**
+     * 是否使用池化的缓冲区分配器
+     */
+    public boolean isPooledAllocator() {
+        return pooledAllocator;
+    }
+
+    /**
+     * 获取Unix域套接字的路径，配置后服务端在该路径上额外监听（需要epoll传输）
+     * @return 套接字文件路径，未配置时返回null
+     */
+    public Path getUnixSocketPath() {
+        return unixSocketPath;
+    }
+
+    /**
+     * 获取共享内存连接的共享目录，配置后服务端接入客户端在该目录中创建的连接文件
+     * @return 共享目录，未配置时返回null
+     */
+    public Path getSharedMemoryDirectory() {
+        return sharedMemoryDirectory;
+    }
+
+    /**
+     * 获取共享内存连接在环形缓冲区为空或已满时的等待方式
+     */
+    public WaitStrategy getSharedMemoryWaitStrategy() {
+        return sharedMemoryWaitStrategy;
+    }
+
+    /**
+     * 是否接收遥测数据报（UDP）
+     */
+    public boolean isUdpEnabled() {
+        return udpEnabled;
+    }
+
+    /**
+     * 获取遥测数据报的端口，0表示与TCP监听相同的端口
+     */
+    public int getUdpPort() {
+        return udpPort;
+    }
+
+    /**
+     * 获取遥测数据报套接字的接收缓冲区字节数，0表示使用系统默认值；
+     * 突发的数据报在缓冲区满时被内核丢弃
+     */
+    public int getUdpReceiveBufferSize() {
+        return udpReceiveBufferSize;
+    }
+
+    /**
+     * 获取遥测数据报的字典目录，其中的*.dict文件在启动时加载，按字典ID匹配客户端使用的字典
+     * @return 字典目录，未配置时返回null
+     */
+    public Path getUdpDictionaryDirectory() {
+        return udpDictionaryDirectory;
+    }
+
+    /**
+     * 是否接收HTTP上传
+     */
+    public boolean isHttpEnabled() {
+        return httpEnabled;
+    }
+
+    /**
+     * 获取HTTP上传的监听端口
+     */
+    public int getHttpPort() {
+        return httpPort;
+    }
+}
@@ -0,0 +1,152 @@
+package com.datacompress.server.http;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.function.Consumer;
+
+/**
+ * 把I/O线程收到的请求体分片交给解压线程读取的管道
+ * I/O线程依次放入分片，解压线程以InputStream读取，分片读完即释放；
+ * 积压超过高水位时由I/O线程暂停读取连接，解压线程读到低水位以下时通过回调恢复。
+ */
+final class ContentPipe extends InputStream {
+
+    private static final int HIGH_WATER_MARK = 4 * 1024 * 1024;
+    private static final int LOW_WATER_MARK = 1024 * 1024;
+
+    private final Queue<ByteBuf> queue = new ArrayDeque<>();
+    private final Consumer<ContentPipe> resume;
+    private ByteBuf current;
+    private long buffered;
+    private long totalRead;
+    private boolean paused;
+    private boolean finished;
+    private IOException failure;
+
+    /**
+     * @param resume 积压降到低水位以下时在解压线程上调用，恢复读取连接
+     */
+    ContentPipe(Consumer<ContentPipe> resume) {
+        this.resume = resume;
+    }
+
+    /**
+     * 放入一个分片，管道负责释放
+     * @return 积压超过高水位、应暂停读取连接时返回true
+     */
+    synchronized boolean offer(ByteBuf content) {
+        if (finished || failure != null) {
+            content.release();
+            return false;
+        }
+        queue.add(content);
+        buffered += content.readableBytes();
+        notifyAll();
+        if (buffered > HIGH_WATER_MARK) {
+            paused = true;
+        }
+        return paused;
+    }
+
+    /**
+     * 请求体已全部放入
+     */
+    synchronized void finish() {
+        finished = true;
+        notifyAll();
+    }
+
+    /**
+     * 中止管道，读取方随后收到异常，积压的分片全部释放
+     */
+    synchronized void abort(IOException cause) {
+        if (failure == null) {
+            failure = cause;
+        }
+        releaseAll();
+        notifyAll();
+    }
+
+    /**
+     * 解压线程已读取的字节数
+     */
+    synchronized long totalRead() {
+        return totalRead;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        boolean resumeNow = false;
+        int count;
+        synchronized (this) {
+            while (true) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (current != null && current.isReadable()) {
+                    break;
+                }
+                if (current != null) {
+                    current.release();
+                    current = null;
+                }
+                current = queue.poll();
+                if (current == null) {
+                    if (finished) {
+                        return -1;
+                    }
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("读取请求体时被中断");
+                    }
+                }
+            }
+            count = Math.min(len, current.readableBytes());
+            current.readBytes(b, off, count);
+            buffered -= count;
+            totalRead += count;
+            if (paused && buffered < LOW_WATER_MARK) {
+                paused = false;
+                resumeNow = true;
+            }
+        }
+        if (resumeNow) {
+            resume.accept(this);
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized void close() {
+        releaseAll();
+        finished = true;
+    }
+
+    private void releaseAll() {
+        if (current != null) {
+            current.release();
+            current = null;
+        }
+        ByteBuf content;
+        while ((content = queue.poll()) != null) {
+            content.release();
+        }
+        buffered = 0;
+    }
+}
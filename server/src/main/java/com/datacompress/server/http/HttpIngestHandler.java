@@ -0,0 +1,325 @@
+package com.datacompress.server.http;
+
+import com.datacompress.algorithm.CompressionAlgorithm;
+import com.datacompress.algorithm.CompressionFactory;
+import com.datacompress.algorithm.DecompressionGuard;
+import com.datacompress.algorithm.DecompressionLimitException;
+import com.datacompress.server.config.FileStorageConfig;
+import com.datacompress.server.util.FileUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.util.ReferenceCountUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * HTTP上传处理器
+ * 接受POST请求，请求体按Content-Encoding选择压缩算法，由传输处理线程边接收边解压并写入存储目录，
+ * 请求体不在内存中聚合；文件名取请求路径的最后一段（或name查询参数）。
+ * 处理完成后返回与ResponseMessage相同的计时指标（响应头X-Receive-*与X-Decompress-*，毫秒时间戳）；
+ * 接收与解压同时进行，解压结束时间即最后一个字节写入存储的时间。
+ * 出错时返回错误状态码并关闭连接，未读完的请求体不再解析。
+ */
+public class HttpIngestHandler extends ChannelInboundHandlerAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpIngestHandler.class);
+
+    private static final String DEFAULT_NAME = "http_upload.dat";
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    /** Content-Encoding取值到压缩算法名称 */
+    private static final Map<String, String> ENCODINGS = new HashMap<>();
+
+    static {
+        ENCODINGS.put("identity", "NONE");
+        ENCODINGS.put("gzip", "GZIP");
+        ENCODINGS.put("x-gzip", "GZIP");
+        ENCODINGS.put("deflate", "DEFLATE");
+        ENCODINGS.put("br", "Brotli");
+        ENCODINGS.put("zstd", "Zstd");
+        ENCODINGS.put("lz4", "LZ4");
+        ENCODINGS.put("snappy", "SNAPPY");
+    }
+
+    private final FileStorageConfig fileStorageConfig;
+    private final DecompressionGuard decompressionGuard;
+    private final ExecutorService transferExecutor;
+    private final long maxBodyBytes;
+
+    // 当前请求的状态，只在I/O线程上访问
+    private ContentPipe pipe;
+    private long bodyBytes;
+    private boolean discarding;
+
+    public HttpIngestHandler(FileStorageConfig fileStorageConfig, DecompressionGuard decompressionGuard,
+                             ExecutorService transferExecutor, long maxBodyBytes) {
+        this.fileStorageConfig = fileStorageConfig;
+        this.decompressionGuard = decompressionGuard;
+        this.transferExecutor = transferExecutor;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        try {
+            if (msg instanceof HttpRequest) {
+                startRequest(ctx, (HttpRequest) msg);
+            }
+            if (msg instanceof HttpContent) {
+                onContent(ctx, (HttpContent) msg);
+            }
+        } finally {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    private void startRequest(ChannelHandlerContext ctx, HttpRequest request) {
+        long receiveStartTime = System.currentTimeMillis();
+        bodyBytes = 0;
+        discarding = true;
+        if (!request.decoderResult().isSuccess()) {
+            sendError(ctx, HttpResponseStatus.BAD_REQUEST, "无法解析的请求");
+            return;
+        }
+        if (!HttpMethod.POST.equals(request.method())) {
+            sendError(ctx, HttpResponseStatus.METHOD_NOT_ALLOWED, "只接受POST上传");
+            return;
+        }
+        if (HttpUtil.getContentLength(request, -1L) > maxBodyBytes) {
+            sendError(ctx, HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE, "请求体超过上限 " + maxBodyBytes + " bytes");
+            return;
+        }
+        String encoding = request.headers().get(HttpHeaderNames.CONTENT_ENCODING, "identity").trim()
+                .toLowerCase(Locale.ROOT);
+        String algorithmName = ENCODINGS.get(encoding);
+        CompressionAlgorithm algorithm = algorithmName != null ? CompressionFactory.getAlgorithm(algorithmName) : null;
+        if (algorithm == null) {
+            sendError(ctx, HttpResponseStatus.UNSUPPORTED_MEDIA_TYPE,
+                    "不支持的Content-Encoding: " + encoding + "（支持 " + String.join(", ", ENCODINGS.keySet()) + "）");
+            return;
+        }
+        String name;
+        try {
+            name = fileNameOf(request.uri());
+        } catch (InvalidPathException e) {
+            sendError(ctx, HttpResponseStatus.BAD_REQUEST, "无效的文件名");
+            return;
+        }
+
+        Channel channel = ctx.channel();
+        ContentPipe contentPipe = new ContentPipe(drained -> channel.eventLoop().execute(() -> {
+            // 请求体接收完毕后由响应恢复读取
+            if (pipe == drained) {
+                channel.config().setAutoRead(true);
+            }
+        }));
+        boolean keepAlive = HttpUtil.isKeepAlive(request);
+        try {
+            transferExecutor.execute(() -> ingest(channel, contentPipe, algorithm, name, receiveStartTime, keepAlive));
+        } catch (RejectedExecutionException e) {
+            sendError(ctx, HttpResponseStatus.SERVICE_UNAVAILABLE, "服务器正在关闭");
+            return;
+        }
+        pipe = contentPipe;
+        discarding = false;
+        logger.info("开始接收HTTP上传 - 来源: {}, 文件名: {}, Content-Encoding: {}",
+                channel.remoteAddress(), name, encoding);
+    }
+
+    private void onContent(ChannelHandlerContext ctx, HttpContent content) {
+        if (discarding || pipe == null) {
+            return;
+        }
+        ByteBuf data = content.content();
+        bodyBytes += data.readableBytes();
+        if (bodyBytes > maxBodyBytes) {
+            pipe.abort(new IOException("请求体超过上限"));
+            pipe = null;
+            discarding = true;
+            sendError(ctx, HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE, "请求体超过上限 " + maxBodyBytes + " bytes");
+            return;
+        }
+        if (data.isReadable() && pipe.offer(data.retain())) {
+            // 解压跟不上接收时暂停读取，由管道在积压降低后恢复
+            ctx.channel().config().setAutoRead(false);
+        }
+        if (content instanceof LastHttpContent) {
+            pipe.finish();
+            pipe = null;
+            discarding = true;
+            // 响应发出前不读取下一个请求，同一连接上的请求依次处理
+            ctx.channel().config().setAutoRead(false);
+        }
+    }
+
+    /**
+     * 在传输处理线程上解压请求体并写入存储
+     */
+    private void ingest(Channel channel, ContentPipe contentPipe, CompressionAlgorithm algorithm, String name,
+                        long receiveStartTime, boolean keepAlive) {
+        long decompressStartTime = System.currentTimeMillis();
+        Path target = null;
+        long written = 0;
+        try (InputStream in = algorithm.newDecompressingStream(contentPipe)) {
+            OutputStream out;
+            if (fileStorageConfig.isSaveEnabled()) {
+                target = fileStorageConfig.getStorageDirectory().resolve(
+                        FileUtils.generateFileName(name, algorithm.getName(), receiveStartTime));
+                out = Files.newOutputStream(target);
+            } else {
+                out = OutputStream.nullOutputStream();
+            }
+            try (OutputStream output = out) {
+                byte[] buffer = new byte[Math.max(WRITE_BUFFER_SIZE, decompressionGuard.getStepSize())];
+                int length;
+                while ((length = in.read(buffer)) > 0) {
+                    written += length;
+                    long limit = decompressionGuard.limitFor(contentPipe.totalRead());
+                    if (written > limit) {
+                        throw new DecompressionLimitException(String.format(
+                                "解压输出超过上限 %d bytes（已接收压缩数据 %d bytes）", limit, contentPipe.totalRead()));
+                    }
+                    output.write(buffer, 0, length);
+                }
+            }
+            // 解压流可能在压缩数据结束前就已结束，剩余的请求体仍需读完
+            if (contentPipe.read() >= 0) {
+                throw new IOException("压缩数据之后还有多余的内容");
+            }
+        } catch (Exception e) {
+            contentPipe.abort(e instanceof IOException ? (IOException) e : new IOException(e));
+            deleteQuietly(target);
+            HttpResponseStatus status = e instanceof DecompressionLimitException
+                    ? HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE : HttpResponseStatus.BAD_REQUEST;
+            if (!channel.isActive()) {
+                logger.warn("HTTP上传中断 - 文件名: {}: {}", name, e.getMessage());
+                return;
+            }
+            logger.warn("HTTP上传处理失败 - 文件名: {}: {}", name, e.getMessage());
+            channel.eventLoop().execute(() -> sendError(channel, status, "处理失败: " + e.getMessage()));
+            return;
+        }
+        long decompressEndTime = System.currentTimeMillis();
+        long compressedBytes = contentPipe.totalRead();
+        logger.info("HTTP上传处理成功 - 文件名: {}, 压缩后: {} bytes, 解压后: {} bytes, 耗时: {} ms",
+                name, compressedBytes, written, decompressEndTime - receiveStartTime);
+
+        FullHttpResponse response = newResponse(HttpResponseStatus.OK, "解压成功");
+        response.headers()
+                .set("X-Compression-Algorithm", algorithm.getName())
+                .set("X-Compressed-Size", compressedBytes)
+                .set("X-Original-Size", written)
+                .set("X-Receive-Start-Time", receiveStartTime)
+                // 最后一个字节被解压线程读到时请求体已接收完毕
+                .set("X-Receive-End-Time", decompressEndTime)
+                .set("X-Decompress-Start-Time", decompressStartTime)
+                .set("X-Decompress-End-Time", decompressEndTime);
+        if (target != null) {
+            response.headers().set(HttpHeaderNames.LOCATION, target.getFileName().toString());
+        }
+        HttpUtil.setKeepAlive(response, keepAlive);
+        channel.eventLoop().execute(() -> {
+            if (keepAlive) {
+                channel.writeAndFlush(response);
+                channel.config().setAutoRead(true);
+            } else {
+                channel.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+            }
+        });
+    }
+
+    /**
+     * 取请求路径的最后一段作为文件名，name查询参数优先；只保留名称本身，避免写到存储目录之外
+     */
+    static String fileNameOf(String uri) {
+        QueryStringDecoder decoder = new QueryStringDecoder(uri);
+        String name = decoder.parameters().containsKey("name") ? decoder.parameters().get("name").get(0) : null;
+        if (name == null || name.trim().isEmpty()) {
+            String path = decoder.path();
+            name = path.substring(path.lastIndexOf('/') + 1);
+        }
+        if (name.trim().isEmpty()) {
+            return DEFAULT_NAME;
+        }
+        Path fileName = Paths.get(name).getFileName();
+        if (fileName == null || fileName.toString().equals("..") || fileName.toString().equals(".")) {
+            return DEFAULT_NAME;
+        }
+        return fileName.toString();
+    }
+
+    private void sendError(ChannelHandlerContext ctx, HttpResponseStatus status, String message) {
+        sendError(ctx.channel(), status, message);
+    }
+
+    private static void sendError(Channel channel, HttpResponseStatus status, String message) {
+        FullHttpResponse response = newResponse(status, message);
+        HttpUtil.setKeepAlive(response, false);
+        channel.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    }
+
+    private static FullHttpResponse newResponse(HttpResponseStatus status, String message) {
+        ByteBuf body = Unpooled.copiedBuffer(message + "\n", StandardCharsets.UTF_8);
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, body);
+        response.headers()
+                .set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.TEXT_PLAIN + "; charset=UTF-8")
+                .setInt(HttpHeaderNames.CONTENT_LENGTH, body.readableBytes());
+        return response;
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("删除未完成的上传文件 {} 失败", file, e);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (pipe != null) {
+            pipe.abort(new IOException("连接在请求体接收完成前断开"));
+            pipe = null;
+        }
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        logger.error("HTTP连接 {} 发生异常", ctx.channel().remoteAddress(), cause);
+        ctx.close();
+    }
+}
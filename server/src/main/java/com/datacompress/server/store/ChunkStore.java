@@ -0,0 +1,106 @@
+package com.datacompress.server.store;
+
+import com.datacompress.dedup.ChunkFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * 内容寻址的分块仓库
+ * 分块以指纹的十六进制为文件名保存，按指纹前两位分目录，所有连接共享同一个仓库
+ */
+public class ChunkStore {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChunkStore.class);
+    
+    private final Path root;
+    
+    public ChunkStore(Path root) {
+        this.root = root;
+    }
+    
+    /**
+     * 检查仓库中是否已有该分块
+     */
+    public boolean contains(byte[] fingerprint) {
+        return Files.exists(pathOf(fingerprint));
+    }
+    
+    /**
+     * 写入分块，写入前校验内容与指纹一致
+     * @return true表示新写入，false表示分块已存在
+     * @throws IOException 指纹不匹配或写入失败
+     */
+    public boolean put(byte[] fingerprint, byte[] data, int offset, int length) throws IOException {
+        if (!Arrays.equals(fingerprint, ChunkFingerprint.of(data, offset, length))) {
+            throw new IOException("分块内容与指纹不匹配: " + ChunkFingerprint.toHex(fingerprint));
+        }
+        
+        Path target = pathOf(fingerprint);
+        if (Files.exists(target)) {
+            return false;
+        }
+        
+        Files.createDirectories(target.getParent());
+        // 先写临时文件再原子移动，避免并发写入或中断留下不完整的分块
+        Path temp = Files.createTempFile(target.getParent(), "chunk", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                out.write(data, offset, length);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target);
+            }
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    /**
+     * 将分块内容写入输出流
+     * @return 分块长度
+     * @throws IOException 分块不存在或读取失败
+     */
+    public long copyTo(byte[] fingerprint, OutputStream out) throws IOException {
+        Path path = pathOf(fingerprint);
+        if (!Files.exists(path)) {
+            throw new IOException("分块仓库中缺少分块: " + ChunkFingerprint.toHex(fingerprint));
+        }
+        return Files.copy(path, out);
+    }
+    
+    public Path getRoot() {
+        return root;
+    }
+    
+    private Path pathOf(byte[] fingerprint) {
+        String hex = ChunkFingerprint.toHex(fingerprint);
+        return root.resolve(hex.substring(0, 2)).resolve(hex);
+    }
+    
+    /**
+     * 初始化仓库目录
+     */
+    public static ChunkStore open(Path root) {
+        try {
+            Files.createDirectories(root);
+            logger.info("分块仓库目录: {}", root.toAbsolutePath());
+        } catch (IOException e) {
+            logger.error("创建分块仓库目录失败: {}", root.toAbsolutePath(), e);
+        }
+        return new ChunkStore(root);
+    }
+}
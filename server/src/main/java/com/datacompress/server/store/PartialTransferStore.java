@@ -0,0 +1,262 @@
+package com.datacompress.server.store;
+
+import com.datacompress.protocol.ResumeQueryResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 流式传输的续传记录
+ * 每个流在目录下有两个文件：{流ID}.part 保存已写入的解压数据，{流ID}.ack 记录已确认的分片数、字节数与目标文件。
+ * 分片写入并刷新后才更新确认记录，确认记录总是不超前于数据；连接断开时两者都保留，客户端在新连接上从确认处续传。
+ * 所有连接共享一个实例，同一时刻一个流只能由一个连接写入；超过保留时长未续传的记录被删除。
+ */
+public class PartialTransferStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartialTransferStore.class);
+
+    private static final String PART_SUFFIX = ".part";
+    private static final String ACK_SUFFIX = ".ack";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final long retentionMillis;
+    // 正被某个连接写入的流，值为断开该连接的回调
+    private final Map<Long, Runnable> active = new ConcurrentHashMap<>();
+
+    public PartialTransferStore(Path root, long retentionMillis) {
+        this.root = root;
+        this.retentionMillis = retentionMillis;
+    }
+
+    /**
+     * 开始一个新流，清除同一流ID的旧记录
+     * @param streamId 流ID
+     * @param target 目标文件，为null时只记录进度不保存数据
+     * @param receiveStartTime 首个分片的接收开始时间
+     * @param evictor 其他连接要续传该流时调用，用于断开当前连接
+     * @throws IOException 该流正由其他连接写入或创建文件失败
+     */
+    public StreamWriter create(long streamId, Path target, long receiveStartTime, Runnable evictor)
+            throws IOException {
+        purgeExpired();
+        claim(streamId, evictor);
+        try {
+            deleteFiles(streamId);
+            Path part = null;
+            OutputStream out = OutputStream.nullOutputStream();
+            if (target != null) {
+                part = partPathOf(streamId);
+                out = new BufferedOutputStream(Files.newOutputStream(part), BUFFER_SIZE);
+            }
+            saveProgress(streamId, 0, 0, false, target);
+            return new StreamWriter(this, streamId, part, target, out, receiveStartTime, 0, 0);
+        } catch (IOException e) {
+            active.remove(streamId);
+            throw e;
+        }
+    }
+
+    /**
+     * 在新连接上恢复断开的流，截掉确认记录之后写入的数据
+     * @param streamId 流ID
+     * @param receiveStartTime 续传后首个分片的接收开始时间
+     * @param evictor 其他连接要续传该流时调用，用于断开当前连接
+     * @throws IOException 没有可续传的记录、记录与数据不一致或该流正由其他连接写入
+     */
+    public StreamWriter resume(long streamId, long receiveStartTime, Runnable evictor) throws IOException {
+        Progress progress = readProgress(streamId);
+        if (progress == null || progress.finished) {
+            throw new IOException(String.format("不存在可续传的流式传输 %016x", streamId));
+        }
+        claim(streamId, evictor);
+        try {
+            Path part = null;
+            OutputStream out = OutputStream.nullOutputStream();
+            if (progress.target != null) {
+                part = partPathOf(streamId);
+                if (!Files.exists(part) || Files.size(part) < progress.writtenBytes) {
+                    throw new IOException(String.format("流式传输 %016x 的续传数据不完整", streamId));
+                }
+                // 分片写入后、确认记录更新前断开时，文件中会多出未确认的数据
+                try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE)) {
+                    channel.truncate(progress.writtenBytes);
+                }
+                out = new BufferedOutputStream(Files.newOutputStream(part, StandardOpenOption.APPEND), BUFFER_SIZE);
+            }
+            logger.info("流式传输 {} 续传 - 已确认分片: {}, 已写入: {} bytes",
+                    String.format("%016x", streamId), progress.nextSequence, progress.writtenBytes);
+            return new StreamWriter(this, streamId, part, progress.target, out, receiveStartTime,
+                    progress.nextSequence, progress.writtenBytes);
+        } catch (IOException e) {
+            active.remove(streamId);
+            throw e;
+        }
+    }
+
+    /**
+     * 查询流的续传进度
+     * 该流仍被其他连接占用时断开那个连接（客户端已放弃它），返回BUSY让客户端稍后重试
+     */
+    public ResumeQueryResponse query(long streamId) throws IOException {
+        Progress progress = readProgress(streamId);
+        if (progress == null) {
+            return new ResumeQueryResponse(ResumeQueryResponse.UNKNOWN, 0, 0);
+        }
+        byte state = ResumeQueryResponse.RESUMABLE;
+        if (progress.finished) {
+            state = ResumeQueryResponse.FINISHED;
+        } else {
+            Runnable evictor = active.get(streamId);
+            if (evictor != null) {
+                logger.info("流式传输 {} 仍被断开前的连接占用，关闭该连接", String.format("%016x", streamId));
+                evictor.run();
+                state = ResumeQueryResponse.BUSY;
+            }
+        }
+        return new ResumeQueryResponse(state, progress.nextSequence, progress.writtenBytes);
+    }
+
+    /**
+     * 删除超过保留时长的续传记录，正在写入的流除外
+     */
+    public void purgeExpired() {
+        long deadline = System.currentTimeMillis() - retentionMillis;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(root, "*" + ACK_SUFFIX)) {
+            for (Path ack : entries) {
+                String name = ack.getFileName().toString();
+                long streamId = Long.parseUnsignedLong(name.substring(0, name.length() - ACK_SUFFIX.length()), 16);
+                if (!active.containsKey(streamId) && Files.getLastModifiedTime(ack).toMillis() < deadline) {
+                    logger.info("删除过期的续传记录: {}", name);
+                    deleteFiles(streamId);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("清理过期的续传记录失败: {}", root.toAbsolutePath(), e);
+        }
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * 原子地更新确认记录
+     */
+    void saveProgress(long streamId, long nextSequence, long writtenBytes, boolean finished, Path target)
+            throws IOException {
+        Path ack = ackPathOf(streamId);
+        Path temp = Files.createTempFile(root, "ack", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+                out.writeLong(nextSequence);
+                out.writeLong(writtenBytes);
+                out.writeBoolean(finished);
+                out.writeUTF(target != null ? target.toString() : "");
+            }
+            try {
+                Files.move(temp, ack, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, ack, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 结束连接对流的占用，保留续传记录
+     */
+    void release(long streamId) {
+        active.remove(streamId);
+    }
+
+    /**
+     * 结束连接对流的占用并删除续传记录
+     */
+    void discard(long streamId) {
+        try {
+            deleteFiles(streamId);
+        } catch (IOException e) {
+            logger.warn("删除续传记录失败: {}", String.format("%016x", streamId), e);
+        } finally {
+            active.remove(streamId);
+        }
+    }
+
+    private void claim(long streamId, Runnable evictor) throws IOException {
+        if (active.putIfAbsent(streamId, evictor) != null) {
+            throw new IOException(String.format("流式传输 %016x 正由其他连接写入", streamId));
+        }
+    }
+
+    private Progress readProgress(long streamId) throws IOException {
+        try (InputStream input = Files.newInputStream(ackPathOf(streamId));
+             DataInputStream in = new DataInputStream(input)) {
+            Progress progress = new Progress();
+            progress.nextSequence = in.readLong();
+            progress.writtenBytes = in.readLong();
+            progress.finished = in.readBoolean();
+            String target = in.readUTF();
+            progress.target = target.isEmpty() ? null : Paths.get(target);
+            return progress;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private void deleteFiles(long streamId) throws IOException {
+        Files.deleteIfExists(partPathOf(streamId));
+        Files.deleteIfExists(ackPathOf(streamId));
+    }
+
+    private Path partPathOf(long streamId) {
+        return root.resolve(String.format("%016x", streamId) + PART_SUFFIX);
+    }
+
+    private Path ackPathOf(long streamId) {
+        return root.resolve(String.format("%016x", streamId) + ACK_SUFFIX);
+    }
+
+    /**
+     * 初始化续传记录目录并清理过期记录
+     */
+    public static PartialTransferStore open(Path root, long retentionMillis) {
+        try {
+            Files.createDirectories(root);
+            logger.info("续传记录目录: {}", root.toAbsolutePath());
+        } catch (IOException e) {
+            logger.error("创建续传记录目录失败: {}", root.toAbsolutePath(), e);
+        }
+        PartialTransferStore store = new PartialTransferStore(root, retentionMillis);
+        store.purgeExpired();
+        return store;
+    }
+
+    /**
+     * 确认记录的内容
+     */
+    private static final class Progress {
+        private long nextSequence;
+        private long writtenBytes;
+        private boolean finished;
+        private Path target;
+    }
+}
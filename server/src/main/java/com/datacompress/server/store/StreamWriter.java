@@ -0,0 +1,153 @@
+package com.datacompress.server.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 流式传输的接收端
+ * 按序号把各分片解压后的数据追加到续传记录目录中的临时文件，内存中只保留当前分片；
+ * 每个分片写入后更新确认记录，正常结束时移动到目标文件，出错时删除，连接断开时保留以便续传。
+ * 由PartialTransferStore创建。
+ */
+public class StreamWriter implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamWriter.class);
+
+    private final PartialTransferStore store;
+    private final long streamId;
+    private final Path part;
+    private final Path target;
+    private final OutputStream out;
+    private final long receiveStartTime;
+    private final long resumedChunks;
+    private long nextSequence;
+    private long writtenBytes;
+    private long decompressStartTime;
+    private boolean closed;
+
+    StreamWriter(PartialTransferStore store, long streamId, Path part, Path target, OutputStream out,
+                 long receiveStartTime, long nextSequence, long writtenBytes) {
+        this.store = store;
+        this.streamId = streamId;
+        this.part = part;
+        this.target = target;
+        this.out = out;
+        this.receiveStartTime = receiveStartTime;
+        this.resumedChunks = nextSequence;
+        this.nextSequence = nextSequence;
+        this.writtenBytes = writtenBytes;
+    }
+
+    /**
+     * 检查分片序号是否为下一个期望的序号
+     * @throws IOException 分片乱序或重复
+     */
+    public void checkSequence(long sequence) throws IOException {
+        if (closed) {
+            throw new IOException("流已关闭");
+        }
+        if (sequence != nextSequence) {
+            throw new IOException(String.format("流式分片乱序: 期望序号 %d，收到 %d", nextSequence, sequence));
+        }
+    }
+
+    /**
+     * 追加一个分片解压后的数据，刷新后更新确认记录
+     * @param data 解压后的数据
+     * @param chunkDecompressStartTime 该分片的解压开始时间，记录本连接上首个分片的值
+     */
+    public void write(byte[] data, long chunkDecompressStartTime) throws IOException {
+        if (nextSequence == resumedChunks) {
+            decompressStartTime = chunkDecompressStartTime;
+        }
+        out.write(data);
+        out.flush();
+        writtenBytes += data.length;
+        nextSequence++;
+        store.saveProgress(streamId, nextSequence, writtenBytes, false, target);
+    }
+
+    /**
+     * 正常结束流，关闭临时文件并移动到目标文件
+     * 确认记录标记为已完成，最终响应丢失时客户端仍可查询到结果
+     * @return 目标文件，未保存时为null
+     */
+    public Path finish() throws IOException {
+        closed = true;
+        try {
+            out.close();
+            if (part != null) {
+                Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            store.saveProgress(streamId, nextSequence, writtenBytes, true, target);
+        } finally {
+            store.release(streamId);
+        }
+        return target;
+    }
+
+    /**
+     * 连接断开时暂停流，保留已确认的数据与确认记录
+     */
+    public void suspend() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.close();
+        } catch (IOException e) {
+            logger.warn("关闭流式传输文件失败: {}", part, e);
+        } finally {
+            store.release(streamId);
+        }
+        logger.info("流式传输 {} 已暂停，等待续传 - 已确认分片: {}", String.format("%016x", streamId), nextSequence);
+    }
+
+    /**
+     * 异常结束流，关闭并删除写了一半的文件与确认记录
+     */
+    public void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.close();
+        } catch (IOException e) {
+            logger.warn("关闭流式传输文件失败: {}", part, e);
+        }
+        store.discard(streamId);
+    }
+
+    @Override
+    public void close() {
+        abort();
+    }
+
+    public long getReceiveStartTime() {
+        return receiveStartTime;
+    }
+
+    public long getDecompressStartTime() {
+        return decompressStartTime;
+    }
+
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    /**
+     * 已写入的分片数，包括续传前已确认的分片
+     */
+    public long getChunkCount() {
+        return nextSequence;
+    }
+}
@@ -0,0 +1,220 @@
+package com.datacompress.server.store;
+
+import com.datacompress.protocol.TransferMessage;
+import io.netty.buffer.ByteBuf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 条带传输的分片重组器
+ * 同一传输的分片经不同连接到达、由不同线程并发加入，按偏移复制进预分配的缓冲区，全部到齐后交出完整消息。
+ * 所有连接共享一个重组器；长时间没有新分片的传输视为放弃，释放其缓冲区。
+ */
+public class StripeAssembler {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeAssembler.class);
+
+    private final int maxTransferBytes;
+    private final long maxPendingBytes;
+    private final long timeoutMillis;
+
+    private final Map<Long, Assembly> assemblies = new ConcurrentHashMap<>();
+    // 所有未完成传输预分配的缓冲区总字节数
+    private final AtomicLong pendingBytes = new AtomicLong();
+
+    /**
+     * @param maxTransferBytes 单个传输重组后的最大字节数
+     * @param maxPendingBytes 所有未完成传输的缓冲区总字节数上限
+     * @param timeoutMillis 传输在该时间内没有新分片到达时被丢弃
+     */
+    public StripeAssembler(int maxTransferBytes, long maxPendingBytes, long timeoutMillis) {
+        this.maxTransferBytes = maxTransferBytes;
+        this.maxPendingBytes = maxPendingBytes;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * 加入一个分片，返回后分片的数据即可释放
+     * @param chunk 分片消息
+     * @param receiveStartTime 分片的接收开始时间
+     * @return 全部分片到齐时返回重组结果，否则返回null
+     * @throws IOException 分片与同一传输的其他分片不一致、相互重叠或超出上限，此时整个传输被丢弃
+     */
+    public Assembled add(TransferMessage chunk, long receiveStartTime) throws IOException {
+        long now = System.currentTimeMillis();
+        expireStale(now);
+
+        long transferId = chunk.getTransferId();
+        Assembly assembly = assemblies.get(transferId);
+        if (assembly == null) {
+            assembly = newAssembly(chunk);
+            Assembly existing = assemblies.putIfAbsent(transferId, assembly);
+            if (existing != null) {
+                pendingBytes.addAndGet(-assembly.data.length);
+                assembly = existing;
+            }
+        }
+
+        synchronized (assembly) {
+            if (assembly.finished) {
+                throw new IOException(String.format("条带传输 %016x 已结束", transferId));
+            }
+            try {
+                assembly.accept(chunk, receiveStartTime, now);
+            } catch (IOException e) {
+                finish(transferId, assembly);
+                throw e;
+            }
+            if (assembly.received < assembly.data.length) {
+                return null;
+            }
+            finish(transferId, assembly);
+
+            TransferMessage message = assembly.header;
+            message.setTransferId(0);
+            message.setChunkOffset(0);
+            message.setCompressedData(assembly.data);
+            return new Assembled(message, assembly.receiveStartTime, assembly.chunkCount);
+        }
+    }
+
+    /**
+     * 当前未完成的传输数
+     */
+    public int getPendingCount() {
+        return assemblies.size();
+    }
+
+    private Assembly newAssembly(TransferMessage chunk) throws IOException {
+        long total = chunk.getCompressedSize();
+        if (total <= 0 || total > maxTransferBytes) {
+            throw new IOException(String.format("条带传输总长 %d bytes 超出上限 %d bytes", total, maxTransferBytes));
+        }
+        if (pendingBytes.addAndGet(total) > maxPendingBytes) {
+            pendingBytes.addAndGet(-total);
+            throw new IOException(String.format("未完成的条带传输已占用 %d bytes，拒绝新的传输", pendingBytes.get()));
+        }
+        return new Assembly((int) total, chunk.getAlgorithmId());
+    }
+
+    private void finish(long transferId, Assembly assembly) {
+        assembly.finished = true;
+        if (assemblies.remove(transferId, assembly)) {
+            pendingBytes.addAndGet(-assembly.data.length);
+        }
+    }
+
+    private void expireStale(long now) {
+        Iterator<Map.Entry<Long, Assembly>> iterator = assemblies.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Assembly> entry = iterator.next();
+            Assembly assembly = entry.getValue();
+            if (now - assembly.lastUpdate > timeoutMillis) {
+                synchronized (assembly) {
+                    if (!assembly.finished && now - assembly.lastUpdate > timeoutMillis) {
+                        logger.warn("条带传输 {} 超时未完成，已丢弃 - 已收到 {}/{} bytes",
+                                String.format("%016x", entry.getKey()), assembly.received, assembly.data.length);
+                        finish(entry.getKey(), assembly);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 单个条带传输的重组状态，访问时需持有其锁
+     */
+    private static final class Assembly {
+
+        private final byte[] data;
+        private final byte algorithmId;
+        // 已收到的分片区间: 偏移 -> 长度
+        private final TreeMap<Long, Integer> ranges = new TreeMap<>();
+        private TransferMessage header;  // 偏移为0的分片，携带完整性信息等元数据
+        private long received;
+        private int chunkCount;
+        private long receiveStartTime = Long.MAX_VALUE;
+        private long lastUpdate;
+        private boolean finished;
+
+        Assembly(int total, byte algorithmId) {
+            this.data = new byte[total];
+            this.algorithmId = algorithmId;
+            this.lastUpdate = System.currentTimeMillis();
+        }
+
+        void accept(TransferMessage chunk, long chunkReceiveStartTime, long now) throws IOException {
+            if (chunk.getCompressedSize() != data.length || chunk.getAlgorithmId() != algorithmId) {
+                throw new IOException("分片的压缩数据总长或算法与同一传输的其他分片不一致");
+            }
+            long offset = chunk.getChunkOffset();
+            int length = chunk.getDataLength();
+            if (length == 0 || offset < 0 || offset + length > data.length) {
+                throw new IOException(String.format("非法的分片区间: offset=%d, length=%d, total=%d",
+                        offset, length, data.length));
+            }
+            Map.Entry<Long, Integer> before = ranges.floorEntry(offset);
+            Map.Entry<Long, Integer> after = ranges.ceilingEntry(offset);
+            if ((before != null && before.getKey() + before.getValue() > offset)
+                    || (after != null && after.getKey() < offset + length)) {
+                throw new IOException(String.format("分片区间重叠: offset=%d, length=%d", offset, length));
+            }
+
+            ByteBuf payload = chunk.getPayload();
+            if (payload != null) {
+                payload.getBytes(payload.readerIndex(), data, (int) offset, length);
+            } else {
+                System.arraycopy(chunk.getCompressedData(), 0, data, (int) offset, length);
+            }
+            ranges.put(offset, length);
+            received += length;
+            chunkCount++;
+            receiveStartTime = Math.min(receiveStartTime, chunkReceiveStartTime);
+            lastUpdate = now;
+            if (offset == 0) {
+                header = chunk;
+            }
+        }
+    }
+
+    /**
+     * 重组完成的传输
+     */
+    public static final class Assembled {
+
+        private final TransferMessage message;
+        private final long receiveStartTime;
+        private final int chunkCount;
+
+        Assembled(TransferMessage message, long receiveStartTime, int chunkCount) {
+            this.message = message;
+            this.receiveStartTime = receiveStartTime;
+            this.chunkCount = chunkCount;
+        }
+
+        /**
+         * 完整的传输消息，压缩数据为重组结果，元数据取自偏移为0的分片
+         */
+        public TransferMessage getMessage() {
+            return message;
+        }
+
+        /**
+         * 最早到达的分片的接收开始时间
+         */
+        public long getReceiveStartTime() {
+            return receiveStartTime;
+        }
+
+        public int getChunkCount() {
+            return chunkCount;
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.datacompress.server.util;
 
+import io.netty.buffer.ByteBuf;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
@@ -56,6 +59,73 @@ public class FileUtils {
         }
     }
     
+    /**
+     * 将缓冲区中的数据直接写入文件
+     * 直接内存（及其组合）以FileChannel写出，数据不复制到堆上；不移动缓冲区的读指针
+     * 
+     * @param directory 目标目录
+     * @param fileName 文件名
+     * @param data 文件数据
+     * @return 保存的文件路径，如果保存失败返回null
+     */
+    public static Path saveFile(Path directory, String fileName, ByteBuf data) {
+        Path filePath = directory.resolve(fileName);
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            int index = data.readerIndex();
+            int remaining = data.readableBytes();
+            long position = 0;
+            while (remaining > 0) {
+                int written = data.getBytes(index, channel, position, remaining);
+                index += written;
+                position += written;
+                remaining -= written;
+            }
+            logger.info("文件保存成功: {} ({} bytes)", filePath.toAbsolutePath(), position);
+            return filePath;
+        } catch (IOException e) {
+            logger.error("保存文件失败: {}/{}", directory, fileName, e);
+            return null;
+        }
+    }
+    
+    /**
+     * 查找指定原始文件名最近一次保存的版本
+     * 保存的文件名格式为 {timestamp}_{originalFileName}，取时间戳最大的一个
+     * 
+     * @param directory 保存目录
+     * @param originalFileName 原始文件名
+     * @return 最新版本的路径，如果不存在返回null
+     * @throws IOException 遍历目录时发生的异常
+     */
+    public static Path findLatestVersion(Path directory, String originalFileName) throws IOException {
+        if (originalFileName == null || originalFileName.trim().isEmpty() || !Files.isDirectory(directory)) {
+            return null;
+        }
+        
+        String suffix = "_" + originalFileName;
+        Path latest = null;
+        long latestTimestamp = Long.MIN_VALUE;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (!name.endsWith(suffix) || !Files.isRegularFile(path)) {
+                    continue;
+                }
+                try {
+                    long timestamp = Long.parseLong(name.substring(0, name.length() - suffix.length()));
+                    if (timestamp > latestTimestamp) {
+                        latestTimestamp = timestamp;
+                        latest = path;
+                    }
+                } catch (NumberFormatException e) {
+                    // 不是由本服务保存的文件，忽略
+                }
+            }
+        }
+        return latest;
+    }
+    
     /**
      * 确保目录存在，如果不存在则创建
      * 
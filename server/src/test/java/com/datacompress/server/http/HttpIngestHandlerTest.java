@@ -0,0 +1,257 @@
+package com.datacompress.server.http;
+
+import com.datacompress.algorithm.CompressionFactory;
+import com.datacompress.algorithm.DecompressionGuard;
+import com.datacompress.server.config.FileStorageConfig;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HTTP上传处理器单元测试
+ * 解压任务交给在测试线程上手动执行的线程池，请求体全部写入后再运行，整个过程在单个线程上确定地完成
+ */
+class HttpIngestHandlerTest {
+
+    private static final long MAX_BODY_BYTES = 1024 * 1024;
+
+    private final FileStorageConfig storageConfig = new FileStorageConfig();
+    private final DeferredExecutor executor = new DeferredExecutor();
+
+    /**
+     * 测试gzip与zstd编码的请求体分多段到达，解压后写入存储并返回200与计时响应头
+     */
+    @Test
+    void testStoresGzipAndZstdBodies() throws IOException {
+        byte[] data = sampleData(300_000);
+
+        for (String[] encoding : new String[][]{{"gzip", "GZIP"}, {"zstd", "Zstd"}}) {
+            String name = uniqueName("http-" + encoding[0]);
+            byte[] body = CompressionFactory.getAlgorithm(encoding[1]).compress(data, 3);
+            EmbeddedChannel channel = newChannel(DecompressionGuard.UNLIMITED);
+
+            channel.writeInbound(newRequest("/upload/" + name, encoding[0], -1));
+            int third = body.length / 3;
+            channel.writeInbound(new DefaultHttpContent(Unpooled.wrappedBuffer(body, 0, third)));
+            channel.writeInbound(new DefaultHttpContent(Unpooled.wrappedBuffer(body, third, third)));
+            channel.writeInbound(new DefaultLastHttpContent(
+                Unpooled.wrappedBuffer(body, 2 * third, body.length - 2 * third)));
+            executor.runAll();
+
+            FullHttpResponse response = readResponse(channel);
+            assertEquals(HttpResponseStatus.OK, response.status(), encoding[0] + " 上传应成功");
+            assertEquals(String.valueOf(data.length), response.headers().get("X-Original-Size"));
+            assertEquals(String.valueOf(body.length), response.headers().get("X-Compressed-Size"));
+            assertTrue(response.headers().contains("X-Decompress-End-Time"), "应返回计时响应头");
+            assertArrayEquals(data, Files.readAllBytes(storedFile(name)), encoding[0] + " 保存的内容应与原文件一致");
+            response.release();
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    /**
+     * 测试声明的Content-Length超过上限时直接返回413并关闭连接，不启动解压
+     */
+    @Test
+    void testRejectsDeclaredLengthOverLimit() {
+        EmbeddedChannel channel = newChannel(DecompressionGuard.UNLIMITED);
+
+        channel.writeInbound(newRequest("/upload/" + uniqueName("declared"), "gzip", MAX_BODY_BYTES + 1));
+
+        FullHttpResponse response = readResponse(channel);
+        assertEquals(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE, response.status());
+        assertFalse(channel.isOpen(), "拒绝后应关闭连接");
+        assertEquals(0, executor.pending(), "不应启动解压任务");
+        response.release();
+    }
+
+    /**
+     * 测试未声明长度的请求体在接收途中超过上限时返回413，中止解压并删除未完成的文件
+     */
+    @Test
+    void testRejectsBodyOverLimitWhileReceiving() throws IOException {
+        String name = uniqueName("chunked");
+        EmbeddedChannel channel = newChannel(DecompressionGuard.UNLIMITED);
+
+        channel.writeInbound(newRequest("/upload/" + name, "identity", -1));
+        byte[] piece = sampleData(256 * 1024);
+        for (int i = 0; i < 5; i++) {
+            channel.writeInbound(new DefaultHttpContent(Unpooled.wrappedBuffer(piece)));
+        }
+
+        FullHttpResponse response = readResponse(channel);
+        assertEquals(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE, response.status());
+        assertFalse(channel.isOpen(), "拒绝后应关闭连接");
+        response.release();
+
+        executor.runAll();
+        assertEquals(0, storedFiles(name).size(), "中止的上传不应留下文件");
+    }
+
+    /**
+     * 测试解压输出超过解压限制时返回413并删除未完成的文件
+     */
+    @Test
+    void testRejectsOutputOverDecompressionLimit() throws IOException {
+        String name = uniqueName("bomb");
+        byte[] body = CompressionFactory.getAlgorithm("GZIP").compress(new byte[2 * 1024 * 1024], 6);
+        EmbeddedChannel channel = newChannel(new DecompressionGuard(256 * 1024, 0, DecompressionGuard.DEFAULT_STEP_SIZE));
+
+        channel.writeInbound(newRequest("/upload/" + name, "gzip", body.length));
+        channel.writeInbound(new DefaultLastHttpContent(Unpooled.wrappedBuffer(body)));
+        executor.runAll();
+
+        FullHttpResponse response = readResponse(channel);
+        assertEquals(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE, response.status());
+        assertEquals(0, storedFiles(name).size(), "超限的上传不应留下文件");
+        response.release();
+    }
+
+    /**
+     * 测试不支持的Content-Encoding返回415
+     */
+    @Test
+    void testRejectsUnknownEncoding() {
+        EmbeddedChannel channel = newChannel(DecompressionGuard.UNLIMITED);
+
+        channel.writeInbound(newRequest("/upload/x.bin", "compress", 10));
+
+        FullHttpResponse response = readResponse(channel);
+        assertEquals(HttpResponseStatus.UNSUPPORTED_MEDIA_TYPE, response.status());
+        response.release();
+    }
+
+    /**
+     * 测试文件名只取最后一段，不能写到存储目录之外
+     */
+    @Test
+    void testFileNameStaysInStorageDirectory() {
+        assertEquals("report.csv", HttpIngestHandler.fileNameOf("/upload/report.csv"));
+        assertEquals("passwd", HttpIngestHandler.fileNameOf("/upload/../../etc/passwd"));
+        assertEquals("x.bin", HttpIngestHandler.fileNameOf("/upload?name=../x.bin"));
+        assertEquals("http_upload.dat", HttpIngestHandler.fileNameOf("/"));
+        assertEquals("http_upload.dat", HttpIngestHandler.fileNameOf("/upload/.."));
+    }
+
+    private EmbeddedChannel newChannel(DecompressionGuard guard) {
+        return new EmbeddedChannel(new HttpIngestHandler(storageConfig, guard, executor, MAX_BODY_BYTES));
+    }
+
+    private static HttpRequest newRequest(String uri, String encoding, long contentLength) {
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, uri);
+        request.headers().set(HttpHeaderNames.CONTENT_ENCODING, encoding);
+        if (contentLength >= 0) {
+            request.headers().set(HttpHeaderNames.CONTENT_LENGTH, contentLength);
+        } else {
+            request.headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+        }
+        return request;
+    }
+
+    /**
+     * 执行解压线程投递回I/O线程的任务后读取响应
+     */
+    private static FullHttpResponse readResponse(EmbeddedChannel channel) {
+        channel.runPendingTasks();
+        FullHttpResponse response = channel.readOutbound();
+        assertNotNull(response, "应返回响应");
+        return response;
+    }
+
+    private static String uniqueName(String prefix) {
+        return prefix + "-" + System.nanoTime() + ".csv";
+    }
+
+    private Path storedFile(String fileName) throws IOException {
+        List<Path> matches = storedFiles(fileName);
+        assertEquals(1, matches.size(), "应保存且只保存一个文件: " + fileName);
+        return matches.get(0);
+    }
+
+    private List<Path> storedFiles(String fileName) throws IOException {
+        try (Stream<Path> files = Files.list(storageConfig.getStorageDirectory())) {
+            return files.filter(f -> f.getFileName().toString().endsWith("_" + fileName)).collect(Collectors.toList());
+        }
+    }
+
+    private static byte[] sampleData(int size) {
+        StringBuilder text = new StringBuilder(size + 64);
+        Random random = new Random(42);
+        while (text.length() < size) {
+            text.append("sensor-").append(random.nextInt(16)).append(",value=").append(random.nextInt(100000)).append('\n');
+        }
+        return text.substring(0, size).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 只排队不执行的线程池，由测试在请求体写完后调用runAll在当前线程上执行
+     */
+    private static final class DeferredExecutor extends AbstractExecutorService {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+
+        int pending() {
+            return tasks.size();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return List.copyOf(tasks);
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return false;
+        }
+    }
+}